@@ -0,0 +1,66 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.BatchResponse;
+import com.smartcar.sdk.data.VehicleFuel;
+import com.smartcar.sdk.data.VehicleOdometer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: BatchResponse
+ *
+ * <p>Measures decoding a batch body into a BatchResponse, and the typed getters for a successful
+ * (/odometer) and a failed (/fuel) sub-response, using the BatchResponseMixed unit test fixture.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchResponseBenchmark {
+  private String body;
+  private BatchResponse response;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.body = Fixtures.read("BatchResponseMixed");
+    this.response = ApiClient.gson.fromJson(this.body, BatchResponse.class);
+  }
+
+  @Benchmark
+  public BatchResponse construct() {
+    return ApiClient.gson.fromJson(this.body, BatchResponse.class);
+  }
+
+  @Benchmark
+  public VehicleOdometer constructAndGet() throws SmartcarException {
+    return ApiClient.gson.fromJson(this.body, BatchResponse.class).odometer();
+  }
+
+  @Benchmark
+  public VehicleOdometer getSuccess() throws SmartcarException {
+    return this.response.odometer();
+  }
+
+  @Benchmark
+  public SmartcarException getError() {
+    try {
+      VehicleFuel fuel = this.response.fuel();
+      throw new IllegalStateException("expected an error, got " + fuel);
+    } catch (SmartcarException ex) {
+      return ex;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.smartcar.sdk;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared setup for the benchmarks: the JSON fixtures from the unit tests, and two transports that
+ * serve them by endpoint path. The in-memory transport answers from an OkHttp interceptor, so it
+ * measures only the SDK; the MockWebServer transport adds a real loopback HTTP exchange.
+ */
+final class Fixtures {
+  private static final Map<String, String> cache = new ConcurrentHashMap<>();
+
+  private Fixtures() {}
+
+  /**
+   * Reads a fixture from src/test/resources, the same files the unit tests use.
+   *
+   * @param name the fixture name without the .json extension
+   * @return the fixture contents
+   */
+  static String read(String name) {
+    return cache.computeIfAbsent(name, (key) -> {
+      try {
+        byte[] bytes = Files.readAllBytes(Paths.get(String.format("src/test/resources/%s.json", key)));
+        return new String(bytes, StandardCharsets.UTF_8);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    });
+  }
+
+  /**
+   * Returns the fixture served for a request path.
+   *
+   * @param path the encoded URL path (ex. "/v2.0/vehicles/vehicle-id/odometer")
+   * @return the response body
+   */
+  static String bodyFor(String path) {
+    String endpoint = path.replaceFirst("^/v[0-9.]+/vehicles/[^/]+", "");
+    switch (endpoint) {
+      case "":
+        return read("GetVehicleInfo");
+      case "/odometer":
+        return read("GetOdometer");
+      case "/location":
+        return read("GetLocation");
+      case "/tires/pressure":
+        return read("GetTirePressure");
+      case "/permissions":
+        return read("GetPermissions");
+      case "/security":
+        return read("SecurityAction");
+      case "/batch":
+        return read("BatchResponseSuccess");
+      default:
+        return "{}";
+    }
+  }
+
+  /**
+   * Builds a client whose requests never leave the process, answered with the fixture for their
+   * path.
+   *
+   * @return the client
+   */
+  static SmartcarClient inMemoryClient() {
+    return Fixtures.inMemoryClient(null);
+  }
+
+  /**
+   * Builds a client whose requests never leave the process.
+   *
+   * @param body the body of every response, or null to answer with the fixture for the path
+   * @return the client
+   */
+  static SmartcarClient inMemoryClient(String body) {
+    MediaType json = MediaType.get("application/json; charset=utf-8");
+    Interceptor transport = (chain) -> new Response.Builder()
+        .request(chain.request())
+        .protocol(Protocol.HTTP_1_1)
+        .code(200)
+        .message("OK")
+        .header("sc-request-id", "67127d3a-a08a-41f0-8211-f96da36b2d6e")
+        .header("sc-unit-system", "metric")
+        .body(ResponseBody.create(
+            body != null ? body : Fixtures.bodyFor(chain.request().url().encodedPath()), json))
+        .build();
+    return new SmartcarClient.Builder()
+        .httpClient(new OkHttpClient.Builder().addInterceptor(transport).build())
+        .build();
+  }
+
+  /**
+   * Starts a local HTTP server that serves the fixtures.
+   *
+   * @return the started server
+   * @throws IOException if the server cannot start
+   */
+  static MockWebServer startServer() throws IOException {
+    MockWebServer server = new MockWebServer();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse()
+            .addHeader("content-type", "application/json; charset=utf-8")
+            .addHeader("sc-request-id", "67127d3a-a08a-41f0-8211-f96da36b2d6e")
+            .addHeader("sc-unit-system", "metric")
+            .setBody(Fixtures.bodyFor(request.getRequestUrl().encodedPath()));
+      }
+    });
+    server.start();
+    return server;
+  }
+}
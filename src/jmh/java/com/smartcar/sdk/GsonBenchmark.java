@@ -0,0 +1,54 @@
+package com.smartcar.sdk;
+
+import com.google.gson.GsonBuilder;
+import com.smartcar.sdk.data.Meta;
+import com.smartcar.sdk.data.VehicleLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: per-response Gson cost
+ *
+ * <p>Compares building a new Gson from a GsonBuilder for every response (the previous behavior of
+ * ApiClient.execute, which called create() once for the body and once for the meta) against
+ * reusing the shared, pre-built ApiClient.gson instance. Run with the gc profiler to compare
+ * allocation per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GsonBenchmark {
+  private static final String BODY = "{\"latitude\":37.4292,\"longitude\":122.1381}";
+  private static final String HEADERS =
+      "{\"sc-request-id\":\"67127d3a-a08a-41f0-8211-f96da36b2d6e\","
+          + "\"sc-data-age\":\"2018-06-20T01:33:37.078Z\",\"sc-unit-system\":\"metric\"}";
+
+  private final GsonBuilder builder =
+      new GsonBuilder().setFieldNamingStrategy((field) -> Utils.toCamelCase(field.getName()));
+
+  @Benchmark
+  public VehicleLocation createPerResponse() {
+    VehicleLocation data = this.builder.create().fromJson(BODY, VehicleLocation.class);
+    data.setMeta(this.builder.create().fromJson(HEADERS, Meta.class));
+    return data;
+  }
+
+  @Benchmark
+  public VehicleLocation sharedInstance() {
+    VehicleLocation data = ApiClient.gson.fromJson(BODY, VehicleLocation.class);
+    data.setMeta(ApiClient.gson.fromJson(HEADERS, Meta.class));
+    return data;
+  }
+}
@@ -0,0 +1,57 @@
+package com.smartcar.sdk;
+
+import com.google.gson.JsonObject;
+import com.smartcar.sdk.data.Meta;
+import okhttp3.Headers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: response meta data
+ *
+ * <p>Compares copying every response header into a JsonObject and parsing its string form into
+ * Meta (the previous behavior of ApiClient.execute) against reading the three Smartcar headers
+ * directly with Meta.fromHeaders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetaBenchmark {
+  private final Headers headers = new Headers.Builder()
+      .add("Content-Type", "application/json; charset=utf-8")
+      .add("Content-Length", "48")
+      .add("Date", "Wed, 20 Jun 2018 01:33:37 GMT")
+      .add("Connection", "keep-alive")
+      .add("sc-request-id", "67127d3a-a08a-41f0-8211-f96da36b2d6e")
+      .add("sc-data-age", "2018-06-20T01:33:37.078Z")
+      .add("sc-unit-system", "metric")
+      .add("Strict-Transport-Security", "max-age=31536000")
+      .add("X-Content-Type-Options", "nosniff")
+      .build();
+
+  @Benchmark
+  public Meta jsonRoundTrip() {
+    JsonObject headerJson = new JsonObject();
+    for (String header : this.headers.names()) {
+      headerJson.addProperty(header.toLowerCase(), this.headers.get(header));
+    }
+    return ApiClient.gson.fromJson(headerJson.toString(), Meta.class);
+  }
+
+  @Benchmark
+  public Meta fromHeaders() {
+    return Meta.fromHeaders(this.headers);
+  }
+}
@@ -0,0 +1,97 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: ApiClient.execute deserialization
+ *
+ * <p>Sends a request over the in-memory transport and parses the unit test fixture of each
+ * ApiData type, so the score isolates response decoding and meta data handling per type.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParseBenchmark {
+  private static final Map<String, String> FIXTURES = new HashMap<>();
+
+  static {
+    FIXTURES.put("ActionResponse", "SecurityAction");
+    FIXTURES.put("ApplicationPermissions", "GetPermissions");
+    FIXTURES.put("DisconnectResponse", "DisconnectVehicle");
+    FIXTURES.put("UnsubscribeResponse", "UnsubscribeVehicle");
+    FIXTURES.put("User", "GetUser");
+    FIXTURES.put("VehicleAttributes", "GetVehicleInfo");
+    FIXTURES.put("VehicleBattery", "GetBatteryLevel");
+    FIXTURES.put("VehicleBatteryCapacity", "GetBatteryCapacity");
+    FIXTURES.put("VehicleCharge", "GetChargingStatus");
+    FIXTURES.put("VehicleEngineOil", "GetEngineOil");
+    FIXTURES.put("VehicleFuel", "GetFuel");
+    FIXTURES.put("VehicleIds", "GetVehicles");
+    FIXTURES.put("VehicleLocation", "GetLocation");
+    FIXTURES.put("VehicleOdometer", "GetOdometer");
+    FIXTURES.put("VehicleTirePressure", "GetTirePressure");
+    FIXTURES.put("VehicleVin", "GetVehicleVin");
+    FIXTURES.put("WebhookSubscription", "SubscribeVehicle");
+  }
+
+  @Param({
+    "ActionResponse",
+    "ApplicationPermissions",
+    "DisconnectResponse",
+    "UnsubscribeResponse",
+    "User",
+    "VehicleAttributes",
+    "VehicleBattery",
+    "VehicleBatteryCapacity",
+    "VehicleCharge",
+    "VehicleEngineOil",
+    "VehicleFuel",
+    "VehicleIds",
+    "VehicleLocation",
+    "VehicleOdometer",
+    "VehicleTirePressure",
+    "VehicleVin",
+    "WebhookSubscription"
+  })
+  public String type;
+
+  private SmartcarClient client;
+  private Request request;
+  private Class<? extends ApiData> dataType;
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setup() throws ClassNotFoundException {
+    this.dataType = (Class<? extends ApiData>) Class.forName("com.smartcar.sdk.data." + this.type);
+    this.client = Fixtures.inMemoryClient(Fixtures.read(FIXTURES.get(this.type)));
+    this.request = new Request.Builder()
+        .url(HttpUrl.get("https://api.smartcar.com/v2.0/vehicles/vehicle-id/endpoint"))
+        .build();
+  }
+
+  @Benchmark
+  public ApiData execute() throws SmartcarException {
+    return ApiClient.execute(this.client, this.request, this.dataType);
+  }
+}
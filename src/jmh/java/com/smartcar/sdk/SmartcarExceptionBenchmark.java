@@ -0,0 +1,68 @@
+package com.smartcar.sdk;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: SmartcarException.Factory
+ *
+ * <p>Measures decoding an error response into a SmartcarException for the v2 error format (with
+ * and without a resolution object), the v1 format, and a body that is not JSON, with and without
+ * stack traces for the decoded error types.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmartcarExceptionBenchmark {
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+  @Param({"ErrorVehicleStateV2", "ErrorResolutionObject", "ErrorPermissionV1", "text"})
+  public String fixture;
+
+  @Param({"true", "false"})
+  public boolean stackTraces;
+
+  private String body;
+  private Headers headers;
+  private Set<String> stackTraceFreeTypes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.body = this.fixture.equals("text") ? "upstream request timeout" : Fixtures.read(this.fixture);
+    this.headers = new Headers.Builder()
+        .add("content-type", this.fixture.equals("text") ? "text/plain" : "application/json")
+        .add("sc-request-id", "67127d3a-a08a-41f0-8211-f96da36b2d6e")
+        .build();
+    this.stackTraceFreeTypes = this.stackTraces
+        ? Collections.emptySet()
+        : new HashSet<>(Arrays.asList("VEHICLE_STATE", "PERMISSION", "permission_error"));
+  }
+
+  @Benchmark
+  public SmartcarException factory() {
+    return SmartcarException.Factory(
+        409, this.headers, ResponseBody.create(this.body, JSON), this.stackTraceFreeTypes);
+  }
+}
@@ -0,0 +1,97 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ActionResponse;
+import com.smartcar.sdk.data.BatchResponse;
+import com.smartcar.sdk.data.VehicleLocation;
+import com.smartcar.sdk.data.VehicleOdometer;
+import com.smartcar.sdk.data.VehicleResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: Vehicle.call
+ *
+ * <p>Measures a full vehicle request: building the URL, query and headers, sending it, and
+ * parsing the response. With the memory transport the response comes from an interceptor, so
+ * the score is the SDK overhead alone; with the mockwebserver transport it includes a loopback
+ * HTTP exchange.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleCallBenchmark {
+  @Param({"memory", "mockwebserver"})
+  public String transport;
+
+  private MockWebServer server;
+  private Vehicle vehicle;
+  private SmartcarVehicleRequest customRequest;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    SmartcarVehicleOptions.Builder options = new SmartcarVehicleOptions.Builder();
+    if (this.transport.equals("memory")) {
+      options.client(Fixtures.inMemoryClient());
+    } else {
+      this.server = Fixtures.startServer();
+      options.origin("http://localhost:" + this.server.getPort());
+    }
+    this.vehicle = new Vehicle("36ab27d0-fd9d-4455-823a-ce30af709ffc", "access-token", options.build());
+    this.customRequest = new SmartcarVehicleRequest.Builder()
+        .method("GET")
+        .path("odometer")
+        .addHeader("sc-unit-system", "imperial")
+        .addHeader("sc-custom", "value")
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    if (this.server != null) {
+      this.server.shutdown();
+    }
+  }
+
+  @Benchmark
+  public VehicleOdometer odometer() throws SmartcarException {
+    return this.vehicle.odometer();
+  }
+
+  @Benchmark
+  public VehicleLocation location() throws SmartcarException {
+    return this.vehicle.location();
+  }
+
+  @Benchmark
+  public ActionResponse lock() throws SmartcarException {
+    return this.vehicle.lock();
+  }
+
+  @Benchmark
+  public BatchResponse batch() throws SmartcarException {
+    return this.vehicle.batch(new String[] {"/odometer", "/location"});
+  }
+
+  @Benchmark
+  public VehicleResponse customRequest() throws SmartcarException, IOException {
+    return this.vehicle.request(this.customRequest);
+  }
+}
@@ -0,0 +1,69 @@
+package com.smartcar.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark: webhook signatures
+ *
+ * <p>Measures Smartcar.hashChallenge on a verification challenge, and Smartcar.verifyPayload and
+ * WebhookVerifier.verify over raw bytes on webhook payloads of a typical and a large size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebhookBenchmark {
+  private static final String TOKEN = "9b7c43a8-1b69-4b5b-8fb1-0b1f03c4a3a6";
+
+  @Param({"1024", "65536"})
+  public int payloadSize;
+
+  private String payload;
+  private byte[] payloadBytes;
+  private String signature;
+  private WebhookVerifier verifier;
+
+  @Setup(Level.Trial)
+  public void setup() throws SmartcarException {
+    StringBuilder payload = new StringBuilder("{\"eventId\":\"5b0b8ad0\",\"vehicles\":[");
+    while (payload.length() < this.payloadSize - 64) {
+      payload.append("{\"vehicleId\":\"36ab27d0-fd9d-4455-823a-ce30af709ffc\"},");
+    }
+    payload.append("{}]}");
+    this.payload = payload.toString();
+    this.payloadBytes = this.payload.getBytes(StandardCharsets.UTF_8);
+    this.signature = Smartcar.hashChallenge(TOKEN, this.payload);
+    this.verifier = new WebhookVerifier(TOKEN);
+  }
+
+  @Benchmark
+  public String hashChallenge() throws SmartcarException {
+    return Smartcar.hashChallenge(TOKEN, "9c3b2a3e-2b0f-4d3c-9bbd-4f2f5d3b7e61");
+  }
+
+  @Benchmark
+  public boolean verifyPayload() throws SmartcarException {
+    return Smartcar.verifyPayload(TOKEN, this.signature, this.payload);
+  }
+
+  @Benchmark
+  public boolean verifyBytes() {
+    return this.verifier.verify(this.signature, this.payloadBytes);
+  }
+}
@@ -1,19 +1,34 @@
 package com.smartcar.sdk;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
 import com.smartcar.sdk.data.ApiData;
+import com.smartcar.sdk.data.Auth;
+import com.smartcar.sdk.data.BatchDeserializer;
+import com.smartcar.sdk.data.BatchResponse;
 import com.smartcar.sdk.data.Meta;
+import com.smartcar.sdk.data.VehicleResponse;
+import com.smartcar.sdk.data.VehicleResponseDeserializer;
 import okhttp3.*;
+import okio.BufferedSource;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 /** Provides the core functionality for API client objects. */
 abstract class ApiClient {
   public static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 
+  /** Turns a successful response into a result. Implementations must close the body. */
+  interface ResponseParser<T> {
+    T parse(Response response) throws SmartcarException;
+  }
+
   /**
    * Retrieves the SDK version, falling back to DEVELOPMENT if we're not running from a jar.
    *
@@ -38,12 +53,18 @@ abstract class ApiClient {
           System.getProperty("java.version"),
           System.getProperty("java.vm.name"));
 
-  private static final OkHttpClient client =
-      new OkHttpClient.Builder().readTimeout(310, TimeUnit.SECONDS).build();
-
-
-  static GsonBuilder gson =
-      new GsonBuilder().setFieldNamingStrategy((field) -> Utils.toCamelCase(field.getName()));
+  /**
+   * Shared Gson instance used to parse every API response. Gson instances are immutable and
+   * thread-safe once created, so all custom deserializers are registered here up front and the
+   * reflective type adapter cache is reused across requests.
+   */
+  static final Gson gson =
+      new GsonBuilder()
+          .setFieldNamingStrategy((field) -> Utils.toCamelCase(field.getName()))
+          .registerTypeAdapter(Auth.class, new AuthClient.AuthDeserializer())
+          .registerTypeAdapter(BatchResponse.class, new BatchDeserializer())
+          .registerTypeAdapter(VehicleResponse.class, new VehicleResponseDeserializer())
+          .create();
 
   /**
    * Builds a request object with common headers, using provided request parameters
@@ -54,6 +75,20 @@ abstract class ApiClient {
    * @return
    */
   protected static Request buildRequest(HttpUrl url, String method, RequestBody body, Map<String, String> headers) {
+    return ApiClient.buildRequest(url, method, body, headers, null);
+  }
+
+  /**
+   * Builds a request object with common headers, using provided request parameters
+   * @param url url for the request, including the query parameters
+   * @param method http method
+   * @param body request body
+   * @param headers additional headers to set for the request
+   * @param tag the vehicle and endpoint the request is for, or null
+   * @return
+   */
+  static Request buildRequest(
+      HttpUrl url, String method, RequestBody body, Map<String, String> headers, RequestTag tag) {
     Request.Builder request = new Request.Builder()
                     .url(url)
                     .addHeader("User-Agent", ApiClient.USER_AGENT)
@@ -61,22 +96,28 @@ abstract class ApiClient {
 
     headers.forEach(request::addHeader);
 
+    if (tag != null) {
+      request.tag(RequestTag.class, tag);
+    }
+
     return request.build();
   }
 
   /**
    * Sends the specified request, returning the raw response body.
    *
+   * @param client the client whose transport the request is sent with
    * @param request the desired request to transmit
    * @return the response body
    * @throws SmartcarException if the request is unsuccessful
    */
-  protected static Response execute(Request request) throws SmartcarException {
+  protected static Response execute(SmartcarClient client, Request request) throws SmartcarException {
     try {
-      Response response = ApiClient.client.newCall(request).execute();
+      Response response = client.getHttpClient().newCall(request).execute();
 
       if (!response.isSuccessful()) {
-        throw SmartcarException.Factory(response.code(), response.headers(), response.body());
+        throw SmartcarException.Factory(response.code(), response.headers(), response.body(),
+            client.getStackTraceFreeTypes());
       } else {
         return response;
       }
@@ -90,30 +131,293 @@ abstract class ApiClient {
    * with the unitSystem and age meta data.
    *
    * @param <T> the data container for the parsed response JSON
+   * @param client the client whose transport the request is sent with
    * @param request the desired request to transmit
    * @param dataType the type into which the response will be parsed
    * @return the wrapped response
    * @throws SmartcarException if the request is unsuccessful
    */
   protected static <T extends ApiData> T execute(
-      Request request, Class<T> dataType) throws SmartcarException {
-    Response response = ApiClient.execute(request);
+      SmartcarClient client, Request request, Class<T> dataType) throws SmartcarException {
+    RequestTag tag = request.tag(RequestTag.class);
+    ResponseCacheLayer cache = client.getResponseCacheLayer();
+    if (cache != null && tag != null && request.method().equals("GET")) {
+      return cache.execute(request, tag.getPath(), dataType,
+          () -> ApiClient.fetch(client, request, dataType),
+          () -> ApiClient.fetchAsync(client, request, dataType));
+    }
+    return ApiClient.fetch(client, request, dataType);
+  }
+
+  private static <T extends ApiData> T fetch(
+      SmartcarClient client, Request request, Class<T> dataType) throws SmartcarException {
+    RequestCoalescer coalescer = client.getRequestCoalescer();
+    if (coalescer != null && request.method().equals("GET")) {
+      return coalescer.execute(request, dataType, () -> ApiClient.send(client, request, dataType));
+    }
+    return ApiClient.send(client, request, dataType);
+  }
+
+  private static <T extends ApiData> T send(
+      SmartcarClient client, Request request, Class<T> dataType) throws SmartcarException {
+    return ApiClient.send(client, request, (response) -> ApiClient.parse(response, dataType));
+  }
+
+  private static <T> T send(
+      SmartcarClient client, Request request, ResponseParser<T> parser) throws SmartcarException {
+    RequestScheduler scheduler = client.getRequestScheduler();
+    if (scheduler != null) {
+      return scheduler.execute(request, () -> ApiClient.exchange(client, request, parser));
+    }
+    return ApiClient.exchange(client, request, parser);
+  }
+
+  private static <T> T exchange(
+      SmartcarClient client, Request request, ResponseParser<T> parser) throws SmartcarException {
+    CircuitBreaker breaker = client.getCircuitBreaker();
+    if (breaker == null) {
+      return ApiClient.transmit(client, request, parser);
+    }
+
+    CircuitBreaker.Admission admission = breaker.admit(request);
+    try {
+      T data = ApiClient.transmit(client, request, parser);
+      breaker.learn(request, data);
+      if (admission != null) {
+        admission.complete(null);
+      }
+      return data;
+    } catch (SmartcarException ex) {
+      if (admission != null) {
+        admission.complete(ex);
+      }
+      throw ex;
+    } catch (RuntimeException ex) {
+      if (admission != null) {
+        admission.cancel();
+      }
+      throw ex;
+    }
+  }
+
+  private static <T> T transmit(
+      SmartcarClient client, Request request, ResponseParser<T> parser) throws SmartcarException {
+    RequestListener listener = client.getRequestListener();
+    if (listener == null) {
+      Response response = ApiClient.execute(client, request);
+      return parser.parse(response);
+    }
+
+    long start = System.nanoTime();
+    Response response = null;
+    try {
+      response = ApiClient.execute(client, request);
+      T data = parser.parse(response);
+      ApiClient.notify(listener,
+          RequestEvent.of(request, start, response.code(), ApiClient.bodyLength(response), null));
+      return data;
+    } catch (SmartcarException ex) {
+      long length = response != null ? ApiClient.bodyLength(response) : -1;
+      ApiClient.notify(listener, RequestEvent.of(request, start, ex.getStatusCode(), length, ex));
+      throw ex;
+    }
+  }
+
+  private static long bodyLength(Response response) {
+    ResponseBody body = response.body();
+    return body != null ? body.contentLength() : -1;
+  }
+
+  private static void notify(RequestListener listener, RequestEvent event) {
+    try {
+      listener.onRequestComplete(event);
+    } catch (RuntimeException ex) {
+      // A failing listener must not fail the request.
+    }
+  }
+
+  /**
+   * Sends the specified request without blocking the calling thread. The returned future is
+   * completed on an OkHttp dispatcher thread with the parsed response, or completed exceptionally
+   * with a {@link SmartcarException} if the request is unsuccessful. Cancelling the future cancels
+   * the underlying call.
+   *
+   * @param <T> the data container for the parsed response JSON
+   * @param client the client whose transport the request is sent with
+   * @param request the desired request to transmit
+   * @param dataType the type into which the response will be parsed
+   * @return a future for the wrapped response
+   */
+  protected static <T extends ApiData> CompletableFuture<T> executeAsync(
+      SmartcarClient client, Request request, Class<T> dataType) {
+    RequestTag tag = request.tag(RequestTag.class);
+    ResponseCacheLayer cache = client.getResponseCacheLayer();
+    if (cache != null && tag != null && request.method().equals("GET")) {
+      return cache.executeAsync(request, tag.getPath(), dataType,
+          () -> ApiClient.fetchAsync(client, request, dataType));
+    }
+    return ApiClient.fetchAsync(client, request, dataType);
+  }
+
+  private static <T extends ApiData> CompletableFuture<T> fetchAsync(
+      SmartcarClient client, Request request, Class<T> dataType) {
+    RequestCoalescer coalescer = client.getRequestCoalescer();
+    if (coalescer != null && request.method().equals("GET")) {
+      return coalescer.executeAsync(request, dataType, () -> ApiClient.sendAsync(client, request, dataType));
+    }
+    return ApiClient.sendAsync(client, request, dataType);
+  }
+
+  private static <T extends ApiData> CompletableFuture<T> sendAsync(
+      SmartcarClient client, Request request, Class<T> dataType) {
+    return ApiClient.executeAsync(client, request, (response) -> ApiClient.parse(response, dataType));
+  }
+
+  /**
+   * Sends the specified request without blocking the calling thread, handing the successful
+   * response to the given parser on an OkHttp dispatcher thread. The request is paced, retried and
+   * reported like any other, but it is never served from the response cache or coalesced.
+   *
+   * @param <T> the result of the parser
+   * @param client the client whose transport the request is sent with
+   * @param request the desired request to transmit
+   * @param parser turns the successful response into the result
+   * @return a future for the result of the parser
+   */
+  static <T> CompletableFuture<T> executeAsync(
+      SmartcarClient client, Request request, ResponseParser<T> parser) {
+    RequestScheduler scheduler = client.getRequestScheduler();
+    if (scheduler != null) {
+      return scheduler.executeAsync(request, () -> ApiClient.exchangeAsync(client, request, parser));
+    }
+    return ApiClient.exchangeAsync(client, request, parser);
+  }
+
+  private static <T> CompletableFuture<T> exchangeAsync(
+      SmartcarClient client, Request request, ResponseParser<T> parser) {
+    CircuitBreaker breaker = client.getCircuitBreaker();
+    if (breaker == null) {
+      return ApiClient.transmitAsync(client, request, parser);
+    }
+
+    CircuitBreaker.Admission admission;
+    try {
+      admission = breaker.admit(request);
+    } catch (SmartcarException ex) {
+      CompletableFuture<T> failed = new CompletableFuture<>();
+      failed.completeExceptionally(ex);
+      return failed;
+    }
+
+    CompletableFuture<T> future = ApiClient.transmitAsync(client, request, parser);
+    future.whenComplete((data, ex) -> {
+      if (ex == null) {
+        breaker.learn(request, data);
+      }
+      if (admission == null) {
+        return;
+      }
+      if (ex == null) {
+        admission.complete(null);
+      } else if (ex instanceof SmartcarException) {
+        admission.complete((SmartcarException) ex);
+      } else {
+        // Cancelled; the outcome says nothing about the backend.
+        admission.cancel();
+      }
+    });
+    return future;
+  }
+
+  private static <T> CompletableFuture<T> transmitAsync(
+      SmartcarClient client, Request request, ResponseParser<T> parser) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Call call = client.getHttpClient().newCall(request);
+    RequestListener listener = client.getRequestListener();
+    long start = System.nanoTime();
+
+    call.enqueue(new Callback() {
+      @Override
+      public void onFailure(Call call, IOException ex) {
+        SmartcarException error =
+            new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+        if (listener != null) {
+          ApiClient.notify(listener, RequestEvent.of(request, start, 0, -1, error));
+        }
+        future.completeExceptionally(error);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        SmartcarException error = null;
+        T data = null;
+        try {
+          if (!response.isSuccessful()) {
+            throw SmartcarException.Factory(response.code(), response.headers(), response.body(),
+            client.getStackTraceFreeTypes());
+          }
+          data = parser.parse(response);
+        } catch (SmartcarException ex) {
+          error = ex;
+        } catch (RuntimeException ex) {
+          error = new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+        } finally {
+          response.close();
+        }
+
+        if (listener != null) {
+          ApiClient.notify(listener,
+              RequestEvent.of(request, start, response.code(), ApiClient.bodyLength(response), error));
+        }
+        if (error != null) {
+          future.completeExceptionally(error);
+        } else {
+          future.complete(data);
+        }
+      }
+    });
+
+    future.whenComplete((data, ex) -> {
+      if (future.isCancelled()) {
+        call.cancel();
+      }
+    });
+
+    return future;
+  }
+
+  /**
+   * Parses a successful response into the specified type, attaching the response meta data.
+   *
+   * <p>The body is decoded straight from the response source rather than being copied into a
+   * String first. Decoding goes through a peek of the source, which keeps every byte it reads in
+   * the source's buffer: the whole body is still held in memory, but only once, and the raw text
+   * remains available to report if the body turns out not to be valid for the requested type.
+   *
+   * @param <T> the data container for the parsed response JSON
+   * @param response the successful response
+   * @param dataType the type into which the response will be parsed
+   * @return the wrapped response
+   * @throws SmartcarException if the response body cannot be parsed
+   */
+  private static <T extends ApiData> T parse(Response response, Class<T> dataType)
+      throws SmartcarException {
     T data;
-    Meta meta;
-    String bodyString = "";
+    ResponseBody body = response.body();
 
     try {
-      bodyString = response.body().string();
-      data = ApiClient.gson.create().fromJson(bodyString, dataType);
-      Headers headers = response.headers();
-      JsonObject headerJson = new JsonObject();
-      for (String header: response.headers().names()) {
-        headerJson.addProperty(header.toLowerCase(), headers.get(header));
+      BufferedSource source = body.source();
+      MediaType contentType = body.contentType();
+      Charset charset = contentType != null ? contentType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+      try (Reader reader = new InputStreamReader(source.peek().inputStream(), charset)) {
+        data = ApiClient.gson.fromJson(reader, dataType);
       }
-      String headerJsonString = headerJson.toString();
-      meta = ApiClient.gson.create().fromJson(headerJsonString, Meta.class);
-      data.setMeta(meta);
+      if (data == null) {
+        throw new IllegalStateException("Empty response body");
+      }
+      data.setMeta(Meta.fromHeaders(response.headers()));
     } catch (Exception ex) {
+      String bodyString = ApiClient.readRemaining(body);
       if (bodyString.equals("")) {
         bodyString = "Empty response body";
       }
@@ -123,8 +427,24 @@ abstract class ApiClient {
               .requestId(response.headers().get("sc-request-id"))
               .type("SDK_ERROR")
               .build();
+    } finally {
+      body.close();
     }
 
     return data;
   }
+
+  /**
+   * Reads whatever is left of a response body as text, for use in error descriptions.
+   *
+   * @param body the response body
+   * @return the body text, or an empty string if it cannot be read
+   */
+  private static String readRemaining(ResponseBody body) {
+    try {
+      return body.string();
+    } catch (Exception ex) {
+      return "";
+    }
+  }
 }
@@ -13,7 +13,7 @@ import java.util.*;
 /** Smartcar OAuth 2.0 Authentication Client */
 public class AuthClient {
   /** Custom deserializer for Auth data from the OAuth endpoint. */
-  private class AuthDeserializer implements JsonDeserializer<Auth> {
+  static class AuthDeserializer implements JsonDeserializer<Auth> {
     /**
      * Deserializes the OAuth auth endpoint JSON into a new Auth object.
      *
@@ -44,6 +44,7 @@ public class AuthClient {
   private final String clientSecret;
   private final String redirectUri;
   private final boolean testMode;
+  private final SmartcarClient client;
 
   /**
    * Builds a new AuthClient.
@@ -54,12 +55,14 @@ public class AuthClient {
     private String clientSecret;
     private String redirectUri;
     private boolean testMode;
+    private SmartcarClient client;
 
     public Builder() {
       this.clientId = System.getenv("SMARTCAR_CLIENT_ID");
       this.clientSecret = System.getenv("SMARTCAR_CLIENT_SECRET");
       this.redirectUri = System.getenv("SMARTCAR_REDIRECT_URI");
       this.testMode = false;
+      this.client = null;
     }
 
     public Builder clientId(String clientId) {
@@ -82,6 +85,11 @@ public class AuthClient {
       return this;
     }
 
+    public Builder client(SmartcarClient client) {
+      this.client = client;
+      return this;
+    }
+
     public AuthClient build() throws Exception {
       if (this.clientId == null) {
         throw new Exception("clientId must be defined");
@@ -101,8 +109,7 @@ public class AuthClient {
     this.clientSecret = builder.clientSecret;
     this.redirectUri = builder.redirectUri;
     this.testMode = builder.testMode;
-
-    ApiClient.gson.registerTypeAdapter(Auth.class, new AuthDeserializer());
+    this.client = builder.client != null ? builder.client : SmartcarClient.getDefault();
   }
 
   /**
@@ -214,7 +221,7 @@ public class AuthClient {
     headers.put("Content-Type", "application/x-www-form-urlencoded");
     Request request = ApiClient.buildRequest(urlBuilder.build(), "POST", requestBody, headers);
 
-    return ApiClient.execute(request, Auth.class);
+    return ApiClient.execute(this.client, request, Auth.class);
   }
 
   /**
@@ -0,0 +1,165 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+import com.smartcar.sdk.data.BatchResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges single-endpoint reads of the same vehicle into one /batch request.
+ *
+ * <p>The first read of a vehicle opens a batch that is sent when the window elapses, or as soon
+ * as it holds maxBatchSize distinct paths. Reads of the same vehicle, access token and unit
+ * system that arrive in the meantime join it. When the batch completes each caller receives its
+ * own sub-response decoded into its own type, or the SmartcarException of that sub-response; if
+ * the /batch request itself fails, every caller receives that error.
+ */
+final class AutoBatcher {
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final ConcurrentHashMap<String, PendingBatch> pending = new ConcurrentHashMap<>();
+
+  /** A caller waiting on a batch. */
+  private static final class Waiter<T extends ApiData> {
+    private final String path;
+    private final Class<T> dataType;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    Waiter(String path, Class<T> dataType) {
+      this.path = path;
+      this.dataType = dataType;
+    }
+
+    void complete(BatchResponse response) {
+      try {
+        this.future.complete(response.get(this.path, this.dataType));
+      } catch (SmartcarException | RuntimeException ex) {
+        this.future.completeExceptionally(ex);
+      }
+    }
+  }
+
+  /** The reads collected for one vehicle while its batch is open. */
+  private final class PendingBatch {
+    private final String key;
+    private final Function<String[], CompletableFuture<BatchResponse>> sender;
+    private final Set<String> paths = new LinkedHashSet<>();
+    private final List<Waiter<?>> waiters = new ArrayList<>();
+    private boolean closed;
+
+    PendingBatch(String key, Function<String[], CompletableFuture<BatchResponse>> sender) {
+      this.key = key;
+      this.sender = sender;
+    }
+
+    /**
+     * Adds a reader, unless the batch has already been sent.
+     *
+     * @return false if the batch is closed and the caller must open a new one
+     */
+    synchronized boolean add(Waiter<?> waiter) {
+      if (this.closed) {
+        return false;
+      }
+      this.paths.add(waiter.path);
+      this.waiters.add(waiter);
+      return true;
+    }
+
+    synchronized boolean isFull() {
+      return this.paths.size() >= AutoBatcher.this.maxBatchSize;
+    }
+
+    void flush() {
+      String[] paths;
+      List<Waiter<?>> waiters;
+      synchronized (this) {
+        if (this.closed) {
+          return;
+        }
+        this.closed = true;
+        paths = this.paths.toArray(new String[0]);
+        waiters = this.waiters;
+      }
+      AutoBatcher.this.pending.remove(this.key, this);
+
+      CompletableFuture<BatchResponse> call;
+      try {
+        call = this.sender.apply(paths);
+      } catch (RuntimeException ex) {
+        call = new CompletableFuture<>();
+        call.completeExceptionally(ex);
+      }
+      call.whenComplete((response, ex) -> {
+        for (Waiter<?> waiter : waiters) {
+          if (ex != null) {
+            waiter.future.completeExceptionally(RequestCoalescer.unwrap(ex));
+          } else {
+            waiter.complete(response);
+          }
+        }
+      });
+    }
+  }
+
+  AutoBatcher(long window, TimeUnit unit, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be at least 1");
+    }
+    this.windowNanos = unit.toNanos(window);
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Returns whether reads of the given endpoint can be served from a /batch request.
+   *
+   * @param path the normalized path of the endpoint (ex. "/odometer")
+   * @return true if the endpoint can be batched
+   */
+  static boolean isBatchable(String path) {
+    return Endpoint.forPath(path) != null;
+  }
+
+  /**
+   * Adds a read to the open batch for the key, opening one if needed.
+   *
+   * @param key identifies the vehicle, access token and unit system of the read
+   * @param path the normalized path of the endpoint
+   * @param dataType the type into which the sub-response will be decoded
+   * @param sender sends a /batch request for the given paths
+   * @return a future for the decoded sub-response
+   */
+  <T extends ApiData> CompletableFuture<T> submit(
+      String key,
+      String path,
+      Class<T> dataType,
+      Function<String[], CompletableFuture<BatchResponse>> sender) {
+    Waiter<T> waiter = new Waiter<>(path, dataType);
+    while (true) {
+      PendingBatch batch = this.pending.get(key);
+      if (batch == null) {
+        PendingBatch created = new PendingBatch(key, sender);
+        batch = this.pending.putIfAbsent(key, created);
+        if (batch == null) {
+          batch = created;
+          SharedTimer.schedule(created::flush, this.windowNanos, TimeUnit.NANOSECONDS);
+        }
+      }
+      if (batch.add(waiter)) {
+        if (batch.isFull()) {
+          batch.flush();
+        }
+        return waiter.future;
+      }
+      // The batch was sent between the lookup and the add.
+      this.pending.remove(key, batch);
+    }
+  }
+}
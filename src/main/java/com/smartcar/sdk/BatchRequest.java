@@ -0,0 +1,115 @@
+package com.smartcar.sdk;
+
+import okhttp3.RequestBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The endpoints to read in one /batch request. A BatchRequest is immutable and its body is encoded
+ * once when it is built, so the same request can be sent to any number of vehicles.
+ *
+ * <pre>{@code
+ * BatchRequest request = new BatchRequest.Builder()
+ *     .add(Endpoint.ODOMETER)
+ *     .add(Endpoint.LOCATION)
+ *     .add(Endpoint.of("/tesla/charge/ammeter"))
+ *     .build();
+ * BatchResponse response = vehicle.batch(request);
+ * VehicleOdometer odometer = response.get(Endpoint.ODOMETER);
+ * }</pre>
+ */
+public final class BatchRequest {
+  private final List<Endpoint<?>> endpoints;
+  private final byte[] body;
+
+  public static class Builder {
+    private final Set<Endpoint<?>> endpoints;
+
+    public Builder() {
+      this.endpoints = new LinkedHashSet<>();
+    }
+
+    public Builder add(Endpoint<?> endpoint) {
+      this.endpoints.add(endpoint);
+      return this;
+    }
+
+    /**
+     * Adds an endpoint by path. The SDK's own endpoints are decoded into their usual types; any
+     * other path is added as {@link Endpoint#of(String)}.
+     *
+     * @param path the path of the endpoint (ex. "/odometer")
+     * @return this builder
+     */
+    public Builder add(String path) {
+      return this.add(BatchRequest.endpoint(path));
+    }
+
+    public BatchRequest build() throws SmartcarException {
+      if (this.endpoints.isEmpty()) {
+        throw new SmartcarException.Builder()
+            .type("SDK_ERROR")
+            .description("A batch request must contain at least one endpoint")
+            .build();
+      }
+      return new BatchRequest(new ArrayList<>(this.endpoints));
+    }
+  }
+
+  private BatchRequest(List<Endpoint<?>> endpoints) {
+    this.endpoints = Collections.unmodifiableList(endpoints);
+    this.body = BatchRequest.encode(endpoints).getBytes(StandardCharsets.UTF_8);
+  }
+
+  public List<Endpoint<?>> getEndpoints() {
+    return this.endpoints;
+  }
+
+  RequestBody body() {
+    return RequestBody.create(this.body, ApiClient.JSON);
+  }
+
+  /**
+   * Builds the JSON body of a /batch request for raw paths.
+   *
+   * @param paths the paths of endpoints to send requests to
+   * @return the request body
+   */
+  static RequestBody body(String[] paths) {
+    StringBuilder json = new StringBuilder(16 + 32 * paths.length).append("{\"requests\":[");
+    for (int i = 0; i < paths.length; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      // Paths are sent as given, since the sub-responses are keyed by the requested path.
+      Endpoint<?> endpoint = Endpoint.forPath(paths[i]);
+      if (endpoint != null) {
+        json.append(endpoint.toJson());
+      } else {
+        json.append("{\"path\":").append(ApiClient.gson.toJson(paths[i])).append('}');
+      }
+    }
+    return RequestBody.create(json.append("]}").toString(), ApiClient.JSON);
+  }
+
+  private static Endpoint<?> endpoint(String path) {
+    Endpoint<?> endpoint = Endpoint.forPath(RequestTag.normalizePath(path));
+    return endpoint != null ? endpoint : Endpoint.of(path);
+  }
+
+  private static String encode(List<Endpoint<?>> endpoints) {
+    StringBuilder json = new StringBuilder(16 + 32 * endpoints.size()).append("{\"requests\":[");
+    for (int i = 0; i < endpoints.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(endpoints.get(i).toJson());
+    }
+    return json.append("]}").toString();
+  }
+}
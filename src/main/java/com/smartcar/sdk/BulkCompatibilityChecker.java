@@ -0,0 +1,559 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Compatibility;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Checks the compatibility of many VINs, with a bounded number of requests in flight.
+ *
+ * <p>VINs are read from the input only as capacity frees up, and every result is handed to the
+ * {@link Sink} as soon as it arrives and then dropped, so memory use does not grow with the
+ * number of results. VINs are normalized (trimmed and upper-cased) and repeated VINs are counted
+ * as duplicates rather than checked again. Detecting them means remembering the VINs already
+ * seen, which is the one part of a run that grows with its input: up to
+ * {@link Builder#maxTrackedVins(int)} distinct VINs (about 100 bytes each) are remembered, and a
+ * VIN that repeats after more distinct VINs than that is checked again. Every check uses the
+ * scope, country, flags and credentials of a template request.
+ *
+ * <p>By default the checker builds its own client, which paces requests with a
+ * {@link RateLimiter} and retries rate limits and server errors with a {@link RetryPolicy}.
+ * Such a checker owns its client; close it to release that client's connections and threads.
+ *
+ * <pre>{@code
+ * try (BulkCompatibilityChecker checker = new BulkCompatibilityChecker.Builder()
+ *         .template(new SmartcarCompatibilityRequest.Builder().scope(scope).build())
+ *         .maxConcurrency(32)
+ *         .build();
+ *     Reader in = Files.newBufferedReader(input);
+ *     Writer out = Files.newBufferedWriter(output)) {
+ *   checker.checkCsv(in, "vin", BulkCompatibilityChecker.csvSink(out));
+ * }
+ * }</pre>
+ */
+public final class BulkCompatibilityChecker implements AutoCloseable {
+  private final SmartcarCompatibilityRequest template;
+  private final SmartcarClient client;
+  private final SmartcarClient ownedClient;
+  private final CompatibilityCache cache;
+  private final VinPrescreener prescreener;
+  private final int maxConcurrency;
+  private final int maxTrackedVins;
+
+  /**
+   * Receives the outcome of each VIN. Called from OkHttp dispatcher threads, possibly
+   * concurrently, so implementations must be safe for concurrent use. Exceptions thrown by the
+   * sink are ignored.
+   */
+  public interface Sink {
+    void onResult(String vin, Compatibility compatibility);
+
+    void onFailure(String vin, SmartcarException error);
+  }
+
+  /** Counts of what happened during a run. */
+  public static final class Summary {
+    private final long compatible;
+    private final long incompatible;
+    private final long failed;
+    private final long duplicates;
+
+    private Summary(long compatible, long incompatible, long failed, long duplicates) {
+      this.compatible = compatible;
+      this.incompatible = incompatible;
+      this.failed = failed;
+      this.duplicates = duplicates;
+    }
+
+    public long getCompatible() { return this.compatible; }
+
+    public long getIncompatible() { return this.incompatible; }
+
+    public long getFailed() { return this.failed; }
+
+    /** @return the number of VINs skipped because they had already been checked in the run */
+    public long getDuplicates() { return this.duplicates; }
+  }
+
+  public static class Builder {
+    private SmartcarCompatibilityRequest template;
+    private SmartcarClient client;
+    private CompatibilityCache cache;
+    private VinPrescreener prescreener;
+    private int maxConcurrency;
+    private double requestsPerSecond;
+    private int maxTrackedVins;
+
+    public Builder() {
+      this.template = null;
+      this.client = null;
+      this.cache = null;
+      this.prescreener = null;
+      this.maxConcurrency = 16;
+      this.requestsPerSecond = 20;
+      this.maxTrackedVins = 1000000;
+    }
+
+    /**
+     * Sets the request whose scope, country, version, flags, test mode and credentials are used
+     * for every VIN. Its VIN is ignored. Required.
+     *
+     * @param template the template request
+     * @return this builder
+     */
+    public Builder template(SmartcarCompatibilityRequest template) {
+      this.template = template;
+      return this;
+    }
+
+    /**
+     * Sends the requests through the given client, whose own rate limiter and retry policy then
+     * apply instead of the default ones. A client given here is not released by
+     * {@link BulkCompatibilityChecker#close}.
+     *
+     * @param client the client to use
+     * @return this builder
+     */
+    public Builder client(SmartcarClient client) {
+      this.client = client;
+      return this;
+    }
+
+    /**
+     * Answers VINs from the given cache where it can, and stores the new answers in it.
+     *
+     * @param cache the cache to use
+     * @return this builder
+     */
+    public Builder cache(CompatibilityCache cache) {
+      this.cache = cache;
+      return this;
+    }
+
+    /**
+     * Answers the VINs that fail the prescreener locally, without a request. Its own cache, if
+     * any, is not used; set one with {@link #cache(CompatibilityCache)}.
+     *
+     * @param prescreener the prescreener to use
+     * @return this builder
+     */
+    public Builder prescreener(VinPrescreener prescreener) {
+      this.prescreener = prescreener;
+      return this;
+    }
+
+    /**
+     * Sets how many checks may be in flight at once. Defaults to 16.
+     *
+     * @param maxConcurrency the concurrency limit
+     * @return this builder
+     */
+    public Builder maxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets the sustained request rate of the default client. Defaults to 20 requests per second.
+     *
+     * @param requestsPerSecond the request rate
+     * @return this builder
+     */
+    public Builder rate(double requestsPerSecond) {
+      this.requestsPerSecond = requestsPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets how many distinct VINs a run remembers to detect duplicates. The oldest are forgotten
+     * beyond this, so a VIN repeated further apart is checked again. 0 disables duplicate
+     * detection. Defaults to 1,000,000.
+     *
+     * @param maxTrackedVins the number of VINs remembered
+     * @return this builder
+     */
+    public Builder maxTrackedVins(int maxTrackedVins) {
+      this.maxTrackedVins = maxTrackedVins;
+      return this;
+    }
+
+    public BulkCompatibilityChecker build() throws SmartcarException {
+      if (this.template == null) {
+        throw new SmartcarException.Builder()
+            .type("SDK_ERROR")
+            .description("A template compatibility request is required")
+            .build();
+      }
+      return new BulkCompatibilityChecker(this);
+    }
+  }
+
+  private BulkCompatibilityChecker(Builder builder) {
+    SmartcarClient client = builder.client;
+    if (client == null) {
+      client = new SmartcarClient.Builder()
+          .maxRequests(builder.maxConcurrency)
+          .maxRequestsPerHost(builder.maxConcurrency)
+          .rateLimiter(new RateLimiter.Builder()
+              .applicationRate(builder.requestsPerSecond, Math.max(1, (int) builder.requestsPerSecond))
+              .build())
+          .retryPolicy(new RetryPolicy.Builder().build())
+          .build();
+      this.ownedClient = client;
+    } else {
+      this.ownedClient = null;
+    }
+    this.template = builder.template;
+    this.client = client;
+    this.cache = builder.cache;
+    this.prescreener = builder.prescreener;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.maxTrackedVins = builder.maxTrackedVins;
+  }
+
+  /**
+   * Checks every VIN of the iterable, blocking until every result has been handed to the sink.
+   *
+   * @param vins the VINs to check; blank entries are skipped
+   * @param sink receives the outcome of each VIN
+   * @return the counts of the run
+   * @throws InterruptedException if the calling thread is interrupted, in which case the checks
+   *     in flight are cancelled
+   */
+  public Summary check(Iterable<String> vins, Sink sink) throws InterruptedException {
+    return this.check(vins.iterator(), sink);
+  }
+
+  /**
+   * Checks every VIN of the stream. See {@link #check(Iterable, Sink)}.
+   *
+   * @param vins the VINs to check; blank entries are skipped
+   * @param sink receives the outcome of each VIN
+   * @return the counts of the run
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  public Summary check(Stream<String> vins, Sink sink) throws InterruptedException {
+    return this.check(vins.iterator(), sink);
+  }
+
+  /**
+   * Checks the VINs of a CSV column, reading the input one line at a time. The first line must be
+   * a header naming the columns. Quoted fields are supported, but not line breaks inside them.
+   *
+   * @param csv the CSV input
+   * @param column the header of the column holding the VINs, matched ignoring case
+   * @param sink receives the outcome of each VIN
+   * @return the counts of the run
+   * @throws SmartcarException if the input cannot be read or has no such column
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  public Summary checkCsv(Reader csv, String column, Sink sink)
+      throws SmartcarException, InterruptedException {
+    BufferedReader reader = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv);
+    try {
+      String header = reader.readLine();
+      int index = -1;
+      if (header != null && header.startsWith("\uFEFF")) {
+        // Spreadsheet exports often start with a byte order mark.
+        header = header.substring(1);
+      }
+      if (header != null) {
+        List<String> names = BulkCompatibilityChecker.splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+          if (names.get(i).trim().equalsIgnoreCase(column)) {
+            index = i;
+            break;
+          }
+        }
+      }
+      if (index < 0) {
+        throw new SmartcarException.Builder()
+            .type("SDK_ERROR")
+            .description("The CSV input has no column named " + column)
+            .build();
+      }
+      return this.check(new CsvColumn(reader, index), sink);
+    } catch (IOException | UncheckedIOException ex) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("Could not read the CSV input: " + ex.getMessage())
+          .build();
+    }
+  }
+
+  /**
+   * Returns a sink that writes one CSV row per capability of each VIN to the writer, after a
+   * header row: vin, compatible, reason, endpoint, permission, capable, capability_reason. A VIN
+   * without capabilities gets one row with empty capability columns, and a failed VIN one row
+   * with compatible set to "error" and the error type as its reason. Write errors are ignored;
+   * the writer is not closed.
+   *
+   * @param writer the writer to write to
+   * @return the sink
+   */
+  public static Sink csvSink(Writer writer) {
+    return new CsvSink(writer);
+  }
+
+  /**
+   * Releases the connections and dispatcher threads of the client the checker built for itself.
+   * Does nothing if the builder was given a client. The checker must not be used afterwards.
+   */
+  @Override
+  public void close() {
+    if (this.ownedClient != null) {
+      this.ownedClient.shutdown();
+    }
+  }
+
+  private Summary check(Iterator<String> vins, Sink sink) throws InterruptedException {
+    Semaphore permits = new Semaphore(this.maxConcurrency, true);
+    Set<String> seen = Collections.newSetFromMap(new BoundedLinkedHashMap<>(this.maxTrackedVins));
+    Set<CompletableFuture<Compatibility>> inFlight = ConcurrentHashMap.newKeySet();
+    AtomicLong compatible = new AtomicLong();
+    AtomicLong incompatible = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    long duplicates = 0;
+
+    try {
+      while (vins.hasNext()) {
+        String vin = vins.next();
+        if (vin == null || (vin = vin.trim()).isEmpty()) {
+          continue;
+        }
+        vin = vin.toUpperCase(Locale.ROOT);
+        if (!seen.add(vin)) {
+          duplicates++;
+          continue;
+        }
+        permits.acquire();
+        this.submit(vin, sink, permits, inFlight, compatible, incompatible, failed);
+      }
+      permits.acquire(this.maxConcurrency);
+    } finally {
+      for (CompletableFuture<Compatibility> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+    return new Summary(compatible.get(), incompatible.get(), failed.get(), duplicates);
+  }
+
+  private void submit(
+      String vin,
+      Sink sink,
+      Semaphore permits,
+      Set<CompletableFuture<Compatibility>> inFlight,
+      AtomicLong compatible,
+      AtomicLong incompatible,
+      AtomicLong failed) {
+    SmartcarCompatibilityRequest request = new SmartcarCompatibilityRequest(this.template, vin, this.client);
+    Compatibility local = this.prescreener != null && !request.getTestMode()
+        ? VinPrescreener.answer(this.prescreener.screen(vin))
+        : null;
+    CompletableFuture<Compatibility> future;
+    try {
+      if (local != null) {
+        future = CompletableFuture.completedFuture(local);
+      } else if (this.cache != null) {
+        future = this.cache.getAsync(request);
+      } else {
+        future = Smartcar.getCompatibilityAsync(request);
+      }
+    } catch (RuntimeException ex) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(ex);
+    }
+    CompletableFuture<Compatibility> call = future;
+    inFlight.add(call);
+
+    call.whenComplete((compatibility, ex) -> {
+      inFlight.remove(call);
+      try {
+        if (ex == null) {
+          (compatibility.getCompatible() ? compatible : incompatible).incrementAndGet();
+          sink.onResult(vin, compatibility);
+        } else {
+          failed.incrementAndGet();
+          sink.onFailure(vin, BulkCompatibilityChecker.toSmartcarException(ex));
+        }
+      } catch (RuntimeException sinkError) {
+        // A failing sink must not stall the run.
+      } finally {
+        permits.release();
+      }
+    });
+  }
+
+  private static SmartcarException toSmartcarException(Throwable ex) {
+    Throwable cause = RequestCoalescer.unwrap(ex);
+    if (cause instanceof SmartcarException) {
+      return (SmartcarException) cause;
+    }
+    return new SmartcarException.Builder().type("SDK_ERROR").description(String.valueOf(cause.getMessage())).build();
+  }
+
+  /** Splits one CSV line into its fields, honoring double-quoted fields. */
+  static List<String> splitCsv(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /** A map that drops its eldest entry once it holds more than a given number of entries. */
+  private static final class BoundedLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+    private final int maxSize;
+
+    BoundedLinkedHashMap(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return this.size() > this.maxSize;
+    }
+  }
+
+  /** The values of one column of a CSV input, read lazily. */
+  private static final class CsvColumn implements Iterator<String> {
+    private final BufferedReader reader;
+    private final int index;
+    private String next;
+    private boolean done;
+
+    CsvColumn(BufferedReader reader, int index) {
+      this.reader = reader;
+      this.index = index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (this.next != null) {
+        return true;
+      }
+      if (this.done) {
+        return false;
+      }
+      try {
+        String line;
+        while ((line = this.reader.readLine()) != null) {
+          List<String> fields = BulkCompatibilityChecker.splitCsv(line);
+          if (this.index < fields.size()) {
+            this.next = fields.get(this.index);
+            return true;
+          }
+        }
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      this.done = true;
+      return false;
+    }
+
+    @Override
+    public String next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String next = this.next;
+      this.next = null;
+      return next;
+    }
+  }
+
+  private static final class CsvSink implements Sink {
+    private final Writer writer;
+    private boolean headerWritten;
+
+    CsvSink(Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public synchronized void onResult(String vin, Compatibility compatibility) {
+      String compatible = String.valueOf(compatibility.getCompatible());
+      Compatibility.Capability[] capabilities = compatibility.getCapabilities();
+      if (capabilities == null || capabilities.length == 0) {
+        this.row(vin, compatible, compatibility.getReason(), null, null, null, null);
+        return;
+      }
+      for (Compatibility.Capability capability : capabilities) {
+        this.row(vin, compatible, compatibility.getReason(), capability.getEndpoint(),
+            capability.getPermission(), String.valueOf(capability.getCapable()), capability.getReason());
+      }
+    }
+
+    @Override
+    public synchronized void onFailure(String vin, SmartcarException error) {
+      this.row(vin, "error", error.getType(), null, null, null, null);
+    }
+
+    private void row(String... values) {
+      try {
+        if (!this.headerWritten) {
+          this.writer.write("vin,compatible,reason,endpoint,permission,capable,capability_reason\n");
+          this.headerWritten = true;
+        }
+        for (int i = 0; i < values.length; i++) {
+          if (i > 0) {
+            this.writer.write(',');
+          }
+          this.writer.write(CsvSink.escape(values[i]));
+        }
+        this.writer.write('\n');
+      } catch (IOException ex) {
+        // A sink cannot throw; see csvSink.
+      }
+    }
+
+    private static String escape(String value) {
+      if (value == null) {
+        return "";
+      }
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+}
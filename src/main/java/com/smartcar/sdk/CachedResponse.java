@@ -0,0 +1,55 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+
+/** A vehicle read response held by a {@link ResponseCache}. */
+public final class CachedResponse {
+  private final ApiData data;
+  private final String path;
+  private final long recordedAt;
+  private final long fetchedAt;
+
+  CachedResponse(ApiData data, String path, long recordedAt, long fetchedAt) {
+    this.data = data;
+    this.path = path;
+    this.recordedAt = recordedAt;
+    this.fetchedAt = fetchedAt;
+  }
+
+  /**
+   * Returns the parsed response.
+   *
+   * @return the response data
+   */
+  public ApiData getData() {
+    return this.data;
+  }
+
+  /**
+   * Returns the vehicle endpoint path the response came from (ex. "/odometer").
+   *
+   * @return the endpoint path
+   */
+  public String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Returns when the vehicle data was recorded, taken from the sc-data-age header and capped at
+   * the fetch time. Freshness is measured from this instant.
+   *
+   * @return the record time in epoch milliseconds
+   */
+  public long getRecordedAt() {
+    return this.recordedAt;
+  }
+
+  /**
+   * Returns when the response was received.
+   *
+   * @return the fetch time in epoch milliseconds
+   */
+  public long getFetchedAt() {
+    return this.fetchedAt;
+  }
+}
@@ -0,0 +1,464 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.VehicleAttributes;
+import okhttp3.Request;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Stops sending requests to a part of the API that keeps failing, plugged into a client with
+ * {@link SmartcarClient.Builder#circuitBreaker(CircuitBreaker)}.
+ *
+ * <p>Requests are grouped into circuits by a {@link KeyBy} dimension: the endpoint path, the
+ * vehicle, or the vehicle's make. Each circuit keeps the outcome of its last windowSize
+ * requests; a request counts as failed if the error classifier accepts its SmartcarException
+ * (by default network errors, 5xx responses and UPSTREAM or SERVER errors) or if it took longer
+ * than the slow call threshold. Once minimumCalls outcomes are known and the failure rate
+ * reaches the threshold, the circuit opens: requests fail at once with a SmartcarException of
+ * type SDK_ERROR and code CIRCUIT_OPEN, whose retry-after is the time left before the circuit
+ * half-opens.
+ * A half-open circuit lets a few probe requests through; if they all succeed it closes, and if
+ * any fails it opens again.
+ *
+ * <p>The breaker applies to every attempt, so a retry that meets an open circuit fails fast
+ * instead of waiting for the backend.
+ *
+ * <pre>{@code
+ * CircuitBreaker breaker = new CircuitBreaker.Builder()
+ *     .keyBy(CircuitBreaker.KeyBy.MAKE)
+ *     .failureRateThreshold(0.5)
+ *     .slowCallThreshold(30, TimeUnit.SECONDS)
+ *     .openDuration(60, TimeUnit.SECONDS)
+ *     .build();
+ * }</pre>
+ */
+public final class CircuitBreaker {
+  private final KeyBy keyBy;
+  private final int windowSize;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final int probes;
+  private final Predicate<SmartcarException> failureClassifier;
+  private final Listener listener;
+  private final ConcurrentLruMap<String, Circuit> circuits;
+  private final ConcurrentLruMap<String, String> makes;
+
+  private static final long ADMITTED = -1;
+  private static final long PROBE = -2;
+
+  /** The dimension by which requests are grouped into circuits. */
+  public enum KeyBy {
+    /**
+     * The endpoint path (ex. "/odometer"), shared by all vehicles. Requests that are not made to
+     * a vehicle are keyed by their URL path.
+     */
+    PATH,
+    /** The vehicle ID. Requests that are not made to a vehicle are not guarded. */
+    VEHICLE,
+    /**
+     * The make of the vehicle, learned from the responses of {@link Vehicle#attributes()} or
+     * given with {@link CircuitBreaker#registerMake}. Requests for vehicles whose make is not
+     * known yet, and requests that are not made to a vehicle, are not guarded.
+     */
+    MAKE
+  }
+
+  /** The state of a circuit. */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  /** Receives state changes. Called on the thread that completed the request. */
+  public interface Listener {
+    void onStateChange(String key, State from, State to);
+  }
+
+  public static class Builder {
+    private KeyBy keyBy;
+    private int windowSize;
+    private int minimumCalls;
+    private double failureRateThreshold;
+    private long slowCallNanos;
+    private long openNanos;
+    private int probes;
+    private Predicate<SmartcarException> failureClassifier;
+    private Listener listener;
+    private int maxCircuits;
+
+    public Builder() {
+      this.keyBy = KeyBy.PATH;
+      this.windowSize = 50;
+      this.minimumCalls = 20;
+      this.failureRateThreshold = 0.5;
+      this.slowCallNanos = Long.MAX_VALUE;
+      this.openNanos = TimeUnit.SECONDS.toNanos(30);
+      this.probes = 3;
+      this.failureClassifier = CircuitBreaker::isServerFailure;
+      this.listener = null;
+      this.maxCircuits = 10000;
+    }
+
+    public Builder keyBy(KeyBy keyBy) {
+      this.keyBy = keyBy;
+      return this;
+    }
+
+    /**
+     * Sets how many of the latest outcomes of a circuit are kept, and how many must be known
+     * before the circuit may open. Default to 50 and 20.
+     *
+     * @param windowSize the number of outcomes kept
+     * @param minimumCalls the number of outcomes needed to open the circuit
+     * @return this builder
+     */
+    public Builder window(int windowSize, int minimumCalls) {
+      this.windowSize = windowSize;
+      this.minimumCalls = Math.min(minimumCalls, windowSize);
+      return this;
+    }
+
+    /**
+     * Sets the fraction of failed requests in the window at which the circuit opens. Defaults
+     * to 0.5.
+     *
+     * @param failureRateThreshold the failure rate, between 0 and 1
+     * @return this builder
+     */
+    public Builder failureRateThreshold(double failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+      return this;
+    }
+
+    /**
+     * Counts requests that take longer than the given duration as failed, even if they succeed.
+     * Disabled by default.
+     *
+     * @param duration the slow call threshold
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder slowCallThreshold(long duration, TimeUnit unit) {
+      this.slowCallNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Sets how long an open circuit fails requests before it half-opens. Defaults to 30 seconds.
+     *
+     * @param duration the open duration
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder openDuration(long duration, TimeUnit unit) {
+      this.openNanos = unit.toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Sets how many probe requests a half-open circuit lets through, all of which must succeed
+     * for it to close. Defaults to 3.
+     *
+     * @param probes the number of probe requests
+     * @return this builder
+     */
+    public Builder probes(int probes) {
+      this.probes = Math.max(1, probes);
+      return this;
+    }
+
+    /**
+     * Decides which errors count as failures. Defaults to network errors, 5xx responses and
+     * errors of type UPSTREAM or SERVER; client errors such as VEHICLE_STATE or PERMISSION say
+     * nothing about the health of the backend.
+     *
+     * @param failureClassifier accepts the errors that count as failures
+     * @return this builder
+     */
+    public Builder failureClassifier(Predicate<SmartcarException> failureClassifier) {
+      this.failureClassifier = failureClassifier;
+      return this;
+    }
+
+    public Builder listener(Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Sets how many circuits, and with {@link KeyBy#MAKE} how many vehicle makes, are
+     * remembered. The least recently used are forgotten first. Defaults to 10,000.
+     *
+     * @param maxCircuits the maximum number of circuits
+     * @return this builder
+     */
+    public Builder maxCircuits(int maxCircuits) {
+      this.maxCircuits = maxCircuits;
+      return this;
+    }
+
+    public CircuitBreaker build() {
+      return new CircuitBreaker(this);
+    }
+  }
+
+  private CircuitBreaker(Builder builder) {
+    this.keyBy = builder.keyBy;
+    this.windowSize = builder.windowSize;
+    this.minimumCalls = builder.minimumCalls;
+    this.failureRateThreshold = builder.failureRateThreshold;
+    this.slowCallNanos = builder.slowCallNanos;
+    this.openNanos = builder.openNanos;
+    this.probes = builder.probes;
+    this.failureClassifier = builder.failureClassifier;
+    this.listener = builder.listener;
+    this.circuits = new ConcurrentLruMap<>(builder.maxCircuits, Long.MAX_VALUE, (circuit) -> 1, 16);
+    this.makes = builder.keyBy == KeyBy.MAKE
+        ? new ConcurrentLruMap<>(builder.maxCircuits * 10, Long.MAX_VALUE, (make) -> 1, 16)
+        : null;
+  }
+
+  private static boolean isServerFailure(SmartcarException ex) {
+    int status = ex.getStatusCode();
+    return status == 0 && !"CIRCUIT_OPEN".equals(ex.getCode())
+        || status >= 500
+        || "UPSTREAM".equals(ex.getType())
+        || "SERVER".equals(ex.getType());
+  }
+
+  /**
+   * Records the make of a vehicle, for {@link KeyBy#MAKE}. Makes are also learned from the
+   * responses of {@link Vehicle#attributes()}.
+   *
+   * @param vehicleId the vehicle ID
+   * @param make the make of the vehicle (ex. "TESLA")
+   */
+  public void registerMake(String vehicleId, String make) {
+    if (this.makes != null && vehicleId != null && make != null) {
+      this.makes.put(vehicleId, make.toUpperCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Learns the make of a vehicle from a successful response, if it is the vehicle's attributes.
+   *
+   * @param request the request that was sent
+   * @param data the parsed response
+   */
+  void learn(Request request, Object data) {
+    if (this.makes != null && data instanceof VehicleAttributes) {
+      RequestTag tag = request.tag(RequestTag.class);
+      if (tag != null) {
+        this.registerMake(tag.getVehicleId(), ((VehicleAttributes) data).getMake());
+      }
+    }
+  }
+
+  /**
+   * Returns the state of a circuit.
+   *
+   * @param key the circuit key (a path, a vehicle ID or an upper-case make)
+   * @return the state, CLOSED for circuits that have seen no requests
+   */
+  public State getState(String key) {
+    Circuit circuit = this.circuits.get(key);
+    return circuit == null ? State.CLOSED : circuit.state(System.nanoTime());
+  }
+
+  /**
+   * Returns the circuit key of a request.
+   *
+   * @return the key, or null if the request is not guarded
+   */
+  String keyOf(Request request) {
+    RequestTag tag = request.tag(RequestTag.class);
+    switch (this.keyBy) {
+      case PATH:
+        return tag != null ? tag.getPath() : request.url().encodedPath();
+      case VEHICLE:
+        return tag != null ? tag.getVehicleId() : null;
+      default:
+        return tag != null ? this.makes.get(tag.getVehicleId()) : null;
+    }
+  }
+
+  /**
+   * Admits a request or fails it fast.
+   *
+   * @param request the request about to be sent
+   * @return the admission to complete with the outcome, or null if the request is not guarded
+   * @throws SmartcarException if the circuit of the request is open
+   */
+  Admission admit(Request request) throws SmartcarException {
+    String key = this.keyOf(request);
+    if (key == null) {
+      return null;
+    }
+    Circuit circuit = this.circuits.computeIfAbsent(key, (k) -> new Circuit(this.windowSize));
+    long now = System.nanoTime();
+    long waitNanos = circuit.tryAcquire(now);
+    if (waitNanos >= 0) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .code("CIRCUIT_OPEN")
+          .description("Requests for " + key + " are failing; the circuit is open")
+          .retryAfter(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)))
+          .build();
+    }
+    return new Admission(key, circuit, waitNanos == PROBE, now);
+  }
+
+  /** A request let through by a circuit, to be completed exactly once. */
+  final class Admission {
+    private final String key;
+    private final Circuit circuit;
+    private final boolean probe;
+    private final long start;
+
+    private Admission(String key, Circuit circuit, boolean probe, long start) {
+      this.key = key;
+      this.circuit = circuit;
+      this.probe = probe;
+      this.start = start;
+    }
+
+    /**
+     * Records the outcome of the request.
+     *
+     * @param error the error of the request, or null if it succeeded
+     */
+    void complete(SmartcarException error) {
+      long now = System.nanoTime();
+      boolean failed = now - this.start > CircuitBreaker.this.slowCallNanos
+          || error != null && CircuitBreaker.this.failureClassifier.test(error);
+      State[] change = this.circuit.record(this.probe, failed, now);
+      if (change != null && CircuitBreaker.this.listener != null) {
+        try {
+          CircuitBreaker.this.listener.onStateChange(this.key, change[0], change[1]);
+        } catch (RuntimeException ex) {
+          // A failing listener must not fail the request.
+        }
+      }
+    }
+
+    /** Releases the admission of a request that was cancelled, without recording an outcome. */
+    void cancel() {
+      this.circuit.release(this.probe);
+    }
+  }
+
+  /** The outcomes and state of one circuit. All access is synchronized on the circuit. */
+  private final class Circuit {
+    private final boolean[] outcomes;
+    private int next;
+    private int count;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    Circuit(int windowSize) {
+      this.outcomes = new boolean[windowSize];
+    }
+
+    synchronized State state(long now) {
+      if (this.state == State.OPEN && now - this.openUntil >= 0) {
+        return State.HALF_OPEN;
+      }
+      return this.state;
+    }
+
+    /**
+     * @return ADMITTED or PROBE if the request may be sent, otherwise the nanoseconds until it
+     *     may
+     */
+    synchronized long tryAcquire(long now) {
+      if (this.state == State.CLOSED) {
+        return ADMITTED;
+      }
+      if (this.state == State.OPEN) {
+        if (now - this.openUntil < 0) {
+          return this.openUntil - now;
+        }
+        this.state = State.HALF_OPEN;
+        this.probesStarted = 0;
+        this.probesSucceeded = 0;
+      }
+      if (this.probesStarted >= CircuitBreaker.this.probes) {
+        // All probes are in flight; their outcome decides whether the circuit closes.
+        return 0;
+      }
+      this.probesStarted++;
+      return PROBE;
+    }
+
+    synchronized void release(boolean probe) {
+      if (probe && this.state == State.HALF_OPEN) {
+        this.probesStarted--;
+      }
+    }
+
+    /** @return the state change caused by the outcome, as {from, to}, or null */
+    synchronized State[] record(boolean probe, boolean failed, long now) {
+      if (probe) {
+        if (this.state != State.HALF_OPEN) {
+          return null;
+        }
+        if (failed) {
+          return this.open(now);
+        }
+        if (++this.probesSucceeded >= CircuitBreaker.this.probes) {
+          this.reset();
+          this.state = State.CLOSED;
+          return new State[] {State.HALF_OPEN, State.CLOSED};
+        }
+        return null;
+      }
+      if (this.state != State.CLOSED) {
+        // A request admitted before the circuit opened; its outcome is already outdated.
+        return null;
+      }
+
+      if (this.count == this.outcomes.length) {
+        if (this.outcomes[this.next]) {
+          this.failures--;
+        }
+      } else {
+        this.count++;
+      }
+      this.outcomes[this.next] = failed;
+      if (failed) {
+        this.failures++;
+      }
+      this.next = (this.next + 1) % this.outcomes.length;
+
+      if (this.count >= CircuitBreaker.this.minimumCalls
+          && this.failures >= CircuitBreaker.this.failureRateThreshold * this.count) {
+        return this.open(now);
+      }
+      return null;
+    }
+
+    private State[] open(long now) {
+      State from = this.state;
+      this.state = State.OPEN;
+      this.openUntil = now + CircuitBreaker.this.openNanos;
+      this.reset();
+      return new State[] {from, State.OPEN};
+    }
+
+    private void reset() {
+      this.next = 0;
+      this.count = 0;
+      this.failures = 0;
+      this.probesStarted = 0;
+      this.probesSucceeded = 0;
+    }
+  }
+}
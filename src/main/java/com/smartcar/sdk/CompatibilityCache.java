@@ -0,0 +1,384 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Compatibility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the answers of {@link Smartcar#getCompatibility(SmartcarCompatibilityRequest)}.
+ *
+ * <p>Requests are keyed on their normalized VIN, scope, country, API version, flags, test mode
+ * and client id, so the same question asked with a lower-case VIN or a reordered scope hits the
+ * same entry. Answers are kept in a concurrent LRU for a time to live; answers with
+ * {@code compatible=false} are cached too, for their own (by default shorter) time to live.
+ * Concurrent misses for the same key share one request. Errors are not cached.
+ *
+ * <p>With a snapshot file, the cache is loaded from the file when it is built and written back
+ * by {@link #snapshot()} and {@link #close()}, so a restarted node starts warm. Expired entries
+ * are dropped on both sides.
+ *
+ * <pre>{@code
+ * CompatibilityCache cache = new CompatibilityCache.Builder()
+ *     .timeToLive(7, TimeUnit.DAYS)
+ *     .negativeTimeToLive(1, TimeUnit.DAYS)
+ *     .snapshot(Paths.get("compatibility.cache"))
+ *     .build();
+ * Compatibility compatibility = cache.get(request);
+ * }</pre>
+ */
+public final class CompatibilityCache implements AutoCloseable {
+  private static final int MAGIC = 0x53434343;
+  private static final int VERSION = 1;
+
+  private final ConcurrentLruMap<String, Entry> entries;
+  private final ConcurrentHashMap<String, CompletableFuture<Compatibility>> inFlight =
+      new ConcurrentHashMap<>();
+  private final long timeToLive;
+  private final long negativeTimeToLive;
+  private final Path snapshot;
+  private final LongSupplier clock;
+  private final Function<SmartcarCompatibilityRequest, CompletableFuture<Compatibility>> loader;
+
+  private static final class Entry {
+    private final Compatibility value;
+    private final long expiresAt;
+
+    Entry(Compatibility value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  public static class Builder {
+    private int maxEntries;
+    private long timeToLive;
+    private long negativeTimeToLive;
+    private Path snapshot;
+    private LongSupplier clock;
+    private Function<SmartcarCompatibilityRequest, CompletableFuture<Compatibility>> loader;
+
+    public Builder() {
+      this.maxEntries = 100000;
+      this.timeToLive = TimeUnit.DAYS.toMillis(7);
+      this.negativeTimeToLive = TimeUnit.DAYS.toMillis(1);
+      this.snapshot = null;
+      this.clock = System::currentTimeMillis;
+      this.loader = Smartcar::getCompatibilityAsync;
+    }
+
+    /**
+     * Sets the maximum number of answers held. Defaults to 100,000.
+     *
+     * @param maxEntries the maximum number of entries
+     * @return this builder
+     */
+    public Builder maxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * Sets how long a compatible answer is served from the cache. Defaults to 7 days.
+     *
+     * @param duration the time to live
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder timeToLive(long duration, TimeUnit unit) {
+      this.timeToLive = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Sets how long an answer with {@code compatible=false} is served from the cache. Defaults to
+     * 1 day; zero disables negative caching.
+     *
+     * @param duration the time to live
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder negativeTimeToLive(long duration, TimeUnit unit) {
+      this.negativeTimeToLive = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Loads the cache from the given file when it is built, and writes it back on
+     * {@link CompatibilityCache#snapshot()} and {@link CompatibilityCache#close()}. Disabled by
+     * default.
+     *
+     * @param snapshot the snapshot file
+     * @return this builder
+     */
+    public Builder snapshot(Path snapshot) {
+      this.snapshot = snapshot;
+      return this;
+    }
+
+    Builder clock(LongSupplier clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    Builder loader(Function<SmartcarCompatibilityRequest, CompletableFuture<Compatibility>> loader) {
+      this.loader = loader;
+      return this;
+    }
+
+    /**
+     * Builds the cache, loading the snapshot file if one is set and exists.
+     *
+     * @return the cache
+     * @throws SmartcarException if the snapshot file exists but cannot be read
+     */
+    public CompatibilityCache build() throws SmartcarException {
+      return new CompatibilityCache(this);
+    }
+  }
+
+  private CompatibilityCache(Builder builder) throws SmartcarException {
+    this.entries = new ConcurrentLruMap<>(builder.maxEntries, Long.MAX_VALUE, (entry) -> 1, 16);
+    this.timeToLive = builder.timeToLive;
+    this.negativeTimeToLive = builder.negativeTimeToLive;
+    this.snapshot = builder.snapshot;
+    this.clock = builder.clock;
+    this.loader = builder.loader;
+    if (this.snapshot != null && Files.exists(this.snapshot)) {
+      this.load();
+    }
+  }
+
+  /**
+   * Returns the compatibility of a vehicle, from the cache if a live answer is held.
+   *
+   * @param request the compatibility request
+   * @return the Compatibility object
+   * @throws SmartcarException if the answer is not cached and the request is unsuccessful
+   */
+  public Compatibility get(SmartcarCompatibilityRequest request) throws SmartcarException {
+    return RequestCoalescer.await(this.getAsync(request));
+  }
+
+  /**
+   * Returns the compatibility of a vehicle without blocking the calling thread. See
+   * {@link #get(SmartcarCompatibilityRequest)}.
+   *
+   * @param request the compatibility request
+   * @return a future for the Compatibility object, completed exceptionally with a
+   *     SmartcarException if the answer is not cached and the request is unsuccessful
+   */
+  public CompletableFuture<Compatibility> getAsync(SmartcarCompatibilityRequest request) {
+    String key = CompatibilityCache.key(request);
+    Compatibility cached = this.getIfPresent(key);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    CompletableFuture<Compatibility> created = new CompletableFuture<>();
+    CompletableFuture<Compatibility> existing = this.inFlight.putIfAbsent(key, created);
+    if (existing != null) {
+      return existing;
+    }
+    CompletableFuture<Compatibility> load;
+    try {
+      load = this.loader.apply(request);
+    } catch (RuntimeException ex) {
+      this.inFlight.remove(key, created);
+      created.completeExceptionally(ex);
+      return created;
+    }
+    load.whenComplete((compatibility, ex) -> {
+      if (ex == null) {
+        this.put(key, compatibility);
+      }
+      this.inFlight.remove(key, created);
+      if (ex == null) {
+        created.complete(compatibility);
+      } else {
+        created.completeExceptionally(RequestCoalescer.unwrap(ex));
+      }
+    });
+    return created;
+  }
+
+  /**
+   * Returns the cached answer to a request without making a request.
+   *
+   * @param request the compatibility request
+   * @return the cached Compatibility object, or null if none is live
+   */
+  public Compatibility getIfPresent(SmartcarCompatibilityRequest request) {
+    return this.getIfPresent(CompatibilityCache.key(request));
+  }
+
+  public void invalidate(SmartcarCompatibilityRequest request) {
+    this.entries.remove(CompatibilityCache.key(request));
+  }
+
+  public void clear() {
+    this.entries.clear();
+  }
+
+  public int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Writes the live entries to the snapshot file. The file is replaced atomically, so a crash
+   * while writing leaves the previous snapshot in place. Does nothing without a snapshot file.
+   *
+   * @throws SmartcarException if the snapshot cannot be written
+   */
+  public void snapshot() throws SmartcarException {
+    if (this.snapshot == null) {
+      return;
+    }
+    Path target = this.snapshot.resolveSibling(this.snapshot.getFileName() + ".tmp");
+    long now = this.clock.getAsLong();
+    try {
+      try (OutputStream file = Files.newOutputStream(target);
+          DataOutputStream out =
+              new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(file)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        IOException[] error = new IOException[1];
+        this.entries.forEach((key, entry) -> {
+          if (error[0] != null || entry.expiresAt <= now) {
+            return;
+          }
+          try {
+            out.writeBoolean(true);
+            CompatibilityCache.writeString(out, key);
+            out.writeLong(entry.expiresAt);
+            CompatibilityCache.writeString(out, ApiClient.gson.toJson(entry.value));
+          } catch (IOException ex) {
+            error[0] = ex;
+          }
+        });
+        if (error[0] != null) {
+          throw error[0];
+        }
+        out.writeBoolean(false);
+      }
+      Files.move(target, this.snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("Could not write the compatibility snapshot: " + ex.getMessage())
+          .build();
+    }
+  }
+
+  /**
+   * Writes the snapshot, if a snapshot file is set.
+   *
+   * @throws SmartcarException if the snapshot cannot be written
+   */
+  @Override
+  public void close() throws SmartcarException {
+    this.snapshot();
+  }
+
+  private Compatibility getIfPresent(String key) {
+    Entry entry = this.entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.expiresAt <= this.clock.getAsLong()) {
+      this.entries.remove(key);
+      return null;
+    }
+    return entry.value;
+  }
+
+  private void put(String key, Compatibility compatibility) {
+    long ttl = compatibility.getCompatible() ? this.timeToLive : this.negativeTimeToLive;
+    if (ttl > 0) {
+      this.entries.put(key, new Entry(compatibility, this.clock.getAsLong() + ttl));
+    }
+  }
+
+  private void load() throws SmartcarException {
+    long now = this.clock.getAsLong();
+    try (InputStream file = Files.newInputStream(this.snapshot);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("not a compatibility snapshot");
+      }
+      while (in.readBoolean()) {
+        String key = CompatibilityCache.readString(in);
+        long expiresAt = in.readLong();
+        String json = CompatibilityCache.readString(in);
+        if (expiresAt > now) {
+          this.entries.put(key, new Entry(ApiClient.gson.fromJson(json, Compatibility.class), expiresAt));
+        }
+      }
+    } catch (EOFException ex) {
+      // A truncated snapshot still yields the entries before the truncation.
+    } catch (IOException | RuntimeException ex) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("Could not read the compatibility snapshot: " + ex.getMessage())
+          .build();
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Builds the cache key of a request from its normalized fields: upper-case VIN and country,
+   * sorted and de-duplicated scope and flags.
+   */
+  static String key(SmartcarCompatibilityRequest request) {
+    StringBuilder key = new StringBuilder(128);
+    key.append(CompatibilityCache.upper(request.getVin())).append('\n');
+    if (request.getScope() != null) {
+      key.append(String.join(" ", new TreeSet<>(Arrays.asList(request.getScope()))));
+    }
+    key.append('\n').append(CompatibilityCache.upper(request.getCountry()));
+    key.append('\n').append(request.getVersion());
+    key.append('\n');
+    if (request.getFlags() != null) {
+      key.append(String.join(" ", new TreeSet<>(Arrays.asList(request.getFlags().split(" ")))));
+    }
+    key.append('\n').append(request.getTestMode());
+    key.append('\n').append(request.getTestModeCompatibilityLevel());
+    key.append('\n').append(request.getClientId());
+    return key.toString();
+  }
+
+  private static String upper(String value) {
+    return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+  }
+}
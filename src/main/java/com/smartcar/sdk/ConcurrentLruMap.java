@@ -0,0 +1,191 @@
+package com.smartcar.sdk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A size- and weight-bounded map with least-recently-used eviction that is safe for concurrent
+ * use.
+ *
+ * <p>Keys are spread over independently locked segments, each an access-ordered LinkedHashMap
+ * holding an equal share of the entry and weight budgets, so threads working on different keys
+ * rarely contend. Eviction is therefore LRU per segment rather than globally.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class ConcurrentLruMap<K, V> {
+  private final Segment<K, V>[] segments;
+  private final ToLongFunction<? super V> weigher;
+
+  /**
+   * @param maxEntries the maximum number of entries held
+   * @param maxWeight the maximum total weight held
+   * @param weigher computes the weight of a value
+   * @param concurrency the number of independently locked segments
+   */
+  @SuppressWarnings("unchecked")
+  ConcurrentLruMap(int maxEntries, long maxWeight, ToLongFunction<? super V> weigher, int concurrency) {
+    int count = Math.max(1, Math.min(concurrency, maxEntries));
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      int entries = maxEntries / count + (i < maxEntries % count ? 1 : 0);
+      long weight = maxWeight == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, maxWeight / count);
+      this.segments[i] = new Segment<>(entries, weight);
+    }
+    this.weigher = weigher;
+  }
+
+  private Segment<K, V> segmentFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return this.segments[(h & 0x7fffffff) % this.segments.length];
+  }
+
+  V get(K key) {
+    return this.segmentFor(key).get(key);
+  }
+
+  void put(K key, V value) {
+    this.segmentFor(key).put(key, value, this.weigher.applyAsLong(value));
+  }
+
+  /**
+   * Returns the value for the key, creating and storing it with the mapping function if absent.
+   * The function runs under the segment lock, so it should be cheap.
+   *
+   * @param key the key
+   * @param mappingFunction creates the value for an absent key
+   * @return the current or created value
+   */
+  V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    return this.segmentFor(key).computeIfAbsent(key, mappingFunction, this.weigher);
+  }
+
+  V remove(K key) {
+    return this.segmentFor(key).remove(key);
+  }
+
+  void clear() {
+    for (Segment<K, V> segment : this.segments) {
+      segment.clear();
+    }
+  }
+
+  int size() {
+    int size = 0;
+    for (Segment<K, V> segment : this.segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  long weight() {
+    long weight = 0;
+    for (Segment<K, V> segment : this.segments) {
+      weight += segment.weight();
+    }
+    return weight;
+  }
+
+  /**
+   * Visits every entry. Each segment is locked only while it is being visited, so the visit is
+   * not an atomic snapshot of the whole map.
+   *
+   * @param action the action to perform on each entry
+   */
+  void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Segment<K, V> segment : this.segments) {
+      segment.forEach(action);
+    }
+  }
+
+  private static final class Weighted<V> {
+    private final V value;
+    private final long weight;
+
+    Weighted(V value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  private static final class Segment<K, V> {
+    private final LinkedHashMap<K, Weighted<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxWeight;
+    private long weight;
+
+    Segment(int maxEntries, long maxWeight) {
+      this.maxEntries = maxEntries;
+      this.maxWeight = maxWeight;
+    }
+
+    synchronized V get(Object key) {
+      Weighted<V> entry = this.map.get(key);
+      return entry == null ? null : entry.value;
+    }
+
+    synchronized void put(K key, V value, long weight) {
+      if (this.maxEntries == 0 || weight > this.maxWeight) {
+        this.remove(key);
+        return;
+      }
+      Weighted<V> previous = this.map.put(key, new Weighted<>(value, weight));
+      if (previous != null) {
+        this.weight -= previous.weight;
+      }
+      this.weight += weight;
+
+      Iterator<Map.Entry<K, Weighted<V>>> eldest = this.map.entrySet().iterator();
+      while ((this.map.size() > this.maxEntries || this.weight > this.maxWeight) && eldest.hasNext()) {
+        Weighted<V> evicted = eldest.next().getValue();
+        eldest.remove();
+        this.weight -= evicted.weight;
+      }
+    }
+
+    synchronized V computeIfAbsent(
+        K key, Function<? super K, ? extends V> mappingFunction, ToLongFunction<? super V> weigher) {
+      Weighted<V> entry = this.map.get(key);
+      if (entry != null) {
+        return entry.value;
+      }
+      V value = mappingFunction.apply(key);
+      this.put(key, value, weigher.applyAsLong(value));
+      return value;
+    }
+
+    synchronized V remove(Object key) {
+      Weighted<V> entry = this.map.remove(key);
+      if (entry == null) {
+        return null;
+      }
+      this.weight -= entry.weight;
+      return entry.value;
+    }
+
+    synchronized void clear() {
+      this.map.clear();
+      this.weight = 0;
+    }
+
+    synchronized int size() {
+      return this.map.size();
+    }
+
+    synchronized long weight() {
+      return this.weight;
+    }
+
+    synchronized void forEach(BiConsumer<? super K, ? super V> action) {
+      for (Map.Entry<K, Weighted<V>> entry : this.map.entrySet()) {
+        action.accept(entry.getKey(), entry.getValue().value);
+      }
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+import com.smartcar.sdk.data.VehicleAttributes;
+import com.smartcar.sdk.data.VehicleBattery;
+import com.smartcar.sdk.data.VehicleBatteryCapacity;
+import com.smartcar.sdk.data.VehicleCharge;
+import com.smartcar.sdk.data.VehicleEngineOil;
+import com.smartcar.sdk.data.VehicleFuel;
+import com.smartcar.sdk.data.VehicleLocation;
+import com.smartcar.sdk.data.VehicleOdometer;
+import com.smartcar.sdk.data.VehicleResponse;
+import com.smartcar.sdk.data.VehicleTirePressure;
+import com.smartcar.sdk.data.VehicleVin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A vehicle read endpoint together with the type its response is decoded into, for use in a
+ * {@link BatchRequest} and with {@link com.smartcar.sdk.data.BatchResponse#get(Endpoint)}.
+ *
+ * <p>The endpoints supported by the SDK are constants of this class. Other endpoints, such as
+ * brand-specific ones, can be described with {@link #of(String, Class)}, or with
+ * {@link #of(String)} to receive the raw body as a {@link VehicleResponse}.
+ *
+ * @param <T> the type of the decoded response
+ */
+public final class Endpoint<T extends ApiData> {
+  public static final Endpoint<VehicleAttributes> ATTRIBUTES =
+      new Endpoint<>("/", VehicleAttributes.class);
+  public static final Endpoint<VehicleVin> VIN = new Endpoint<>("/vin", VehicleVin.class);
+  public static final Endpoint<VehicleOdometer> ODOMETER =
+      new Endpoint<>("/odometer", VehicleOdometer.class);
+  public static final Endpoint<VehicleFuel> FUEL = new Endpoint<>("/fuel", VehicleFuel.class);
+  public static final Endpoint<VehicleEngineOil> ENGINE_OIL =
+      new Endpoint<>("/engine/oil", VehicleEngineOil.class);
+  public static final Endpoint<VehicleTirePressure> TIRE_PRESSURE =
+      new Endpoint<>("/tires/pressure", VehicleTirePressure.class);
+  public static final Endpoint<VehicleBattery> BATTERY =
+      new Endpoint<>("/battery", VehicleBattery.class);
+  public static final Endpoint<VehicleBatteryCapacity> BATTERY_CAPACITY =
+      new Endpoint<>("/battery/capacity", VehicleBatteryCapacity.class);
+  public static final Endpoint<VehicleCharge> CHARGE =
+      new Endpoint<>("/charge", VehicleCharge.class);
+  public static final Endpoint<VehicleLocation> LOCATION =
+      new Endpoint<>("/location", VehicleLocation.class);
+
+  private static final Map<String, Endpoint<?>> BY_PATH;
+
+  static {
+    Map<String, Endpoint<?>> byPath = new HashMap<>();
+    for (Endpoint<?> endpoint : new Endpoint<?>[] {
+        ATTRIBUTES, VIN, ODOMETER, FUEL, ENGINE_OIL, TIRE_PRESSURE, BATTERY, BATTERY_CAPACITY, CHARGE,
+        LOCATION}) {
+      byPath.put(endpoint.getPath(), endpoint);
+    }
+    BY_PATH = Collections.unmodifiableMap(byPath);
+  }
+
+  private final String path;
+  private final Class<T> type;
+  private final String json;
+
+  private Endpoint(String path, Class<T> type) {
+    this.path = RequestTag.normalizePath(path);
+    this.type = type;
+    this.json = "{\"path\":" + ApiClient.gson.toJson(this.path) + "}";
+  }
+
+  /**
+   * Describes an endpoint that is not one of the constants of this class.
+   *
+   * @param path the path of the endpoint (ex. "/tesla/charge/ammeter")
+   * @param type the type into which the response will be decoded
+   * @return the endpoint
+   */
+  public static <T extends ApiData> Endpoint<T> of(String path, Class<T> type) {
+    return new Endpoint<>(path, type);
+  }
+
+  /**
+   * Describes an endpoint whose response is returned as its raw JSON body.
+   *
+   * @param path the path of the endpoint (ex. "/tesla/charge/ammeter")
+   * @return the endpoint
+   */
+  public static Endpoint<VehicleResponse> of(String path) {
+    return new Endpoint<>(path, VehicleResponse.class);
+  }
+
+  /**
+   * Returns the constant for a path, if the SDK knows it.
+   *
+   * @param path the normalized path of the endpoint
+   * @return the endpoint, or null
+   */
+  static Endpoint<?> forPath(String path) {
+    return BY_PATH.get(path);
+  }
+
+  public String getPath() {
+    return this.path;
+  }
+
+  public Class<T> getType() {
+    return this.type;
+  }
+
+  /** @return the element of a /batch request body that requests this endpoint */
+  String toJson() {
+    return this.json;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Endpoint)) {
+      return false;
+    }
+    Endpoint<?> other = (Endpoint<?>) o;
+    return this.path.equals(other.path) && this.type.equals(other.type);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * this.path.hashCode() + this.type.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return this.path + " (" + this.type.getSimpleName() + ")";
+  }
+}
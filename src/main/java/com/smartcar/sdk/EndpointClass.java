@@ -0,0 +1,30 @@
+package com.smartcar.sdk;
+
+import okhttp3.Request;
+
+/**
+ * Groups Smartcar API endpoints by how they may be throttled and retried. Reads (GET requests and
+ * batch reads) can safely be repeated; actions (lock, unlock, charge control, webhook
+ * subscriptions, disconnect and so on) change vehicle or application state.
+ */
+public enum EndpointClass {
+  READ,
+  ACTION;
+
+  /**
+   * Classifies a request by its method and, for vehicle requests, its endpoint path.
+   *
+   * @param request the request
+   * @return the endpoint class of the request
+   */
+  static EndpointClass of(Request request) {
+    if (request.method().equals("GET")) {
+      return READ;
+    }
+    RequestTag tag = request.tag(RequestTag.class);
+    if (tag != null && tag.getPath().equals("/batch")) {
+      return READ;
+    }
+    return ACTION;
+  }
+}
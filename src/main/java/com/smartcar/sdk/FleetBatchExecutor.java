@@ -0,0 +1,312 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.BatchResponse;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Sends the same /batch request to every vehicle of a fleet, with a bounded number of requests in
+ * flight.
+ *
+ * <p>Vehicles are pulled from the stream only as capacity frees up, and every result is handed
+ * to the {@link ResultHandler} as soon as it arrives and then dropped. Memory use therefore
+ * depends on the concurrency limit, not on the size of the fleet. Vehicles are requested in
+ * stream order by the thread that calls {@link #execute}. All requests go to the one API host, so
+ * there is no scheduling between hosts.
+ *
+ * <p>An executor built without {@link Builder#client} owns its client; close it to release that
+ * client's connections and threads.
+ *
+ * <pre>{@code
+ * try (FleetBatchExecutor executor = new FleetBatchExecutor.Builder()
+ *     .maxConcurrency(200)
+ *     .deadline(4, TimeUnit.MINUTES)
+ *     .build()) {
+ *   FleetBatchExecutor.Summary summary = executor.execute(
+ *       vehicles.map((v) -> FleetBatchExecutor.Target.of(v.getId(), v.getAccessToken())),
+ *       new String[] {"/odometer", "/location"},
+ *       new FleetBatchExecutor.ResultHandler() {
+ *         public void onSuccess(String vehicleId, BatchResponse response) { ... }
+ *         public void onFailure(String vehicleId, SmartcarException error) { ... }
+ *       });
+ * }
+ * }</pre>
+ */
+public final class FleetBatchExecutor implements AutoCloseable {
+  private final SmartcarVehicleOptions vehicleOptions;
+  private final SmartcarClient ownedClient;
+  private final int maxConcurrency;
+  private final long deadlineNanos;
+
+  /** A vehicle to request and the access token to request it with. */
+  public static final class Target {
+    private final String vehicleId;
+    private final String accessToken;
+
+    private Target(String vehicleId, String accessToken) {
+      this.vehicleId = vehicleId;
+      this.accessToken = accessToken;
+    }
+
+    public static Target of(String vehicleId, String accessToken) {
+      return new Target(vehicleId, accessToken);
+    }
+
+    public String getVehicleId() { return this.vehicleId; }
+
+    public String getAccessToken() { return this.accessToken; }
+  }
+
+  /**
+   * Receives the outcome of each vehicle. Called from OkHttp dispatcher threads, possibly
+   * concurrently, so implementations must be safe for concurrent use. Exceptions thrown by the
+   * handler are ignored.
+   */
+  public interface ResultHandler {
+    void onSuccess(String vehicleId, BatchResponse response);
+
+    void onFailure(String vehicleId, SmartcarException error);
+  }
+
+  /** Counts of what happened during a run. */
+  public static final class Summary {
+    private final long succeeded;
+    private final long failed;
+    private final boolean deadlineExceeded;
+
+    private Summary(long succeeded, long failed, boolean deadlineExceeded) {
+      this.succeeded = succeeded;
+      this.failed = failed;
+      this.deadlineExceeded = deadlineExceeded;
+    }
+
+    public long getSucceeded() { return this.succeeded; }
+
+    /**
+     * Returns the number of vehicles whose request failed, including requests cancelled at the
+     * deadline.
+     *
+     * @return the failure count
+     */
+    public long getFailed() { return this.failed; }
+
+    /**
+     * Returns whether the run stopped at its deadline. Vehicles left in the stream at that point
+     * were not requested and are not counted.
+     *
+     * @return true if the deadline was reached
+     */
+    public boolean isDeadlineExceeded() { return this.deadlineExceeded; }
+  }
+
+  public static class Builder {
+    private SmartcarClient client;
+    private String origin;
+    private String version;
+    private Vehicle.UnitSystem unitSystem;
+    private int maxConcurrency;
+    private long deadlineNanos;
+
+    public Builder() {
+      this.client = null;
+      this.origin = Smartcar.getApiOrigin();
+      this.version = "2.0";
+      this.unitSystem = Vehicle.UnitSystem.METRIC;
+      this.maxConcurrency = 64;
+      this.deadlineNanos = Long.MAX_VALUE;
+    }
+
+    /**
+     * Sends the requests through the given client. By default the executor builds its own client
+     * whose dispatcher allows maxConcurrency requests to the API host, so that fleet traffic is
+     * neither capped by nor competing with the per-host limit of the default client. That client
+     * is released by {@link FleetBatchExecutor#close}; a client given here is not.
+     *
+     * @param client the client to use
+     * @return this builder
+     */
+    public Builder client(SmartcarClient client) {
+      this.client = client;
+      return this;
+    }
+
+    public Builder origin(String origin) {
+      this.origin = origin;
+      return this;
+    }
+
+    public Builder version(String version) {
+      this.version = version;
+      return this;
+    }
+
+    public Builder unitSystem(Vehicle.UnitSystem unitSystem) {
+      this.unitSystem = unitSystem;
+      return this;
+    }
+
+    /**
+     * Sets how many batch requests may be in flight at once. Defaults to 64.
+     *
+     * @param maxConcurrency the concurrency limit
+     * @return this builder
+     */
+    public Builder maxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * Bounds how long a run may take. At the deadline no further vehicles are requested and the
+     * requests still in flight are cancelled and reported as failures. By default there is no
+     * deadline; use {@link SmartcarClient.Builder#callTimeout} to bound single requests.
+     *
+     * @param deadline the maximum duration of a run
+     * @param unit the unit of deadline
+     * @return this builder
+     */
+    public Builder deadline(long deadline, TimeUnit unit) {
+      this.deadlineNanos = unit.toNanos(deadline);
+      return this;
+    }
+
+    public FleetBatchExecutor build() {
+      return new FleetBatchExecutor(this);
+    }
+  }
+
+  private FleetBatchExecutor(Builder builder) {
+    SmartcarClient client = builder.client;
+    if (client == null) {
+      client = new SmartcarClient.Builder()
+          .maxRequests(builder.maxConcurrency)
+          .maxRequestsPerHost(builder.maxConcurrency)
+          .build();
+      this.ownedClient = client;
+    } else {
+      this.ownedClient = null;
+    }
+    this.vehicleOptions = new SmartcarVehicleOptions.Builder()
+        .client(client)
+        .origin(builder.origin)
+        .version(builder.version)
+        .unitSystem(builder.unitSystem)
+        .build();
+    this.maxConcurrency = builder.maxConcurrency;
+    this.deadlineNanos = builder.deadlineNanos;
+  }
+
+  /**
+   * Requests the paths from every vehicle of the stream, blocking until every result has been
+   * handled or the deadline is reached.
+   *
+   * @param targets the vehicles to request
+   * @param paths the paths of endpoints to request from each vehicle (ex. "/odometer")
+   * @param handler receives the outcome of each vehicle
+   * @return the counts of the run
+   * @throws InterruptedException if the calling thread is interrupted, in which case the
+   *     requests in flight are cancelled
+   */
+  public Summary execute(Stream<Target> targets, String[] paths, ResultHandler handler)
+      throws InterruptedException {
+    long start = System.nanoTime();
+    Semaphore permits = new Semaphore(this.maxConcurrency);
+    Set<CompletableFuture<BatchResponse>> inFlight = ConcurrentHashMap.newKeySet();
+    AtomicLong succeeded = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    boolean deadlineExceeded = false;
+
+    try {
+      Iterator<Target> iterator = targets.iterator();
+      while (iterator.hasNext()) {
+        if (!permits.tryAcquire(this.remaining(start), TimeUnit.NANOSECONDS)) {
+          deadlineExceeded = true;
+          break;
+        }
+        Target target = iterator.next();
+        this.submit(target, paths, handler, permits, inFlight, succeeded, failed);
+      }
+
+      if (!deadlineExceeded
+          && !permits.tryAcquire(this.maxConcurrency, this.remaining(start), TimeUnit.NANOSECONDS)) {
+        deadlineExceeded = true;
+      }
+    } finally {
+      for (CompletableFuture<BatchResponse> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+
+    return new Summary(succeeded.get(), failed.get(), deadlineExceeded);
+  }
+
+  /**
+   * Releases the connections and dispatcher threads of the client the executor built for itself.
+   * Does nothing if the builder was given a client. The executor must not be used afterwards.
+   */
+  @Override
+  public void close() {
+    if (this.ownedClient != null) {
+      this.ownedClient.shutdown();
+    }
+  }
+
+  private void submit(
+      Target target,
+      String[] paths,
+      ResultHandler handler,
+      Semaphore permits,
+      Set<CompletableFuture<BatchResponse>> inFlight,
+      AtomicLong succeeded,
+      AtomicLong failed) {
+    Vehicle vehicle = new Vehicle(target.getVehicleId(), target.getAccessToken(), this.vehicleOptions);
+    CompletableFuture<BatchResponse> future = vehicle.batchAsync(paths);
+    inFlight.add(future);
+
+    future.whenComplete((response, ex) -> {
+      inFlight.remove(future);
+      try {
+        if (ex == null) {
+          succeeded.incrementAndGet();
+          handler.onSuccess(target.getVehicleId(), response);
+        } else {
+          failed.incrementAndGet();
+          handler.onFailure(target.getVehicleId(), FleetBatchExecutor.toSmartcarException(ex));
+        }
+      } catch (RuntimeException handlerError) {
+        // A failing handler must not stall the run.
+      } finally {
+        permits.release();
+      }
+    });
+  }
+
+  private long remaining(long start) {
+    if (this.deadlineNanos == Long.MAX_VALUE) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0, this.deadlineNanos - (System.nanoTime() - start));
+  }
+
+  private static SmartcarException toSmartcarException(Throwable ex) {
+    Throwable cause = RequestCoalescer.unwrap(ex);
+    if (cause instanceof SmartcarException) {
+      return (SmartcarException) cause;
+    }
+    if (cause instanceof CancellationException) {
+      return new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("The fleet batch deadline was exceeded")
+          .build();
+    }
+    return new SmartcarException.Builder().type("SDK_ERROR").description(cause.getMessage()).build();
+  }
+}
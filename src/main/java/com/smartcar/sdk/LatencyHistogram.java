@@ -0,0 +1,105 @@
+package com.smartcar.sdk;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies.
+ *
+ * <p>Values are counted in log-linear buckets: every power of two is split into 32 equal
+ * sub-buckets, so a percentile is reported within about 3% of the true value while the histogram
+ * stays a fixed 10 KB array. Recording is a single atomic increment, so it can be called from any
+ * number of threads without contention on a lock. Values from 2^41 nanoseconds (about 37 minutes)
+ * up are counted in the last bucket.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos the latency in nanoseconds; negative values are recorded as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    this.counts.incrementAndGet(LatencyHistogram.indexOf(value));
+    this.count.incrementAndGet();
+    this.max.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Returns the number of recorded latencies.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return this.count.get();
+  }
+
+  /**
+   * Returns the largest recorded latency.
+   *
+   * @return the maximum in nanoseconds
+   */
+  public long getMax() {
+    return this.max.get();
+  }
+
+  /**
+   * Returns the latency at or below which the given percentage of recorded latencies fall (ex.
+   * 50 for the median, 99.9 for p999). Concurrent recording may or may not be reflected.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency in nanoseconds, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = this.counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= target) {
+        return Math.min(LatencyHistogram.highestValueIn(i), this.getMax());
+      }
+    }
+    return this.getMax();
+  }
+
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long highestValueIn(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
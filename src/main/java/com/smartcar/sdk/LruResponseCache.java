@@ -0,0 +1,178 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * The built-in {@link ResponseCache}: a concurrent, size- and weight-bounded LRU cache with
+ * per-endpoint time to live.
+ *
+ * <pre>{@code
+ * ResponseCache cache = new LruResponseCache.Builder()
+ *     .timeToLive("/odometer", 10, TimeUnit.MINUTES)
+ *     .timeToLive("/location", 30, TimeUnit.SECONDS)
+ *     .staleWhileRevalidate(30, TimeUnit.SECONDS)
+ *     .maxEntries(100000)
+ *     .build();
+ * }</pre>
+ */
+public final class LruResponseCache implements ResponseCache {
+  private final ConcurrentLruMap<Object, CachedResponse> entries;
+  private final Map<String, Long> timeToLive;
+  private final long defaultTimeToLive;
+  private final long staleWhileRevalidate;
+
+  public static class Builder {
+    private final Map<String, Long> timeToLive;
+    private long defaultTimeToLive;
+    private long staleWhileRevalidate;
+    private int maxEntries;
+    private long maxWeight;
+    private ToLongFunction<ApiData> weigher;
+    private int concurrency;
+
+    public Builder() {
+      this.timeToLive = new HashMap<>();
+      this.defaultTimeToLive = 0;
+      this.staleWhileRevalidate = 0;
+      this.maxEntries = 10000;
+      this.maxWeight = Long.MAX_VALUE;
+      this.weigher = (data) -> 1;
+      this.concurrency = 16;
+    }
+
+    /**
+     * Sets the time to live of endpoints without their own. Defaults to zero, so only endpoints
+     * configured with {@link #timeToLive(String, long, TimeUnit)} are cached.
+     *
+     * @param duration the time to live
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder defaultTimeToLive(long duration, TimeUnit unit) {
+      this.defaultTimeToLive = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Sets the time to live of one endpoint.
+     *
+     * @param path the vehicle endpoint path (ex. "/odometer" or "battery/capacity")
+     * @param duration the time to live
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder timeToLive(String path, long duration, TimeUnit unit) {
+      this.timeToLive.put(RequestTag.normalizePath(path), unit.toMillis(duration));
+      return this;
+    }
+
+    /**
+     * Sets how long past its time to live a response may be served while it is refreshed.
+     *
+     * @param duration the stale-while-revalidate window
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder staleWhileRevalidate(long duration, TimeUnit unit) {
+      this.staleWhileRevalidate = unit.toMillis(duration);
+      return this;
+    }
+
+    public Builder maxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      return this;
+    }
+
+    /**
+     * Bounds the total weight of cached responses.
+     *
+     * @param maxWeight the maximum total weight
+     * @param weigher computes the weight of a response
+     * @return this builder
+     */
+    public Builder maxWeight(long maxWeight, ToLongFunction<ApiData> weigher) {
+      this.maxWeight = maxWeight;
+      this.weigher = weigher;
+      return this;
+    }
+
+    /**
+     * Sets the number of independently locked segments. Defaults to 16.
+     *
+     * @param concurrency the segment count
+     * @return this builder
+     */
+    public Builder concurrency(int concurrency) {
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    public LruResponseCache build() {
+      return new LruResponseCache(this);
+    }
+  }
+
+  private LruResponseCache(Builder builder) {
+    ToLongFunction<ApiData> weigher = builder.weigher;
+    this.entries = new ConcurrentLruMap<>(
+        builder.maxEntries, builder.maxWeight, (response) -> weigher.applyAsLong(response.getData()),
+        builder.concurrency);
+    this.timeToLive = new HashMap<>(builder.timeToLive);
+    this.defaultTimeToLive = builder.defaultTimeToLive;
+    this.staleWhileRevalidate = builder.staleWhileRevalidate;
+  }
+
+  @Override
+  public CachedResponse get(Object key) {
+    return this.entries.get(key);
+  }
+
+  @Override
+  public void put(Object key, CachedResponse response) {
+    this.entries.put(key, response);
+  }
+
+  @Override
+  public void invalidate(Object key) {
+    this.entries.remove(key);
+  }
+
+  @Override
+  public void invalidateAll() {
+    this.entries.clear();
+  }
+
+  @Override
+  public long getTimeToLive(String path) {
+    Long ttl = this.timeToLive.get(path);
+    return ttl != null ? ttl : this.defaultTimeToLive;
+  }
+
+  @Override
+  public long getStaleWhileRevalidate(String path) {
+    return this.staleWhileRevalidate;
+  }
+
+  /**
+   * Returns the number of cached responses.
+   *
+   * @return the entry count
+   */
+  public int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Returns the total weight of cached responses.
+   *
+   * @return the total weight
+   */
+  public long weight() {
+    return this.entries.weight();
+  }
+}
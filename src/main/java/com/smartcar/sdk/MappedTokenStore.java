@@ -0,0 +1,592 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Auth;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link TokenStore} backed by a memory-mapped, append-only log file.
+ *
+ * <p>Every put and remove appends one record to the log, and an in-memory index maps each key to
+ * its latest record, so writes cost a copy into the page cache and reads a lookup plus a decode.
+ * Each record carries a CRC32 and its length is written last. If the process dies mid-write, the
+ * torn record is detected and dropped when the file is next opened. Records that have been written
+ * survive a crash of the process; to also survive a crash of the machine, enable
+ * {@link Builder#forceOnWrite} or call {@link #flush} at suitable points.
+ *
+ * <p>Replaced and removed records are reclaimed by compaction, which writes the live records to a
+ * new file and atomically renames it over the old one. Compaction runs automatically once most of
+ * the file is dead, or on demand with {@link #compact}.
+ *
+ * <p>With an encryption key, the tokens and expirations of each record are encrypted with
+ * AES-GCM under a fresh random IV, with the key of the record as associated data. The keys
+ * themselves are stored in the clear so that the index can be rebuilt without decrypting.
+ *
+ * <p>The file is limited to 2 GiB, roughly ten million records of typical size. Only one
+ * MappedTokenStore may have a given file open at a time.
+ */
+public final class MappedTokenStore implements TokenStore {
+  private static final int MAGIC = 0x53435453;
+  private static final int VERSION = 1;
+  private static final int FLAG_ENCRYPTED = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int IV_SIZE = 12;
+  private static final int TAG_BITS = 128;
+  private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+  private final Path path;
+  private final SecretKey encryptionKey;
+  private final boolean forceOnWrite;
+  private final double compactionRatio;
+  private final long compactionMinSize;
+  private final int initialSize;
+  private final SecureRandom random = new SecureRandom();
+  private Cipher cipher;
+  private Map<String, Integer> index = new HashMap<>();
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int position;
+  private long liveBytes;
+  private boolean closed;
+
+  public static class Builder {
+    private Path path;
+    private SecretKey encryptionKey;
+    private boolean forceOnWrite;
+    private double compactionRatio;
+    private long compactionMinSize;
+    private int initialSize;
+
+    public Builder() {
+      this.path = null;
+      this.encryptionKey = null;
+      this.forceOnWrite = false;
+      this.compactionRatio = 0.5;
+      this.compactionMinSize = 4 << 20;
+      this.initialSize = 1 << 20;
+    }
+
+    /**
+     * Sets the file of the store. Required. The file is created if it does not exist.
+     *
+     * @param path the file
+     * @return this builder
+     */
+    public Builder path(Path path) {
+      this.path = path;
+      return this;
+    }
+
+    /**
+     * Encrypts the stored tokens with the given AES key (128, 192 or 256 bits). A store created
+     * with a key can only be opened with the same key, and a store created without one can only
+     * be opened without one.
+     *
+     * @param encryptionKey the AES key
+     * @return this builder
+     */
+    public Builder encryptionKey(SecretKey encryptionKey) {
+      this.encryptionKey = encryptionKey;
+      return this;
+    }
+
+    /**
+     * Forces every write to the storage device before returning. Much slower, but writes then
+     * survive power loss as well as process crashes. Disabled by default.
+     *
+     * @param forceOnWrite whether to force every write
+     * @return this builder
+     */
+    public Builder forceOnWrite(boolean forceOnWrite) {
+      this.forceOnWrite = forceOnWrite;
+      return this;
+    }
+
+    /**
+     * Compacts the file automatically once it is larger than minSize bytes and more than ratio of
+     * it is taken by replaced or removed records. Defaults to 4 MiB and 0.5. A ratio of 1 or more
+     * disables automatic compaction.
+     *
+     * @param ratio the dead fraction at which to compact
+     * @param minSize the file size below which the file is never compacted automatically
+     * @return this builder
+     */
+    public Builder autoCompact(double ratio, long minSize) {
+      this.compactionRatio = ratio;
+      this.compactionMinSize = minSize;
+      return this;
+    }
+
+    public MappedTokenStore build() throws SmartcarException {
+      if (this.path == null) {
+        throw MappedTokenStore.error("path must be defined");
+      }
+      return new MappedTokenStore(this);
+    }
+  }
+
+  private MappedTokenStore(Builder builder) throws SmartcarException {
+    this.path = builder.path;
+    this.encryptionKey = builder.encryptionKey;
+    this.forceOnWrite = builder.forceOnWrite;
+    this.compactionRatio = builder.compactionRatio;
+    this.compactionMinSize = builder.compactionMinSize;
+    this.initialSize = builder.initialSize;
+
+    try {
+      if (this.encryptionKey != null) {
+        this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      }
+      // A leftover from a compaction that did not finish; the store itself is intact.
+      Files.deleteIfExists(this.compactionPath());
+      this.open();
+    } catch (IOException | GeneralSecurityException ex) {
+      throw MappedTokenStore.error("The token store could not be opened: " + ex.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized void put(String key, Auth auth) throws SmartcarException {
+    this.checkOpen();
+    byte[] keyBytes = MappedTokenStore.keyBytes(key);
+    byte[] value = this.encodeValue(keyBytes, auth);
+    int length = 1 + 2 + keyBytes.length + value.length;
+    int offset = this.append(length, PUT, keyBytes, value);
+
+    Integer previous = this.index.put(key, offset);
+    if (previous != null) {
+      this.liveBytes -= this.recordSize(previous);
+    }
+    this.liveBytes += RECORD_HEADER_SIZE + length;
+    this.maybeCompact();
+  }
+
+  @Override
+  public synchronized Auth get(String key) throws SmartcarException {
+    this.checkOpen();
+    Integer offset = this.index.get(key);
+    return offset != null ? this.read(offset) : null;
+  }
+
+  @Override
+  public synchronized void remove(String key) throws SmartcarException {
+    this.checkOpen();
+    Integer previous = this.index.get(key);
+    if (previous == null) {
+      return;
+    }
+    byte[] keyBytes = MappedTokenStore.keyBytes(key);
+    this.append(1 + 2 + keyBytes.length, REMOVE, keyBytes, new byte[0]);
+    this.index.remove(key);
+    this.liveBytes -= this.recordSize(previous);
+    this.maybeCompact();
+  }
+
+  @Override
+  public synchronized void forEach(BiConsumer<String, Auth> action) throws SmartcarException {
+    this.checkOpen();
+    for (Map.Entry<String, Integer> entry : this.index.entrySet()) {
+      action.accept(entry.getKey(), this.read(entry.getValue()));
+    }
+  }
+
+  @Override
+  public synchronized int size() {
+    return this.index.size();
+  }
+
+  /**
+   * Forces all writes so far to the storage device.
+   *
+   * @throws SmartcarException if the store is closed
+   */
+  public synchronized void flush() throws SmartcarException {
+    this.checkOpen();
+    this.buffer.force();
+  }
+
+  /**
+   * Rewrites the file with only the latest record of each key.
+   *
+   * @throws SmartcarException if the new file cannot be written, in which case the store is
+   *     left as it was
+   */
+  public synchronized void compact() throws SmartcarException {
+    this.checkOpen();
+    Path target = this.compactionPath();
+    long size = Math.max(this.initialSize, HEADER_SIZE + this.liveBytes + 4);
+    Map<String, Integer> index = new HashMap<>(this.index.size() * 4 / 3 + 1);
+    int position = HEADER_SIZE;
+
+    try {
+      Files.deleteIfExists(target);
+      try (FileChannel out = FileChannel.open(target,
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        MappedByteBuffer compacted = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.writeHeader(compacted);
+        for (Map.Entry<String, Integer> entry : this.index.entrySet()) {
+          int offset = entry.getValue();
+          int recordSize = this.recordSize(offset);
+          ByteBuffer record = this.buffer.duplicate();
+          record.limit(offset + recordSize).position(offset);
+          compacted.position(position);
+          compacted.put(record);
+          index.put(entry.getKey(), position);
+          position += recordSize;
+        }
+        compacted.putInt(position, 0);
+        compacted.force();
+      }
+
+      this.buffer.force();
+      this.channel.close();
+      Files.move(target, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      this.reopenAfterFailedCompaction();
+      throw MappedTokenStore.error("The token store could not be compacted: " + ex.getMessage());
+    }
+
+    // The compacted file is the store from here on, so its offsets apply even if mapping it fails.
+    this.index = index;
+    this.position = position;
+    try {
+      this.map();
+    } catch (IOException ex) {
+      this.reopenAfterFailedCompaction();
+      throw MappedTokenStore.error("The token store could not be compacted: " + ex.getMessage());
+    }
+  }
+
+  /** Maps the file again if a compaction failed after closing it. */
+  private void reopenAfterFailedCompaction() {
+    if (this.channel.isOpen()) {
+      return;
+    }
+    try {
+      this.map();
+    } catch (IOException ex) {
+      this.closed = true;
+    }
+  }
+
+  /** Opens and maps the existing file, replacing the channel and buffer only if both succeed. */
+  private void map() throws IOException {
+    FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    } catch (IOException | RuntimeException ex) {
+      MappedTokenStore.closeQuietly(channel, ex);
+      throw ex;
+    }
+    this.channel = channel;
+  }
+
+  private static void closeQuietly(FileChannel channel, Exception cause) {
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      cause.addSuppressed(ex);
+    }
+  }
+
+  /**
+   * Returns the number of bytes of the log in use, live or dead.
+   *
+   * @return the log size
+   */
+  synchronized long logSize() {
+    return this.position;
+  }
+
+  @Override
+  public synchronized void close() throws SmartcarException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      this.buffer.force();
+      this.channel.close();
+    } catch (IOException ex) {
+      throw MappedTokenStore.error("The token store could not be closed: " + ex.getMessage());
+    }
+  }
+
+  private void open() throws IOException, SmartcarException {
+    this.channel = FileChannel.open(this.path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long size = this.channel.size();
+      boolean created = size < HEADER_SIZE;
+      this.buffer = this.channel.map(
+          FileChannel.MapMode.READ_WRITE, 0, created ? this.initialSize : size);
+
+      if (created) {
+        this.writeHeader(this.buffer);
+        this.buffer.force();
+      } else {
+        this.checkHeader();
+      }
+      this.recover();
+    } catch (IOException | SmartcarException | RuntimeException ex) {
+      // The constructor fails, so nothing else would ever close the channel.
+      MappedTokenStore.closeQuietly(this.channel, ex);
+      throw ex;
+    }
+  }
+
+  private void writeHeader(ByteBuffer buffer) {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, this.encryptionKey != null ? FLAG_ENCRYPTED : 0);
+    buffer.putInt(12, 0);
+  }
+
+  private void checkHeader() throws SmartcarException {
+    if (this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+      throw MappedTokenStore.error(this.path + " is not a token store");
+    }
+    boolean encrypted = (this.buffer.getInt(8) & FLAG_ENCRYPTED) != 0;
+    if (encrypted != (this.encryptionKey != null)) {
+      throw MappedTokenStore.error(encrypted
+          ? "The token store is encrypted and no encryption key was given"
+          : "The token store is not encrypted but an encryption key was given");
+    }
+  }
+
+  /** Rebuilds the index from the log, stopping at the first torn or corrupt record. */
+  private void recover() {
+    int capacity = this.buffer.capacity();
+    int position = HEADER_SIZE;
+    CRC32 crc = new CRC32();
+
+    while (position + RECORD_HEADER_SIZE <= capacity) {
+      int length = this.buffer.getInt(position);
+      if (length < 3 || length > capacity - position - RECORD_HEADER_SIZE) {
+        break;
+      }
+      ByteBuffer payload = this.payload(position, length);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != this.buffer.getInt(position + 4)) {
+        break;
+      }
+
+      byte type = payload.get();
+      String key = MappedTokenStore.readKey(payload);
+      Integer previous = type == PUT ? this.index.put(key, position) : this.index.remove(key);
+      if (previous != null) {
+        this.liveBytes -= this.recordSize(previous);
+      }
+      if (type == PUT) {
+        this.liveBytes += RECORD_HEADER_SIZE + length;
+      }
+      position += RECORD_HEADER_SIZE + length;
+    }
+
+    this.position = position;
+    if (position + 4 <= capacity) {
+      this.buffer.putInt(position, 0);
+    }
+  }
+
+  /**
+   * Appends a record. The length is written last, after a zero terminator for the next record,
+   * so that a reader never sees a length whose payload has not been written.
+   *
+   * @return the offset of the record
+   */
+  private int append(int length, byte type, byte[] keyBytes, byte[] value) throws SmartcarException {
+    this.ensureCapacity(RECORD_HEADER_SIZE + length + 4);
+    int offset = this.position;
+
+    ByteBuffer payload = this.buffer.duplicate();
+    payload.position(offset + RECORD_HEADER_SIZE);
+    payload.put(type).putShort((short) keyBytes.length).put(keyBytes).put(value);
+    CRC32 crc = new CRC32();
+    crc.update(this.payload(offset, length));
+
+    this.buffer.putInt(offset + 4, (int) crc.getValue());
+    this.buffer.putInt(offset + RECORD_HEADER_SIZE + length, 0);
+    this.buffer.putInt(offset, length);
+    if (this.forceOnWrite) {
+      this.buffer.force();
+    }
+    this.position = offset + RECORD_HEADER_SIZE + length;
+    return offset;
+  }
+
+  private void ensureCapacity(int needed) throws SmartcarException {
+    long required = (long) this.position + needed;
+    if (required <= this.buffer.capacity()) {
+      return;
+    }
+    if (required > MAX_SIZE && this.liveBytes + HEADER_SIZE + needed <= MAX_SIZE) {
+      this.compact();
+      required = (long) this.position + needed;
+      if (required <= this.buffer.capacity()) {
+        return;
+      }
+    }
+    if (required > MAX_SIZE) {
+      throw MappedTokenStore.error("The token store is full");
+    }
+
+    long size = Math.min(MAX_SIZE, Math.max(required, 2L * this.buffer.capacity()));
+    try {
+      this.buffer.force();
+      this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException ex) {
+      throw MappedTokenStore.error("The token store could not be grown: " + ex.getMessage());
+    }
+  }
+
+  private void maybeCompact() throws SmartcarException {
+    long dead = this.position - HEADER_SIZE - this.liveBytes;
+    if (this.compactionRatio < 1
+        && this.position >= this.compactionMinSize
+        && dead > this.position * this.compactionRatio) {
+      this.compact();
+    }
+  }
+
+  private ByteBuffer payload(int offset, int length) {
+    ByteBuffer payload = this.buffer.duplicate();
+    payload.limit(offset + RECORD_HEADER_SIZE + length).position(offset + RECORD_HEADER_SIZE);
+    return payload.slice();
+  }
+
+  private int recordSize(int offset) {
+    return RECORD_HEADER_SIZE + this.buffer.getInt(offset);
+  }
+
+  private Auth read(int offset) throws SmartcarException {
+    ByteBuffer payload = this.payload(offset, this.buffer.getInt(offset));
+    payload.get();
+    int keyLength = payload.getShort() & 0xFFFF;
+    byte[] keyBytes = new byte[keyLength];
+    payload.get(keyBytes);
+    byte[] value = new byte[payload.remaining()];
+    payload.get(value);
+    return this.decodeValue(keyBytes, value);
+  }
+
+  private byte[] encodeValue(byte[] keyBytes, Auth auth) throws SmartcarException {
+    byte[] accessToken = MappedTokenStore.utf8(auth.getAccessToken());
+    byte[] refreshToken = MappedTokenStore.utf8(auth.getRefreshToken());
+    ByteBuffer value = ByteBuffer.allocate(4 + accessToken.length + 4 + refreshToken.length + 16);
+    MappedTokenStore.putString(value, auth.getAccessToken(), accessToken);
+    MappedTokenStore.putString(value, auth.getRefreshToken(), refreshToken);
+    value.putLong(MappedTokenStore.time(auth.getExpiration()))
+        .putLong(MappedTokenStore.time(auth.getRefreshExpiration()));
+    if (this.encryptionKey == null) {
+      return value.array();
+    }
+
+    byte[] iv = new byte[IV_SIZE];
+    this.random.nextBytes(iv);
+    try {
+      this.cipher.init(Cipher.ENCRYPT_MODE, this.encryptionKey, new GCMParameterSpec(TAG_BITS, iv));
+      this.cipher.updateAAD(keyBytes);
+      byte[] ciphertext = this.cipher.doFinal(value.array());
+      return ByteBuffer.allocate(IV_SIZE + ciphertext.length).put(iv).put(ciphertext).array();
+    } catch (GeneralSecurityException ex) {
+      throw MappedTokenStore.error("The tokens could not be encrypted: " + ex.getMessage());
+    }
+  }
+
+  private Auth decodeValue(byte[] keyBytes, byte[] value) throws SmartcarException {
+    if (this.encryptionKey != null) {
+      try {
+        this.cipher.init(Cipher.DECRYPT_MODE, this.encryptionKey,
+            new GCMParameterSpec(TAG_BITS, value, 0, IV_SIZE));
+        this.cipher.updateAAD(keyBytes);
+        value = this.cipher.doFinal(value, IV_SIZE, value.length - IV_SIZE);
+      } catch (GeneralSecurityException ex) {
+        throw MappedTokenStore.error("The tokens could not be decrypted; check the encryption key");
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    String accessToken = MappedTokenStore.readString(buffer);
+    String refreshToken = MappedTokenStore.readString(buffer);
+    Date expiration = MappedTokenStore.date(buffer.getLong());
+    Date refreshExpiration = MappedTokenStore.date(buffer.getLong());
+    return new Auth(accessToken, refreshToken, expiration, refreshExpiration);
+  }
+
+  private Path compactionPath() {
+    return this.path.resolveSibling(this.path.getFileName() + ".compact");
+  }
+
+  private void checkOpen() throws SmartcarException {
+    if (this.closed) {
+      throw MappedTokenStore.error("The token store is closed");
+    }
+  }
+
+  private static byte[] keyBytes(String key) throws SmartcarException {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    if (keyBytes.length > 0xFFFF) {
+      throw MappedTokenStore.error("The key is too long");
+    }
+    return keyBytes;
+  }
+
+  private static String readKey(ByteBuffer payload) {
+    byte[] keyBytes = new byte[payload.getShort() & 0xFFFF];
+    payload.get(keyBytes);
+    return new String(keyBytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] utf8(String value) {
+    return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+  }
+
+  private static void putString(ByteBuffer buffer, String value, byte[] bytes) {
+    buffer.putInt(value != null ? bytes.length : -1).put(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long time(Date date) {
+    return date != null ? date.getTime() : Long.MIN_VALUE;
+  }
+
+  private static Date date(long time) {
+    return time != Long.MIN_VALUE ? new Date(time) : null;
+  }
+
+  private static SmartcarException error(String description) {
+    return new SmartcarException.Builder().type("SDK_ERROR").description(description).build();
+  }
+}
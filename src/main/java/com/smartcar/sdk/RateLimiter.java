@@ -0,0 +1,195 @@
+package com.smartcar.sdk;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Client-side token bucket rate limiter, plugged into a client with
+ * {@link SmartcarClient.Builder#rateLimiter(RateLimiter)}.
+ *
+ * <p>Every request takes a token from the application bucket, and vehicle requests also take one
+ * from the bucket of their vehicle and endpoint class. Requests that find a bucket empty are
+ * delayed until a token is available rather than rejected, so a fleet workload runs at the
+ * configured ceiling instead of bursting into RATE_LIMIT errors. When the API does answer with a
+ * RATE_LIMIT error, the bucket it names (the vehicle, or the application) is paused for the
+ * Retry-After period.
+ *
+ * <pre>{@code
+ * RateLimiter limiter = new RateLimiter.Builder()
+ *     .applicationRate(50, 50)
+ *     .vehicleRate(EndpointClass.READ, 1, 5)
+ *     .vehicleRate(EndpointClass.ACTION, 0.1, 1)
+ *     .build();
+ * }</pre>
+ */
+public final class RateLimiter {
+  private final TokenBucket application;
+  private final Map<EndpointClass, double[]> vehicleRates;
+  private final ConcurrentLruMap<String, TokenBucket> vehicles;
+
+  public static class Builder {
+    private double applicationRate;
+    private int applicationBurst;
+    private final Map<EndpointClass, double[]> vehicleRates;
+    private int maxVehicles;
+
+    public Builder() {
+      this.applicationRate = 0;
+      this.applicationBurst = 0;
+      this.vehicleRates = new EnumMap<>(EndpointClass.class);
+      this.maxVehicles = 100000;
+    }
+
+    /**
+     * Limits the rate of all requests made through the client.
+     *
+     * @param permitsPerSecond the sustained request rate
+     * @param burst how many requests may be sent at once after a quiet period
+     * @return this builder
+     * @throws IllegalArgumentException if the rate is not positive or the burst is below 1
+     */
+    public Builder applicationRate(double permitsPerSecond, int burst) {
+      Builder.validate(permitsPerSecond, burst);
+      this.applicationRate = permitsPerSecond;
+      this.applicationBurst = burst;
+      return this;
+    }
+
+    /**
+     * Limits the rate of requests of one endpoint class made to each vehicle.
+     *
+     * @param endpointClass the endpoint class to limit
+     * @param permitsPerSecond the sustained request rate per vehicle
+     * @param burst how many requests may be sent to a vehicle at once after a quiet period
+     * @return this builder
+     * @throws IllegalArgumentException if the rate is not positive or the burst is below 1
+     */
+    public Builder vehicleRate(EndpointClass endpointClass, double permitsPerSecond, int burst) {
+      Builder.validate(permitsPerSecond, burst);
+      this.vehicleRates.put(endpointClass, new double[] {permitsPerSecond, burst});
+      return this;
+    }
+
+    /**
+     * Sets how many vehicle buckets are tracked. The least recently used are dropped beyond this,
+     * which resets the limit for those vehicles. Defaults to 100000.
+     *
+     * @param maxVehicles the maximum number of tracked vehicle buckets
+     * @return this builder
+     */
+    public Builder maxVehicles(int maxVehicles) {
+      this.maxVehicles = maxVehicles;
+      return this;
+    }
+
+    public RateLimiter build() {
+      return new RateLimiter(this);
+    }
+
+    /** A rate of zero would make every request wait forever. */
+    private static void validate(double permitsPerSecond, int burst) {
+      if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+        throw new IllegalArgumentException("permitsPerSecond must be positive, got " + permitsPerSecond);
+      }
+      if (burst < 1) {
+        throw new IllegalArgumentException("burst must be at least 1, got " + burst);
+      }
+    }
+  }
+
+  private RateLimiter(Builder builder) {
+    this.application = builder.applicationRate > 0
+        ? new TokenBucket(builder.applicationRate, builder.applicationBurst)
+        : null;
+    this.vehicleRates = new EnumMap<>(builder.vehicleRates);
+    this.vehicles = new ConcurrentLruMap<>(builder.maxVehicles, Long.MAX_VALUE, (bucket) -> 1, 16);
+  }
+
+  /**
+   * Takes a token for a request from every bucket that applies to it.
+   *
+   * @param tag the vehicle and endpoint of the request, or null
+   * @param endpointClass the endpoint class of the request
+   * @return how long the request must wait before it is sent, in nanoseconds
+   */
+  long reserve(RequestTag tag, EndpointClass endpointClass) {
+    long now = System.nanoTime();
+    long wait = 0;
+    if (this.application != null) {
+      wait = this.application.reserve(now);
+    }
+    TokenBucket vehicle = this.vehicleBucket(tag, endpointClass);
+    if (vehicle != null) {
+      wait = Math.max(wait, vehicle.reserve(now));
+    }
+    return wait;
+  }
+
+  /**
+   * Holds back further requests after the API reported that a rate limit was exceeded.
+   *
+   * @param tag the vehicle and endpoint of the request, or null
+   * @param endpointClass the endpoint class of the request
+   * @param vehicleLimit whether the vehicle limit (rather than the application limit) was hit
+   * @param pauseNanos how long to hold back requests
+   * @return true if a bucket was paused, false if no bucket applies to the request
+   */
+  boolean pause(RequestTag tag, EndpointClass endpointClass, boolean vehicleLimit, long pauseNanos) {
+    TokenBucket bucket = vehicleLimit ? this.vehicleBucket(tag, endpointClass) : this.application;
+    if (bucket == null) {
+      return false;
+    }
+    bucket.pause(System.nanoTime(), pauseNanos);
+    return true;
+  }
+
+  private TokenBucket vehicleBucket(RequestTag tag, EndpointClass endpointClass) {
+    double[] rate = this.vehicleRates.get(endpointClass);
+    if (tag == null || rate == null) {
+      return null;
+    }
+    return this.vehicles.computeIfAbsent(
+        tag.getVehicleId() + ' ' + endpointClass.name(),
+        (key) -> new TokenBucket(rate[0], (int) rate[1]));
+  }
+
+  /**
+   * A token bucket that hands out reservations: a request always takes a token, possibly driving
+   * the balance negative, and is told how long to wait until that token has been refilled. This
+   * keeps waiting requests in arrival order without a queue.
+   */
+  private static final class TokenBucket {
+    private final double permitsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+      this.permitsPerNano = permitsPerSecond / 1e9;
+      this.capacity = Math.max(1, burst);
+      this.tokens = this.capacity;
+      this.refilledAt = System.nanoTime();
+    }
+
+    private void refill(long now) {
+      if (now > this.refilledAt) {
+        this.tokens = Math.min(this.capacity, this.tokens + (now - this.refilledAt) * this.permitsPerNano);
+        this.refilledAt = now;
+      }
+    }
+
+    synchronized long reserve(long now) {
+      this.refill(now);
+      this.tokens -= 1;
+      if (this.tokens >= 0) {
+        return 0;
+      }
+      return (long) Math.ceil(-this.tokens / this.permitsPerNano);
+    }
+
+    synchronized void pause(long now, long pauseNanos) {
+      this.refill(now);
+      this.tokens = Math.min(this.tokens, -pauseNanos * this.permitsPerNano);
+    }
+  }
+}
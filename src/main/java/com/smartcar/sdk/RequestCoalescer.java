@@ -0,0 +1,140 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+import okhttp3.Request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical read requests into a single HTTP exchange.
+ *
+ * <p>Requests are identical when they have the same URL (and therefore the same vehicle, path and
+ * query), the same unit system, the same Authorization header and the same response type. The
+ * first caller sends the request; every caller that arrives while it is in flight shares its
+ * parsed result or its SmartcarException. Nothing is cached once the exchange completes.
+ */
+final class RequestCoalescer {
+  /** A blocking request whose result may be shared. */
+  interface Loader<T> {
+    T load() throws SmartcarException;
+  }
+
+  private final ConcurrentHashMap<RequestKey, CompletableFuture<? extends ApiData>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Runs the loader, or waits for an identical request that is already in flight.
+   *
+   * @param request the request being sent
+   * @param dataType the type into which the response will be parsed
+   * @param loader sends the request when no identical request is in flight
+   * @return the parsed response
+   * @throws SmartcarException if the shared request is unsuccessful
+   */
+  @SuppressWarnings("unchecked")
+  <T extends ApiData> T execute(Request request, Class<T> dataType, Loader<T> loader)
+      throws SmartcarException {
+    RequestKey key = new RequestKey(request, dataType);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    CompletableFuture<T> existing = (CompletableFuture<T>) this.inFlight.putIfAbsent(key, future);
+
+    if (existing != null) {
+      return RequestCoalescer.await(existing);
+    }
+
+    try {
+      T data = loader.load();
+      future.complete(data);
+      return data;
+    } catch (SmartcarException | RuntimeException ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      this.inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * Starts the request, or joins an identical request that is already in flight. Each caller gets
+   * its own future, so cancelling one does not affect the others.
+   *
+   * @param request the request being sent
+   * @param dataType the type into which the response will be parsed
+   * @param loader starts the request when no identical request is in flight
+   * @return a future for the parsed response
+   */
+  @SuppressWarnings("unchecked")
+  <T extends ApiData> CompletableFuture<T> executeAsync(
+      Request request, Class<T> dataType, Supplier<CompletableFuture<T>> loader) {
+    RequestKey key = new RequestKey(request, dataType);
+    CompletableFuture<T> future = new CompletableFuture<>();
+    CompletableFuture<T> existing = (CompletableFuture<T>) this.inFlight.putIfAbsent(key, future);
+
+    if (existing == null) {
+      existing = future;
+      loader.get().whenComplete((data, ex) -> {
+        this.inFlight.remove(key, future);
+        if (ex != null) {
+          future.completeExceptionally(RequestCoalescer.unwrap(ex));
+        } else {
+          future.complete(data);
+        }
+      });
+    }
+
+    CompletableFuture<T> result = new CompletableFuture<>();
+    existing.whenComplete((data, ex) -> {
+      if (ex != null) {
+        result.completeExceptionally(RequestCoalescer.unwrap(ex));
+      } else {
+        result.complete(data);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Returns the number of distinct requests currently in flight.
+   *
+   * @return the in-flight request count
+   */
+  int size() {
+    return this.inFlight.size();
+  }
+
+  /**
+   * Waits for a future, rethrowing its SmartcarException on the calling thread.
+   *
+   * @param future the future to wait for
+   * @return the result of the future
+   * @throws SmartcarException if the future failed
+   */
+  static <T> T await(CompletableFuture<T> future) throws SmartcarException {
+    try {
+      return future.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = RequestCoalescer.unwrap(ex.getCause());
+      if (cause instanceof SmartcarException) {
+        throw (SmartcarException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new SmartcarException.Builder().type("SDK_ERROR").description(cause.getMessage()).build();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+    }
+  }
+
+  static Throwable unwrap(Throwable ex) {
+    if (ex instanceof CompletionException && ex.getCause() != null) {
+      return ex.getCause();
+    }
+    return ex;
+  }
+}
@@ -0,0 +1,144 @@
+package com.smartcar.sdk;
+
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import java.io.IOException;
+
+/** Describes one completed HTTP exchange with the Smartcar API. */
+public final class RequestEvent {
+  private final String method;
+  private final String endpoint;
+  private final int statusCode;
+  private final long latencyNanos;
+  private final long requestBytes;
+  private final long responseBytes;
+  private final String errorType;
+  private final String errorCode;
+
+  RequestEvent(
+      String method,
+      String endpoint,
+      int statusCode,
+      long latencyNanos,
+      long requestBytes,
+      long responseBytes,
+      String errorType,
+      String errorCode) {
+    this.method = method;
+    this.endpoint = endpoint;
+    this.statusCode = statusCode;
+    this.latencyNanos = latencyNanos;
+    this.requestBytes = requestBytes;
+    this.responseBytes = responseBytes;
+    this.errorType = errorType;
+    this.errorCode = errorCode;
+  }
+
+  /**
+   * Builds the event for an exchange.
+   *
+   * @param request the request that was sent
+   * @param startNanos the System.nanoTime() at which it was sent
+   * @param statusCode the HTTP status, or 0 if no response was received
+   * @param responseBytes the response body length, or -1 if unknown
+   * @param error the failure, or null if the exchange succeeded
+   * @return the event
+   */
+  static RequestEvent of(
+      Request request, long startNanos, int statusCode, long responseBytes, SmartcarException error) {
+    return new RequestEvent(
+        request.method(),
+        RequestEvent.endpointOf(request),
+        statusCode,
+        System.nanoTime() - startNanos,
+        RequestEvent.requestBytesOf(request),
+        responseBytes,
+        error != null ? error.getType() : null,
+        error != null ? error.getCode() : null);
+  }
+
+  /**
+   * Returns the URL path of a request with the vehicle ID replaced by "{id}", so that requests to
+   * the same endpoint of different vehicles are grouped together.
+   */
+  private static String endpointOf(Request request) {
+    String path = request.url().encodedPath();
+    RequestTag tag = request.tag(RequestTag.class);
+    if (tag != null) {
+      path = path.replace("/vehicles/" + tag.getVehicleId(), "/vehicles/{id}");
+    }
+    return path;
+  }
+
+  private static long requestBytesOf(Request request) {
+    RequestBody body = request.body();
+    if (body == null) {
+      return 0;
+    }
+    try {
+      return body.contentLength();
+    } catch (IOException ex) {
+      return -1;
+    }
+  }
+
+  public String getMethod() { return this.method; }
+
+  /**
+   * Returns the endpoint template, the URL path with any vehicle ID replaced by "{id}" (ex.
+   * "/v2.0/vehicles/{id}/odometer").
+   *
+   * @return the endpoint template
+   */
+  public String getEndpoint() { return this.endpoint; }
+
+  /**
+   * Returns the HTTP status of the response.
+   *
+   * @return the status code, or 0 if no response was received
+   */
+  public int getStatusCode() { return this.statusCode; }
+
+  /**
+   * Returns the time from sending the request to parsing the response or error.
+   *
+   * @return the latency in nanoseconds
+   */
+  public long getLatencyNanos() { return this.latencyNanos; }
+
+  /**
+   * Returns the length of the request body.
+   *
+   * @return the number of bytes sent, or -1 if unknown
+   */
+  public long getRequestBytes() { return this.requestBytes; }
+
+  /**
+   * Returns the length of the response body, as declared by the server.
+   *
+   * @return the number of bytes received, or -1 if unknown
+   */
+  public long getResponseBytes() { return this.responseBytes; }
+
+  /**
+   * Returns whether the exchange failed.
+   *
+   * @return true if a SmartcarException was raised
+   */
+  public boolean isError() { return this.errorType != null; }
+
+  /**
+   * Returns the type of the SmartcarException raised, if any (ex. "RATE_LIMIT" or "SDK_ERROR").
+   *
+   * @return the error type, or null if the exchange succeeded
+   */
+  public String getErrorType() { return this.errorType; }
+
+  /**
+   * Returns the code of the SmartcarException raised, if any.
+   *
+   * @return the error code, or null
+   */
+  public String getErrorCode() { return this.errorCode; }
+}
@@ -0,0 +1,52 @@
+package com.smartcar.sdk;
+
+import okhttp3.Request;
+
+import java.util.Objects;
+
+/**
+ * Identity of a read request. Two requests are identical when they have the same URL (and
+ * therefore the same vehicle, path and query), the same unit system, the same Authorization
+ * header and the same response type.
+ */
+final class RequestKey {
+  private final String url;
+  private final String unitSystem;
+  private final String authorization;
+  private final Class<?> dataType;
+  private final int hash;
+
+  RequestKey(Request request, Class<?> dataType) {
+    this.url = request.url().toString();
+    this.unitSystem = request.header("sc-unit-system");
+    this.authorization = request.header("Authorization");
+    this.dataType = dataType;
+    this.hash = Objects.hash(this.url, this.unitSystem, this.authorization, this.dataType);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RequestKey)) {
+      return false;
+    }
+    RequestKey other = (RequestKey) o;
+    return this.url.equals(other.url)
+        && Objects.equals(this.unitSystem, other.unitSystem)
+        && Objects.equals(this.authorization, other.authorization)
+        && this.dataType == other.dataType;
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  /** @return the request URL, without credentials */
+  @Override
+  public String toString() {
+    return this.url;
+  }
+}
@@ -0,0 +1,21 @@
+package com.smartcar.sdk;
+
+/**
+ * Receives an event for every HTTP exchange made through a client, plugged in with
+ * {@link SmartcarClient.Builder#requestListener(RequestListener)}. Use it to export metrics to
+ * your own monitoring system, or use the built-in {@link RequestMetrics}.
+ *
+ * <p>Listeners are called on the thread that completed the exchange (the caller's thread for
+ * blocking requests, an OkHttp dispatcher thread for asynchronous ones), so they must be fast and
+ * safe for concurrent use. Exceptions thrown by a listener are ignored. Each retry is reported as
+ * its own exchange, while responses served by the cache or shared by the coalescer are not
+ * reported at all.
+ */
+public interface RequestListener {
+  /**
+   * Called when an exchange completes, successfully or not.
+   *
+   * @param event what was sent and how it went
+   */
+  void onRequestComplete(RequestEvent event);
+}
@@ -0,0 +1,141 @@
+package com.smartcar.sdk;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The built-in {@link RequestListener}: keeps request counts, error counts, byte totals and a
+ * {@link LatencyHistogram} for every endpoint, in memory and without locks.
+ *
+ * <pre>{@code
+ * RequestMetrics metrics = new RequestMetrics();
+ * SmartcarClient client = new SmartcarClient.Builder().requestListener(metrics).build();
+ * ...
+ * RequestMetrics.Endpoint odometer = metrics.getEndpoint("GET", "/v2.0/vehicles/{id}/odometer");
+ * long p99 = odometer.getLatency().getValueAtPercentile(99);
+ * }</pre>
+ */
+public final class RequestMetrics implements RequestListener {
+  private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+  private final long startedAt = System.nanoTime();
+
+  /** The metrics of one endpoint. */
+  public static final class Endpoint {
+    private final String method;
+    private final String path;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    private Endpoint(String method, String path) {
+      this.method = method;
+      this.path = path;
+    }
+
+    private void record(RequestEvent event) {
+      this.latency.record(event.getLatencyNanos());
+      if (event.isError()) {
+        this.errors.increment();
+        this.errorsByType.computeIfAbsent(event.getErrorType(), (type) -> new LongAdder()).increment();
+      }
+      if (event.getRequestBytes() > 0) {
+        this.requestBytes.add(event.getRequestBytes());
+      }
+      if (event.getResponseBytes() > 0) {
+        this.responseBytes.add(event.getResponseBytes());
+      }
+    }
+
+    public String getMethod() { return this.method; }
+
+    public String getPath() { return this.path; }
+
+    /**
+     * Returns the latencies of every exchange with this endpoint, successful or not.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() { return this.latency; }
+
+    public long getRequestCount() { return this.latency.getCount(); }
+
+    public long getErrorCount() { return this.errors.sum(); }
+
+    /**
+     * Returns the number of failed exchanges by SmartcarException type.
+     *
+     * @return a snapshot of the error counts
+     */
+    public Map<String, Long> getErrorCountsByType() {
+      Map<String, Long> counts = new HashMap<>();
+      this.errorsByType.forEach((type, count) -> counts.put(type, count.sum()));
+      return counts;
+    }
+
+    /**
+     * Returns the total length of request bodies whose length was known.
+     *
+     * @return the number of bytes sent
+     */
+    public long getRequestBytes() { return this.requestBytes.sum(); }
+
+    /**
+     * Returns the total length of response bodies whose length was known.
+     *
+     * @return the number of bytes received
+     */
+    public long getResponseBytes() { return this.responseBytes.sum(); }
+  }
+
+  @Override
+  public void onRequestComplete(RequestEvent event) {
+    String key = event.getMethod() + " " + event.getEndpoint();
+    Endpoint endpoint = this.endpoints.get(key);
+    if (endpoint == null) {
+      endpoint = this.endpoints.computeIfAbsent(
+          key, (k) -> new Endpoint(event.getMethod(), event.getEndpoint()));
+    }
+    endpoint.record(event);
+  }
+
+  /**
+   * Returns the metrics of one endpoint.
+   *
+   * @param method the HTTP method
+   * @param path the endpoint template (ex. "/v2.0/vehicles/{id}/odometer")
+   * @return the endpoint metrics, or null if no request was made to it
+   */
+  public Endpoint getEndpoint(String method, String path) {
+    return this.endpoints.get(method + " " + path);
+  }
+
+  /**
+   * Returns the metrics of every endpoint requested so far, keyed by method and path (ex.
+   * "GET /v2.0/vehicles/{id}/odometer").
+   *
+   * @return an unmodifiable view of the endpoint metrics
+   */
+  public Map<String, Endpoint> getEndpoints() {
+    return Collections.unmodifiableMap(this.endpoints);
+  }
+
+  /**
+   * Returns the average number of exchanges per second since these metrics were created.
+   *
+   * @return the throughput in requests per second
+   */
+  public double getThroughput() {
+    long total = 0;
+    for (Endpoint endpoint : this.endpoints.values()) {
+      total += endpoint.getRequestCount();
+    }
+    double seconds = (double) (System.nanoTime() - this.startedAt) / TimeUnit.SECONDS.toNanos(1);
+    return seconds > 0 ? total / seconds : 0;
+  }
+}
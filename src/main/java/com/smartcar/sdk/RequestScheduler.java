@@ -0,0 +1,143 @@
+package com.smartcar.sdk;
+
+import okhttp3.Request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Paces requests through a {@link RateLimiter} and retries them according to a
+ * {@link RetryPolicy}. Either may be absent. Blocking requests wait on the calling thread;
+ * asynchronous requests wait on the {@link SharedTimer}, which only starts the next attempt.
+ */
+final class RequestScheduler {
+  private final RateLimiter rateLimiter;
+  private final RetryPolicy retryPolicy;
+
+  RequestScheduler(RateLimiter rateLimiter, RetryPolicy retryPolicy) {
+    this.rateLimiter = rateLimiter;
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Sends the request once it is allowed to, retrying failures that the policy permits.
+   *
+   * @param request the request being sent
+   * @param loader sends the request once
+   * @return the parsed response
+   * @throws SmartcarException if the last attempt is unsuccessful
+   */
+  <T> T execute(Request request, RequestCoalescer.Loader<T> loader)
+      throws SmartcarException {
+    RequestTag tag = request.tag(RequestTag.class);
+    EndpointClass endpointClass = EndpointClass.of(request);
+
+    for (int attempt = 1; ; attempt++) {
+      RequestScheduler.sleep(this.reserve(tag, endpointClass));
+      try {
+        return loader.load();
+      } catch (SmartcarException ex) {
+        long delay = this.onFailure(tag, endpointClass, attempt, ex);
+        if (delay < 0) {
+          throw ex;
+        }
+        RequestScheduler.sleep(TimeUnit.MILLISECONDS.toNanos(delay));
+      }
+    }
+  }
+
+  /**
+   * Starts the request once it is allowed to, retrying failures that the policy permits.
+   * Cancelling the returned future cancels the attempt in flight and any pending retry.
+   *
+   * @param request the request being sent
+   * @param loader starts the request once
+   * @return a future for the parsed response
+   */
+  <T> CompletableFuture<T> executeAsync(
+      Request request, Supplier<CompletableFuture<T>> loader) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    this.attempt(request.tag(RequestTag.class), EndpointClass.of(request), loader, result, 1, 0);
+    return result;
+  }
+
+  private <T> void attempt(
+      RequestTag tag,
+      EndpointClass endpointClass,
+      Supplier<CompletableFuture<T>> loader,
+      CompletableFuture<T> result,
+      int attempt,
+      long delayNanos) {
+    long wait = Math.max(delayNanos, this.reserve(tag, endpointClass));
+    Runnable send = () -> {
+      if (result.isDone()) {
+        return;
+      }
+      CompletableFuture<T> future = loader.get();
+      result.whenComplete((data, ex) -> {
+        if (result.isCancelled()) {
+          future.cancel(true);
+        }
+      });
+      future.whenComplete((data, ex) -> {
+        if (ex == null) {
+          result.complete(data);
+          return;
+        }
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof SmartcarException) {
+          long delay = this.onFailure(tag, endpointClass, attempt, (SmartcarException) cause);
+          if (delay >= 0) {
+            this.attempt(tag, endpointClass, loader, result, attempt + 1,
+                TimeUnit.MILLISECONDS.toNanos(delay));
+            return;
+          }
+        }
+        result.completeExceptionally(cause);
+      });
+    };
+
+    if (wait <= 0) {
+      send.run();
+    } else {
+      SharedTimer.schedule(send, wait, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private long reserve(RequestTag tag, EndpointClass endpointClass) {
+    return this.rateLimiter != null ? this.rateLimiter.reserve(tag, endpointClass) : 0;
+  }
+
+  /**
+   * Records a failed attempt.
+   *
+   * @return the delay before the next attempt in milliseconds, or -1 if there is none
+   */
+  private long onFailure(RequestTag tag, EndpointClass endpointClass, int attempt, SmartcarException ex) {
+    boolean paused = false;
+    if (this.rateLimiter != null && ex.getStatusCode() == 429 && ex.getRetryAfter() > 0) {
+      paused = this.rateLimiter.pause(tag, endpointClass, "VEHICLE".equals(ex.getCode()),
+          TimeUnit.MILLISECONDS.toNanos(ex.getRetryAfter()));
+    }
+    if (this.retryPolicy == null || !this.retryPolicy.shouldRetry(endpointClass, attempt, ex)) {
+      return -1;
+    }
+    long delay = this.retryPolicy.delay(attempt, ex);
+    // A paused bucket already holds the next attempt back for the Retry-After period.
+    return paused ? Math.max(0, delay - ex.getRetryAfter()) : delay;
+  }
+
+  private static void sleep(long nanos) throws SmartcarException {
+    if (nanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.smartcar.sdk;
+
+/**
+ * Describes which vehicle and endpoint a request was built for. Attached to vehicle requests as
+ * an OkHttp request tag so that the layers in ApiClient (caching, coalescing, and so on) can act
+ * on the endpoint without parsing the URL.
+ */
+final class RequestTag {
+  private final String vehicleId;
+  private final String path;
+
+  /**
+   * @param vehicleId the vehicle ID
+   * @param path the endpoint path relative to the vehicle, with a leading slash (ex. "/odometer")
+   */
+  RequestTag(String vehicleId, String path) {
+    this.vehicleId = vehicleId;
+    this.path = path;
+  }
+
+  /**
+   * Normalizes a vehicle sub-endpoint path so that "odometer", "/odometer" and "odometer/" all
+   * map to "/odometer", and the vehicle root maps to "/".
+   *
+   * @param path the path relative to the vehicle
+   * @return the normalized path
+   */
+  static String normalizePath(String path) {
+    String trimmed = path;
+    while (trimmed.startsWith("/")) {
+      trimmed = trimmed.substring(1);
+    }
+    while (trimmed.endsWith("/")) {
+      trimmed = trimmed.substring(0, trimmed.length() - 1);
+    }
+    return "/" + trimmed;
+  }
+
+  String getVehicleId() {
+    return this.vehicleId;
+  }
+
+  String getPath() {
+    return this.path;
+  }
+}
@@ -0,0 +1,60 @@
+package com.smartcar.sdk;
+
+/**
+ * An in-process cache for vehicle read responses, plugged into a client with
+ * {@link SmartcarClient.Builder#responseCache(ResponseCache)}.
+ *
+ * <p>The cache decides what is kept and for how long; the client decides freshness. A cached
+ * response is fresh while less than {@link #getTimeToLive(String)} has passed since the vehicle
+ * data was recorded, as reported by the sc-data-age header (or since it was fetched, when the
+ * response has no data age). After that it may still be served for
+ * {@link #getStaleWhileRevalidate(String)} while a single background request refreshes it.
+ *
+ * <p>Implementations must be safe for concurrent use. Keys are opaque and identify the vehicle,
+ * path, query, unit system and access token of the request.
+ */
+public interface ResponseCache {
+  /**
+   * Returns the response stored under the key.
+   *
+   * @param key the request key
+   * @return the cached response, or null if there is none
+   */
+  CachedResponse get(Object key);
+
+  /**
+   * Stores a response under the key, replacing any previous response.
+   *
+   * @param key the request key
+   * @param response the response to store
+   */
+  void put(Object key, CachedResponse response);
+
+  /**
+   * Removes the response stored under the key, if any.
+   *
+   * @param key the request key
+   */
+  void invalidate(Object key);
+
+  /** Removes every stored response. */
+  void invalidateAll();
+
+  /**
+   * Returns how long responses from an endpoint stay fresh. Responses from endpoints with a time
+   * to live of zero are not cached.
+   *
+   * @param path the vehicle endpoint path (ex. "/odometer")
+   * @return the time to live in milliseconds
+   */
+  long getTimeToLive(String path);
+
+  /**
+   * Returns how long past its time to live a response from an endpoint may still be served while
+   * it is refreshed in the background.
+   *
+   * @param path the vehicle endpoint path (ex. "/odometer")
+   * @return the stale-while-revalidate window in milliseconds
+   */
+  long getStaleWhileRevalidate(String path);
+}
@@ -0,0 +1,148 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+import com.smartcar.sdk.data.Meta;
+import okhttp3.Request;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Serves vehicle reads from a {@link ResponseCache}, applying freshness from the data age of each
+ * response and refreshing stale responses in the background, at most once per key at a time.
+ */
+final class ResponseCacheLayer {
+  private final ResponseCache cache;
+  private final Set<RequestKey> refreshing = ConcurrentHashMap.newKeySet();
+
+  ResponseCacheLayer(ResponseCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns a usable cached response, or loads and caches a new one.
+   *
+   * @param request the request being sent
+   * @param path the vehicle endpoint path of the request
+   * @param dataType the type into which the response will be parsed
+   * @param loader sends the request on a cache miss
+   * @param refresher sends the request in the background when a stale response is served
+   * @return the parsed response
+   * @throws SmartcarException if the request is unsuccessful
+   */
+  <T extends ApiData> T execute(
+      Request request,
+      String path,
+      Class<T> dataType,
+      RequestCoalescer.Loader<T> loader,
+      Supplier<CompletableFuture<T>> refresher) throws SmartcarException {
+    long ttl = this.cache.getTimeToLive(path);
+    if (ttl <= 0) {
+      return loader.load();
+    }
+
+    RequestKey key = new RequestKey(request, dataType);
+    T cached = this.lookup(key, path, ttl, dataType, refresher);
+    if (cached != null) {
+      return cached;
+    }
+
+    T data = loader.load();
+    this.store(key, path, data);
+    return data;
+  }
+
+  /**
+   * Returns a usable cached response, or loads and caches a new one, without blocking.
+   *
+   * @param request the request being sent
+   * @param path the vehicle endpoint path of the request
+   * @param dataType the type into which the response will be parsed
+   * @param loader starts the request on a cache miss, or in the background when a stale
+   *     response is served
+   * @return a future for the parsed response
+   */
+  <T extends ApiData> CompletableFuture<T> executeAsync(
+      Request request, String path, Class<T> dataType, Supplier<CompletableFuture<T>> loader) {
+    long ttl = this.cache.getTimeToLive(path);
+    if (ttl <= 0) {
+      return loader.get();
+    }
+
+    RequestKey key = new RequestKey(request, dataType);
+    T cached = this.lookup(key, path, ttl, dataType, loader);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    return loader.get().thenApply((data) -> {
+      this.store(key, path, data);
+      return data;
+    });
+  }
+
+  private <T extends ApiData> T lookup(
+      RequestKey key, String path, long ttl, Class<T> dataType, Supplier<CompletableFuture<T>> refresher) {
+    CachedResponse cached = this.cache.get(key);
+    if (cached == null || !dataType.isInstance(cached.getData())) {
+      return null;
+    }
+
+    long age = System.currentTimeMillis() - cached.getRecordedAt();
+    if (age < ttl) {
+      return dataType.cast(cached.getData());
+    }
+
+    if (age < ttl + this.cache.getStaleWhileRevalidate(path)) {
+      this.refresh(key, path, refresher);
+      return dataType.cast(cached.getData());
+    }
+
+    return null;
+  }
+
+  private <T extends ApiData> void refresh(
+      RequestKey key, String path, Supplier<CompletableFuture<T>> refresher) {
+    if (!this.refreshing.add(key)) {
+      return;
+    }
+
+    try {
+      refresher.get().whenComplete((data, ex) -> {
+        try {
+          if (ex == null) {
+            this.store(key, path, data);
+          }
+        } finally {
+          // Released only once the fresh response is visible, so that no reader can start a
+          // second refresh from the stale one.
+          this.refreshing.remove(key);
+        }
+      });
+    } catch (RuntimeException ex) {
+      this.refreshing.remove(key);
+    }
+  }
+
+  private void store(RequestKey key, String path, ApiData data) {
+    long fetchedAt = System.currentTimeMillis();
+    long recordedAt = fetchedAt;
+
+    Meta meta = data.getMeta();
+    if (meta != null) {
+      try {
+        Date dataAge = meta.getDataAge();
+        if (dataAge != null) {
+          recordedAt = Math.min(dataAge.getTime(), fetchedAt);
+        }
+      } catch (SmartcarException ex) {
+        // An unparseable data age falls back to the fetch time.
+      }
+    }
+
+    this.cache.put(key, new CachedResponse(data, path, recordedAt, fetchedAt));
+  }
+}
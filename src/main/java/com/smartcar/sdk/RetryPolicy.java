@@ -0,0 +1,142 @@
+package com.smartcar.sdk;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which failed requests are retried and how long to wait before each retry, plugged into
+ * a client with {@link SmartcarClient.Builder#retryPolicy(RetryPolicy)}.
+ *
+ * <p>Retries back off exponentially with full jitter, so clients that were throttled together do
+ * not retry together. When the response carries a Retry-After header the retry waits at least
+ * that long. By default reads are retried on 429 and 5xx responses, and actions only on 429
+ * responses, since an action that failed with a server error may still have reached the vehicle.
+ */
+public final class RetryPolicy {
+  private final Map<EndpointClass, Integer> maxAttempts;
+  private final Map<EndpointClass, Set<Integer>> retryableStatusCodes;
+  private final long baseDelay;
+  private final long maxDelay;
+
+  public static class Builder {
+    private final Map<EndpointClass, Integer> maxAttempts;
+    private final Map<EndpointClass, Set<Integer>> retryableStatusCodes;
+    private long baseDelay;
+    private long maxDelay;
+
+    public Builder() {
+      this.maxAttempts = new EnumMap<>(EndpointClass.class);
+      this.maxAttempts.put(EndpointClass.READ, 3);
+      this.maxAttempts.put(EndpointClass.ACTION, 3);
+      this.retryableStatusCodes = new EnumMap<>(EndpointClass.class);
+      this.retryableStatusCodes.put(EndpointClass.READ, RetryPolicy.statusSet(429, 500, 502, 503, 504));
+      this.retryableStatusCodes.put(EndpointClass.ACTION, RetryPolicy.statusSet(429));
+      this.baseDelay = 500;
+      this.maxDelay = 30000;
+    }
+
+    /**
+     * Sets how many times a request of an endpoint class is attempted in total, including the
+     * first attempt. Defaults to 3.
+     *
+     * @param endpointClass the endpoint class
+     * @param maxAttempts the maximum number of attempts
+     * @return this builder
+     */
+    public Builder maxAttempts(EndpointClass endpointClass, int maxAttempts) {
+      this.maxAttempts.put(endpointClass, maxAttempts);
+      return this;
+    }
+
+    /**
+     * Sets the HTTP status codes on which requests of an endpoint class are retried.
+     *
+     * @param endpointClass the endpoint class
+     * @param statusCodes the retryable status codes
+     * @return this builder
+     */
+    public Builder retryOn(EndpointClass endpointClass, int... statusCodes) {
+      this.retryableStatusCodes.put(endpointClass, RetryPolicy.statusSet(statusCodes));
+      return this;
+    }
+
+    /**
+     * Sets the backoff before the first retry. Each following retry doubles it, up to the maximum
+     * delay. Defaults to 500 milliseconds.
+     *
+     * @param delay the base delay
+     * @param unit the unit of delay
+     * @return this builder
+     */
+    public Builder baseDelay(long delay, TimeUnit unit) {
+      this.baseDelay = unit.toMillis(delay);
+      return this;
+    }
+
+    /**
+     * Caps the exponential backoff. Retry-After delays requested by the API are not capped.
+     * Defaults to 30 seconds.
+     *
+     * @param delay the maximum backoff
+     * @param unit the unit of delay
+     * @return this builder
+     */
+    public Builder maxDelay(long delay, TimeUnit unit) {
+      this.maxDelay = unit.toMillis(delay);
+      return this;
+    }
+
+    public RetryPolicy build() {
+      return new RetryPolicy(this);
+    }
+  }
+
+  private RetryPolicy(Builder builder) {
+    this.maxAttempts = new EnumMap<>(builder.maxAttempts);
+    this.retryableStatusCodes = new EnumMap<>(builder.retryableStatusCodes);
+    this.baseDelay = builder.baseDelay;
+    this.maxDelay = builder.maxDelay;
+  }
+
+  private static Set<Integer> statusSet(int... statusCodes) {
+    Set<Integer> set = new HashSet<>();
+    for (int statusCode : statusCodes) {
+      set.add(statusCode);
+    }
+    return set;
+  }
+
+  /**
+   * Returns whether a failed attempt should be retried.
+   *
+   * @param endpointClass the endpoint class of the request
+   * @param attempt the number of attempts made so far
+   * @param ex the failure
+   * @return true if the request should be sent again
+   */
+  boolean shouldRetry(EndpointClass endpointClass, int attempt, SmartcarException ex) {
+    Integer max = this.maxAttempts.get(endpointClass);
+    Set<Integer> statusCodes = this.retryableStatusCodes.get(endpointClass);
+    return max != null && attempt < max && statusCodes != null && statusCodes.contains(ex.getStatusCode());
+  }
+
+  /**
+   * Returns how long to wait before the next attempt.
+   *
+   * @param attempt the number of attempts made so far
+   * @param ex the failure
+   * @return the delay in milliseconds
+   */
+  long delay(int attempt, SmartcarException ex) {
+    long ceiling = this.maxDelay;
+    if (attempt - 1 < 31) {
+      ceiling = Math.min(this.maxDelay, this.baseDelay << (attempt - 1));
+    }
+    long backoff = ThreadLocalRandom.current().nextLong(Math.max(1, ceiling) + 1);
+    return ex.getRetryAfter() > 0 ? ex.getRetryAfter() + backoff : backoff;
+  }
+}
@@ -0,0 +1,33 @@
+package com.smartcar.sdk;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single daemon timer thread shared by every client, for the short tasks that the SDK needs to
+ * run later (starting a delayed retry, flushing a batch, advancing a timing wheel). Tasks must not
+ * block.
+ */
+final class SharedTimer {
+  private SharedTimer() {}
+
+  /** Lazily started so that clients which never schedule anything do not start a thread. */
+  private static class Holder {
+    private static final ScheduledExecutorService INSTANCE =
+        Executors.newSingleThreadScheduledExecutor((runnable) -> {
+          Thread thread = new Thread(runnable, "smartcar-timer");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    return Holder.INSTANCE.schedule(task, delay, unit);
+  }
+
+  static ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period, TimeUnit unit) {
+    return Holder.INSTANCE.scheduleAtFixedRate(task, period, period, unit);
+  }
+}
@@ -8,14 +8,12 @@ import com.smartcar.sdk.data.*;
 import okhttp3.Credentials;
 import okhttp3.HttpUrl;
 import okhttp3.Request;
-import org.apache.commons.codec.binary.Hex;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.json.JsonObject;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class Smartcar {
     public static String API_VERSION = "2.0";
@@ -59,13 +57,53 @@ public class Smartcar {
      * @throws SmartcarException if the request is unsuccessful
      */
     public static User getUser(String accessToken) throws SmartcarException {
+        return Smartcar.getUser(accessToken, SmartcarClient.getDefault());
+    }
+
+    /**
+     * Retrieves the user ID of the user authenticated with the specified access token, sending
+     * the request through the provided client.
+     *
+     * @param accessToken a valid access token
+     * @param client the client to send the request with
+     * @return the corresponding user
+     * @throws SmartcarException if the request is unsuccessful
+     */
+    public static User getUser(String accessToken, SmartcarClient client) throws SmartcarException {
+        return ApiClient.execute(client, Smartcar.buildUserRequest(accessToken), User.class);
+    }
+
+    /**
+     * Retrieves the user ID of the user authenticated with the specified access token without
+     * blocking the calling thread.
+     *
+     * @param accessToken a valid access token
+     * @return a future for the corresponding user, completed exceptionally with a
+     *     SmartcarException if the request is unsuccessful
+     */
+    public static CompletableFuture<User> getUserAsync(String accessToken) {
+        return Smartcar.getUserAsync(accessToken, SmartcarClient.getDefault());
+    }
+
+    /**
+     * Retrieves the user ID of the user authenticated with the specified access token through the
+     * provided client without blocking the calling thread.
+     *
+     * @param accessToken a valid access token
+     * @param client the client to send the request with
+     * @return a future for the corresponding user, completed exceptionally with a
+     *     SmartcarException if the request is unsuccessful
+     */
+    public static CompletableFuture<User> getUserAsync(String accessToken, SmartcarClient client) {
+        return ApiClient.executeAsync(client, Smartcar.buildUserRequest(accessToken), User.class);
+    }
+
+    private static Request buildUserRequest(String accessToken) {
         // Build Request
         String url = Smartcar.getApiUrl();
         Map<String, String> headers = new HashMap<>();
         headers.put("Authorization", "Bearer " + accessToken);
-        Request request = ApiClient.buildRequest(HttpUrl.parse(url + "/user"), "GET", null, headers);
-
-        return ApiClient.execute(request, User.class);
+        return ApiClient.buildRequest(HttpUrl.parse(url + "/user"), "GET", null, headers);
     }
 
     /**
@@ -78,6 +116,53 @@ public class Smartcar {
      */
     public static VehicleIds getVehicles(String accessToken, RequestPaging paging)
             throws SmartcarException {
+        return Smartcar.getVehicles(accessToken, paging, SmartcarClient.getDefault());
+    }
+
+    /**
+     * Retrieves all vehicles associated with the authenticated user, sending the request through
+     * the provided client.
+     *
+     * @param accessToken a valid access token
+     * @param paging paging parameters
+     * @param client the client to send the request with
+     * @return the requested vehicle IDs
+     * @throws SmartcarException if the request is unsuccessful
+     */
+    public static VehicleIds getVehicles(String accessToken, RequestPaging paging, SmartcarClient client)
+            throws SmartcarException {
+        return ApiClient.execute(client, Smartcar.buildVehiclesRequest(accessToken, paging), VehicleIds.class);
+    }
+
+    /**
+     * Retrieves all vehicles associated with the authenticated user without blocking the calling
+     * thread.
+     *
+     * @param accessToken a valid access token
+     * @param paging paging parameters
+     * @return a future for the requested vehicle IDs, completed exceptionally with a
+     *     SmartcarException if the request is unsuccessful
+     */
+    public static CompletableFuture<VehicleIds> getVehiclesAsync(String accessToken, RequestPaging paging) {
+        return Smartcar.getVehiclesAsync(accessToken, paging, SmartcarClient.getDefault());
+    }
+
+    /**
+     * Retrieves all vehicles associated with the authenticated user through the provided client
+     * without blocking the calling thread.
+     *
+     * @param accessToken a valid access token
+     * @param paging paging parameters
+     * @param client the client to send the request with
+     * @return a future for the requested vehicle IDs, completed exceptionally with a
+     *     SmartcarException if the request is unsuccessful
+     */
+    public static CompletableFuture<VehicleIds> getVehiclesAsync(
+            String accessToken, RequestPaging paging, SmartcarClient client) {
+        return ApiClient.executeAsync(client, Smartcar.buildVehiclesRequest(accessToken, paging), VehicleIds.class);
+    }
+
+    private static Request buildVehiclesRequest(String accessToken, RequestPaging paging) {
         // Build Request
         HttpUrl.Builder urlBuilder = HttpUrl.parse(Smartcar.getApiUrl() + "/vehicles").newBuilder();
 
@@ -90,9 +175,7 @@ public class Smartcar {
         HttpUrl url = urlBuilder.build();
         Map<String, String> headers = new HashMap<>();
         headers.put("Authorization", "Bearer " + accessToken);
-        Request request = ApiClient.buildRequest(url, "GET", null, headers);
-
-        return ApiClient.execute(request, VehicleIds.class);
+        return ApiClient.buildRequest(url, "GET", null, headers);
     }
 
     /**
@@ -107,6 +190,18 @@ public class Smartcar {
         return Smartcar.getVehicles(accessToken, null);
     }
 
+    /**
+     * Retrieves all vehicle IDs associated with the authenticated user without blocking the
+     * calling thread.
+     *
+     * @param accessToken a valid access token
+     * @return a future for the requested vehicle IDs, completed exceptionally with a
+     *     SmartcarException if the request is unsuccessful
+     */
+    public static CompletableFuture<VehicleIds> getVehiclesAsync(String accessToken) {
+        return Smartcar.getVehiclesAsync(accessToken, null);
+    }
+
     /**
      * Convenience method for determining if an auth token expiration has passed.
      *
@@ -133,6 +228,28 @@ public class Smartcar {
      * @throws SmartcarException when the request is unsuccessful
      */
     public static Compatibility getCompatibility(SmartcarCompatibilityRequest compatibilityRequest) throws SmartcarException {
+        return ApiClient.execute(
+                compatibilityRequest.getClient(),
+                Smartcar.buildCompatibilityRequest(compatibilityRequest),
+                Compatibility.class);
+    }
+
+    /**
+     * Determine if a vehicle is compatible with the Smartcar API without blocking the calling
+     * thread. See {@link #getCompatibility(SmartcarCompatibilityRequest)}.
+     *
+     * @param compatibilityRequest with options for this request. See Smartcar.SmartcarCompatibilityRequest
+     * @return a future for the Compatibility object, completed exceptionally with a
+     *     SmartcarException if the request is unsuccessful
+     */
+    public static CompletableFuture<Compatibility> getCompatibilityAsync(SmartcarCompatibilityRequest compatibilityRequest) {
+        return ApiClient.executeAsync(
+                compatibilityRequest.getClient(),
+                Smartcar.buildCompatibilityRequest(compatibilityRequest),
+                Compatibility.class);
+    }
+
+    private static Request buildCompatibilityRequest(SmartcarCompatibilityRequest compatibilityRequest) {
         String apiUrl = Smartcar.getApiOrigin();
         HttpUrl.Builder urlBuilder =
                 HttpUrl.parse(apiUrl)
@@ -161,9 +278,7 @@ public class Smartcar {
                 compatibilityRequest.getClientId(),
                 compatibilityRequest.getClientSecret()
         ));
-        Request request = ApiClient.buildRequest(url, "GET", null, headers);
-
-        return ApiClient.execute(request, Compatibility.class);
+        return ApiClient.buildRequest(url, "GET", null, headers);
     }
 
     /**
@@ -175,17 +290,15 @@ public class Smartcar {
      */
     public static String hashChallenge(String key, String challenge) throws SmartcarException {
         try {
-            Mac sha256HMAC = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secret = new SecretKeySpec(key.getBytes("UTF-8"), "HmacSHA256");
-            sha256HMAC.init(secret);
-            return Hex.encodeHexString(sha256HMAC.doFinal(challenge.getBytes("UTF-8")));
+            return WebhookVerifier.forKey(key).hashChallenge(challenge);
         } catch (Exception ex) {
             throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
         }
     }
 
     /**
-     * Verifies as HmacSHA256 signature
+     * Verifies as HmacSHA256 signature. The signature is compared in constant time. To verify
+     * payloads as bytes or streams, use a {@link WebhookVerifier}.
      * @param applicationManagementToken
      * @param signature
      * @param payload
@@ -193,6 +306,10 @@ public class Smartcar {
      * @throws SmartcarException
      */
     public static boolean verifyPayload(String applicationManagementToken, String signature, String payload) throws SmartcarException {
-        return Smartcar.hashChallenge(applicationManagementToken, payload).equals(signature);
+        try {
+            return WebhookVerifier.forKey(applicationManagementToken).verify(signature, payload);
+        } catch (Exception ex) {
+            throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+        }
     }
 }
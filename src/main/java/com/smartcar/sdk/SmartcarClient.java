@@ -0,0 +1,369 @@
+package com.smartcar.sdk;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the HTTP transport used to talk to the Smartcar API.
+ *
+ * <p>Each SmartcarClient has its own OkHttpClient, and with it its own connection pool, dispatcher
+ * and timeouts. Separate workloads (for example vehicle polling and vehicle commands) can use
+ * separate clients so that their pools are sized for their own throughput. Vehicles, AuthClients
+ * and compatibility requests that are not given a client use {@link #getDefault()}.
+ */
+public final class SmartcarClient {
+  private final OkHttpClient httpClient;
+  private final RequestCoalescer requestCoalescer;
+  private final ResponseCacheLayer responseCacheLayer;
+  private final RequestScheduler requestScheduler;
+  private final RequestListener requestListener;
+  private final CircuitBreaker circuitBreaker;
+  private final Set<String> stackTraceFreeTypes;
+  private final AutoBatcher autoBatcher;
+
+  public static class Builder {
+    private OkHttpClient httpClient;
+    private Integer maxIdleConnections;
+    private Long keepAliveMillis;
+    private Integer maxRequests;
+    private Integer maxRequestsPerHost;
+    private Long connectTimeoutMillis;
+    private Long readTimeoutMillis;
+    private Long writeTimeoutMillis;
+    private Long callTimeoutMillis;
+    private boolean coalesceReads;
+    private ResponseCache responseCache;
+    private RateLimiter rateLimiter;
+    private RetryPolicy retryPolicy;
+    private RequestListener requestListener;
+    private CircuitBreaker circuitBreaker;
+    private Set<String> stackTraceFreeTypes;
+    private long autoBatchWindowNanos;
+    private int autoBatchMaxSize;
+
+    public Builder() {
+      this.httpClient = null;
+      this.maxIdleConnections = null;
+      this.keepAliveMillis = null;
+      this.maxRequests = null;
+      this.maxRequestsPerHost = null;
+      this.connectTimeoutMillis = null;
+      this.readTimeoutMillis = null;
+      this.writeTimeoutMillis = null;
+      this.callTimeoutMillis = null;
+      this.coalesceReads = false;
+      this.responseCache = null;
+      this.rateLimiter = null;
+      this.retryPolicy = null;
+      this.requestListener = null;
+      this.circuitBreaker = null;
+      this.stackTraceFreeTypes = Collections.emptySet();
+      this.autoBatchWindowNanos = 0;
+      this.autoBatchMaxSize = 0;
+    }
+
+    /**
+     * Derives this client from an existing OkHttpClient. The connection pool, dispatcher,
+     * interceptors and timeouts of that client are shared unless they are overridden on this
+     * builder.
+     *
+     * @param httpClient the client to derive from
+     * @return this builder
+     */
+    public Builder httpClient(OkHttpClient httpClient) {
+      this.httpClient = httpClient;
+      return this;
+    }
+
+    /**
+     * Uses a dedicated connection pool.
+     *
+     * @param maxIdleConnections the maximum number of idle connections to keep
+     * @param keepAliveDuration how long an idle connection is kept
+     * @param unit the unit of keepAliveDuration
+     * @return this builder
+     */
+    public Builder connectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit unit) {
+      this.maxIdleConnections = maxIdleConnections;
+      this.keepAliveMillis = unit.toMillis(keepAliveDuration);
+      return this;
+    }
+
+    /**
+     * Uses a dedicated dispatcher that runs at most this many concurrent requests.
+     *
+     * @param maxRequests the maximum number of concurrent requests
+     * @return this builder
+     */
+    public Builder maxRequests(int maxRequests) {
+      this.maxRequests = maxRequests;
+      return this;
+    }
+
+    /**
+     * Uses a dedicated dispatcher that runs at most this many concurrent requests per host.
+     *
+     * @param maxRequestsPerHost the maximum number of concurrent requests per host
+     * @return this builder
+     */
+    public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+      this.maxRequestsPerHost = maxRequestsPerHost;
+      return this;
+    }
+
+    public Builder connectTimeout(long timeout, TimeUnit unit) {
+      this.connectTimeoutMillis = unit.toMillis(timeout);
+      return this;
+    }
+
+    public Builder readTimeout(long timeout, TimeUnit unit) {
+      this.readTimeoutMillis = unit.toMillis(timeout);
+      return this;
+    }
+
+    public Builder writeTimeout(long timeout, TimeUnit unit) {
+      this.writeTimeoutMillis = unit.toMillis(timeout);
+      return this;
+    }
+
+    public Builder callTimeout(long timeout, TimeUnit unit) {
+      this.callTimeoutMillis = unit.toMillis(timeout);
+      return this;
+    }
+
+    /**
+     * Shares one HTTP exchange between concurrent identical GET requests (same vehicle, path,
+     * query, unit system and access token). Every caller receives the same parsed result, or the
+     * same SmartcarException. Disabled by default.
+     *
+     * @param coalesceReads whether to coalesce identical in-flight reads
+     * @return this builder
+     */
+    public Builder coalesceReads(boolean coalesceReads) {
+      this.coalesceReads = coalesceReads;
+      return this;
+    }
+
+    /**
+     * Serves vehicle reads (GET requests made through a Vehicle) from the given cache while they
+     * are fresh, and refreshes stale responses in the background. See {@link ResponseCache} for
+     * how freshness is computed. Disabled by default.
+     *
+     * @param responseCache the cache to use, for example an {@link LruResponseCache}
+     * @return this builder
+     */
+    public Builder responseCache(ResponseCache responseCache) {
+      this.responseCache = responseCache;
+      return this;
+    }
+
+    /**
+     * Paces requests so that they stay within the given rate limits. Requests over the limit are
+     * delayed rather than rejected. Disabled by default.
+     *
+     * @param rateLimiter the rate limiter to use
+     * @return this builder
+     */
+    public Builder rateLimiter(RateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+      return this;
+    }
+
+    /**
+     * Retries throttled and failed requests according to the given policy, honoring Retry-After.
+     * Disabled by default, so every unsuccessful response is thrown as a SmartcarException.
+     *
+     * @param retryPolicy the retry policy to use
+     * @return this builder
+     */
+    public Builder retryPolicy(RetryPolicy retryPolicy) {
+      this.retryPolicy = retryPolicy;
+      return this;
+    }
+
+    /**
+     * Reports every HTTP exchange made through the client to the given listener, for example a
+     * {@link RequestMetrics}. Disabled by default.
+     *
+     * @param requestListener the listener to notify
+     * @return this builder
+     */
+    public Builder requestListener(RequestListener requestListener) {
+      this.requestListener = requestListener;
+      return this;
+    }
+
+    /**
+     * Fails requests fast while the endpoint, vehicle or make they are for keeps failing, instead
+     * of sending more of them to a struggling backend. The breaker applies to every attempt, so
+     * retries made by the {@link #retryPolicy} stop once it opens. Disabled by default.
+     *
+     * @param circuitBreaker the circuit breaker
+     * @return this builder
+     */
+    public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+      this.circuitBreaker = circuitBreaker;
+      return this;
+    }
+
+    /**
+     * Omits the stack trace from exceptions decoded from API error responses of the given types
+     * (ex. "VEHICLE_STATE", "RATE_LIMIT"). Capturing a stack trace is the most expensive part of
+     * creating an exception, and for errors that are part of normal operation it carries no
+     * information. This covers whole responses and the sub-responses of /batch requests, including
+     * merged and streamed reads. Errors raised by the SDK itself always keep their stack trace.
+     * Every exception has one by default. Webhook events are configured on
+     * {@link WebhookDispatcher.Builder#omitStackTraces(String...)}.
+     *
+     * @param types the error types whose exceptions have no stack trace
+     * @return this builder
+     */
+    public Builder omitStackTraces(String... types) {
+      this.stackTraceFreeTypes = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(types)));
+      return this;
+    }
+
+    /**
+     * Merges reads of the same vehicle into /batch requests. A read (for example
+     * {@link Vehicle#odometer()}) waits up to the window for other reads of the same vehicle,
+     * access token and unit system, and all of them are then sent as one /batch request; each
+     * caller still receives its own result or SmartcarException. A batch is sent early once it
+     * holds maxBatchSize endpoints. Only the endpoints accepted by /batch are merged, and merged
+     * reads do not use the {@link #responseCache}. Disabled by default.
+     *
+     * @param window how long the first read of a batch waits for others
+     * @param unit the unit of window
+     * @param maxBatchSize the number of endpoints at which a batch is sent without waiting
+     * @return this builder
+     */
+    public Builder autoBatch(long window, TimeUnit unit, int maxBatchSize) {
+      this.autoBatchWindowNanos = unit.toNanos(window);
+      this.autoBatchMaxSize = maxBatchSize;
+      return this;
+    }
+
+    public SmartcarClient build() {
+      return new SmartcarClient(this);
+    }
+  }
+
+  private SmartcarClient(Builder builder) {
+    OkHttpClient.Builder httpBuilder;
+    if (builder.httpClient != null) {
+      httpBuilder = builder.httpClient.newBuilder();
+    } else {
+      httpBuilder = new OkHttpClient.Builder().readTimeout(310, TimeUnit.SECONDS);
+    }
+
+    if (builder.maxIdleConnections != null) {
+      httpBuilder.connectionPool(
+          new ConnectionPool(builder.maxIdleConnections, builder.keepAliveMillis, TimeUnit.MILLISECONDS));
+    }
+
+    if (builder.maxRequests != null || builder.maxRequestsPerHost != null) {
+      Dispatcher dispatcher = new Dispatcher();
+      if (builder.maxRequests != null) {
+        dispatcher.setMaxRequests(builder.maxRequests);
+      }
+      if (builder.maxRequestsPerHost != null) {
+        dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+      }
+      httpBuilder.dispatcher(dispatcher);
+    }
+
+    if (builder.connectTimeoutMillis != null) {
+      httpBuilder.connectTimeout(builder.connectTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    if (builder.readTimeoutMillis != null) {
+      httpBuilder.readTimeout(builder.readTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    if (builder.writeTimeoutMillis != null) {
+      httpBuilder.writeTimeout(builder.writeTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    if (builder.callTimeoutMillis != null) {
+      httpBuilder.callTimeout(builder.callTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    this.httpClient = httpBuilder.build();
+    this.requestCoalescer = builder.coalesceReads ? new RequestCoalescer() : null;
+    this.responseCacheLayer =
+        builder.responseCache != null ? new ResponseCacheLayer(builder.responseCache) : null;
+    this.requestScheduler = builder.rateLimiter != null || builder.retryPolicy != null
+        ? new RequestScheduler(builder.rateLimiter, builder.retryPolicy)
+        : null;
+    this.requestListener = builder.requestListener;
+    this.circuitBreaker = builder.circuitBreaker;
+    this.stackTraceFreeTypes = builder.stackTraceFreeTypes;
+    this.autoBatcher = builder.autoBatchMaxSize > 0
+        ? new AutoBatcher(builder.autoBatchWindowNanos, TimeUnit.NANOSECONDS, builder.autoBatchMaxSize)
+        : null;
+  }
+
+  /** Lazily initialized holder for the shared default client. */
+  private static class DefaultHolder {
+    private static final SmartcarClient INSTANCE = new SmartcarClient.Builder().build();
+  }
+
+  /**
+   * Returns the client shared by everything that is not given its own SmartcarClient.
+   *
+   * @return the default client
+   */
+  public static SmartcarClient getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Returns the OkHttpClient that requests made through this client are sent with.
+   *
+   * @return the underlying OkHttpClient
+   */
+  public OkHttpClient getHttpClient() {
+    return this.httpClient;
+  }
+
+  /**
+   * Stops the dispatcher threads and closes the idle connections of the OkHttpClient. Only for
+   * clients that the SDK built for its own use and whose pool and dispatcher no one else shares.
+   * Calls already in flight are allowed to finish.
+   */
+  void shutdown() {
+    this.httpClient.dispatcher().executorService().shutdown();
+    this.httpClient.connectionPool().evictAll();
+  }
+
+  RequestCoalescer getRequestCoalescer() {
+    return this.requestCoalescer;
+  }
+
+  ResponseCacheLayer getResponseCacheLayer() {
+    return this.responseCacheLayer;
+  }
+
+  RequestScheduler getRequestScheduler() {
+    return this.requestScheduler;
+  }
+
+  RequestListener getRequestListener() {
+    return this.requestListener;
+  }
+
+  CircuitBreaker getCircuitBreaker() {
+    return this.circuitBreaker;
+  }
+
+  Set<String> getStackTraceFreeTypes() {
+    return this.stackTraceFreeTypes;
+  }
+
+  AutoBatcher getAutoBatcher() {
+    return this.autoBatcher;
+  }
+}
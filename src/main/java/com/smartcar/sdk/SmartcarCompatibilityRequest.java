@@ -16,6 +16,7 @@ public final class SmartcarCompatibilityRequest {
     private final String clientSecret;
     private final boolean testMode;
     private final String testModeCompatibilityLevel;
+    private final SmartcarClient client;
 
     public static class Builder {
         private String vin;
@@ -27,6 +28,7 @@ public final class SmartcarCompatibilityRequest {
         private String clientSecret;
         private boolean testMode;
         private String testModeCompatibilityLevel;
+        private SmartcarClient client;
 
         public Builder() {
             this.vin = "";
@@ -38,6 +40,7 @@ public final class SmartcarCompatibilityRequest {
             this.clientSecret = System.getenv("SMARTCAR_CLIENT_SECRET");
             this.testMode = false;
             this.testModeCompatibilityLevel = null;
+            this.client = null;
         }
 
         public Builder vin(String vin) {
@@ -91,6 +94,11 @@ public final class SmartcarCompatibilityRequest {
             return this;
         }
 
+        public Builder client(SmartcarClient client) {
+            this.client = client;
+            return this;
+        }
+
         public SmartcarCompatibilityRequest build() throws Exception {
             if (this.clientId == null) {
                 throw new Exception("clientId must be defined");
@@ -117,6 +125,27 @@ public final class SmartcarCompatibilityRequest {
         this.clientSecret = builder.clientSecret;
         this.testMode = builder.testMode;
         this.testModeCompatibilityLevel = builder.testModeCompatibilityLevel;
+        this.client = builder.client != null ? builder.client : SmartcarClient.getDefault();
+    }
+
+    /**
+     * Copies a request for another VIN, optionally sending it through another client.
+     *
+     * @param template the request to copy
+     * @param vin the VIN of the copy
+     * @param client the client of the copy, or null to keep the template's
+     */
+    SmartcarCompatibilityRequest(SmartcarCompatibilityRequest template, String vin, SmartcarClient client) {
+        this.vin = vin;
+        this.scope = template.scope;
+        this.country = template.country;
+        this.version = template.version;
+        this.flags = template.flags;
+        this.clientId = template.clientId;
+        this.clientSecret = template.clientSecret;
+        this.testMode = template.testMode;
+        this.testModeCompatibilityLevel = template.testModeCompatibilityLevel;
+        this.client = client != null ? client : template.client;
     }
 
     public String getVin() {
@@ -138,4 +167,6 @@ public final class SmartcarCompatibilityRequest {
     public boolean getTestMode() { return this.testMode; }
 
     public String getTestModeCompatibilityLevel() { return this.testModeCompatibilityLevel; }
+
+    public SmartcarClient getClient() { return this.client; }
 }
\ No newline at end of file
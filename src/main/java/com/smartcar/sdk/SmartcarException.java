@@ -1,17 +1,30 @@
 package com.smartcar.sdk;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import okhttp3.Headers;
+import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /** Thrown when the Smartcar API library encounters a problem. */
 public class SmartcarException extends java.lang.Exception {
-
   private final int statusCode;
   private final String type;
   private final String code;
@@ -21,6 +34,7 @@ public class SmartcarException extends java.lang.Exception {
   private final JsonArray detail;
   private final String docURL;
   private final String requestId;
+  private final long retryAfter;
 
   public static class Builder {
     private int statusCode;
@@ -32,6 +46,8 @@ public class SmartcarException extends java.lang.Exception {
     private JsonArray detail;
     private String docURL;
     private String requestId;
+    private long retryAfter;
+    private boolean writableStackTrace;
 
     public Builder() {
       this.statusCode = 0;
@@ -43,6 +59,8 @@ public class SmartcarException extends java.lang.Exception {
       this.detail = null;
       this.docURL = "";
       this.requestId = "";
+      this.retryAfter = 0;
+      this.writableStackTrace = true;
     }
 
     public Builder statusCode(int statusCode) {
@@ -90,10 +108,16 @@ public class SmartcarException extends java.lang.Exception {
       return this;
     }
 
+    public Builder retryAfter(long retryAfter) {
+      this.retryAfter = retryAfter;
+      return this;
+    }
+
     public SmartcarException build() { return new SmartcarException(this); }
   }
 
   private SmartcarException(Builder builder) {
+    super(null, null, true, builder.writableStackTrace);
     this.statusCode = builder.statusCode;
     this.type = builder.type;
     this.code = builder.code;
@@ -103,116 +127,298 @@ public class SmartcarException extends java.lang.Exception {
     this.detail = builder.detail;
     this.docURL = builder.docURL;
     this.requestId = builder.requestId;
+    this.retryAfter = builder.retryAfter;
+  }
+
+  /**
+   * Parses a Retry-After header, which is either a number of seconds or an HTTP date.
+   *
+   * @param value the header value, or null
+   * @return the delay in milliseconds, or 0 if the header is absent or invalid
+   */
+  static long parseRetryAfter(String value) {
+    if (value == null) {
+      return 0;
+    }
+    String trimmed = value.trim();
+    try {
+      return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed)));
+    } catch (NumberFormatException e) {
+      try {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        return Math.max(0, format.parse(trimmed).getTime() - System.currentTimeMillis());
+      } catch (ParseException ex) {
+        return 0;
+      }
+    }
   }
 
   public static SmartcarException Factory(final int statusCode, JsonObject headers, JsonObject body) {
+    return SmartcarException.Factory(statusCode, headers, body, Collections.emptySet());
+  }
+
+  /**
+   * Decodes an error that has already been parsed, such as a /batch sub-response, omitting the
+   * stack trace if its type is one of the given types.
+   *
+   * @param statusCode the HTTP status code
+   * @param headers the response headers
+   * @param body the response body
+   * @param stackTraceFreeTypes the error types whose exceptions have no stack trace
+   * @return the decoded exception
+   * @see SmartcarClient.Builder#omitStackTraces(String...)
+   */
+  public static SmartcarException Factory(
+      final int statusCode, JsonObject headers, JsonObject body, Set<String> stackTraceFreeTypes) {
     Builder builder = new SmartcarException.Builder().statusCode(statusCode);
 
     JsonElement requestId = headers.get("sc-request-id");
-    if (requestId != null) {
+    if (requestId != null && !requestId.isJsonNull()) {
       builder.requestId(requestId.getAsString());
     }
+    JsonElement retryAfter = headers.get("retry-after");
+    if (retryAfter != null && !retryAfter.isJsonNull()) {
+      builder.retryAfter(SmartcarException.parseRetryAfter(retryAfter.getAsString()));
+    }
     JsonElement contentType = headers.get("content-type");
     if (contentType != null && !contentType.getAsString().contains("application/json")) {
-      return builder.description(body.toString()).build();
+      return builder.description(String.valueOf(body)).build();
     }
 
-    String bodyString = null;
-    try {
-      bodyString = body.toString();
-    } catch (NullPointerException ex) {
+    if (body == null) {
       return builder
               .description("Empty response body")
               .type("SDK_ERROR")
               .build();
     }
-    System.out.println(bodyString);
 
-    JsonObject bodyJson = new Gson().fromJson(bodyString, JsonObject.class);
-    if (bodyJson.has("error")) {
-      builder.type(bodyJson.get("error").getAsString());
-      if (bodyJson.has("message")) {
-        builder.description(bodyJson.get("message").getAsString());
-      }
-      if (bodyJson.has("error_description")) {
-        builder.description(bodyJson.get("error_description").getAsString());
+    if (!ErrorBody.from(body).apply(builder, stackTraceFreeTypes)) {
+      builder.description(body.toString()).type("SDK_ERROR");
+    }
+    return builder.build();
+  }
+
+  /**
+   * Decodes an error response in a single pass over the body, without building a JSON tree of it.
+   * The body is buffered so that it can be returned as the description when it is not an error
+   * object.
+   *
+   * @param statusCode the HTTP status code
+   * @param headers the response headers
+   * @param body the response body
+   * @return the decoded exception
+   */
+  public static SmartcarException Factory(final int statusCode, Headers headers, ResponseBody body) {
+    return SmartcarException.Factory(statusCode, headers, body, Collections.emptySet());
+  }
+
+  /**
+   * Decodes an error response, omitting the stack trace if its type is one of the given types.
+   *
+   * @param statusCode the HTTP status code
+   * @param headers the response headers
+   * @param body the response body
+   * @param stackTraceFreeTypes the error types whose exceptions have no stack trace
+   * @return the decoded exception
+   * @see SmartcarClient.Builder#omitStackTraces(String...)
+   */
+  static SmartcarException Factory(
+      final int statusCode, Headers headers, ResponseBody body, Set<String> stackTraceFreeTypes) {
+    Builder builder = new SmartcarException.Builder()
+            .statusCode(statusCode)
+            .requestId(headers.get("sc-request-id"));
+    String retryAfter = headers.get("retry-after");
+    if (retryAfter != null) {
+      builder.retryAfter(SmartcarException.parseRetryAfter(retryAfter));
+    }
+
+    String contentType = headers.get("content-type");
+    boolean json = contentType == null || contentType.contains("application/json");
+    Buffer buffer;
+    try {
+      BufferedSource source = body.source();
+      source.request(Long.MAX_VALUE);
+      buffer = source.getBuffer();
+    } catch (IOException e) {
+      return builder.description("Unable to get request body").type("SDK_ERROR").build();
+    }
+
+    try {
+      if (buffer.size() == 0) {
+        return builder.description(json ? "Empty response body" : "").type("SDK_ERROR").build();
       }
-      if (bodyJson.has("code")) {
-        builder.code(bodyJson.get("code").getAsString());
+      if (!json) {
+        return builder.description(SmartcarException.text(body, buffer)).type("SDK_ERROR").build();
       }
-      return builder.build();
-    } else if (bodyJson.has("type")) {
-      builder
-              .type(bodyJson.get("type").getAsString())
-              .description(bodyJson.get("description").getAsString())
-              .docURL(bodyJson.get("docURL").getAsString());
-
-      if (!bodyJson.get("code").isJsonNull()) {
-        builder.code(bodyJson.get("code").getAsString());
+
+      JsonReader reader = new JsonReader(new InputStreamReader(buffer.peek().inputStream(), StandardCharsets.UTF_8));
+      if (reader.peek() == JsonToken.BEGIN_OBJECT && ErrorBody.read(reader).apply(builder, stackTraceFreeTypes)) {
+        return builder.build();
       }
+      return builder.description(SmartcarException.text(body, buffer)).type("SDK_ERROR").build();
+    } catch (IOException | RuntimeException e) {
+      // Handles non 200 invalid JSON errors
+      return builder.description(SmartcarException.text(body, buffer)).type("SDK_ERROR").build();
+    }
+  }
 
-      JsonElement resolutionElement = bodyJson.get("resolution");
-      if (!resolutionElement.isJsonNull()) {
-        if (resolutionElement.isJsonPrimitive() && resolutionElement.getAsJsonPrimitive().isString()) {
-          builder.resolutionType(resolutionElement.getAsString());
-        } else {
-          JsonObject resolution = resolutionElement.getAsJsonObject();
-          JsonElement type = resolution.get("type");
-          if (!type.isJsonNull()) {
-            builder.resolutionType(type.getAsString());
-          }
-          JsonElement url = resolution.get("url");
-          if (url != null) {
-            builder.resolutionUrl(url.getAsString());
-          }
+  private static String text(ResponseBody body, Buffer buffer) {
+    MediaType mediaType = body.contentType();
+    Charset charset = mediaType != null ? mediaType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+    return buffer.clone().readString(charset);
+  }
+
+  /**
+   * The fields of an error response, in the v2 format ({@code type}, {@code code},
+   * {@code description}, {@code resolution}, ...) or the v1 format ({@code error},
+   * {@code message}, ...). Unknown fields are skipped without being decoded. Bodies that have
+   * already been parsed into a tree, such as /batch sub-responses, are read with {@link #from}.
+   */
+  private static final class ErrorBody {
+    private String error;
+    private String message;
+    private String errorDescription;
+    private String type;
+    private String code;
+    private String description;
+    private String docURL;
+    private String resolutionType;
+    private String resolutionUrl;
+    private JsonArray detail;
+
+    private static ErrorBody read(JsonReader in) throws IOException {
+      ErrorBody error = new ErrorBody();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "error":
+            error.error = ErrorBody.string(in);
+            break;
+          case "message":
+            error.message = ErrorBody.string(in);
+            break;
+          case "error_description":
+            error.errorDescription = ErrorBody.string(in);
+            break;
+          case "type":
+            error.type = ErrorBody.string(in);
+            break;
+          case "code":
+            error.code = ErrorBody.string(in);
+            break;
+          case "description":
+            error.description = ErrorBody.string(in);
+            break;
+          case "docURL":
+            error.docURL = ErrorBody.string(in);
+            break;
+          case "resolution":
+            ErrorBody.readResolution(in, error);
+            break;
+          case "detail":
+            JsonElement detail = JsonParser.parseReader(in);
+            error.detail = detail.isJsonArray() ? detail.getAsJsonArray() : null;
+            break;
+          default:
+            in.skipValue();
         }
       }
+      in.endObject();
+      return error;
+    }
 
-      if (bodyJson.has("detail")) {
-        JsonArray detailJson = bodyJson.get("detail").getAsJsonArray();
-        builder.detail(detailJson);
+    private static ErrorBody from(JsonObject body) {
+      ErrorBody error = new ErrorBody();
+      error.error = ErrorBody.string(body.get("error"));
+      error.message = ErrorBody.string(body.get("message"));
+      error.errorDescription = ErrorBody.string(body.get("error_description"));
+      error.type = ErrorBody.string(body.get("type"));
+      error.code = ErrorBody.string(body.get("code"));
+      error.description = ErrorBody.string(body.get("description"));
+      error.docURL = ErrorBody.string(body.get("docURL"));
+      JsonElement resolution = body.get("resolution");
+      if (resolution != null && resolution.isJsonObject()) {
+        error.resolutionType = ErrorBody.string(resolution.getAsJsonObject().get("type"));
+        error.resolutionUrl = ErrorBody.string(resolution.getAsJsonObject().get("url"));
+      } else {
+        error.resolutionType = ErrorBody.string(resolution);
       }
-
-      return builder.build();
+      JsonElement detail = body.get("detail");
+      error.detail = detail != null && detail.isJsonArray() ? detail.getAsJsonArray() : null;
+      return error;
     }
 
-    return builder
-            .description(bodyString)
-            .type("SDK_ERROR")
-            .build();
-  }
-
-  public static SmartcarException Factory(final int statusCode, Headers headers, ResponseBody body) {
-    JsonObject headerJson = new JsonObject();
-    for (String header: headers.names()) {
-      headerJson.addProperty(header, headers.get(header));
+    /**
+     * Copies the fields to the builder.
+     *
+     * @param builder the builder to copy to
+     * @param stackTraceFreeTypes the error types whose exceptions have no stack trace
+     * @return false if the body is in neither format
+     */
+    boolean apply(Builder builder, Set<String> stackTraceFreeTypes) {
+      if (this.error != null) {
+        builder.type(this.error).code(this.code);
+        if (this.errorDescription != null) {
+          builder.description(this.errorDescription);
+        } else if (this.message != null) {
+          builder.description(this.message);
+        }
+      } else if (this.type != null) {
+        builder
+                .type(this.type)
+                .code(this.code)
+                .description(this.description != null ? this.description : "")
+                .docURL(this.docURL != null ? this.docURL : "")
+                .resolutionType(this.resolutionType)
+                .resolutionUrl(this.resolutionUrl)
+                .detail(this.detail);
+      } else {
+        return false;
+      }
+      if (stackTraceFreeTypes.contains(builder.type)) {
+        builder.writableStackTrace = false;
+      }
+      return true;
     }
 
-    JsonObject bodyJson = null;
-    String bodyString = null;
-    try {
-      bodyString = body.string();
-    } catch (IOException e) {
-      return new SmartcarException.Builder()
-              .statusCode(statusCode)
-              .description("Unable to get request body")
-              .requestId(headers.get("sc-request-id"))
-              .type("SDK_ERROR")
-              .build();
+    private static String string(JsonReader in) throws IOException {
+      switch (in.peek()) {
+        case NULL:
+          in.nextNull();
+          return null;
+        case BOOLEAN:
+          return String.valueOf(in.nextBoolean());
+        case STRING:
+        case NUMBER:
+          return in.nextString();
+        default:
+          in.skipValue();
+          return null;
+      }
     }
-    try {
-      bodyJson = new Gson().fromJson(bodyString, JsonObject.class);
-    } catch (Exception e) {
-      // Handles non 200 invalid JSON errors
-      return new SmartcarException.Builder()
-              .statusCode(statusCode)
-              .description(bodyString)
-              .requestId(headers.get("sc-request-id"))
-              .type("SDK_ERROR")
-              .build();
+
+    private static String string(JsonElement value) {
+      return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
     }
 
-    return SmartcarException.Factory(statusCode, headerJson, bodyJson);
+    private static void readResolution(JsonReader in, ErrorBody error) throws IOException {
+      if (in.peek() != JsonToken.BEGIN_OBJECT) {
+        error.resolutionType = ErrorBody.string(in);
+        return;
+      }
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (name.equals("type")) {
+          error.resolutionType = ErrorBody.string(in);
+        } else if (name.equals("url")) {
+          error.resolutionUrl = ErrorBody.string(in);
+        } else {
+          in.skipValue();
+        }
+      }
+      in.endObject();
+    }
   }
 
   /**
@@ -231,6 +437,14 @@ public class SmartcarException extends java.lang.Exception {
 
   public String getRequestId() { return this.requestId; }
 
+  /**
+   * Returns how long the API asked the client to wait before retrying, from the Retry-After
+   * header of the response.
+   *
+   * @return the delay in milliseconds, or 0 if the response did not specify one
+   */
+  public long getRetryAfter() { return this.retryAfter; }
+
   /**
    * Returns the error type associated with the SmartcarExceptionV2.
    *
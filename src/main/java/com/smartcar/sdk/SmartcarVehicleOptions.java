@@ -5,16 +5,19 @@ public final class SmartcarVehicleOptions {
     private final String version;
     private final Vehicle.UnitSystem unitSystem;
     private final String origin;
+    private final SmartcarClient client;
 
     public static class Builder {
         private String version;
         private Vehicle.UnitSystem unitSystem;
         private String origin;
+        private SmartcarClient client;
 
         public Builder() {
             this.version = "2.0";
             this.unitSystem = Vehicle.UnitSystem.METRIC;
             this.origin = Smartcar.getApiOrigin();
+            this.client = null;
         }
 
         public Builder version(String version) {
@@ -32,6 +35,11 @@ public final class SmartcarVehicleOptions {
             return this;
         }
 
+        public Builder client(SmartcarClient client) {
+            this.client = client;
+            return this;
+        }
+
         public SmartcarVehicleOptions build() {
             return new SmartcarVehicleOptions(this);
         }
@@ -41,6 +49,7 @@ public final class SmartcarVehicleOptions {
         this.version = builder.version;
         this.unitSystem = builder.unitSystem;
         this.origin = builder.origin;
+        this.client = builder.client != null ? builder.client : SmartcarClient.getDefault();
     }
 
     public String getVersion() {
@@ -54,5 +63,9 @@ public final class SmartcarVehicleOptions {
     public String getOrigin() {
         return this.origin;
     }
+
+    public SmartcarClient getClient() {
+        return this.client;
+    }
 }
 
@@ -0,0 +1,176 @@
+package com.smartcar.sdk;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.smartcar.sdk.data.ApiData;
+import com.smartcar.sdk.data.BatchResponse;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The result of a /batch request whose body is parsed as it is received.
+ *
+ * <p>The {@code responses} array is read one element at a time, and the future of each endpoint
+ * is completed as soon as its element has been parsed, while the rest of the body is still being
+ * read. Only one element is held in memory at a time. Callbacks attached to the futures run on
+ * the thread that reads the body, so they should be short and must not block.
+ *
+ * <pre>{@code
+ * StreamingBatchResponse response = vehicle.batchStream(request);
+ * response.get(Endpoint.LOCATION).thenAccept((location) -> ...);
+ * response.get(Endpoint.ODOMETER).thenAccept((odometer) -> ...);
+ * response.whenDone().join();
+ * }</pre>
+ */
+public final class StreamingBatchResponse {
+  private final Map<Endpoint<?>, CompletableFuture<ApiData>> results = new LinkedHashMap<>();
+  private final Map<String, List<Endpoint<?>>> byPath = new HashMap<>();
+  private final CompletableFuture<Void> done = new CompletableFuture<>();
+  private final Set<String> stackTraceFreeTypes;
+
+  StreamingBatchResponse(BatchRequest request, Set<String> stackTraceFreeTypes) {
+    this.stackTraceFreeTypes = stackTraceFreeTypes;
+    for (Endpoint<?> endpoint : request.getEndpoints()) {
+      this.results.put(endpoint, new CompletableFuture<>());
+      this.byPath.computeIfAbsent(endpoint.getPath(), (path) -> new ArrayList<>(1)).add(endpoint);
+    }
+  }
+
+  /**
+   * Returns the future for one endpoint of the batch. It is completed with the decoded response,
+   * or exceptionally with the SmartcarException of that endpoint or of the whole request.
+   *
+   * @param endpoint an endpoint of the BatchRequest
+   * @return a future for the decoded response
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends ApiData> CompletableFuture<T> get(Endpoint<T> endpoint) {
+    CompletableFuture<ApiData> result = this.results.get(endpoint);
+    if (result == null) {
+      CompletableFuture<T> missing = new CompletableFuture<>();
+      missing.completeExceptionally(StreamingBatchResponse.notFound());
+      return missing;
+    }
+    return (CompletableFuture<T>) (CompletableFuture<?>) result;
+  }
+
+  /**
+   * Returns a future that completes once the whole body has been read and every endpoint future
+   * has been completed, or exceptionally if the request failed. Cancelling it cancels the request.
+   *
+   * @return a future for the end of the response
+   */
+  public CompletableFuture<Void> whenDone() {
+    return this.done;
+  }
+
+  /**
+   * Ties this response to the request that produces it.
+   *
+   * @param call the future of the request, completed once {@link #parse} has returned
+   */
+  void start(CompletableFuture<StreamingBatchResponse> call) {
+    CompletableFuture<Void> done = this.done;
+    call.whenComplete((response, ex) -> {
+      if (ex != null) {
+        Throwable cause = RequestCoalescer.unwrap(ex);
+        for (CompletableFuture<ApiData> result : this.results.values()) {
+          result.completeExceptionally(cause);
+        }
+        done.completeExceptionally(cause);
+      } else {
+        done.complete(null);
+      }
+    });
+    done.whenComplete((nothing, ex) -> {
+      if (done.isCancelled()) {
+        call.cancel(true);
+      }
+    });
+  }
+
+  /**
+   * Reads the body of a successful /batch response, completing endpoint futures as it goes.
+   *
+   * @param response the successful response
+   * @return this response
+   * @throws SmartcarException if the body is not a valid batch response
+   */
+  StreamingBatchResponse parse(Response response) throws SmartcarException {
+    String requestId = response.headers().get("sc-request-id");
+    ResponseBody body = response.body();
+
+    try (JsonReader reader = new JsonReader(body.charStream())) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (!reader.nextName().equals("responses")) {
+          reader.skipValue();
+          continue;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+          this.deliver(JsonParser.parseReader(reader), requestId);
+        }
+        reader.endArray();
+      }
+      reader.endObject();
+    } catch (IOException | RuntimeException ex) {
+      throw new SmartcarException.Builder()
+          .statusCode(response.code())
+          .description("Invalid batch response: " + ex.getMessage())
+          .requestId(requestId)
+          .type("SDK_ERROR")
+          .build();
+    } finally {
+      body.close();
+    }
+
+    for (CompletableFuture<ApiData> result : this.results.values()) {
+      result.completeExceptionally(StreamingBatchResponse.notFound());
+    }
+    return this;
+  }
+
+  private void deliver(JsonElement element, String requestId) {
+    JsonObject response = element.getAsJsonObject();
+    List<Endpoint<?>> endpoints = this.byPath.get(response.get("path").getAsString());
+    if (endpoints == null) {
+      return;
+    }
+
+    // A single-element BatchResponse decodes the element exactly as a buffered batch would.
+    JsonArray responses = new JsonArray(1);
+    responses.add(response);
+    BatchResponse batch = new BatchResponse(responses);
+    batch.setRequestId(requestId);
+    batch.setStackTraceFreeTypes(this.stackTraceFreeTypes);
+
+    for (Endpoint<?> endpoint : endpoints) {
+      CompletableFuture<ApiData> result = this.results.get(endpoint);
+      try {
+        result.complete(batch.get(endpoint.getPath(), endpoint.getType()));
+      } catch (SmartcarException | RuntimeException ex) {
+        result.completeExceptionally(ex);
+      }
+    }
+  }
+
+  private static SmartcarException notFound() {
+    return new SmartcarException.Builder()
+        .type("DATA_NOT_FOUND")
+        .description("The data you requested was not returned")
+        .build();
+  }
+}
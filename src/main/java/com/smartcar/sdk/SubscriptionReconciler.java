@@ -0,0 +1,527 @@
+package com.smartcar.sdk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Brings the webhook subscriptions of a fleet to a desired state.
+ *
+ * <p>Given the subscriptions that should exist and the ones that currently exist, the reconciler
+ * subscribes the missing ones and unsubscribes the extra ones, with a bounded number of requests
+ * in flight. By default it builds its own client, which paces requests with a {@link RateLimiter}
+ * and retries rate limits and server errors with a {@link RetryPolicy}; both are safe here
+ * because subscribing and unsubscribing are idempotent.
+ *
+ * <p>With a checkpoint file, every completed operation is appended to the file as it finishes. A
+ * run that is interrupted, or that ends with failures, can be started again with the same
+ * arguments and skips what was already done. The file is deleted once a run completes without
+ * failures.
+ *
+ * <p>A reconciler built without {@link Builder#client} owns its client; close it to release that
+ * client's connections and threads.
+ *
+ * <pre>{@code
+ * try (SubscriptionReconciler reconciler = new SubscriptionReconciler.Builder()
+ *     .applicationManagementToken(amt)
+ *     .checkpoint(Paths.get("onboarding.checkpoint"))
+ *     .listener((progress) -> log.info("{} of {} done", progress.getCompleted(), progress.getTotal()))
+ *     .build()) {
+ *   SubscriptionReconciler.Progress result = reconciler.reconcile(desired, Collections.emptyList());
+ * }
+ * }</pre>
+ */
+public final class SubscriptionReconciler implements AutoCloseable {
+  private final SmartcarVehicleOptions vehicleOptions;
+  private final SmartcarClient ownedClient;
+  private final String applicationManagementToken;
+  private final int maxConcurrency;
+  private final Path checkpoint;
+  private final Listener listener;
+  private final int progressInterval;
+
+  /** A vehicle's subscription to a webhook. */
+  public static final class Subscription {
+    private final String vehicleId;
+    private final String webhookId;
+    private final String accessToken;
+
+    private Subscription(String vehicleId, String webhookId, String accessToken) {
+      this.vehicleId = vehicleId;
+      this.webhookId = webhookId;
+      this.accessToken = accessToken;
+    }
+
+    /**
+     * Describes a subscription. The access token of the vehicle is needed to subscribe it; it may
+     * be null for current subscriptions, which are removed with the application management token.
+     *
+     * @param vehicleId the vehicle
+     * @param webhookId the webhook
+     * @param accessToken an access token of the vehicle, or null
+     * @return the subscription
+     */
+    public static Subscription of(String vehicleId, String webhookId, String accessToken) {
+      return new Subscription(vehicleId, webhookId, accessToken);
+    }
+
+    public String getVehicleId() { return this.vehicleId; }
+
+    public String getWebhookId() { return this.webhookId; }
+
+    public String getAccessToken() { return this.accessToken; }
+
+    private String key() {
+      return this.vehicleId + ' ' + this.webhookId;
+    }
+  }
+
+  /**
+   * Receives progress reports. Called from OkHttp dispatcher threads, possibly concurrently, so
+   * implementations must be safe for concurrent use. Exceptions thrown by the listener are
+   * ignored.
+   */
+  public interface Listener {
+    /**
+     * Called every progressInterval completed operations, and once at the end of the run.
+     *
+     * @param progress the counts so far
+     */
+    void onProgress(Progress progress);
+
+    /**
+     * Called when an operation fails after its retries.
+     *
+     * @param subscription the subscription
+     * @param subscribe true if the operation was a subscribe, false for an unsubscribe
+     * @param error the error
+     */
+    default void onFailure(Subscription subscription, boolean subscribe, SmartcarException error) {}
+  }
+
+  /** Counts of a run, as reported to the listener and returned at the end. */
+  public static final class Progress {
+    private final long total;
+    private final long subscribed;
+    private final long unsubscribed;
+    private final long skipped;
+    private final long failed;
+
+    private Progress(long total, long subscribed, long unsubscribed, long skipped, long failed) {
+      this.total = total;
+      this.subscribed = subscribed;
+      this.unsubscribed = unsubscribed;
+      this.skipped = skipped;
+      this.failed = failed;
+    }
+
+    /** @return the number of operations the run needs, including the skipped ones */
+    public long getTotal() { return this.total; }
+
+    public long getSubscribed() { return this.subscribed; }
+
+    public long getUnsubscribed() { return this.unsubscribed; }
+
+    /** @return the number of operations skipped because the checkpoint records them as done */
+    public long getSkipped() { return this.skipped; }
+
+    public long getFailed() { return this.failed; }
+
+    /** @return the number of operations that are no longer pending */
+    public long getCompleted() {
+      return this.subscribed + this.unsubscribed + this.skipped + this.failed;
+    }
+  }
+
+  public static class Builder {
+    private SmartcarClient client;
+    private String origin;
+    private String version;
+    private String applicationManagementToken;
+    private int maxConcurrency;
+    private double requestsPerSecond;
+    private int maxAttempts;
+    private Path checkpoint;
+    private Listener listener;
+    private int progressInterval;
+
+    public Builder() {
+      this.client = null;
+      this.origin = Smartcar.getApiOrigin();
+      this.version = "2.0";
+      this.applicationManagementToken = null;
+      this.maxConcurrency = 16;
+      this.requestsPerSecond = 20;
+      this.maxAttempts = 5;
+      this.checkpoint = null;
+      this.listener = (progress) -> {};
+      this.progressInterval = 100;
+    }
+
+    /**
+     * Sends the requests through the given client, whose own rate limiter and retry policy then
+     * apply instead of the ones set on this builder. A client given here is not released by
+     * {@link SubscriptionReconciler#close}.
+     *
+     * @param client the client to use
+     * @return this builder
+     */
+    public Builder client(SmartcarClient client) {
+      this.client = client;
+      return this;
+    }
+
+    public Builder origin(String origin) {
+      this.origin = origin;
+      return this;
+    }
+
+    public Builder version(String version) {
+      this.version = version;
+      return this;
+    }
+
+    /**
+     * Sets the application management token, which is required to unsubscribe vehicles.
+     *
+     * @param applicationManagementToken the application management token
+     * @return this builder
+     */
+    public Builder applicationManagementToken(String applicationManagementToken) {
+      this.applicationManagementToken = applicationManagementToken;
+      return this;
+    }
+
+    /**
+     * Sets how many requests may be in flight at once. Defaults to 16.
+     *
+     * @param maxConcurrency the concurrency limit
+     * @return this builder
+     */
+    public Builder maxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets the sustained request rate of the default client. Defaults to 20 requests per second.
+     *
+     * @param requestsPerSecond the request rate
+     * @return this builder
+     */
+    public Builder rate(double requestsPerSecond) {
+      this.requestsPerSecond = requestsPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets how many times the default client attempts each operation on rate limits and server
+     * errors. Defaults to 5.
+     *
+     * @param maxAttempts the maximum number of attempts
+     * @return this builder
+     */
+    public Builder maxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Records completed operations in the given file, and skips the operations it already
+     * records. Disabled by default.
+     *
+     * @param checkpoint the checkpoint file
+     * @return this builder
+     */
+    public Builder checkpoint(Path checkpoint) {
+      this.checkpoint = checkpoint;
+      return this;
+    }
+
+    public Builder listener(Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Sets how many operations complete between two progress reports. Defaults to 100.
+     *
+     * @param progressInterval the number of operations between reports
+     * @return this builder
+     */
+    public Builder progressInterval(int progressInterval) {
+      this.progressInterval = progressInterval;
+      return this;
+    }
+
+    public SubscriptionReconciler build() {
+      return new SubscriptionReconciler(this);
+    }
+  }
+
+  private SubscriptionReconciler(Builder builder) {
+    SmartcarClient client = builder.client;
+    if (client == null) {
+      client = new SmartcarClient.Builder()
+          .maxRequests(builder.maxConcurrency)
+          .maxRequestsPerHost(builder.maxConcurrency)
+          .rateLimiter(new RateLimiter.Builder()
+              .applicationRate(builder.requestsPerSecond, Math.max(1, (int) builder.requestsPerSecond))
+              .build())
+          .retryPolicy(new RetryPolicy.Builder()
+              .maxAttempts(EndpointClass.ACTION, builder.maxAttempts)
+              .retryOn(EndpointClass.ACTION, 429, 500, 502, 503, 504)
+              .build())
+          .build();
+      this.ownedClient = client;
+    } else {
+      this.ownedClient = null;
+    }
+    this.vehicleOptions = new SmartcarVehicleOptions.Builder()
+        .client(client)
+        .origin(builder.origin)
+        .version(builder.version)
+        .build();
+    this.applicationManagementToken = builder.applicationManagementToken;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.checkpoint = builder.checkpoint;
+    this.listener = builder.listener;
+    this.progressInterval = Math.max(1, builder.progressInterval);
+  }
+
+  /** The counters and checkpoint of one run. */
+  private final class Run {
+    private final long total;
+    private final Set<String> done;
+    private final BufferedWriter writer;
+    private final AtomicLong subscribed = new AtomicLong();
+    private final AtomicLong unsubscribed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    Run(long total, Set<String> done, BufferedWriter writer) {
+      this.total = total;
+      this.done = done;
+      this.writer = writer;
+    }
+
+    Progress progress() {
+      return new Progress(
+          this.total, this.subscribed.get(), this.unsubscribed.get(), this.skipped.get(), this.failed.get());
+    }
+
+    void completed() {
+      if (this.completed.incrementAndGet() % SubscriptionReconciler.this.progressInterval == 0) {
+        SubscriptionReconciler.this.report(this.progress());
+      }
+    }
+
+    synchronized void record(String entry) {
+      if (this.writer == null) {
+        return;
+      }
+      try {
+        this.writer.write(entry);
+        this.writer.newLine();
+        this.writer.flush();
+      } catch (IOException ex) {
+        // The operation succeeded; a resumed run will merely repeat it.
+      }
+    }
+  }
+
+  /**
+   * Subscribes the desired subscriptions that are not current and unsubscribes the current ones
+   * that are not desired, blocking until every operation has completed. Subscriptions are
+   * compared by vehicle and webhook. Unsubscribes run before subscribes.
+   *
+   * @param desired the subscriptions that should exist
+   * @param current the subscriptions that exist now; empty to subscribe every desired one
+   * @return the counts of the run
+   * @throws SmartcarException if the checkpoint file cannot be read or created, or an unsubscribe
+   *     is needed and no application management token was given
+   * @throws InterruptedException if the calling thread is interrupted, in which case the
+   *     requests in flight are cancelled
+   */
+  public Progress reconcile(Iterable<Subscription> desired, Iterable<Subscription> current)
+      throws SmartcarException, InterruptedException {
+    Map<String, Subscription> toSubscribe = new LinkedHashMap<>();
+    for (Subscription subscription : desired) {
+      toSubscribe.put(subscription.key(), subscription);
+    }
+    List<Subscription> toUnsubscribe = new ArrayList<>();
+    for (Subscription subscription : current) {
+      if (toSubscribe.remove(subscription.key()) == null) {
+        toUnsubscribe.add(subscription);
+      }
+    }
+    if (!toUnsubscribe.isEmpty() && this.applicationManagementToken == null) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("An application management token is required to unsubscribe vehicles")
+          .build();
+    }
+
+    Set<String> done = this.readCheckpoint();
+    BufferedWriter writer = this.openCheckpoint();
+    Run run = new Run(toSubscribe.size() + toUnsubscribe.size(), done, writer);
+    Semaphore permits = new Semaphore(this.maxConcurrency, true);
+    Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    boolean finished = false;
+
+    try {
+      for (Subscription subscription : toUnsubscribe) {
+        this.submit(run, subscription, false, permits, inFlight);
+      }
+      for (Subscription subscription : toSubscribe.values()) {
+        this.submit(run, subscription, true, permits, inFlight);
+      }
+      permits.acquire(this.maxConcurrency);
+      finished = true;
+    } finally {
+      for (CompletableFuture<?> future : inFlight) {
+        future.cancel(true);
+      }
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (IOException ex) {
+          // Every entry was already flushed.
+        }
+      }
+    }
+
+    Progress progress = run.progress();
+    if (finished && progress.getFailed() == 0 && this.checkpoint != null) {
+      try {
+        Files.deleteIfExists(this.checkpoint);
+      } catch (IOException ex) {
+        // A leftover checkpoint only makes the next run skip work that is already done.
+      }
+    }
+    this.report(progress);
+    return progress;
+  }
+
+  /**
+   * Releases the connections and dispatcher threads of the client the reconciler built for
+   * itself. Does nothing if the builder was given a client. The reconciler must not be used
+   * afterwards.
+   */
+  @Override
+  public void close() {
+    if (this.ownedClient != null) {
+      this.ownedClient.shutdown();
+    }
+  }
+
+  private void submit(
+      Run run,
+      Subscription subscription,
+      boolean subscribe,
+      Semaphore permits,
+      Set<CompletableFuture<?>> inFlight) throws InterruptedException {
+    String entry = (subscribe ? '+' : '-') + subscription.key();
+    if (run.done.contains(entry)) {
+      run.skipped.incrementAndGet();
+      run.completed();
+      return;
+    }
+
+    permits.acquire();
+    String accessToken = subscription.getAccessToken() != null ? subscription.getAccessToken() : "";
+    Vehicle vehicle = new Vehicle(subscription.getVehicleId(), accessToken, this.vehicleOptions);
+    CompletableFuture<?> future = subscribe
+        ? vehicle.subscribeAsync(subscription.getWebhookId())
+        : vehicle.unsubscribeAsync(this.applicationManagementToken, subscription.getWebhookId());
+    inFlight.add(future);
+
+    future.whenComplete((response, ex) -> {
+      inFlight.remove(future);
+      try {
+        if (ex == null) {
+          (subscribe ? run.subscribed : run.unsubscribed).incrementAndGet();
+          run.record(entry);
+        } else {
+          run.failed.incrementAndGet();
+          try {
+            this.listener.onFailure(subscription, subscribe, SubscriptionReconciler.toSmartcarException(ex));
+          } catch (RuntimeException listenerError) {
+            // A failing listener must not stall the run.
+          }
+        }
+        run.completed();
+      } finally {
+        permits.release();
+      }
+    });
+  }
+
+  private void report(Progress progress) {
+    try {
+      this.listener.onProgress(progress);
+    } catch (RuntimeException ex) {
+      // A failing listener must not stall the run.
+    }
+  }
+
+  private Set<String> readCheckpoint() throws SmartcarException {
+    Set<String> done = new HashSet<>();
+    if (this.checkpoint == null || !Files.exists(this.checkpoint)) {
+      return done;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(this.checkpoint, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          done.add(line);
+        }
+      }
+    } catch (IOException ex) {
+      throw SubscriptionReconciler.checkpointError(ex);
+    }
+    return done;
+  }
+
+  private BufferedWriter openCheckpoint() throws SmartcarException {
+    if (this.checkpoint == null) {
+      return null;
+    }
+    try {
+      return Files.newBufferedWriter(this.checkpoint, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    } catch (IOException ex) {
+      throw SubscriptionReconciler.checkpointError(ex);
+    }
+  }
+
+  private static SmartcarException checkpointError(IOException ex) {
+    return new SmartcarException.Builder()
+        .type("SDK_ERROR")
+        .description("Could not access the checkpoint file: " + ex.getMessage())
+        .build();
+  }
+
+  private static SmartcarException toSmartcarException(Throwable ex) {
+    Throwable cause = RequestCoalescer.unwrap(ex);
+    if (cause instanceof SmartcarException) {
+      return (SmartcarException) cause;
+    }
+    return new SmartcarException.Builder().type("SDK_ERROR").description(String.valueOf(cause.getMessage())).build();
+  }
+}
@@ -0,0 +1,184 @@
+package com.smartcar.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel for large numbers of coarse timers.
+ *
+ * <p>Time is divided into ticks. Level 0 has one slot per tick for the next 64 ticks, level 1 one
+ * slot per 64 ticks for the next 64^2 ticks, and so on for four levels. A timer is linked into
+ * the slot that covers its deadline, and when the wheel reaches a higher-level slot its timers are
+ * moved down to finer slots. Scheduling and cancelling are O(1), a timer costs a single
+ * {@link Entry} with no thread or task per timer, and advancing costs O(1) per tick plus the
+ * timers that move or expire; stretches of empty slots are skipped. Deadlines beyond the range of
+ * the wheel (about 19 days at 100ms ticks) are parked in the last slot of their range and
+ * re-placed when they get there.
+ *
+ * <p>The wheel does not run anything itself: {@link #advance} returns the expired entries and the
+ * caller runs them outside the wheel's lock.
+ */
+final class TimingWheel {
+  private static final int BITS = 6;
+  private static final int SLOTS = 1 << BITS;
+  private static final int MASK = SLOTS - 1;
+  private static final int LEVELS = 4;
+  private static final long RANGE = 1L << (BITS * LEVELS);
+
+  /** A timer, linked into at most one slot at a time. */
+  static final class Entry {
+    private final Runnable task;
+    private Entry prev;
+    private Entry next;
+    private long deadlineTick;
+    private int level;
+
+    Entry(Runnable task) {
+      this.task = task;
+    }
+
+    void run() {
+      this.task.run();
+    }
+  }
+
+  private final long tickMillis;
+  private final Entry[] slots = new Entry[LEVELS * SLOTS];
+  private final int[] counts = new int[LEVELS];
+  private long currentTick;
+  private int size;
+
+  TimingWheel(long tickMillis, long nowMillis) {
+    this.tickMillis = tickMillis;
+    this.currentTick = nowMillis / tickMillis;
+    for (int i = 0; i < this.slots.length; i++) {
+      Entry head = new Entry(null);
+      head.prev = head;
+      head.next = head;
+      this.slots[i] = head;
+    }
+  }
+
+  /**
+   * Schedules the entry, replacing any earlier schedule of it.
+   *
+   * @param entry the entry
+   * @param deadlineMillis when the entry should expire, in epoch milliseconds
+   * @return false if the deadline has already passed, in which case the entry is not scheduled
+   *     and the caller should run it now
+   */
+  synchronized boolean schedule(Entry entry, long deadlineMillis) {
+    this.unlink(entry);
+    // Rounded up, so that an entry never expires before its deadline.
+    entry.deadlineTick = (deadlineMillis + this.tickMillis - 1) / this.tickMillis;
+    return this.place(entry);
+  }
+
+  /**
+   * Cancels the entry if it is scheduled.
+   *
+   * @param entry the entry
+   */
+  synchronized void cancel(Entry entry) {
+    this.unlink(entry);
+  }
+
+  synchronized int size() {
+    return this.size;
+  }
+
+  /**
+   * Moves the wheel forward to the given time.
+   *
+   * @param nowMillis the current time in epoch milliseconds
+   * @return the entries that expired, in no particular order
+   */
+  synchronized List<Entry> advance(long nowMillis) {
+    long targetTick = nowMillis / this.tickMillis;
+    List<Entry> expired = new ArrayList<>();
+    if (this.size == 0) {
+      this.currentTick = Math.max(this.currentTick, targetTick);
+      return expired;
+    }
+
+    while (this.currentTick < targetTick) {
+      // When the lowest levels are empty, nothing can happen before the next boundary of the
+      // first occupied level, so skip straight to it.
+      int occupied = 0;
+      while (occupied < LEVELS - 1 && this.counts[occupied] == 0) {
+        occupied++;
+      }
+      if (occupied > 0) {
+        long skipTo = this.currentTick | ((1L << (BITS * occupied)) - 1);
+        if (skipTo >= targetTick) {
+          this.currentTick = targetTick;
+          break;
+        }
+        this.currentTick = skipTo;
+      }
+
+      this.currentTick++;
+      for (int level = 1; level < LEVELS; level++) {
+        if ((this.currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+          break;
+        }
+        this.drain(level, (int) ((this.currentTick >>> (BITS * level)) & MASK), expired);
+      }
+      this.drain(0, (int) (this.currentTick & MASK), expired);
+    }
+    return expired;
+  }
+
+  /** Re-places every entry of a slot, collecting those that are due. */
+  private void drain(int level, int slot, List<Entry> expired) {
+    Entry head = this.slots[level * SLOTS + slot];
+    Entry entry = head.next;
+    while (entry != head) {
+      Entry next = entry.next;
+      this.unlink(entry);
+      if (!this.place(entry)) {
+        expired.add(entry);
+      }
+      entry = next;
+    }
+  }
+
+  private boolean place(Entry entry) {
+    long delta = entry.deadlineTick - this.currentTick;
+    if (delta <= 0) {
+      return false;
+    }
+
+    long tick = entry.deadlineTick;
+    if (delta >= RANGE) {
+      delta = RANGE - 1;
+      tick = this.currentTick + delta;
+    }
+    int level = 0;
+    while (delta >= 1L << (BITS * (level + 1))) {
+      level++;
+    }
+    Entry head = this.slots[level * SLOTS + (int) ((tick >>> (BITS * level)) & MASK)];
+
+    entry.level = level;
+    entry.prev = head.prev;
+    entry.next = head;
+    head.prev.next = entry;
+    head.prev = entry;
+    this.counts[level]++;
+    this.size++;
+    return true;
+  }
+
+  private void unlink(Entry entry) {
+    if (entry.prev == null) {
+      return;
+    }
+    entry.prev.next = entry.next;
+    entry.next.prev = entry.prev;
+    entry.prev = null;
+    entry.next = null;
+    this.counts[entry.level]--;
+    this.size--;
+  }
+}
@@ -0,0 +1,467 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Auth;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps access tokens valid by refreshing them before they expire.
+ *
+ * <p>Each tracked token is refreshed a little before its expiration, at a random point within
+ * the jitter window so that tokens issued together are not refreshed together. At most one
+ * refresh per token is in flight at a time: callers that need a token while it is being
+ * refreshed wait for that refresh instead of starting their own. A {@link Vehicle} created with a
+ * {@link ManagedToken} fetches its access token from the manager on every request.
+ *
+ * <p>Refresh times are kept in a single timing wheel, so tracking a token costs a few small
+ * objects and no timer task of its own. Refreshes run on a small dedicated thread pool.
+ *
+ * <p>Smartcar issues a new refresh token with every refresh. Give the manager a
+ * {@link TokenStore} to have the new tokens written to it, or use a {@link Listener} to persist
+ * them yourself.
+ *
+ * <pre>{@code
+ * TokenManager tokens = new TokenManager.Builder()
+ *     .authClient(authClient)
+ *     .listener((previous, refreshed) -> store.save(refreshed))
+ *     .build();
+ * Vehicle vehicle = new Vehicle(vehicleId, tokens.track(auth));
+ * }</pre>
+ */
+public final class TokenManager implements AutoCloseable {
+  private static final long TICK_MILLIS = 100;
+  private static final long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final Refresher refresher;
+  private final long refreshBeforeMillis;
+  private final long jitterMillis;
+  private final Listener listener;
+  private final TokenStore tokenStore;
+  private final ExecutorService executor;
+  private final TimingWheel wheel;
+  private final ScheduledFuture<?> ticker;
+  private final ConcurrentHashMap<String, ManagedToken> tokens = new ConcurrentHashMap<>();
+
+  /** Exchanges a refresh token for new tokens. */
+  interface Refresher {
+    Auth refresh(String refreshToken) throws SmartcarException;
+  }
+
+  /**
+   * Receives the outcome of background refreshes. Called from the manager's refresh threads.
+   * Exceptions thrown by the listener are ignored.
+   */
+  public interface Listener {
+    /**
+     * Called after a token has been refreshed.
+     *
+     * @param previous the tokens before the refresh
+     * @param refreshed the new tokens
+     */
+    void onRefresh(Auth previous, Auth refreshed);
+
+    /**
+     * Called when a refresh fails. Network errors, rate limits and server errors are retried;
+     * other errors (for example a revoked refresh token) stop the background refreshes of the
+     * token until it is used again. Also called, with the new tokens, if a successful refresh
+     * could not be written to the TokenStore.
+     *
+     * @param auth the tokens that could not be refreshed
+     * @param error the error
+     */
+    default void onFailure(Auth auth, SmartcarException error) {}
+  }
+
+  public static class Builder {
+    private Refresher refresher;
+    private long refreshBeforeMillis;
+    private long jitterMillis;
+    private int maxConcurrentRefreshes;
+    private Listener listener;
+    private TokenStore tokenStore;
+
+    public Builder() {
+      this.refresher = null;
+      this.refreshBeforeMillis = TimeUnit.MINUTES.toMillis(10);
+      this.jitterMillis = TimeUnit.MINUTES.toMillis(5);
+      this.maxConcurrentRefreshes = 8;
+      this.listener = null;
+      this.tokenStore = null;
+    }
+
+    /**
+     * Refreshes tokens with the given client. Required.
+     *
+     * @param authClient the client of the application the tokens belong to
+     * @return this builder
+     */
+    public Builder authClient(AuthClient authClient) {
+      this.refresher = authClient::exchangeRefreshToken;
+      return this;
+    }
+
+    Builder refresher(Refresher refresher) {
+      this.refresher = refresher;
+      return this;
+    }
+
+    /**
+     * Sets how long before expiration a token is refreshed. Defaults to 10 minutes.
+     *
+     * @param duration the lead time
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder refreshBefore(long duration, TimeUnit unit) {
+      this.refreshBeforeMillis = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Sets the window over which refreshes are spread: each token is refreshed up to this much
+     * earlier than the refreshBefore time. Defaults to 5 minutes.
+     *
+     * @param duration the jitter window
+     * @param unit the unit of duration
+     * @return this builder
+     */
+    public Builder jitter(long duration, TimeUnit unit) {
+      this.jitterMillis = unit.toMillis(duration);
+      return this;
+    }
+
+    /**
+     * Sets how many refreshes may run at once. Defaults to 8.
+     *
+     * @param maxConcurrentRefreshes the number of refresh threads
+     * @return this builder
+     */
+    public Builder maxConcurrentRefreshes(int maxConcurrentRefreshes) {
+      this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+      return this;
+    }
+
+    public Builder listener(Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    /**
+     * Writes the tokens tracked with {@link TokenManager#track(String, Auth)} to the store, both
+     * when they are tracked and after every refresh.
+     *
+     * @param tokenStore the store
+     * @return this builder
+     */
+    public Builder tokenStore(TokenStore tokenStore) {
+      this.tokenStore = tokenStore;
+      return this;
+    }
+
+    public TokenManager build() throws SmartcarException {
+      if (this.refresher == null) {
+        throw new SmartcarException.Builder()
+            .type("SDK_ERROR")
+            .description("authClient must be defined")
+            .build();
+      }
+      return new TokenManager(this);
+    }
+  }
+
+  /**
+   * A token tracked by a TokenManager. Pass it to a {@link Vehicle} instead of an access token.
+   */
+  public static final class ManagedToken {
+    private final TokenManager manager;
+    private final String key;
+    private final TimingWheel.Entry timer;
+    private volatile Auth auth;
+    private CompletableFuture<Auth> refreshing;
+
+    private ManagedToken(TokenManager manager, String key, Auth auth) {
+      this.manager = manager;
+      this.key = key;
+      this.auth = auth;
+      this.timer = new TimingWheel.Entry(this::refreshInBackground);
+    }
+
+    /**
+     * Returns the key the token is stored under, or null if it was tracked without one.
+     *
+     * @return the key
+     */
+    public String getKey() {
+      return this.key;
+    }
+
+    /**
+     * Returns the current tokens.
+     *
+     * @return the current tokens
+     */
+    public Auth getAuth() {
+      return this.auth;
+    }
+
+    /**
+     * Returns a valid access token, waiting for a refresh if the current one has expired.
+     *
+     * @return the access token
+     * @throws SmartcarException if the token had to be refreshed and the refresh failed
+     */
+    public String getAccessToken() throws SmartcarException {
+      Auth auth = this.auth;
+      if (!auth.isExpired()) {
+        return auth.getAccessToken();
+      }
+      return RequestCoalescer.await(this.refresh()).getAccessToken();
+    }
+
+    /**
+     * Returns a valid access token without blocking. The future is already complete unless the
+     * current token has expired.
+     *
+     * @return a future for the access token
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+      Auth auth = this.auth;
+      if (!auth.isExpired()) {
+        return CompletableFuture.completedFuture(auth.getAccessToken());
+      }
+      return this.refresh().thenApply(Auth::getAccessToken);
+    }
+
+    /**
+     * Refreshes the token now, or joins the refresh already in flight.
+     *
+     * @return a future for the refreshed tokens
+     */
+    public synchronized CompletableFuture<Auth> refresh() {
+      if (this.refreshing == null) {
+        CompletableFuture<Auth> refreshing = new CompletableFuture<>();
+        this.refreshing = refreshing;
+        try {
+          this.manager.executor.execute(() -> this.manager.refresh(this, refreshing));
+        } catch (RejectedExecutionException ex) {
+          this.refreshing = null;
+          refreshing.completeExceptionally(new SmartcarException.Builder()
+              .type("SDK_ERROR")
+              .description("The token manager is closed")
+              .build());
+        }
+        return refreshing;
+      }
+      return this.refreshing;
+    }
+
+    private synchronized void refreshed(Auth auth) {
+      if (auth != null) {
+        this.auth = auth;
+      }
+      this.refreshing = null;
+    }
+
+    private void refreshInBackground() {
+      this.refresh();
+    }
+  }
+
+  private TokenManager(Builder builder) {
+    this.refresher = builder.refresher;
+    this.refreshBeforeMillis = builder.refreshBeforeMillis;
+    this.jitterMillis = builder.jitterMillis;
+    this.listener = builder.listener;
+    this.tokenStore = builder.tokenStore;
+
+    AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(builder.maxConcurrentRefreshes, (runnable) -> {
+      Thread thread = new Thread(runnable, "smartcar-token-refresh-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.wheel = new TimingWheel(TICK_MILLIS, System.currentTimeMillis());
+    this.ticker = SharedTimer.scheduleAtFixedRate(this::tick, TICK_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts keeping the token valid. Tracking a refresh token that is already tracked returns the
+   * existing ManagedToken.
+   *
+   * @param auth the tokens, for example from {@link AuthClient#exchangeCode}
+   * @return the tracked token
+   */
+  public ManagedToken track(Auth auth) {
+    return this.start(null, auth);
+  }
+
+  /**
+   * Starts keeping the token valid, and writes it to the TokenStore under the key, now and after
+   * every refresh.
+   *
+   * @param key the key to store the token under, for example a user ID or vehicle ID
+   * @param auth the tokens, for example from {@link AuthClient#exchangeCode}
+   * @return the tracked token
+   * @throws SmartcarException if the token cannot be written to the store
+   */
+  public ManagedToken track(String key, Auth auth) throws SmartcarException {
+    if (this.tokenStore != null) {
+      this.tokenStore.put(key, auth);
+    }
+    return this.start(key, auth);
+  }
+
+  /**
+   * Tracks every token of the TokenStore, for example after a restart.
+   *
+   * @return the tracked tokens by key
+   * @throws SmartcarException if the store cannot be read, or no store was configured
+   */
+  public Map<String, ManagedToken> trackStored() throws SmartcarException {
+    if (this.tokenStore == null) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("No TokenStore was configured")
+          .build();
+    }
+    Map<String, ManagedToken> tracked = new HashMap<>(this.tokenStore.size() * 4 / 3 + 1);
+    this.tokenStore.forEach((key, auth) -> tracked.put(key, this.start(key, auth)));
+    return tracked;
+  }
+
+  private ManagedToken start(String key, Auth auth) {
+    ManagedToken created = new ManagedToken(this, key, auth);
+    ManagedToken existing = this.tokens.putIfAbsent(auth.getRefreshToken(), created);
+    if (existing != null) {
+      return existing;
+    }
+    this.schedule(created, this.refreshTime(auth));
+    return created;
+  }
+
+  /**
+   * Stops refreshing the token. The ManagedToken can still be used, and refreshes on demand once
+   * its access token expires.
+   *
+   * @param token the tracked token
+   */
+  public void untrack(ManagedToken token) {
+    this.tokens.remove(token.getAuth().getRefreshToken(), token);
+    this.wheel.cancel(token.timer);
+  }
+
+  /**
+   * Returns the number of tracked tokens.
+   *
+   * @return the tracked token count
+   */
+  public int size() {
+    return this.tokens.size();
+  }
+
+  /** Stops all background refreshes. Refreshes already running are allowed to finish. */
+  @Override
+  public void close() {
+    this.ticker.cancel(false);
+    this.executor.shutdown();
+  }
+
+  private void tick() {
+    try {
+      List<TimingWheel.Entry> expired = this.wheel.advance(System.currentTimeMillis());
+      for (TimingWheel.Entry entry : expired) {
+        entry.run();
+      }
+    } catch (RuntimeException ex) {
+      // An exception would cancel the fixed-rate ticker.
+    }
+  }
+
+  private long refreshTime(Auth auth) {
+    long jitter = this.jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(this.jitterMillis) : 0;
+    return auth.getExpiration().getTime() - this.refreshBeforeMillis - jitter;
+  }
+
+  private void schedule(ManagedToken token, long timeMillis) {
+    if (!this.wheel.schedule(token.timer, timeMillis)) {
+      token.refresh();
+    }
+  }
+
+  /** Runs on a refresh thread. */
+  private void refresh(ManagedToken token, CompletableFuture<Auth> refreshing) {
+    Auth previous = token.getAuth();
+    Auth refreshed;
+    try {
+      refreshed = this.refresher.refresh(previous.getRefreshToken());
+    } catch (SmartcarException | RuntimeException ex) {
+      SmartcarException error = ex instanceof SmartcarException
+          ? (SmartcarException) ex
+          : new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+      token.refreshed(null);
+      if (this.tokens.get(previous.getRefreshToken()) == token && TokenManager.isRetryable(error)) {
+        this.schedule(token, System.currentTimeMillis() + RETRY_MILLIS
+            + ThreadLocalRandom.current().nextLong(RETRY_MILLIS));
+      }
+      this.notifyFailure(previous, error);
+      refreshing.completeExceptionally(error);
+      return;
+    }
+
+    if (this.tokenStore != null && token.key != null) {
+      try {
+        this.tokenStore.put(token.key, refreshed);
+      } catch (SmartcarException | RuntimeException ex) {
+        this.notifyFailure(refreshed, ex instanceof SmartcarException
+            ? (SmartcarException) ex
+            : new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build());
+      }
+    }
+
+    token.refreshed(refreshed);
+    if (this.tokens.remove(previous.getRefreshToken(), token)) {
+      this.tokens.put(refreshed.getRefreshToken(), token);
+      this.schedule(token, this.refreshTime(refreshed));
+    }
+    this.notifyRefresh(previous, refreshed);
+    refreshing.complete(refreshed);
+  }
+
+  private static boolean isRetryable(SmartcarException error) {
+    int statusCode = error.getStatusCode();
+    return statusCode == 0 || statusCode == 429 || statusCode >= 500;
+  }
+
+  private void notifyRefresh(Auth previous, Auth refreshed) {
+    if (this.listener == null) {
+      return;
+    }
+    try {
+      this.listener.onRefresh(previous, refreshed);
+    } catch (RuntimeException ex) {
+      // A failing listener must not stop the refresh.
+    }
+  }
+
+  private void notifyFailure(Auth auth, SmartcarException error) {
+    if (this.listener == null) {
+      return;
+    }
+    try {
+      this.listener.onFailure(auth, error);
+    } catch (RuntimeException ex) {
+      // A failing listener must not stop the refresh.
+    }
+  }
+}
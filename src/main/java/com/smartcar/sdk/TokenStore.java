@@ -0,0 +1,60 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Auth;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Stores the tokens of users or vehicles under an application-chosen key (for example a user ID
+ * or vehicle ID). Implementations must be safe for concurrent use.
+ *
+ * <p>Give a store to {@link TokenManager.Builder#tokenStore} to have every refresh written to it,
+ * and to reload the tracked tokens on restart. {@link MappedTokenStore} is a file-backed
+ * implementation; other implementations can wrap a database or a secrets service.
+ */
+public interface TokenStore extends AutoCloseable {
+  /**
+   * Stores the tokens under the key, replacing any previous tokens. When this method returns the
+   * tokens must be readable by {@link #get}, including after a crash of the process.
+   *
+   * @param key the key
+   * @param auth the tokens
+   * @throws SmartcarException if the tokens cannot be stored
+   */
+  void put(String key, Auth auth) throws SmartcarException;
+
+  /**
+   * Returns the tokens stored under the key.
+   *
+   * @param key the key
+   * @return the tokens, or null if there are none
+   * @throws SmartcarException if the tokens cannot be read
+   */
+  Auth get(String key) throws SmartcarException;
+
+  /**
+   * Removes the tokens stored under the key, if any.
+   *
+   * @param key the key
+   * @throws SmartcarException if the tokens cannot be removed
+   */
+  void remove(String key) throws SmartcarException;
+
+  /**
+   * Calls the action with every key and its tokens.
+   *
+   * @param action the action
+   * @throws SmartcarException if the tokens cannot be read
+   */
+  void forEach(BiConsumer<String, Auth> action) throws SmartcarException;
+
+  /**
+   * Returns the number of stored keys.
+   *
+   * @return the key count
+   */
+  int size();
+
+  @Override
+  void close() throws SmartcarException;
+}
@@ -4,15 +4,15 @@ import com.smartcar.sdk.data.*;
 import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import okhttp3.Response;
 
 import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /** Smartcar Vehicle API Object */
 public class Vehicle {
@@ -23,9 +23,11 @@ public class Vehicle {
 
   private final String vehicleId;
   private final String accessToken;
+  private final TokenManager.ManagedToken token;
   private Vehicle.UnitSystem unitSystem;
   private final String version;
   private final String origin;
+  private final SmartcarClient client;
   private ApplicationPermissions permissions;
 
   /**
@@ -45,11 +47,67 @@ public class Vehicle {
    * @param options optional arguments provided with a SmartcarVehicleOptions instance
    */
   public Vehicle(String vehicleId, String accessToken, SmartcarVehicleOptions options) {
+    this(vehicleId, accessToken, null, options);
+  }
+
+  /**
+   * Initializes a new Vehicle whose access token is kept valid by a TokenManager.
+   *
+   * @param vehicleId the vehicle ID
+   * @param token the tracked token, from {@link TokenManager#track}
+   */
+  public Vehicle(String vehicleId, TokenManager.ManagedToken token) {
+    this(vehicleId, token, new SmartcarVehicleOptions.Builder().build());
+  }
+
+  /**
+   * Initializes a new Vehicle whose access token is kept valid by a TokenManager, with provided
+   * options.
+   *
+   * @param vehicleId the vehicle ID
+   * @param token the tracked token, from {@link TokenManager#track}
+   * @param options optional arguments provided with a SmartcarVehicleOptions instance
+   */
+  public Vehicle(String vehicleId, TokenManager.ManagedToken token, SmartcarVehicleOptions options) {
+    this(vehicleId, null, token, options);
+  }
+
+  private Vehicle(
+      String vehicleId, String accessToken, TokenManager.ManagedToken token, SmartcarVehicleOptions options) {
     this.vehicleId = vehicleId;
     this.accessToken = accessToken;
+    this.token = token;
     this.version = options.getVersion();
     this.unitSystem = options.getUnitSystem();
     this.origin = options.getOrigin();
+    this.client = options.getClient();
+  }
+
+  /**
+   * Returns the access token to send, from the TokenManager if the vehicle has a managed token.
+   *
+   * @return the access token
+   * @throws SmartcarException if the managed token had to be refreshed and the refresh failed
+   */
+  private String accessToken() throws SmartcarException {
+    return this.token != null ? this.token.getAccessToken() : this.accessToken;
+  }
+
+  /**
+   * Starts a request once a valid access token is available, without blocking.
+   *
+   * @param call starts the request with the access token
+   * @return a future for the result of the request
+   */
+  private <T> CompletableFuture<T> withAccessToken(Function<String, CompletableFuture<T>> call) {
+    if (this.token == null) {
+      return call.apply(this.accessToken);
+    }
+    CompletableFuture<String> accessToken = this.token.getAccessTokenAsync();
+    if (accessToken.isDone() && !accessToken.isCompletedExceptionally()) {
+      return call.apply(accessToken.join());
+    }
+    return accessToken.thenCompose(call);
   }
 
   /**
@@ -61,39 +119,27 @@ public class Vehicle {
   }
 
   /**
-   * Executes an API request under the VehicleIds endpoint.
+   * Builds an API request under the VehicleIds endpoint.
    *
    * @param path the path to the sub-endpoint
    * @param method the method of the request
    * @param body the body of the request
-   * @param type the type into which the response will be parsed
-   * @return the parsed response
-   * @throws SmartcarException if the request is unsuccessful
+   * @param query the query parameters of the request
+   * @param accessToken the access token to authorize the request with
+   * @return the request
    */
-  protected <T extends ApiData> T call(
-      String path, String method, RequestBody body, String accessToken, Class<T> type) throws SmartcarException {
-    HttpUrl url =
-        HttpUrl.parse(this.origin)
-            .newBuilder().addPathSegments("v" + this.version)
-            .addPathSegments("vehicles")
-            .addPathSegments(this.vehicleId)
-            .addPathSegments(path)
-            .build();
-
-    Map<String, String> headers = new HashMap<>();
-    headers.put("Authorization", "Bearer " + accessToken);
-    headers.put("sc-unit-system", this.unitSystem.name().toLowerCase());
-    Request request = ApiClient.buildRequest(url, method, body, headers);
-
-    return ApiClient.execute(request, type);
+  private Request buildRequest(
+      String path, String method, RequestBody body, Map<String, String> query, String accessToken) {
+    return this.buildRequest(path, method, body, query, accessToken, this.unitSystem);
   }
 
-  protected <T extends ApiData> T call(String path, String method, RequestBody body, Class<T> type) throws SmartcarException{
-    return this.call(path, method, body, this.accessToken, type);
-  }
-
-  protected <T extends ApiData> T call(String path, String method, RequestBody body, Map<String, String> query, Class<T> type)
-  throws SmartcarException {
+  private Request buildRequest(
+      String path,
+      String method,
+      RequestBody body,
+      Map<String, String> query,
+      String accessToken,
+      Vehicle.UnitSystem unitSystem) {
     HttpUrl.Builder urlBuilder =
             HttpUrl.parse(this.origin)
                     .newBuilder()
@@ -108,12 +154,154 @@ public class Vehicle {
 
     HttpUrl url = urlBuilder.build();
 
+    Map<String, String> headers = new HashMap<>();
+    headers.put("Authorization", "Bearer " + accessToken);
+    headers.put("sc-unit-system", unitSystem.name().toLowerCase());
+    RequestTag tag = new RequestTag(this.vehicleId, RequestTag.normalizePath(path));
+    return ApiClient.buildRequest(url, method, body, headers, tag);
+  }
+
+  /**
+   * Builds a general purpose request under the VehicleIds endpoint.
+   *
+   * @param vehicleRequest with options for this request
+   * @param accessToken the access token to authorize the request with
+   * @return the request
+   */
+  private Request buildRequest(SmartcarVehicleRequest vehicleRequest, String accessToken) {
+    HttpUrl.Builder urlBuilder =
+            HttpUrl.parse(this.origin)
+                    .newBuilder()
+                    .addPathSegments("v" + this.version)
+                    .addPathSegments("vehicles")
+                    .addPathSegments(this.vehicleId)
+                    .addPathSegments(vehicleRequest.getPath());
+
+    if (vehicleRequest.getFlags() != null) {
+      urlBuilder.addQueryParameter("flags", vehicleRequest.getFlags());
+    }
+
+    HttpUrl url = urlBuilder.build();
+
     Map<String, String> headers = new HashMap<>();
     headers.put("Authorization", "Bearer " + accessToken);
     headers.put("sc-unit-system", this.unitSystem.name().toLowerCase());
-    Request request = ApiClient.buildRequest(url, method, body, headers);
 
-    return ApiClient.execute(request, type);
+    // Overrides generated headers
+    headers.putAll(vehicleRequest.getHeaders());
+
+    return ApiClient.buildRequest(url,
+            vehicleRequest.getMethod(),
+            vehicleRequest.getBody(),
+            headers,
+            new RequestTag(this.vehicleId, RequestTag.normalizePath(vehicleRequest.getPath())));
+  }
+
+  /**
+   * Executes an API request under the VehicleIds endpoint.
+   *
+   * @param path the path to the sub-endpoint
+   * @param method the method of the request
+   * @param body the body of the request
+   * @param type the type into which the response will be parsed
+   * @return the parsed response
+   * @throws SmartcarException if the request is unsuccessful
+   */
+  protected <T extends ApiData> T call(
+      String path, String method, RequestBody body, String accessToken, Class<T> type) throws SmartcarException {
+    if (this.isAutoBatched(path, method, Collections.emptyMap())) {
+      return RequestCoalescer.await(this.autoBatch(path, accessToken, type));
+    }
+    Request request = this.buildRequest(path, method, body, Collections.emptyMap(), accessToken);
+
+    return ApiClient.execute(this.client, request, type);
+  }
+
+  protected <T extends ApiData> T call(String path, String method, RequestBody body, Class<T> type) throws SmartcarException{
+    return this.call(path, method, body, this.accessToken(), type);
+  }
+
+  protected <T extends ApiData> T call(String path, String method, RequestBody body, Map<String, String> query, Class<T> type)
+  throws SmartcarException {
+    Request request = this.buildRequest(path, method, body, query, this.accessToken());
+
+    return ApiClient.execute(this.client, request, type);
+  }
+
+  /**
+   * Executes an API request under the VehicleIds endpoint without blocking the calling thread.
+   *
+   * @param path the path to the sub-endpoint
+   * @param method the method of the request
+   * @param body the body of the request
+   * @param query the query parameters of the request
+   * @param accessToken the access token to authorize the request with
+   * @param type the type into which the response will be parsed
+   * @return a future for the parsed response, completed exceptionally with a SmartcarException if
+   *     the request is unsuccessful
+   */
+  protected <T extends ApiData> CompletableFuture<T> callAsync(
+      String path, String method, RequestBody body, Map<String, String> query, String accessToken, Class<T> type) {
+    if (this.isAutoBatched(path, method, query)) {
+      return this.autoBatch(path, accessToken, type);
+    }
+    Request request = this.buildRequest(path, method, body, query, accessToken);
+
+    return ApiClient.executeAsync(this.client, request, type);
+  }
+
+  protected <T extends ApiData> CompletableFuture<T> callAsync(
+      String path, String method, RequestBody body, Class<T> type) {
+    return this.withAccessToken(
+        (accessToken) -> this.callAsync(path, method, body, Collections.emptyMap(), accessToken, type));
+  }
+
+  private boolean isAutoBatched(String path, String method, Map<String, String> query) {
+    return this.client.getAutoBatcher() != null
+        && method.equals("GET")
+        && query.isEmpty()
+        && AutoBatcher.isBatchable(RequestTag.normalizePath(path));
+  }
+
+  /**
+   * Adds a read to the open /batch request of this vehicle, access token and unit system.
+   *
+   * @param path the path to the sub-endpoint
+   * @param accessToken the access token to authorize the request with
+   * @param type the type into which the sub-response will be parsed
+   * @return a future for the parsed sub-response
+   */
+  private <T extends ApiData> CompletableFuture<T> autoBatch(
+      String path, String accessToken, Class<T> type) {
+    String key = String.join(
+        " ", this.origin, this.version, this.vehicleId, this.unitSystem.name(), accessToken);
+    Vehicle.UnitSystem unitSystem = this.unitSystem;
+    return this.client.getAutoBatcher().submit(
+        key,
+        RequestTag.normalizePath(path),
+        type,
+        (paths) -> {
+          Request request = this.buildRequest(
+              "batch", "POST", BatchRequest.body(paths), Collections.emptyMap(), accessToken, unitSystem);
+          return ApiClient.executeAsync(this.client, request, BatchResponse.class)
+              .thenApply((batchResponse) -> {
+                batchResponse.setRequestId(batchResponse.getMeta().getRequestId());
+                batchResponse.setStackTraceFreeTypes(this.client.getStackTraceFreeTypes());
+                return batchResponse;
+              });
+        });
+  }
+
+  /**
+   * Builds the JSON body for the /security and /charge action endpoints.
+   *
+   * @param action the action to perform
+   * @return the request body
+   */
+  private static RequestBody actionBody(String action) {
+    JsonObject json = Json.createObjectBuilder().add("action", action).build();
+
+    return RequestBody.create(json.toString(), ApiClient.JSON);
   }
 
   /**
@@ -126,6 +314,16 @@ public class Vehicle {
     return this.call("", "GET", null, VehicleAttributes.class);
   }
 
+  /**
+   * Send request to the / endpoint without blocking the calling thread
+   *
+   * @return a future for the VehicleAttributes object, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleAttributes> attributesAsync() {
+    return this.callAsync("", "GET", null, VehicleAttributes.class);
+  }
+
   /**
    * Send request to the /vin endpoint
    *
@@ -136,6 +334,16 @@ public class Vehicle {
     return this.call("vin", "GET", null, VehicleVin.class);
   }
 
+  /**
+   * Send request to the /vin endpoint without blocking the calling thread
+   *
+   * @return a future for the vin of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleVin> vinAsync() {
+    return this.callAsync("vin", "GET", null, VehicleVin.class);
+  }
+
   /**
    * Send request to the /permissions endpoint
    *
@@ -152,6 +360,21 @@ public class Vehicle {
     return this.permissions;
   }
 
+  /**
+   * Send request to the /permissions endpoint without blocking the calling thread
+   *
+   * @return a future for the permissions of the application, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<ApplicationPermissions> permissionsAsync() {
+    if (this.permissions != null) {
+      return CompletableFuture.completedFuture(this.permissions);
+    }
+
+    return this.callAsync("permissions", "GET", null, ApplicationPermissions.class)
+        .thenApply((permissions) -> this.permissions = permissions);
+  }
+
   /**
    * Send request to the /permissions endpoint with paging options set
    *
@@ -168,6 +391,24 @@ public class Vehicle {
     return this.permissions;
   }
 
+  /**
+   * Send request to the /permissions endpoint with paging options set without blocking the
+   * calling thread
+   *
+   * @param paging Request paging options
+   * @return a future for the permissions of the application, completed exceptionally with a
+   *     SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<ApplicationPermissions> permissionsAsync(RequestPaging paging) {
+    Map<String, String> pagingQuery = new HashMap<String, String>();
+    pagingQuery.put("limit", String.valueOf(paging.getLimit()));
+    pagingQuery.put("offset", String.valueOf(paging.getOffset()));
+
+    return this.withAccessToken((accessToken) -> this.callAsync(
+            "permissions", "GET", null, pagingQuery, accessToken, ApplicationPermissions.class))
+        .thenApply((permissions) -> this.permissions = permissions);
+  }
+
   /**
    * Send request to the /disconnect endpoint
    *
@@ -178,6 +419,16 @@ public class Vehicle {
     return this.call("application", "DELETE", null, DisconnectResponse.class);
   }
 
+  /**
+   * Send request to the /disconnect endpoint without blocking the calling thread
+   *
+   * @return a future for a response indicating success, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<DisconnectResponse> disconnectAsync() {
+    return this.callAsync("application", "DELETE", null, DisconnectResponse.class);
+  }
+
   /**
    * Send request to the /odometer endpoint
    *
@@ -188,6 +439,16 @@ public class Vehicle {
     return this.call("odometer", "GET", null, VehicleOdometer.class);
   }
 
+  /**
+   * Send request to the /odometer endpoint without blocking the calling thread
+   *
+   * @return a future for the odometer of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleOdometer> odometerAsync() {
+    return this.callAsync("odometer", "GET", null, VehicleOdometer.class);
+  }
+
   /**
    * Send request to the /fuel endpoint
    *
@@ -198,6 +459,16 @@ public class Vehicle {
     return this.call("fuel", "GET", null, VehicleFuel.class);
   }
 
+  /**
+   * Send request to the /fuel endpoint without blocking the calling thread
+   *
+   * @return a future for the fuel status of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleFuel> fuelAsync() {
+    return this.callAsync("fuel", "GET", null, VehicleFuel.class);
+  }
+
   /**
    * Send request to the /engine/oil endpoint
    *
@@ -208,6 +479,16 @@ public class Vehicle {
     return this.call("engine/oil", "GET", null, VehicleEngineOil.class);
   }
 
+  /**
+   * Send request to the /engine/oil endpoint without blocking the calling thread
+   *
+   * @return a future for the engine oil status of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleEngineOil> engineOilAsync() {
+    return this.callAsync("engine/oil", "GET", null, VehicleEngineOil.class);
+  }
+
   /**
    * Send request to the /tires/pressure endpoint
    *
@@ -218,6 +499,16 @@ public class Vehicle {
     return this.call("tires/pressure", "GET", null, VehicleTirePressure.class);
   }
 
+  /**
+   * Send request to the /tires/pressure endpoint without blocking the calling thread
+   *
+   * @return a future for the tire pressure status of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleTirePressure> tirePressureAsync() {
+    return this.callAsync("tires/pressure", "GET", null, VehicleTirePressure.class);
+  }
+
   /**
    * Send request to the /battery endpoint
    *
@@ -228,6 +519,16 @@ public class Vehicle {
     return this.call("battery", "GET", null, VehicleBattery.class);
   }
 
+  /**
+   * Send request to the /battery endpoint without blocking the calling thread
+   *
+   * @return a future for the battery status of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleBattery> batteryAsync() {
+    return this.callAsync("battery", "GET", null, VehicleBattery.class);
+  }
+
   /**
    * Send request to the /battery/capacity endpoint
    *
@@ -238,6 +539,16 @@ public class Vehicle {
     return this.call("battery/capacity", "GET", null, VehicleBatteryCapacity.class);
   }
 
+  /**
+   * Send request to the /battery/capacity endpoint without blocking the calling thread
+   *
+   * @return a future for the battery capacity of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleBatteryCapacity> batteryCapacityAsync() {
+    return this.callAsync("battery/capacity", "GET", null, VehicleBatteryCapacity.class);
+  }
+
   /**
    * Send request to the /charge endpoint
    *
@@ -248,6 +559,16 @@ public class Vehicle {
     return this.call("charge", "GET", null, VehicleCharge.class);
   }
 
+  /**
+   * Send request to the /charge endpoint without blocking the calling thread
+   *
+   * @return a future for the charge status of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleCharge> chargeAsync() {
+    return this.callAsync("charge", "GET", null, VehicleCharge.class);
+  }
+
   /**
    * Send request to the /location endpoint
    *
@@ -258,6 +579,16 @@ public class Vehicle {
     return this.call("location", "GET", null, VehicleLocation.class);
   }
 
+  /**
+   * Send request to the /location endpoint without blocking the calling thread
+   *
+   * @return a future for the location of the vehicle, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleLocation> locationAsync() {
+    return this.callAsync("location", "GET", null, VehicleLocation.class);
+  }
+
   /**
    * Send request to the /security endpoint to unlock a vehicle
    *
@@ -265,11 +596,17 @@ public class Vehicle {
    * @throws SmartcarException if the request is unsuccessful
    */
   public ActionResponse unlock() throws SmartcarException {
-    JsonObject json = Json.createObjectBuilder().add("action", "UNLOCK").build();
-
-    RequestBody body = RequestBody.create(ApiClient.JSON, json.toString());
+    return this.call("security", "POST", actionBody("UNLOCK"), ActionResponse.class);
+  }
 
-    return this.call("security", "POST", body, ActionResponse.class);
+  /**
+   * Send request to the /security endpoint to unlock a vehicle without blocking the calling thread
+   *
+   * @return a future for a response indicating success, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<ActionResponse> unlockAsync() {
+    return this.callAsync("security", "POST", actionBody("UNLOCK"), ActionResponse.class);
   }
 
   /**
@@ -279,11 +616,17 @@ public class Vehicle {
    * @throws SmartcarException if the request is unsuccessful
    */
   public ActionResponse lock() throws SmartcarException {
-    JsonObject json = Json.createObjectBuilder().add("action", "LOCK").build();
-
-    RequestBody body = RequestBody.create(ApiClient.JSON, json.toString());
+    return this.call("security", "POST", actionBody("LOCK"), ActionResponse.class);
+  }
 
-    return this.call("security", "POST", body, ActionResponse.class);
+  /**
+   * Send request to the /security endpoint to lock a vehicle without blocking the calling thread
+   *
+   * @return a future for a response indicating success, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<ActionResponse> lockAsync() {
+    return this.callAsync("security", "POST", actionBody("LOCK"), ActionResponse.class);
   }
 
   /**
@@ -293,11 +636,17 @@ public class Vehicle {
    * @throws SmartcarException if the request is unsuccessful
    */
   public ActionResponse startCharge() throws SmartcarException {
-    JsonObject json = Json.createObjectBuilder().add("action", "START").build();
-
-    RequestBody body = RequestBody.create(ApiClient.JSON, json.toString());
+    return this.call("charge", "POST", actionBody("START"), ActionResponse.class);
+  }
 
-    return this.call("charge", "POST", body, ActionResponse.class);
+  /**
+   * Send request to the /charge endpoint to start charging a vehicle without blocking the calling thread
+   *
+   * @return a future for a response indicating success, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<ActionResponse> startChargeAsync() {
+    return this.callAsync("charge", "POST", actionBody("START"), ActionResponse.class);
   }
 
   /**
@@ -307,11 +656,17 @@ public class Vehicle {
    * @throws SmartcarException if the request is unsuccessful
    */
   public ActionResponse stopCharge() throws SmartcarException {
-    JsonObject json = Json.createObjectBuilder().add("action", "STOP").build();
-
-    RequestBody body = RequestBody.create(ApiClient.JSON, json.toString());
+    return this.call("charge", "POST", actionBody("STOP"), ActionResponse.class);
+  }
 
-    return this.call("charge", "POST", body, ActionResponse.class);
+  /**
+   * Send request to the /charge endpoint to stop charging a vehicle without blocking the calling thread
+   *
+   * @return a future for a response indicating success, completed exceptionally
+   *     with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<ActionResponse> stopChargeAsync() {
+    return this.callAsync("charge", "POST", actionBody("STOP"), ActionResponse.class);
   }
 
   /**
@@ -325,6 +680,17 @@ public class Vehicle {
     return this.call("webhooks/" + webhookId, "POST", body, WebhookSubscription.class);
   }
 
+  /**
+   * Subscribe vehicle to a webhook without blocking the calling thread
+   *
+   * @return a future for information about the webhook and vehicle subscription, completed
+   *     exceptionally with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<WebhookSubscription> subscribeAsync(String webhookId) {
+    RequestBody body = RequestBody.create(new byte[]{}, null);
+    return this.callAsync("webhooks/" + webhookId, "POST", body, WebhookSubscription.class);
+  }
+
   /**
    * Unsubscribe vehicle from a webhook
    *
@@ -335,6 +701,17 @@ public class Vehicle {
     return this.call("webhooks/" + webhookId, "DELETE", null, applicationManagementToken, UnsubscribeResponse.class);
   }
 
+  /**
+   * Unsubscribe vehicle from a webhook without blocking the calling thread
+   *
+   * @return a future for a response indicating successful removal from the subscription,
+   *     completed exceptionally with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<UnsubscribeResponse> unsubscribeAsync(String applicationManagementToken, String webhookId) {
+    return this.callAsync("webhooks/" + webhookId, "DELETE", null, Collections.emptyMap(),
+        applicationManagementToken, UnsubscribeResponse.class);
+  }
+
   /**
    * Send request to the /batch endpoint
    *
@@ -343,22 +720,80 @@ public class Vehicle {
    * @throws SmartcarException if the request is unsuccessful
    */
   public BatchResponse batch(String[] paths) throws SmartcarException {
+    BatchResponse batchResponse =
+        this.call("batch", "POST", BatchRequest.body(paths), BatchResponse.class);
+    batchResponse.setRequestId(batchResponse.getMeta().getRequestId());
+    batchResponse.setStackTraceFreeTypes(this.client.getStackTraceFreeTypes());
+    return batchResponse;
+  }
 
-    JsonArrayBuilder endpoints = Json.createArrayBuilder();
-    for (String path : paths) {
-      endpoints.add(Json.createObjectBuilder().add("path", path).build());
-    }
-    JsonArray requests = endpoints.build();
+  /**
+   * Send a typed batch request to the /batch endpoint
+   *
+   * @param request the endpoints to request
+   * @return the BatchResponse object containing the response from all the requested endpoints,
+   *     which can be decoded with {@link BatchResponse#get(Endpoint)}
+   * @throws SmartcarException if the request is unsuccessful
+   */
+  public BatchResponse batch(BatchRequest request) throws SmartcarException {
+    BatchResponse batchResponse = this.call("batch", "POST", request.body(), BatchResponse.class);
+    batchResponse.setRequestId(batchResponse.getMeta().getRequestId());
+    batchResponse.setStackTraceFreeTypes(this.client.getStackTraceFreeTypes());
+    return batchResponse;
+  }
 
-    JsonObject json = Json.createObjectBuilder().add("requests", requests).build();
+  /**
+   * Send request to the /batch endpoint without blocking the calling thread
+   *
+   * @param paths the paths of endpoints to send requests to (ex. "/odometer", "/location", ...)
+   * @return a future for the BatchResponse object containing the response from all the requested
+   *     endpoints, completed exceptionally with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<BatchResponse> batchAsync(String[] paths) {
+    return this.batchAsync(BatchRequest.body(paths));
+  }
 
-    ApiClient.gson.registerTypeAdapter(BatchResponse.class, new BatchDeserializer());
-    RequestBody body = RequestBody.create(ApiClient.JSON, json.toString());
-    BatchResponse response =
-        this.call("batch", "POST", body, BatchResponse.class);
-    BatchResponse batchResponse = response;
-    batchResponse.setRequestId(response.getMeta().getRequestId());
-    return batchResponse;
+  /**
+   * Send a typed batch request to the /batch endpoint without blocking the calling thread
+   *
+   * @param request the endpoints to request
+   * @return a future for the BatchResponse object containing the response from all the requested
+   *     endpoints, completed exceptionally with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<BatchResponse> batchAsync(BatchRequest request) {
+    return this.batchAsync(request.body());
+  }
+
+  /**
+   * Send a typed batch request to the /batch endpoint, parsing the response as it is received
+   *
+   * @param request the endpoints to request
+   * @return the response, whose future for each endpoint completes as soon as that endpoint's part
+   *     of the body has been read
+   */
+  public StreamingBatchResponse batchStream(BatchRequest request) {
+    StreamingBatchResponse response = new StreamingBatchResponse(request, this.client.getStackTraceFreeTypes());
+    response.start(this.withAccessToken((accessToken) -> {
+      Request httpRequest =
+          this.buildRequest("batch", "POST", request.body(), Collections.emptyMap(), accessToken);
+      return ApiClient.executeAsync(this.client, httpRequest, response::parse);
+    }));
+    return response;
+  }
+
+  private CompletableFuture<BatchResponse> batchAsync(RequestBody body) {
+    CompletableFuture<BatchResponse> call = this.callAsync("batch", "POST", body, BatchResponse.class);
+    CompletableFuture<BatchResponse> result = call.thenApply((batchResponse) -> {
+      batchResponse.setRequestId(batchResponse.getMeta().getRequestId());
+      batchResponse.setStackTraceFreeTypes(this.client.getStackTraceFreeTypes());
+      return batchResponse;
+    });
+    result.whenComplete((batchResponse, ex) -> {
+      if (result.isCancelled()) {
+        call.cancel(true);
+      }
+    });
+    return result;
   }
 
   /**
@@ -370,37 +805,21 @@ public class Vehicle {
    * @throws SmartcarException if the request is unsuccessful
    */
   public VehicleResponse request(SmartcarVehicleRequest vehicleRequest) throws SmartcarException, IOException {
-    HttpUrl.Builder urlBuilder =
-            HttpUrl.parse(this.origin)
-                    .newBuilder()
-                    .addPathSegments("v" + this.version)
-                    .addPathSegments("vehicles")
-                    .addPathSegments(this.vehicleId)
-                    .addPathSegments(vehicleRequest.getPath());
-
-    if (vehicleRequest.getFlags() != null) {
-      urlBuilder.addQueryParameter("flags", vehicleRequest.getFlags());
-    }
-
-    HttpUrl url = urlBuilder.build();
-
-    Map<String, String> headers = new HashMap<>();
-    headers.put("Authorization", "Bearer " + accessToken);
-    headers.put("sc-unit-system", this.unitSystem.name().toLowerCase());
-
-    // Overrides generated headers
-    headers.putAll(vehicleRequest.getHeaders());
-
-    Request request = ApiClient.buildRequest(url,
-            vehicleRequest.getMethod(),
-            vehicleRequest.getBody(),
-            headers);
-
-    ApiClient.gson.registerTypeAdapter(VehicleResponse.class, new VehicleResponseDeserializer());
-
-    VehicleResponse vehicleResponse = ApiClient.execute(request, VehicleResponse.class);
+    return ApiClient.execute(
+        this.client, this.buildRequest(vehicleRequest, this.accessToken()), VehicleResponse.class);
+  }
 
-    return vehicleResponse;
+  /**
+   * General purpose method to make a request to a Smartcar endpoint without blocking the calling
+   * thread - can be used to make requests to brand specific endpoints.
+   *
+   * @param vehicleRequest with options for this request. See Smartcar.SmartcarVehicleRequest
+   * @return a future for the VehicleResponse object containing the response from the requested
+   *     endpoint, completed exceptionally with a SmartcarException if the request is unsuccessful
+   */
+  public CompletableFuture<VehicleResponse> requestAsync(SmartcarVehicleRequest vehicleRequest) {
+    return this.withAccessToken((accessToken) -> ApiClient.executeAsync(
+        this.client, this.buildRequest(vehicleRequest, accessToken), VehicleResponse.class));
   }
 
   /**
@@ -0,0 +1,406 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Compatibility;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers compatibility checks locally for VINs that cannot be compatible, before any request is
+ * made.
+ *
+ * <p>A VIN is rejected if it is not 17 valid characters, if its check digit is wrong, if its
+ * manufacturer prefix is not in the index, or if its model year is outside the range the index
+ * gives for its prefix. The check digit and the model year are only checked for the regions that
+ * mandate them, North America by default; elsewhere position 10 need not be a year code, so the
+ * year range of a prefix does not apply. A year code that does not decode is not held against
+ * the VIN either. Every other VIN passes and is sent to {@link Smartcar#getCompatibility}, or to a
+ * {@link CompatibilityCache}. Requests in test mode are never screened.
+ *
+ * <p>The index is a text file with one entry per line: a prefix of the VIN of three (the WMI) to
+ * eight characters (the WMI and the VDS), optionally followed by the first and last supported
+ * model years. A prefix starting with "!" marks vehicles that are not supported. The longest
+ * matching prefix wins. Blank lines and lines starting with "#" are ignored.
+ *
+ * <pre>
+ * # Tesla, 2012 and later, except the Roadster
+ * 5YJ 2012
+ * !5YJR
+ * # BMW
+ * WBA 2014 2030
+ * </pre>
+ *
+ * <p>The prefixes are held in a sorted array and looked up by binary search. {@link #reload()}
+ * reads the file again and swaps the new index in atomically.
+ */
+public final class VinPrescreener {
+  private static final String YEAR_CODES = "ABCDEFGHJKLMNPRSTVWXY123456789";
+  private static final int[] WEIGHTS = {8, 7, 6, 5, 4, 3, 2, 10, 0, 9, 8, 7, 6, 5, 4, 3, 2};
+
+  private final Path path;
+  private final String checkDigitRegions;
+  private final CompatibilityCache cache;
+  private volatile Index index;
+
+  /** The outcome of screening a VIN. */
+  public enum Outcome {
+    /** The VIN may be compatible and must be checked with the API. */
+    PASS,
+    /** The VIN is malformed or its check digit is wrong. */
+    INVALID_VIN,
+    /** The index has no supported prefix for the VIN. */
+    UNSUPPORTED_MAKE,
+    /** The model year of the VIN is outside the range supported for its prefix. */
+    UNSUPPORTED_MODEL_YEAR
+  }
+
+  public static class Builder {
+    private Path path;
+    private Reader reader;
+    private String checkDigitRegions;
+    private CompatibilityCache cache;
+
+    public Builder() {
+      this.path = null;
+      this.reader = null;
+      this.checkDigitRegions = "12345";
+      this.cache = null;
+    }
+
+    /**
+     * Loads the index from a file, which {@link VinPrescreener#reload()} reads again.
+     *
+     * @param path the index file
+     * @return this builder
+     */
+    public Builder index(Path path) {
+      this.path = path;
+      this.reader = null;
+      return this;
+    }
+
+    /**
+     * Loads the index from a reader, which is read once when the prescreener is built.
+     *
+     * @param reader the index
+     * @return this builder
+     */
+    public Builder index(Reader reader) {
+      this.reader = reader;
+      this.path = null;
+      return this;
+    }
+
+    /**
+     * Sets the first characters of the VINs whose check digit and model year are verified.
+     * Defaults to "12345", the North American regions, where both are mandatory.
+     *
+     * @param regions the first VIN characters of the checked regions
+     * @return this builder
+     */
+    public Builder checkDigitRegions(String regions) {
+      this.checkDigitRegions = regions;
+      return this;
+    }
+
+    /**
+     * Sends the VINs that pass through the given cache.
+     *
+     * @param cache the cache to use
+     * @return this builder
+     */
+    public Builder cache(CompatibilityCache cache) {
+      this.cache = cache;
+      return this;
+    }
+
+    /**
+     * Builds the prescreener, loading its index.
+     *
+     * @return the prescreener
+     * @throws SmartcarException if no index was given or it cannot be read
+     */
+    public VinPrescreener build() throws SmartcarException {
+      if (this.path == null && this.reader == null) {
+        throw new SmartcarException.Builder()
+            .type("SDK_ERROR")
+            .description("A VIN prefix index is required")
+            .build();
+      }
+      return new VinPrescreener(this);
+    }
+  }
+
+  private VinPrescreener(Builder builder) throws SmartcarException {
+    this.path = builder.path;
+    this.checkDigitRegions = builder.checkDigitRegions;
+    this.cache = builder.cache;
+    this.index = this.path != null ? VinPrescreener.read(this.path) : VinPrescreener.read(builder.reader);
+  }
+
+  /**
+   * Reads the index file again and replaces the index. Screens running concurrently use either
+   * the old or the new index. If the file cannot be read, the old index is kept.
+   *
+   * @throws SmartcarException if the prescreener was built from a reader, or the file cannot be
+   *     read
+   */
+  public void reload() throws SmartcarException {
+    if (this.path == null) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("The VIN prefix index was not loaded from a file")
+          .build();
+    }
+    this.index = VinPrescreener.read(this.path);
+  }
+
+  /** @return the number of prefixes in the index */
+  public int size() {
+    return this.index.prefixes.length;
+  }
+
+  /**
+   * Screens a VIN without making any request.
+   *
+   * @param vin the VIN, in any case
+   * @return the outcome
+   */
+  public Outcome screen(String vin) {
+    if (vin == null) {
+      return Outcome.INVALID_VIN;
+    }
+    String normalized = vin.trim().toUpperCase(Locale.ROOT);
+    if (!this.isValid(normalized)) {
+      return Outcome.INVALID_VIN;
+    }
+
+    Index index = this.index;
+    int entry = index.find(normalized);
+    if (entry < 0 || index.excluded[entry]) {
+      return Outcome.UNSUPPORTED_MAKE;
+    }
+    int minYear = index.minYears[entry];
+    int maxYear = index.maxYears[entry];
+    if (minYear == 0 && maxYear == Short.MAX_VALUE
+        || this.checkDigitRegions.indexOf(normalized.charAt(0)) < 0) {
+      return Outcome.PASS;
+    }
+    int[] years = VinPrescreener.modelYears(normalized, Year.now().getValue());
+    if (years.length == 0) {
+      return Outcome.PASS;
+    }
+    for (int year : years) {
+      if (year >= minYear && year <= maxYear) {
+        return Outcome.PASS;
+      }
+    }
+    return Outcome.UNSUPPORTED_MODEL_YEAR;
+  }
+
+  /**
+   * Determines if a vehicle is compatible, answering locally when the VIN fails screening. See
+   * {@link Smartcar#getCompatibility(SmartcarCompatibilityRequest)}.
+   *
+   * @param request with options for this request
+   * @return the Compatibility object
+   * @throws SmartcarException if the VIN passes screening and the request is unsuccessful
+   */
+  public Compatibility getCompatibility(SmartcarCompatibilityRequest request) throws SmartcarException {
+    return RequestCoalescer.await(this.getCompatibilityAsync(request));
+  }
+
+  /**
+   * Determines if a vehicle is compatible without blocking the calling thread. See
+   * {@link #getCompatibility(SmartcarCompatibilityRequest)}.
+   *
+   * @param request with options for this request
+   * @return a future for the Compatibility object, completed exceptionally with a
+   *     SmartcarException if the VIN passes screening and the request is unsuccessful
+   */
+  public CompletableFuture<Compatibility> getCompatibilityAsync(SmartcarCompatibilityRequest request) {
+    if (!request.getTestMode()) {
+      Compatibility local = VinPrescreener.answer(this.screen(request.getVin()));
+      if (local != null) {
+        return CompletableFuture.completedFuture(local);
+      }
+    }
+    return this.cache != null ? this.cache.getAsync(request) : Smartcar.getCompatibilityAsync(request);
+  }
+
+  /**
+   * Returns the local answer for an outcome.
+   *
+   * @param outcome the outcome of screening a VIN
+   * @return an incompatible Compatibility without capabilities, or null if the VIN passed
+   */
+  static Compatibility answer(Outcome outcome) {
+    switch (outcome) {
+      case PASS:
+        return null;
+      case UNSUPPORTED_MAKE:
+        return new Compatibility(false, "MAKE_NOT_COMPATIBLE", new Compatibility.Capability[0]);
+      default:
+        return new Compatibility(false, "VEHICLE_NOT_COMPATIBLE", new Compatibility.Capability[0]);
+    }
+  }
+
+  private boolean isValid(String vin) {
+    if (vin.length() != 17) {
+      return false;
+    }
+    int sum = 0;
+    for (int i = 0; i < 17; i++) {
+      int value = VinPrescreener.transliterate(vin.charAt(i));
+      if (value < 0) {
+        return false;
+      }
+      sum += value * WEIGHTS[i];
+    }
+    if (this.checkDigitRegions.indexOf(vin.charAt(0)) < 0) {
+      return true;
+    }
+    int remainder = sum % 11;
+    return vin.charAt(8) == (remainder == 10 ? 'X' : (char) ('0' + remainder));
+  }
+
+  /** Returns the value of a VIN character in the check digit sum, or -1 if it is not allowed. */
+  private static int transliterate(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    switch (c) {
+      case 'A': case 'J': return 1;
+      case 'B': case 'K': case 'S': return 2;
+      case 'C': case 'L': case 'T': return 3;
+      case 'D': case 'M': case 'U': return 4;
+      case 'E': case 'N': case 'V': return 5;
+      case 'F': case 'W': return 6;
+      case 'G': case 'P': case 'X': return 7;
+      case 'H': case 'Y': return 8;
+      case 'R': case 'Z': return 9;
+      default: return -1;
+    }
+  }
+
+  /**
+   * Decodes the possible model years of a VIN. The year code repeats every 30 years; for North
+   * American VINs, a letter in position 7 selects the cycle starting in 2010 and a digit the one
+   * starting in 1980. Otherwise both are possible, except years after next year.
+   *
+   * @param vin a valid, upper-case VIN
+   * @param currentYear the current year
+   * @return the possible model years, empty if position 10 is not a year code
+   */
+  static int[] modelYears(String vin, int currentYear) {
+    int code = YEAR_CODES.indexOf(vin.charAt(9));
+    if (code < 0) {
+      return new int[0];
+    }
+    int early = 1980 + code;
+    int late = 2010 + code;
+    if ("12345".indexOf(vin.charAt(0)) >= 0) {
+      return new int[] {Character.isDigit(vin.charAt(6)) ? early : late};
+    }
+    return late <= currentYear + 1 ? new int[] {early, late} : new int[] {early};
+  }
+
+  private static Index read(Path path) throws SmartcarException {
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return VinPrescreener.read(reader);
+    } catch (IOException ex) {
+      throw VinPrescreener.indexError(ex.getMessage());
+    }
+  }
+
+  private static Index read(Reader input) throws SmartcarException {
+    BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+    List<String[]> lines = new ArrayList<>();
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        lines.add(line.split("[\\s,]+"));
+      }
+    } catch (IOException ex) {
+      throw VinPrescreener.indexError(ex.getMessage());
+    }
+    lines.sort(Comparator.comparing((String[] fields) -> VinPrescreener.prefix(fields[0])));
+
+    int count = lines.size();
+    String[] prefixes = new String[count];
+    boolean[] excluded = new boolean[count];
+    short[] minYears = new short[count];
+    short[] maxYears = new short[count];
+    for (int i = 0; i < count; i++) {
+      String[] fields = lines.get(i);
+      String prefix = VinPrescreener.prefix(fields[0]);
+      if (prefix.length() < 3 || prefix.length() > 8) {
+        throw VinPrescreener.indexError("prefixes must have 3 to 8 characters: " + fields[0]);
+      }
+      if (i > 0 && prefix.equals(prefixes[i - 1])) {
+        throw VinPrescreener.indexError("duplicate prefix: " + prefix);
+      }
+      prefixes[i] = prefix;
+      excluded[i] = fields[0].startsWith("!");
+      try {
+        minYears[i] = fields.length > 1 ? Short.parseShort(fields[1]) : 0;
+        maxYears[i] = fields.length > 2 ? Short.parseShort(fields[2]) : Short.MAX_VALUE;
+      } catch (NumberFormatException ex) {
+        throw VinPrescreener.indexError("invalid model year for " + prefix);
+      }
+    }
+    return new Index(prefixes, excluded, minYears, maxYears);
+  }
+
+  private static String prefix(String field) {
+    return (field.startsWith("!") ? field.substring(1) : field).toUpperCase(Locale.ROOT);
+  }
+
+  private static SmartcarException indexError(String message) {
+    return new SmartcarException.Builder()
+        .type("SDK_ERROR")
+        .description("Could not load the VIN prefix index: " + message)
+        .build();
+  }
+
+  /** Sorted prefixes and, at the same positions, their exclusion flags and model year ranges. */
+  private static final class Index {
+    private final String[] prefixes;
+    private final boolean[] excluded;
+    private final short[] minYears;
+    private final short[] maxYears;
+
+    Index(String[] prefixes, boolean[] excluded, short[] minYears, short[] maxYears) {
+      this.prefixes = prefixes;
+      this.excluded = excluded;
+      this.minYears = minYears;
+      this.maxYears = maxYears;
+    }
+
+    /** Returns the position of the longest prefix of the VIN, or -1. */
+    int find(String vin) {
+      for (int length = 8; length >= 3; length--) {
+        int position = Arrays.binarySearch(this.prefixes, vin.substring(0, length));
+        if (position >= 0) {
+          return position;
+        }
+      }
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,386 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.WebhookEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes webhook events to the handlers registered for their event name.
+ *
+ * <p>Events of the same vehicle are handled one at a time, in the order they were dispatched.
+ * Events of different vehicles are handled in parallel on the dispatcher's executor. At most
+ * queueCapacity events may be waiting or running at once; {@link #dispatch(String)} blocks while
+ * the dispatcher is full, and {@link #tryDispatch(String, long, TimeUnit)} gives up after a
+ * timeout so that the webhook endpoint can answer with an error and let Smartcar redeliver.
+ *
+ * <pre>{@code
+ * WebhookDispatcher dispatcher = new WebhookDispatcher.Builder()
+ *     .handler("schedule", (event) -> save(event.getVehicleId(), event.get(Endpoint.BATTERY)))
+ *     .build();
+ *
+ * if (!verifier.verify(signature, body)) { ... }
+ * dispatcher.dispatch(new String(body, StandardCharsets.UTF_8));
+ * }</pre>
+ */
+public final class WebhookDispatcher implements AutoCloseable {
+  /** How many events a lane handles before yielding its thread to other vehicles. */
+  private static final int LANE_BATCH = 16;
+
+  private final Map<String, List<Handler>> handlers;
+  private final List<Handler> defaultHandlers;
+  private final ErrorHandler errorHandler;
+  private final Set<String> stackTraceFreeTypes;
+  private final Executor executor;
+  private final boolean ownsExecutor;
+  private final int queueCapacity;
+  private final Semaphore permits;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  /** Handles the events of one event name. */
+  public interface Handler {
+    void handle(WebhookEvent event) throws Exception;
+  }
+
+  /**
+   * Receives the exceptions and errors thrown by handlers. Called on the thread that ran the
+   * handler. Anything thrown by the error handler is ignored.
+   */
+  public interface ErrorHandler {
+    void onError(WebhookEvent event, Throwable error);
+  }
+
+  /** The events of one vehicle waiting to be handled. Only accessed inside lanes.compute. */
+  private static final class Lane {
+    private final String key;
+    private final ArrayDeque<WebhookEvent> events = new ArrayDeque<>();
+
+    Lane(String key) {
+      this.key = key;
+    }
+  }
+
+  public static class Builder {
+    private final Map<String, List<Handler>> handlers;
+    private final List<Handler> defaultHandlers;
+    private ErrorHandler errorHandler;
+    private Set<String> stackTraceFreeTypes;
+    private Executor executor;
+    private int threads;
+    private int queueCapacity;
+
+    public Builder() {
+      this.handlers = new HashMap<>();
+      this.defaultHandlers = new ArrayList<>();
+      this.errorHandler = (event, error) -> {};
+      this.stackTraceFreeTypes = Collections.emptySet();
+      this.executor = null;
+      this.threads = Runtime.getRuntime().availableProcessors();
+      this.queueCapacity = 10_000;
+    }
+
+    /**
+     * Registers a handler for an event name. Several handlers may be registered for the same
+     * name; they run one after the other, in registration order.
+     *
+     * @param eventName the event name (ex. "schedule")
+     * @param handler the handler
+     * @return this builder
+     */
+    public Builder handler(String eventName, Handler handler) {
+      this.handlers.computeIfAbsent(eventName, (name) -> new ArrayList<>()).add(handler);
+      return this;
+    }
+
+    /**
+     * Registers a handler for the events whose name has no handler of its own.
+     *
+     * @param handler the handler
+     * @return this builder
+     */
+    public Builder defaultHandler(Handler handler) {
+      this.defaultHandlers.add(handler);
+      return this;
+    }
+
+    public Builder errorHandler(ErrorHandler errorHandler) {
+      this.errorHandler = errorHandler;
+      return this;
+    }
+
+    /**
+     * Omits the stack trace from the exceptions thrown when a handler reads a failed path whose
+     * error type is one of the given types (ex. "VEHICLE_STATE"). Applies to the events parsed by
+     * {@link #dispatch(String)} and {@link #tryDispatch(String, long, TimeUnit)}.
+     *
+     * @param types the error types whose exceptions have no stack trace
+     * @return this builder
+     * @see SmartcarClient.Builder#omitStackTraces(String...)
+     */
+    public Builder omitStackTraces(String... types) {
+      this.stackTraceFreeTypes = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(types)));
+      return this;
+    }
+
+    /**
+     * Runs the handlers on the given executor, which the dispatcher does not shut down. By
+     * default the dispatcher starts its own pool of daemon threads, one per processor, and shuts
+     * it down on close.
+     *
+     * @param executor the executor to use
+     * @return this builder
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the size of the default thread pool. Ignored when an executor is given.
+     *
+     * @param threads the number of threads
+     * @return this builder
+     */
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets how many events may be waiting or running at once. Defaults to 10,000.
+     *
+     * @param queueCapacity the maximum number of pending events
+     * @return this builder
+     */
+    public Builder queueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    public WebhookDispatcher build() {
+      return new WebhookDispatcher(this);
+    }
+  }
+
+  private WebhookDispatcher(Builder builder) {
+    Map<String, List<Handler>> handlers = new HashMap<>();
+    for (Map.Entry<String, List<Handler>> entry : builder.handlers.entrySet()) {
+      handlers.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+    }
+    this.handlers = handlers;
+    this.defaultHandlers = Collections.unmodifiableList(new ArrayList<>(builder.defaultHandlers));
+    this.errorHandler = builder.errorHandler;
+    this.stackTraceFreeTypes = builder.stackTraceFreeTypes;
+    this.queueCapacity = builder.queueCapacity;
+    this.permits = new Semaphore(builder.queueCapacity);
+
+    if (builder.executor != null) {
+      this.executor = builder.executor;
+      this.ownsExecutor = false;
+    } else {
+      AtomicInteger threads = new AtomicInteger();
+      this.executor = Executors.newFixedThreadPool(builder.threads, (runnable) -> {
+        Thread thread = new Thread(runnable, "smartcar-webhook-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.ownsExecutor = true;
+    }
+  }
+
+  /**
+   * Parses a webhook body and queues its events, waiting for room if the dispatcher is full.
+   * Verify the signature of the body before dispatching it.
+   *
+   * @param body the body of the webhook request
+   * @return the number of events queued
+   * @throws SmartcarException if the body is not a webhook delivery or the dispatcher is closed
+   * @throws InterruptedException if interrupted while waiting for room
+   */
+  public int dispatch(String body) throws SmartcarException, InterruptedException {
+    return this.dispatch(WebhookEvent.parse(body, this.stackTraceFreeTypes));
+  }
+
+  /**
+   * Queues events, waiting for room if the dispatcher is full.
+   *
+   * @param events the events to queue
+   * @return the number of events queued
+   * @throws SmartcarException if the dispatcher is closed
+   * @throws InterruptedException if interrupted while waiting for room
+   */
+  public int dispatch(List<WebhookEvent> events) throws SmartcarException, InterruptedException {
+    for (WebhookEvent event : events) {
+      this.checkOpen();
+      this.permits.acquire();
+      this.enqueue(event);
+    }
+    return events.size();
+  }
+
+  /**
+   * Parses a webhook body and queues its events only if there is room for all of them within the
+   * timeout. A delivery with more events than queueCapacity is never accepted.
+   *
+   * @param body the body of the webhook request
+   * @param timeout how long to wait for room
+   * @param unit the unit of timeout
+   * @return true if the events were queued, false if nothing was queued
+   * @throws SmartcarException if the body is not a webhook delivery or the dispatcher is closed
+   * @throws InterruptedException if interrupted while waiting for room
+   */
+  public boolean tryDispatch(String body, long timeout, TimeUnit unit)
+      throws SmartcarException, InterruptedException {
+    List<WebhookEvent> events = WebhookEvent.parse(body, this.stackTraceFreeTypes);
+    this.checkOpen();
+    if (events.size() > this.queueCapacity || !this.permits.tryAcquire(events.size(), timeout, unit)) {
+      return false;
+    }
+    for (WebhookEvent event : events) {
+      this.enqueue(event);
+    }
+    return true;
+  }
+
+  /** @return the number of events waiting or running */
+  public int pending() {
+    return this.pending.get();
+  }
+
+  /**
+   * Waits until every queued event has been handled.
+   *
+   * @param timeout how long to wait
+   * @param unit the unit of timeout
+   * @return true if the dispatcher is idle, false if the timeout elapsed first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (this.pending) {
+      while (this.pending.get() > 0) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this.pending, remaining);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stops accepting events. Events already queued are still handled; use
+   * {@link #awaitIdle(long, TimeUnit)} first to wait for them. The default thread pool is shut
+   * down once they have run.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    if (this.ownsExecutor) {
+      ((ExecutorService) this.executor).shutdown();
+    }
+  }
+
+  private void checkOpen() throws SmartcarException {
+    if (this.closed) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("The webhook dispatcher is closed")
+          .build();
+    }
+  }
+
+  private void enqueue(WebhookEvent event) {
+    String key = event.getVehicleId() != null ? event.getVehicleId() : "";
+    Lane[] started = new Lane[1];
+    this.pending.incrementAndGet();
+    this.lanes.compute(key, (k, lane) -> {
+      if (lane == null) {
+        lane = new Lane(k);
+        started[0] = lane;
+      }
+      lane.events.add(event);
+      return lane;
+    });
+    if (started[0] != null) {
+      this.schedule(started[0]);
+    }
+  }
+
+  private void schedule(Lane lane) {
+    try {
+      this.executor.execute(() -> this.drain(lane));
+    } catch (RejectedExecutionException ex) {
+      // The lane already holds the events; losing its task would strand them.
+      this.drain(lane);
+    }
+  }
+
+  private void drain(Lane lane) {
+    for (int handled = 0; handled < LANE_BATCH; handled++) {
+      WebhookEvent event = this.next(lane);
+      if (event == null) {
+        return;
+      }
+      try {
+        this.handle(event);
+      } finally {
+        this.permits.release();
+        if (this.pending.decrementAndGet() == 0) {
+          synchronized (this.pending) {
+            this.pending.notifyAll();
+          }
+        }
+      }
+    }
+    this.schedule(lane);
+  }
+
+  /** Takes the next event of a lane, removing the lane once it is empty. */
+  private WebhookEvent next(Lane lane) {
+    WebhookEvent[] next = new WebhookEvent[1];
+    this.lanes.compute(lane.key, (k, current) -> {
+      next[0] = current.events.poll();
+      return next[0] == null ? null : current;
+    });
+    return next[0];
+  }
+
+  private void handle(WebhookEvent event) {
+    List<Handler> handlers = this.handlers.get(event.getEventName());
+    if (handlers == null) {
+      handlers = this.defaultHandlers;
+    }
+    for (Handler handler : handlers) {
+      try {
+        handler.handle(event);
+      } catch (Throwable ex) {
+        // Errors are caught too: one escaping drain() would leave the lane registered but never
+        // scheduled again, stranding every later event of the vehicle.
+        try {
+          this.errorHandler.onError(event, ex);
+        } catch (Throwable ignored) {
+          // A failing error handler must not stall the vehicle's lane.
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,258 @@
+package com.smartcar.sdk;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Verifies the HmacSHA256 signatures of webhook payloads for one application management token.
+ *
+ * <p>Each thread keeps one Mac, together with scratch buffers for the digest and the decoded
+ * signature, so verifying a payload allocates nothing beyond the first call on a thread. The Mac
+ * is initialized again only when the thread moves on to a verifier with a different key, so
+ * verifiers can be created freely without leaving a Mac behind on every thread that used them. Payloads are hashed as bytes, straight from a byte array, a
+ * ByteBuffer or a stream. Signatures are compared in constant time.
+ *
+ * <p>A WebhookVerifier is safe for concurrent use; create one per token and reuse it.
+ *
+ * <pre>{@code
+ * WebhookVerifier verifier = new WebhookVerifier(applicationManagementToken);
+ * boolean valid = verifier.verify(request.getHeader("SC-Signature"), request.getInputStream());
+ * }</pre>
+ */
+public final class WebhookVerifier {
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int DIGEST_LENGTH = 32;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * Verifiers for the static helpers of {@link Smartcar}, which take the token on every call. They
+   * are keyed by a SHA-256 digest of the token so that the map holds no tokens of its own.
+   */
+  private static final ConcurrentLruMap<String, WebhookVerifier> shared =
+      new ConcurrentLruMap<>(64, Long.MAX_VALUE, (verifier) -> 1, 4);
+
+  private static final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+  private final SecretKeySpec key;
+
+  /** The per-thread Mac and scratch buffers. */
+  private static final class State {
+    private final Mac mac;
+    private final byte[] digest = new byte[DIGEST_LENGTH];
+    private final byte[] signature = new byte[DIGEST_LENGTH];
+    private SecretKeySpec key;
+    private byte[] chunk;
+
+    State() {
+      try {
+        this.mac = Mac.getInstance(ALGORITHM);
+      } catch (GeneralSecurityException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    /** Initializes the Mac with the key, unless the previous call on this thread used it too. */
+    Mac mac(SecretKeySpec key) {
+      if (this.key != key) {
+        try {
+          this.mac.init(key);
+        } catch (GeneralSecurityException ex) {
+          throw new IllegalStateException(ex);
+        }
+        this.key = key;
+      }
+      return this.mac;
+    }
+
+    byte[] chunk() {
+      if (this.chunk == null) {
+        this.chunk = new byte[8192];
+      }
+      return this.chunk;
+    }
+
+    byte[] finish() {
+      try {
+        this.mac.doFinal(this.digest, 0);
+      } catch (GeneralSecurityException ex) {
+        throw new IllegalStateException(ex);
+      }
+      return this.digest;
+    }
+  }
+
+  /**
+   * Initializes a verifier for the given key.
+   *
+   * @param applicationManagementToken the application management token of the application
+   */
+  public WebhookVerifier(String applicationManagementToken) {
+    this.key = new SecretKeySpec(applicationManagementToken.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+  }
+
+  /**
+   * Returns a shared verifier for the given key.
+   *
+   * @param applicationManagementToken the application management token of the application
+   * @return the verifier
+   */
+  static WebhookVerifier forKey(String applicationManagementToken) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256")
+          .digest(applicationManagementToken.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException(ex);
+    }
+    return shared.computeIfAbsent(
+        WebhookVerifier.toHex(digest), (hash) -> new WebhookVerifier(applicationManagementToken));
+  }
+
+  /**
+   * Hashes a verification challenge, as required to verify a webhook endpoint.
+   *
+   * @param challenge the challenge string
+   * @return the hex-encoded HmacSHA256 digest
+   */
+  public String hashChallenge(String challenge) {
+    State state = this.state();
+    state.mac.update(challenge.getBytes(StandardCharsets.UTF_8));
+    return WebhookVerifier.toHex(state.finish());
+  }
+
+  /**
+   * Checks the signature of a payload.
+   *
+   * @param signature the hex-encoded signature from the SC-Signature header
+   * @param payload the raw payload
+   * @return whether the signature matches
+   */
+  public boolean verify(String signature, byte[] payload) {
+    return this.verify(signature, payload, 0, payload.length);
+  }
+
+  /**
+   * Checks the signature of part of a byte array.
+   *
+   * @param signature the hex-encoded signature from the SC-Signature header
+   * @param payload the array holding the raw payload
+   * @param offset the offset of the payload in the array
+   * @param length the length of the payload
+   * @return whether the signature matches
+   */
+  public boolean verify(String signature, byte[] payload, int offset, int length) {
+    State state = this.state();
+    state.mac.update(payload, offset, length);
+    return WebhookVerifier.matches(state, signature);
+  }
+
+  /**
+   * Checks the signature of the remaining bytes of a buffer, consuming them.
+   *
+   * @param signature the hex-encoded signature from the SC-Signature header
+   * @param payload the raw payload
+   * @return whether the signature matches
+   */
+  public boolean verify(String signature, ByteBuffer payload) {
+    State state = this.state();
+    state.mac.update(payload);
+    return WebhookVerifier.matches(state, signature);
+  }
+
+  /**
+   * Checks the signature of a payload read from a stream, reading it to the end. The stream is
+   * not closed.
+   *
+   * @param signature the hex-encoded signature from the SC-Signature header
+   * @param payload the raw payload
+   * @return whether the signature matches
+   * @throws SmartcarException if the stream cannot be read
+   */
+  public boolean verify(String signature, InputStream payload) throws SmartcarException {
+    State state = this.state();
+    byte[] chunk = state.chunk();
+    try {
+      int read;
+      while ((read = payload.read(chunk)) != -1) {
+        state.mac.update(chunk, 0, read);
+      }
+    } catch (IOException ex) {
+      state.mac.reset();
+      throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+    }
+    return WebhookVerifier.matches(state, signature);
+  }
+
+  /**
+   * Checks the signature of a payload that has already been decoded to a String.
+   *
+   * @param signature the hex-encoded signature from the SC-Signature header
+   * @param payload the payload
+   * @return whether the signature matches
+   */
+  public boolean verify(String signature, String payload) {
+    return this.verify(signature, payload.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** @return this thread's state, with its Mac initialized with this verifier's key */
+  private State state() {
+    State state = states.get();
+    state.mac(this.key);
+    return state;
+  }
+
+  /** Completes the digest and compares it with the signature in constant time. */
+  private static boolean matches(State state, String signature) {
+    byte[] digest = state.finish();
+    if (signature == null || !WebhookVerifier.decodeHex(signature, state.signature)) {
+      return false;
+    }
+    return MessageDigest.isEqual(digest, state.signature);
+  }
+
+  /**
+   * Decodes a hex string into the array. The length of a signature is public, so only the
+   * comparison of its contents has to be constant-time.
+   */
+  private static boolean decodeHex(String hex, byte[] out) {
+    if (hex.length() != out.length * 2) {
+      return false;
+    }
+    int invalid = 0;
+    for (int i = 0; i < out.length; i++) {
+      int high = WebhookVerifier.hexValue(hex.charAt(2 * i));
+      int low = WebhookVerifier.hexValue(hex.charAt(2 * i + 1));
+      invalid |= high | low;
+      out[i] = (byte) ((high << 4) | low);
+    }
+    return invalid >= 0;
+  }
+
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+      chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+}
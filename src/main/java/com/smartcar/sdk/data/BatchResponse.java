@@ -1,21 +1,132 @@
 package com.smartcar.sdk.data;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.smartcar.sdk.Endpoint;
 import com.smartcar.sdk.SmartcarException;
 import com.smartcar.sdk.Utils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
-/** Smartcar BatchResponse Object */
+/**
+ * Smartcar BatchResponse Object
+ *
+ * <p>Each sub-response is decoded into its typed data on first access and memoized per type, so
+ * repeated calls to a getter return the same object (or throw the same SmartcarException). The
+ * JSON tree of a sub-response is released once it has been decoded. A sub-response can still be
+ * read as another type, which is decoded from the first decoded object rather than from the JSON.
+ */
 public class BatchResponse extends ApiData {
   private String requestId;
-  private Map<String, JsonObject> responseData = new HashMap<>();
-  private static GsonBuilder gson =
-      new GsonBuilder().setFieldNamingStrategy((field) -> Utils.toCamelCase(field.getName()));
+  private Set<String> stackTraceFreeTypes = Collections.emptySet();
+  private final Map<String, Entry> responseData = new HashMap<>();
+  private static final Gson gson =
+      new GsonBuilder()
+          .setFieldNamingStrategy((field) -> Utils.toCamelCase(field.getName()))
+          .registerTypeAdapter(VehicleResponse.class, new VehicleResponseDeserializer())
+          .create();
+
+  /** The adapter for each response type, looked up without going through Gson's type cache. */
+  private static final ClassValue<TypeAdapter<?>> adapters = new ClassValue<TypeAdapter<?>>() {
+    @Override
+    protected TypeAdapter<?> computeValue(Class<?> type) {
+      return gson.getAdapter(type);
+    }
+  };
+
+  /** One sub-response, held as JSON until it is first decoded. */
+  private static final class Entry {
+    private JsonObject response;
+    private volatile ApiData data;
+    private volatile SmartcarException error;
+    private Map<Class<?>, ApiData> others;
+
+    Entry(JsonObject response) {
+      this.response = response;
+    }
+
+    <T extends ApiData> T get(Class<T> dataType, String requestId, Set<String> stackTraceFreeTypes)
+            throws SmartcarException {
+      ApiData data = this.data;
+      if (data == null || data.getClass() != dataType) {
+        data = this.decode(dataType, requestId, stackTraceFreeTypes);
+      }
+      return dataType.cast(data);
+    }
+
+    private synchronized ApiData decode(
+            Class<? extends ApiData> dataType, String requestId, Set<String> stackTraceFreeTypes)
+            throws SmartcarException {
+      if (this.error != null) {
+        throw this.error;
+      }
+      if (this.data != null && this.data.getClass() == dataType) {
+        return this.data;
+      }
+      ApiData other = this.others != null ? this.others.get(dataType) : null;
+      if (other != null) {
+        return other;
+      }
+
+      if (this.response == null) {
+        ApiData data = (ApiData) adapters.get(dataType).fromJsonTree(Entry.tree(this.data));
+        data.setMeta(this.data.getMeta());
+        if (this.others == null) {
+          this.others = new HashMap<>(4);
+        }
+        this.others.put(dataType, data);
+        return data;
+      }
+
+      int statusCode = this.response.get("code").getAsInt();
+      JsonObject headers = this.response.get("headers").getAsJsonObject();
+      headers.addProperty("sc-request-id", requestId);
+
+      if (statusCode != 200) {
+        JsonObject body = this.response.get("body").getAsJsonObject();
+        this.error = SmartcarException.Factory(statusCode, headers, body, stackTraceFreeTypes);
+        this.response = null;
+        throw this.error;
+      }
+
+      ApiData data = (ApiData) adapters.get(dataType).fromJsonTree(this.response.get("body"));
+      data.setMeta(new Meta(
+              requestId, Entry.header(headers, "sc-data-age"), Entry.header(headers, "sc-unit-system")));
+      this.data = data;
+      this.response = null;
+      return data;
+    }
+
+    /** Re-encodes a decoded sub-response so that it can be read as another type. */
+    private static JsonElement tree(ApiData data) {
+      if (data instanceof VehicleResponse) {
+        return ((VehicleResponse) data).getBody();
+      }
+      JsonObject tree = gson.toJsonTree(data).getAsJsonObject();
+      tree.remove("meta");
+      return tree;
+    }
+
+    private static String header(JsonObject headers, String name) {
+      JsonElement value = headers.get(name);
+      return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    @Override
+    public synchronized String toString() {
+      if (this.response != null) {
+        return this.response.toString();
+      }
+      return String.valueOf(this.error != null ? this.error : this.data);
+    }
+  }
 
   /**
    * Initializes a new BatchResponse.
@@ -26,34 +137,47 @@ public class BatchResponse extends ApiData {
     for (JsonElement response : responses) {
       JsonObject res = response.getAsJsonObject();
       String path = res.get("path").getAsString();
-      this.responseData.put(path, res);
+      this.responseData.put(path, new Entry(res));
     }
   }
 
-  private <T extends ApiData> T get(String path, Class<T> dataType)
+  /**
+   * Returns the sub-response of an endpoint decoded as the given type.
+   *
+   * @param path the path of the endpoint, as it was requested (ex. "/odometer")
+   * @param dataType the type into which the sub-response will be decoded
+   * @return the decoded sub-response
+   * @throws SmartcarException if the endpoint failed or was not part of the batch
+   */
+  public <T extends ApiData> T get(String path, Class<T> dataType)
           throws SmartcarException {
-    JsonObject res = this.responseData.get(path);
-    if (res == null) {
+    Entry entry = this.responseData.get(path);
+    if (entry == null) {
       throw new SmartcarException.Builder()
               .type("DATA_NOT_FOUND")
               .description("The data you requested was not returned")
               .build();
     }
-    int statusCode = res.get("code").getAsInt();
-    JsonObject body = res.get("body").getAsJsonObject();
-    JsonObject headers = res.get("headers").getAsJsonObject();
-    headers.addProperty("sc-request-id", this.requestId);
+    return entry.get(dataType, this.requestId, this.stackTraceFreeTypes);
+  }
 
-    if (statusCode != 200) {
-      throw SmartcarException.Factory(statusCode, headers, body);
-    }
+  /**
+   * Returns the sub-response of an endpoint decoded as the endpoint's type.
+   *
+   * @param endpoint the endpoint, as it was added to the BatchRequest
+   * @return the decoded sub-response
+   * @throws SmartcarException if the endpoint failed or was not part of the batch
+   */
+  public <T extends ApiData> T get(Endpoint<T> endpoint) throws SmartcarException {
+    return this.get(endpoint.getPath(), endpoint.getType());
+  }
 
-    String bodyString = body.toString();
-    T data = gson.create().fromJson(bodyString, dataType);
-    Meta meta = gson.create().fromJson(res.get("headers").getAsJsonObject().toString(), Meta.class);
-    data.setMeta(meta);
+  boolean has(String path) {
+    return this.responseData.containsKey(path);
+  }
 
-    return data;
+  Set<String> getPaths() {
+    return Collections.unmodifiableSet(this.responseData.keySet());
   }
 
   /**
@@ -74,6 +198,17 @@ public class BatchResponse extends ApiData {
     this.requestId = requestId;
   }
 
+  /**
+   * Sets the error types whose sub-response exceptions are created without a stack trace. Only
+   * sub-responses that have not been decoded yet are affected.
+   *
+   * @param stackTraceFreeTypes the error types
+   * @see com.smartcar.sdk.SmartcarClient.Builder#omitStackTraces(String...)
+   */
+  public void setStackTraceFreeTypes(Set<String> stackTraceFreeTypes) {
+    this.stackTraceFreeTypes = stackTraceFreeTypes;
+  }
+
   /**
    * Get response from the /battery endpoint
    *
@@ -82,7 +217,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleBattery battery()
       throws SmartcarException {
-    return get("/battery", VehicleBattery.class);
+    return get(Endpoint.BATTERY);
   }
 
   /**
@@ -93,7 +228,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleBatteryCapacity batteryCapacity()
       throws SmartcarException {
-    return get("/battery/capacity", VehicleBatteryCapacity.class);
+    return get(Endpoint.BATTERY_CAPACITY);
   }
 
   /**
@@ -104,7 +239,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleCharge charge()
       throws SmartcarException {
-    return get("/charge", VehicleCharge.class);
+    return get(Endpoint.CHARGE);
   }
 
   /**
@@ -115,7 +250,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleFuel fuel()
       throws SmartcarException {
-    return get("/fuel", VehicleFuel.class);
+    return get(Endpoint.FUEL);
   }
 
   /**
@@ -125,7 +260,7 @@ public class BatchResponse extends ApiData {
    * @throws SmartcarException if the request for this endpoint +returned an HTTP error code
    */
   public VehicleAttributes attributes() throws SmartcarException {
-    return get("/", VehicleAttributes.class);
+    return get(Endpoint.ATTRIBUTES);
   }
 
   /**
@@ -136,7 +271,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleLocation location()
       throws SmartcarException {
-    return get("/location", VehicleLocation.class);
+    return get(Endpoint.LOCATION);
   }
 
   /**
@@ -147,7 +282,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleOdometer odometer()
       throws SmartcarException {
-    return get("/odometer", VehicleOdometer.class);
+    return get(Endpoint.ODOMETER);
   }
 
   /**
@@ -158,7 +293,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleEngineOil engineOil()
       throws SmartcarException {
-    return get("/engine/oil", VehicleEngineOil.class);
+    return get(Endpoint.ENGINE_OIL);
   }
 
   /**
@@ -168,7 +303,7 @@ public class BatchResponse extends ApiData {
    * @throws SmartcarException if the request for this endpoint returned an HTTP error code
    */
   public VehicleVin vin() throws SmartcarException {
-    return get("/vin", VehicleVin.class);
+    return get(Endpoint.VIN);
   }
 
   /**
@@ -179,7 +314,7 @@ public class BatchResponse extends ApiData {
    */
   public VehicleTirePressure tirePressure()
       throws SmartcarException {
-    return get("/tires/pressure", VehicleTirePressure.class);
+    return get(Endpoint.TIRE_PRESSURE);
   }
 
   /** @return a stringified representation of BatchResponse */
@@ -8,6 +8,22 @@ public class Compatibility extends ApiData {
   private String reason;
   private Capability[] capabilities;
 
+  /** Default constructor. */
+  public Compatibility() {}
+
+  /**
+   * Initializes a new Compatibility, for answers that are not returned by the API.
+   *
+   * @param compatible whether the vehicle is compatible
+   * @param reason the reason the vehicle is not compatible, or null
+   * @param capabilities the capabilities of the vehicle
+   */
+  public Compatibility(boolean compatible, String reason, Capability[] capabilities) {
+    this.compatible = compatible;
+    this.reason = reason;
+    this.capabilities = capabilities;
+  }
+
   /**
    * Return the compatible variable
    *
@@ -2,11 +2,11 @@ package com.smartcar.sdk.data;
 
 import com.google.gson.annotations.SerializedName;
 import com.smartcar.sdk.SmartcarException;
+import okhttp3.Headers;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.time.Instant;
 import java.util.Date;
 import java.util.TimeZone;
 
@@ -17,6 +17,33 @@ public class Meta {
     private String dataAge = null;
     @SerializedName("sc-unit-system")
     private String unitSystem;
+    private transient volatile Date parsedDataAge;
+
+    /** Default constructor. */
+    public Meta() {}
+
+    /**
+     * Initializes a new instance with the raw Smartcar response header values.
+     *
+     * @param requestId the sc-request-id header
+     * @param dataAge the sc-data-age header, parsed on first access
+     * @param unitSystem the sc-unit-system header
+     */
+    public Meta(String requestId, String dataAge, String unitSystem) {
+        this.requestId = requestId;
+        this.dataAge = dataAge;
+        this.unitSystem = unitSystem;
+    }
+
+    /**
+     * Builds the meta data for a response, reading only the Smartcar headers it needs.
+     *
+     * @param headers the response headers
+     * @return the meta data
+     */
+    public static Meta fromHeaders(Headers headers) {
+        return new Meta(headers.get("sc-request-id"), headers.get("sc-data-age"), headers.get("sc-unit-system"));
+    }
 
     public String getRequestId() { return this.requestId; }
 
@@ -25,12 +52,19 @@ public class Meta {
             return null;
         }
 
-        try {
-            DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-            return format.parse(this.dataAge);
-        } catch (ParseException ex) {
-            throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+        Date parsed = this.parsedDataAge;
+        if (parsed == null) {
+            try {
+                DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                parsed = format.parse(this.dataAge);
+            } catch (ParseException ex) {
+                throw new SmartcarException.Builder().type("SDK_ERROR").description(ex.getMessage()).build();
+            }
+            this.parsedDataAge = parsed;
         }
+
+        return new Date(parsed.getTime());
     }
 
     public String getUnitSystem() { return this.unitSystem; }
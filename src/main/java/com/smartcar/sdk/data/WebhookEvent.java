@@ -0,0 +1,231 @@
+package com.smartcar.sdk.data;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.smartcar.sdk.Endpoint;
+import com.smartcar.sdk.SmartcarException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Smartcar WebhookEvent Object
+ *
+ * <p>One vehicle's part of a webhook delivery. A delivery whose payload lists several vehicles is
+ * split into one event per vehicle by {@link #parse(String)}. The vehicle data of the event is
+ * held the way a {@link BatchResponse} holds it: each path is decoded into its typed data (for
+ * example {@link VehicleBattery}) on first access, and a path that failed throws the
+ * SmartcarException it was delivered with.
+ */
+public class WebhookEvent {
+  /** The event name of the challenge Smartcar sends when a webhook is created. */
+  public static final String VERIFY = "verify";
+
+  private final String version;
+  private final String webhookId;
+  private final String eventName;
+  private final String mode;
+  private final String vehicleId;
+  private final String requestId;
+  private final String challenge;
+  private final BatchResponse data;
+
+  /**
+   * Initializes a new WebhookEvent.
+   *
+   * @param envelope the delivery, without its payload
+   * @param vehicle the payload entry of the vehicle, or null for events without a vehicle
+   */
+  public WebhookEvent(JsonObject envelope, JsonObject vehicle) {
+    this.version = WebhookEvent.string(envelope, "version");
+    this.webhookId = WebhookEvent.string(envelope, "webhookId");
+    this.eventName = WebhookEvent.string(envelope, "eventName");
+    this.mode = WebhookEvent.string(envelope, "mode");
+    this.vehicleId = vehicle == null ? null : WebhookEvent.string(vehicle, "vehicleId");
+    this.requestId = vehicle == null ? null : WebhookEvent.string(vehicle, "requestId");
+    this.challenge = vehicle == null ? null : WebhookEvent.string(vehicle, "challenge");
+
+    JsonArray responses = new JsonArray();
+    JsonElement data = vehicle == null ? null : vehicle.get("data");
+    if (data != null && data.isJsonArray()) {
+      for (JsonElement element : data.getAsJsonArray()) {
+        JsonObject response = element.getAsJsonObject();
+        if (!response.has("code")) {
+          response.addProperty("code", 200);
+        }
+        if (!response.has("headers") || !response.get("headers").isJsonObject()) {
+          response.add("headers", new JsonObject());
+        }
+        responses.add(response);
+      }
+    }
+    this.data = new BatchResponse(responses);
+    this.data.setRequestId(this.requestId);
+  }
+
+  /**
+   * Parses the body of a webhook delivery into one event per vehicle. Verify the signature of the
+   * body before parsing it.
+   *
+   * @param body the body of the webhook request
+   * @return the events of the delivery, in payload order
+   * @throws SmartcarException if the body is not a webhook delivery
+   */
+  public static List<WebhookEvent> parse(String body) throws SmartcarException {
+    return WebhookEvent.parse(body, Collections.emptySet());
+  }
+
+  /**
+   * Parses the body of a webhook delivery into one event per vehicle, omitting the stack trace
+   * from the exceptions of failed paths whose error type is one of the given types.
+   *
+   * @param body the body of the webhook request
+   * @param stackTraceFreeTypes the error types whose exceptions have no stack trace
+   * @return the events of the delivery, in payload order
+   * @throws SmartcarException if the body is not a webhook delivery
+   */
+  public static List<WebhookEvent> parse(String body, Set<String> stackTraceFreeTypes)
+      throws SmartcarException {
+    List<WebhookEvent> events = WebhookEvent.parseEnvelope(body);
+    for (WebhookEvent event : events) {
+      event.data.setStackTraceFreeTypes(stackTraceFreeTypes);
+    }
+    return events;
+  }
+
+  private static List<WebhookEvent> parseEnvelope(String body) throws SmartcarException {
+    JsonObject envelope;
+    try {
+      JsonElement root = JsonParser.parseString(body);
+      if (!root.isJsonObject()) {
+        throw new JsonParseException("Expected a JSON object");
+      }
+      envelope = root.getAsJsonObject();
+    } catch (JsonParseException | IllegalStateException ex) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("The webhook body is not valid JSON: " + ex.getMessage())
+          .build();
+    }
+
+    JsonElement payload = envelope.remove("payload");
+    if (payload == null || payload.isJsonNull()) {
+      return Collections.singletonList(new WebhookEvent(envelope, null));
+    }
+    if (payload.isJsonObject()) {
+      return Collections.singletonList(new WebhookEvent(envelope, payload.getAsJsonObject()));
+    }
+    if (!payload.isJsonArray()) {
+      throw new SmartcarException.Builder()
+          .type("SDK_ERROR")
+          .description("The webhook payload is neither an object nor an array")
+          .build();
+    }
+
+    JsonArray vehicles = payload.getAsJsonArray();
+    List<WebhookEvent> events = new ArrayList<>(vehicles.size());
+    for (JsonElement vehicle : vehicles) {
+      if (vehicle.isJsonObject()) {
+        events.add(new WebhookEvent(envelope, vehicle.getAsJsonObject()));
+      }
+    }
+    return events;
+  }
+
+  private static String string(JsonObject object, String name) {
+    JsonElement value = object.get(name);
+    return value == null || value.isJsonNull() || !value.isJsonPrimitive() ? null : value.getAsString();
+  }
+
+  public String getVersion() {
+    return this.version;
+  }
+
+  public String getWebhookId() {
+    return this.webhookId;
+  }
+
+  /**
+   * Returns the name of the event (ex. "schedule", or {@link #VERIFY} for the challenge sent when
+   * the webhook is created).
+   *
+   * @return the event name
+   */
+  public String getEventName() {
+    return this.eventName;
+  }
+
+  /**
+   * Returns whether the delivery was live or a test.
+   *
+   * @return "live" or "test"
+   */
+  public String getMode() {
+    return this.mode;
+  }
+
+  public String getVehicleId() {
+    return this.vehicleId;
+  }
+
+  public String getRequestId() {
+    return this.requestId;
+  }
+
+  /**
+   * Returns the challenge of a {@link #VERIFY} event, to be answered with
+   * {@link com.smartcar.sdk.Smartcar#hashChallenge(String, String)}.
+   *
+   * @return the challenge, or null for other events
+   */
+  public String getChallenge() {
+    return this.challenge;
+  }
+
+  /**
+   * Returns the delivered data of an endpoint decoded as the endpoint's type.
+   *
+   * @param endpoint the endpoint (ex. {@code Endpoint.BATTERY})
+   * @return the decoded data
+   * @throws SmartcarException if the endpoint failed or was not part of the event
+   */
+  public <T extends ApiData> T get(Endpoint<T> endpoint) throws SmartcarException {
+    return this.data.get(endpoint);
+  }
+
+  /**
+   * Returns whether the event carries data for an endpoint, whether or not it succeeded.
+   *
+   * @param endpoint the endpoint
+   * @return true if the event has a response for the endpoint's path
+   */
+  public boolean has(Endpoint<?> endpoint) {
+    return this.data.has(endpoint.getPath());
+  }
+
+  /** @return the paths for which the event carries data */
+  public Set<String> getPaths() {
+    return this.data.getPaths();
+  }
+
+  /** @return a stringified representation of WebhookEvent */
+  @Override
+  public String toString() {
+    return this.getClass().getName()
+        + "{"
+        + "webhookId="
+        + webhookId
+        + ", eventName="
+        + eventName
+        + ", vehicleId="
+        + vehicleId
+        + ", data="
+        + data
+        + '}';
+  }
+}
@@ -18,7 +18,7 @@ public class ApiClientTest {
   public void testKeyParsing() {
     String testData = "{\"lifeRemaining\":0.86}";
 
-    VehicleEngineOil data = ApiClient.gson.create().fromJson(testData, VehicleEngineOil.class);
+    VehicleEngineOil data = ApiClient.gson.fromJson(testData, VehicleEngineOil.class);
     Assert.assertTrue(data.getLifeRemaining() == 0.86);
   }
 }
@@ -0,0 +1,92 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApplicationPermissions;
+import com.smartcar.sdk.data.VehicleFuel;
+import com.smartcar.sdk.data.VehicleLocation;
+import com.smartcar.sdk.data.VehicleOdometer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: SmartcarClient.Builder#autoBatch */
+public class AutoBatchTest {
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  @Test
+  public void testReadsAreMergedIntoOneBatch() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseReads")
+        .addHeader("sc-request-id", "batch-request-id"));
+    Vehicle vehicle = MockApi.vehicle(
+        new SmartcarClient.Builder().autoBatch(50, TimeUnit.MILLISECONDS, 10).build());
+
+    CompletableFuture<VehicleOdometer> odometer = vehicle.odometerAsync();
+    CompletableFuture<VehicleLocation> location = vehicle.locationAsync();
+    CompletableFuture<VehicleFuel> fuel = vehicle.fuelAsync();
+
+    Assert.assertEquals(odometer.get().getDistance(), 104.32);
+    Assert.assertEquals(odometer.get().getMeta().getRequestId(), "batch-request-id");
+    Assert.assertEquals(location.get().getLatitude(), 37.4292);
+    try {
+      fuel.get();
+      Assert.fail("expected the /fuel sub-response error");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getCode(), "ASLEEP");
+    }
+
+    Assert.assertEquals(MockApi.requestCount(), 1);
+    RecordedRequest request = TestExecutionListener.mockWebServer.takeRequest();
+    Assert.assertEquals(request.getMethod(), "POST");
+    Assert.assertEquals(request.getPath(), "/v2.0/vehicles/vehicle-id/batch");
+    Assert.assertEquals(request.getBody().readUtf8(),
+        "{\"requests\":[{\"path\":\"/odometer\"},{\"path\":\"/location\"},{\"path\":\"/fuel\"}]}");
+  }
+
+  @Test
+  public void testFullBatchIsSentWithoutWaiting() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseReads"));
+    Vehicle vehicle = MockApi.vehicle(
+        new SmartcarClient.Builder().autoBatch(1, TimeUnit.MINUTES, 2).build());
+
+    CompletableFuture<VehicleOdometer> odometer = vehicle.odometerAsync();
+    CompletableFuture<VehicleLocation> location = vehicle.locationAsync();
+
+    Assert.assertEquals(odometer.get(5, TimeUnit.SECONDS).getDistance(), 104.32);
+    Assert.assertEquals(location.get(5, TimeUnit.SECONDS).getLongitude(), 122.1381);
+    Assert.assertEquals(MockApi.requestCount(), 1);
+  }
+
+  @Test
+  public void testBlockingReadAndBatchFailure() {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(401, "ErrorAuthenticationV2"));
+    Vehicle vehicle = MockApi.vehicle(
+        new SmartcarClient.Builder().autoBatch(10, TimeUnit.MILLISECONDS, 10).build());
+
+    try {
+      vehicle.odometer();
+      Assert.fail("expected the /batch error");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "AUTHENTICATION");
+    }
+  }
+
+  @Test
+  public void testOtherEndpointsAreNotBatched() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetPermissions"));
+    Vehicle vehicle = MockApi.vehicle(
+        new SmartcarClient.Builder().autoBatch(10, TimeUnit.MILLISECONDS, 10).build());
+
+    ApplicationPermissions permissions = vehicle.permissions();
+
+    Assert.assertEquals(permissions.getPermissions()[0], "read_vehicle_info");
+    Assert.assertEquals(TestExecutionListener.mockWebServer.takeRequest().getPath(),
+        "/v2.0/vehicles/vehicle-id/permissions");
+  }
+}
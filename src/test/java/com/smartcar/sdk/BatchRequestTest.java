@@ -0,0 +1,172 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ApiData;
+import com.smartcar.sdk.data.BatchResponse;
+import com.smartcar.sdk.data.VehicleOdometer;
+import com.smartcar.sdk.data.VehicleResponse;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: BatchRequest, Endpoint */
+public class BatchRequestTest {
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private Vehicle vehicle() {
+    return MockApi.vehicle(new SmartcarClient.Builder().build());
+  }
+
+  /** A caller-defined type for a brand-specific endpoint. */
+  public static class Ammeter extends ApiData {
+    private int amperage;
+
+    public int getAmperage() {
+      return this.amperage;
+    }
+  }
+
+  @Test
+  public void testTypedBatch() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseAmmeter"));
+    Endpoint<Ammeter> ammeter = Endpoint.of("tesla/charge/ammeter", Ammeter.class);
+    BatchRequest request = new BatchRequest.Builder()
+        .add(Endpoint.ODOMETER)
+        .add(ammeter)
+        .add(Endpoint.ODOMETER)
+        .build();
+
+    BatchResponse response = vehicle().batch(request);
+
+    VehicleOdometer odometer = response.get(Endpoint.ODOMETER);
+    Assert.assertEquals(odometer.getDistance(), 104.32);
+    Assert.assertSame(response.odometer(), odometer);
+    Assert.assertEquals(response.get(ammeter).getAmperage(), 32);
+    Assert.assertEquals(request.getEndpoints().size(), 2);
+    Assert.assertEquals(TestExecutionListener.mockWebServer.takeRequest().getBody().readUtf8(),
+        "{\"requests\":[{\"path\":\"/odometer\"},{\"path\":\"/tesla/charge/ammeter\"}]}");
+  }
+
+  @Test
+  public void testUnknownPathsDecodeToRawBody() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseAmmeter"));
+    BatchRequest request = new BatchRequest.Builder()
+        .add("/odometer")
+        .add("/tesla/charge/ammeter")
+        .build();
+
+    BatchResponse response = vehicle().batchAsync(request).get();
+
+    Assert.assertEquals(request.getEndpoints().get(0), Endpoint.ODOMETER);
+    VehicleResponse ammeter = response.get(Endpoint.of("/tesla/charge/ammeter"));
+    Assert.assertEquals(ammeter.getBody().get("amperage").getAsInt(), 32);
+  }
+
+  @Test
+  public void testAPathCanBeReadAsMoreThanOneType() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseAmmeter"));
+    BatchResponse response = vehicle().batch(new String[] {"/tesla/charge/ammeter"});
+
+    Ammeter ammeter = response.get("/tesla/charge/ammeter", Ammeter.class);
+    VehicleResponse raw = response.get("/tesla/charge/ammeter", VehicleResponse.class);
+
+    Assert.assertEquals(ammeter.getAmperage(), 32);
+    Assert.assertEquals(raw.getBody().get("amperage").getAsInt(), 32);
+    Assert.assertSame(response.get("/tesla/charge/ammeter", Ammeter.class), ammeter);
+    Assert.assertSame(response.get("/tesla/charge/ammeter", VehicleResponse.class), raw);
+
+    VehicleResponse rawOdometer = response.get("/odometer", VehicleResponse.class);
+    VehicleOdometer odometer = response.get(Endpoint.ODOMETER);
+
+    Assert.assertEquals(rawOdometer.getBody().get("distance").getAsDouble(), 104.32);
+    Assert.assertEquals(odometer.getDistance(), 104.32);
+    Assert.assertSame(odometer.getMeta(), rawOdometer.getMeta());
+  }
+
+  @Test
+  public void testStackTracesCanBeOmittedForSubResponseErrors() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseReads"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponseReads"));
+    Vehicle vehicle = MockApi.vehicle(
+        new SmartcarClient.Builder().omitStackTraces("VEHICLE_STATE").build());
+    BatchRequest request = new BatchRequest.Builder().add(Endpoint.FUEL).build();
+
+    try {
+      vehicle.batch(request).fuel();
+      Assert.fail("expected the /fuel sub-response error");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getCode(), "ASLEEP");
+      Assert.assertEquals(ex.getStackTrace().length, 0);
+    }
+    try {
+      vehicle.batchStream(request).get(Endpoint.FUEL).get(5, TimeUnit.SECONDS);
+      Assert.fail("expected the /fuel sub-response error");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(ex.getCause().getStackTrace().length, 0);
+    }
+  }
+
+  @Test
+  public void testStreamedResultsArriveBeforeTheEndOfTheBody() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("BatchResponsePadded")
+        .addHeader("sc-request-id", "batch-request-id")
+        .throttleBody(256, 50, TimeUnit.MILLISECONDS));
+    BatchRequest request = new BatchRequest.Builder()
+        .add(Endpoint.ODOMETER)
+        .add(Endpoint.FUEL)
+        .add(Endpoint.LOCATION)
+        .build();
+
+    StreamingBatchResponse response = vehicle().batchStream(request);
+
+    VehicleOdometer odometer = response.get(Endpoint.ODOMETER).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(odometer.getDistance(), 104.32);
+    Assert.assertEquals(odometer.getMeta().getRequestId(), "batch-request-id");
+    Assert.assertFalse(response.whenDone().isDone());
+
+    response.whenDone().get(5, TimeUnit.SECONDS);
+    try {
+      response.get(Endpoint.FUEL).get();
+      Assert.fail("expected the /fuel sub-response error");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getCode(), "ASLEEP");
+    }
+    try {
+      response.get(Endpoint.LOCATION).get();
+      Assert.fail("expected /location to be missing");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getType(), "DATA_NOT_FOUND");
+    }
+  }
+
+  @Test
+  public void testStreamedBatchFailure() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(401, "ErrorAuthenticationV2"));
+
+    StreamingBatchResponse response =
+        vehicle().batchStream(new BatchRequest.Builder().add(Endpoint.ODOMETER).build());
+
+    try {
+      response.get(Endpoint.ODOMETER).get(5, TimeUnit.SECONDS);
+      Assert.fail("expected the /batch error");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getType(), "AUTHENTICATION");
+    }
+    try {
+      response.whenDone().get(5, TimeUnit.SECONDS);
+      Assert.fail("expected the /batch error");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getType(), "AUTHENTICATION");
+    }
+  }
+
+  @Test(expectedExceptions = SmartcarException.class)
+  public void testEmptyBatchIsRejected() throws SmartcarException {
+    new BatchRequest.Builder().build();
+  }
+}
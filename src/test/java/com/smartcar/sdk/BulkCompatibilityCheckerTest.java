@@ -0,0 +1,159 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Compatibility;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/** Test Suite: BulkCompatibilityChecker */
+public class BulkCompatibilityCheckerTest {
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+  @BeforeMethod
+  public void beforeMethod() {
+    this.active.set(0);
+    this.maxActive.set(0);
+    this.loads.clear();
+  }
+
+  private BulkCompatibilityChecker checker(int maxConcurrency) throws Exception {
+    return checker(maxConcurrency, 1000000);
+  }
+
+  private BulkCompatibilityChecker checker(int maxConcurrency, int maxTrackedVins) throws Exception {
+    CompatibilityCache cache = new CompatibilityCache.Builder()
+        .loader((request) -> {
+          this.loads.computeIfAbsent(request.getVin(), (k) -> new AtomicInteger()).incrementAndGet();
+          int current = this.active.incrementAndGet();
+          this.maxActive.accumulateAndGet(current, Math::max);
+          CompletableFuture<Compatibility> future = new CompletableFuture<>();
+          SharedTimer.schedule(() -> {
+            this.active.decrementAndGet();
+            if (request.getVin().startsWith("ERR")) {
+              future.completeExceptionally(new SmartcarException.Builder().type("SERVER").build());
+              return;
+            }
+            boolean compatible = !request.getVin().startsWith("0");
+            future.complete(ApiClient.gson.fromJson(
+                "{ \"compatible\": " + compatible + ", \"reason\": " + (compatible ? "null" : "\"MAKE_NOT_COMPATIBLE\"")
+                    + ", \"capabilities\": [ "
+                    + "{ \"capable\": true, \"permission\": \"read_odometer\", \"endpoint\": \"/odometer\", \"reason\": null }, "
+                    + "{ \"capable\": false, \"permission\": \"read_location\", \"endpoint\": \"/location\", "
+                    + "\"reason\": \"VEHICLE_NOT_CAPABLE\" } ] }",
+                Compatibility.class));
+          }, 5, TimeUnit.MILLISECONDS);
+          return future;
+        })
+        .build();
+    return new BulkCompatibilityChecker.Builder()
+        .template(new SmartcarCompatibilityRequest.Builder()
+            .scope(new String[] {"read_odometer", "read_location"})
+            .clientId("client")
+            .clientSecret("secret")
+            .build())
+        .cache(cache)
+        .maxConcurrency(maxConcurrency)
+        .maxTrackedVins(maxTrackedVins)
+        .build();
+  }
+
+  @Test
+  public void testEveryDistinctVinIsCheckedOnceWithinTheConcurrencyLimit() throws Exception {
+    Map<String, Boolean> results = new ConcurrentHashMap<>();
+    Map<String, String> errors = new ConcurrentHashMap<>();
+
+    BulkCompatibilityChecker.Summary summary = checker(4).check(
+        IntStream.range(0, 60).mapToObj((i) -> (i % 2 == 0 ? "vin" : " VIN") + (i % 30)),
+        new BulkCompatibilityChecker.Sink() {
+          @Override
+          public void onResult(String vin, Compatibility compatibility) {
+            results.put(vin, compatibility.getCompatible());
+          }
+
+          @Override
+          public void onFailure(String vin, SmartcarException error) {
+            errors.put(vin, error.getType());
+          }
+        });
+
+    Assert.assertEquals(summary.getCompatible(), 30);
+    Assert.assertEquals(summary.getDuplicates(), 30);
+    Assert.assertEquals(results.size(), 30);
+    Assert.assertTrue(results.containsKey("VIN7"));
+    Assert.assertTrue(errors.isEmpty());
+    for (AtomicInteger count : this.loads.values()) {
+      Assert.assertEquals(count.get(), 1);
+    }
+    Assert.assertTrue(this.maxActive.get() <= 4, "max concurrency was " + this.maxActive.get());
+  }
+
+  @Test
+  public void testCsvInputIsWrittenAsOneRowPerCapability() throws Exception {
+    String csv = "dealer,\"VIN\"\n"
+        + "\"Smith, Jones\",1HGCM82633A004352\n"
+        + "other,0HGCM82633A004352\n"
+        + "short\n"
+        + "other,ERR0000000000000\n";
+    StringWriter out = new StringWriter();
+
+    BulkCompatibilityChecker.Summary summary =
+        checker(1).checkCsv(new StringReader(csv), "vin", BulkCompatibilityChecker.csvSink(out));
+
+    Assert.assertEquals(summary.getCompatible(), 1);
+    Assert.assertEquals(summary.getIncompatible(), 1);
+    Assert.assertEquals(summary.getFailed(), 1);
+    Assert.assertEquals(Arrays.asList(out.toString().split("\n")), Arrays.asList(
+        "vin,compatible,reason,endpoint,permission,capable,capability_reason",
+        "1HGCM82633A004352,true,,/odometer,read_odometer,true,",
+        "1HGCM82633A004352,true,,/location,read_location,false,VEHICLE_NOT_CAPABLE",
+        "0HGCM82633A004352,false,MAKE_NOT_COMPATIBLE,/odometer,read_odometer,true,",
+        "0HGCM82633A004352,false,MAKE_NOT_COMPATIBLE,/location,read_location,false,VEHICLE_NOT_CAPABLE",
+        "ERR0000000000000,error,SERVER,,,,"));
+
+    try {
+      checker(1).checkCsv(new StringReader(csv), "vehicle", BulkCompatibilityChecker.csvSink(out));
+      Assert.fail("expected a missing column error");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    }
+  }
+
+  @Test
+  public void testDuplicateDetectionIsBounded() throws Exception {
+    BulkCompatibilityChecker.Summary summary = checker(1, 1).check(
+        Arrays.asList("VIN1", "VIN2", "VIN2", "VIN1"),
+        new BulkCompatibilityChecker.Sink() {
+          @Override
+          public void onResult(String vin, Compatibility compatibility) {}
+
+          @Override
+          public void onFailure(String vin, SmartcarException error) {}
+        });
+
+    Assert.assertEquals(summary.getDuplicates(), 1);
+    Assert.assertEquals(summary.getCompatible(), 3);
+  }
+
+  @Test
+  public void testCsvHeaderMayStartWithAByteOrderMark() throws Exception {
+    String csv = "\uFEFFvin,dealer\n1HGCM82633A004352,other\n";
+    StringWriter out = new StringWriter();
+
+    BulkCompatibilityChecker.Summary summary =
+        checker(1).checkCsv(new StringReader(csv), "vin", BulkCompatibilityChecker.csvSink(out));
+
+    Assert.assertEquals(summary.getCompatible(), 1);
+  }
+}
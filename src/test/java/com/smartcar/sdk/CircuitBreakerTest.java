@@ -0,0 +1,196 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.VehicleOdometer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: CircuitBreaker */
+public class CircuitBreakerTest {
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private CircuitBreaker.Builder breaker() {
+    return new CircuitBreaker.Builder().window(4, 4).failureRateThreshold(0.5);
+  }
+
+  private SmartcarException fail(Vehicle vehicle) {
+    try {
+      vehicle.odometer();
+    } catch (SmartcarException ex) {
+      return ex;
+    }
+    Assert.fail("expected a SmartcarException");
+    return null;
+  }
+
+  @Test
+  public void testOpensAtFailureRateAndFailsFast() throws Exception {
+    List<String> changes = Collections.synchronizedList(new ArrayList<>());
+    CircuitBreaker breaker = breaker()
+        .openDuration(1, TimeUnit.MINUTES)
+        .listener((key, from, to) -> changes.add(key + " " + from + "->" + to))
+        .build();
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().circuitBreaker(breaker).build());
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(502, "ErrorUpstreamV2"));
+
+    vehicle.odometer();
+    vehicle.odometer();
+    Assert.assertEquals(fail(vehicle).getStatusCode(), 500);
+    Assert.assertEquals(fail(vehicle).getStatusCode(), 502);
+    Assert.assertEquals(breaker.getState("/odometer"), CircuitBreaker.State.OPEN);
+
+    SmartcarException ex = fail(vehicle);
+    Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    Assert.assertEquals(ex.getCode(), "CIRCUIT_OPEN");
+    Assert.assertTrue(ex.getRetryAfter() > 0);
+    Assert.assertEquals(MockApi.requestCount(), 4);
+    Assert.assertEquals(changes, Collections.singletonList("/odometer CLOSED->OPEN"));
+  }
+
+  @Test
+  public void testClientErrorsDoNotCount() throws Exception {
+    CircuitBreaker breaker = breaker().build();
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().circuitBreaker(breaker).build());
+    for (int i = 0; i < 4; i++) {
+      TestExecutionListener.mockWebServer.enqueue(MockApi.error(409, "ErrorVehicleStateV2"));
+    }
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(fail(vehicle).getStatusCode(), 409);
+    }
+
+    Assert.assertEquals(vehicle.odometer().getDistance(), 104.32);
+    Assert.assertEquals(breaker.getState("/odometer"), CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testSlowCallsCount() throws Exception {
+    CircuitBreaker breaker = breaker().window(2, 2)
+        .slowCallThreshold(50, TimeUnit.MILLISECONDS)
+        .build();
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().circuitBreaker(breaker).build());
+    TestExecutionListener.mockWebServer.enqueue(
+        MockApi.response("GetOdometer").setBodyDelay(100, TimeUnit.MILLISECONDS));
+    TestExecutionListener.mockWebServer.enqueue(
+        MockApi.response("GetOdometer").setBodyDelay(100, TimeUnit.MILLISECONDS));
+
+    vehicle.odometer();
+    vehicle.odometer();
+
+    Assert.assertEquals(breaker.getState("/odometer"), CircuitBreaker.State.OPEN);
+  }
+
+  @Test
+  public void testHalfOpenProbesCloseOrReopen() throws Exception {
+    List<String> changes = Collections.synchronizedList(new ArrayList<>());
+    CircuitBreaker breaker = breaker().window(2, 2)
+        .openDuration(50, TimeUnit.MILLISECONDS)
+        .probes(2)
+        .listener((key, from, to) -> changes.add(from + "->" + to))
+        .build();
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().circuitBreaker(breaker).build());
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+
+    fail(vehicle);
+    fail(vehicle);
+    Thread.sleep(100);
+    Assert.assertEquals(breaker.getState("/odometer"), CircuitBreaker.State.HALF_OPEN);
+    Assert.assertEquals(fail(vehicle).getStatusCode(), 500);
+    Assert.assertEquals(fail(vehicle).getCode(), "CIRCUIT_OPEN");
+
+    Thread.sleep(100);
+    vehicle.odometer();
+    vehicle.odometer();
+
+    Assert.assertEquals(breaker.getState("/odometer"), CircuitBreaker.State.CLOSED);
+    Assert.assertEquals(MockApi.requestCount(), 5);
+    Assert.assertEquals(changes, Arrays.asList(
+        "CLOSED->OPEN", "HALF_OPEN->OPEN", "HALF_OPEN->CLOSED"));
+  }
+
+  @Test
+  public void testKeyByVehicleIsolatesVehicles() throws Exception {
+    CircuitBreaker breaker = breaker().window(2, 2)
+        .keyBy(CircuitBreaker.KeyBy.VEHICLE)
+        .openDuration(1, TimeUnit.MINUTES)
+        .build();
+    SmartcarClient client = new SmartcarClient.Builder().circuitBreaker(breaker).build();
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+
+    fail(MockApi.vehicle("broken", client));
+    fail(MockApi.vehicle("broken", client));
+
+    Assert.assertEquals(fail(MockApi.vehicle("broken", client)).getCode(), "CIRCUIT_OPEN");
+    Assert.assertEquals(MockApi.vehicle("healthy", client).odometer().getDistance(), 104.32);
+  }
+
+  @Test
+  public void testKeyByMakeLearnsFromAttributes() throws Exception {
+    CircuitBreaker breaker = breaker().window(2, 2)
+        .keyBy(CircuitBreaker.KeyBy.MAKE)
+        .openDuration(1, TimeUnit.MINUTES)
+        .build();
+    SmartcarClient client = new SmartcarClient.Builder().circuitBreaker(breaker).build();
+    breaker.registerMake("second", "tesla");
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetVehicleInfo"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+
+    Vehicle first = MockApi.vehicle("first", client);
+    first.attributes();
+    fail(first);
+    fail(MockApi.vehicle("second", client));
+
+    Assert.assertEquals(breaker.getState("TESLA"), CircuitBreaker.State.OPEN);
+    Assert.assertEquals(fail(MockApi.vehicle("second", client)).getCode(), "CIRCUIT_OPEN");
+    Assert.assertEquals(MockApi.vehicle("unknown-make", client).odometer().getDistance(), 104.32);
+  }
+
+  @Test
+  public void testAsyncFailsFast() throws Exception {
+    CircuitBreaker breaker = breaker().window(2, 2)
+        .openDuration(1, TimeUnit.MINUTES)
+        .build();
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().circuitBreaker(breaker).build());
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        vehicle.odometerAsync().join();
+        Assert.fail("expected a SmartcarException");
+      } catch (CompletionException ex) {
+        Assert.assertTrue(ex.getCause() instanceof SmartcarException);
+      }
+    }
+
+    try {
+      VehicleOdometer odometer = vehicle.odometerAsync().join();
+      Assert.fail("expected a SmartcarException, got " + odometer);
+    } catch (CompletionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getCode(), "CIRCUIT_OPEN");
+    }
+    Assert.assertEquals(MockApi.requestCount(), 2);
+  }
+}
@@ -0,0 +1,89 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Compatibility;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Test Suite: CompatibilityCache */
+public class CompatibilityCacheTest {
+  private final AtomicLong now = new AtomicLong(1_000_000);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @BeforeMethod
+  public void beforeMethod() {
+    this.now.set(1_000_000);
+    this.loads.set(0);
+  }
+
+  private static SmartcarCompatibilityRequest request(String vin, String... scope) throws Exception {
+    return new SmartcarCompatibilityRequest.Builder()
+        .vin(vin)
+        .scope(scope)
+        .clientId("client")
+        .clientSecret("secret")
+        .build();
+  }
+
+  private CompatibilityCache.Builder cache() {
+    return new CompatibilityCache.Builder()
+        .timeToLive(10, TimeUnit.SECONDS)
+        .negativeTimeToLive(2, TimeUnit.SECONDS)
+        .clock(this.now::get)
+        .loader((request) -> {
+          this.loads.incrementAndGet();
+          boolean compatible = !request.getVin().startsWith("0");
+          return CompletableFuture.completedFuture(ApiClient.gson.fromJson(
+              "{ \"compatible\": " + compatible + ", \"reason\": null, \"capabilities\": [ "
+                  + "{ \"capable\": true, \"permission\": \"read_odometer\", "
+                  + "\"endpoint\": \"/odometer\", \"reason\": null } ] }",
+              Compatibility.class));
+        });
+  }
+
+  @Test
+  public void testNormalizedRequestsShareAnEntryUntilItExpires() throws Exception {
+    CompatibilityCache cache = cache().build();
+
+    Compatibility first = cache.get(request("1hgcm82633a004352", "read_odometer", "read_vin"));
+    Assert.assertTrue(first.getCompatible());
+    Assert.assertSame(cache.get(request(" 1HGCM82633A004352", "read_vin", "read_odometer")), first);
+    Assert.assertEquals(this.loads.get(), 1);
+
+    Assert.assertFalse(cache.get(request("0HGCM82633A004352", "read_vin")).getCompatible());
+    this.now.addAndGet(TimeUnit.SECONDS.toMillis(3));
+    Assert.assertNull(cache.getIfPresent(request("0HGCM82633A004352", "read_vin")));
+    Assert.assertSame(cache.getIfPresent(request("1HGCM82633A004352", "read_vin", "read_odometer")), first);
+
+    this.now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+    cache.get(request("1HGCM82633A004352", "read_vin", "read_odometer"));
+    Assert.assertEquals(this.loads.get(), 3);
+  }
+
+  @Test
+  public void testASnapshotWarmsANewCache() throws Exception {
+    Path snapshot = Files.createTempFile("compatibility", ".cache");
+    Files.delete(snapshot);
+
+    CompatibilityCache cache = cache().snapshot(snapshot).build();
+    cache.get(request("1HGCM82633A004352", "read_vin"));
+    cache.get(request("0HGCM82633A004352", "read_vin"));
+    this.now.addAndGet(TimeUnit.SECONDS.toMillis(3));
+    cache.close();
+
+    CompatibilityCache restarted = cache().snapshot(snapshot).build();
+    Assert.assertEquals(restarted.size(), 1);
+    Compatibility warm = restarted.get(request("1HGCM82633A004352", "read_vin"));
+    Assert.assertTrue(warm.getCompatible());
+    Assert.assertEquals(warm.getCapabilities()[0].getEndpoint(), "/odometer");
+    Assert.assertEquals(this.loads.get(), 2);
+    Files.delete(snapshot);
+  }
+}
@@ -0,0 +1,148 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.BatchResponse;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/** Test Suite: FleetBatchExecutor */
+public class FleetBatchExecutorTest {
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private volatile long delayMillis;
+
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+    this.active.set(0);
+    this.maxActive.set(0);
+    this.delayMillis = 20;
+    TestExecutionListener.mockWebServer.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        int current = active.incrementAndGet();
+        maxActive.accumulateAndGet(current, Math::max);
+        try {
+          Thread.sleep(delayMillis);
+          if (request.getPath().contains("/vehicles/broken/")) {
+            return MockApi.error(409, "ErrorVehicleStateV2");
+          }
+          return MockApi.response("BatchResponseReads");
+        } finally {
+          active.decrementAndGet();
+        }
+      }
+    });
+  }
+
+  @AfterMethod
+  public void afterMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private FleetBatchExecutor.Builder executor() {
+    return new FleetBatchExecutor.Builder().origin(MockApi.origin());
+  }
+
+  @Test
+  public void testEveryVehicleIsReportedWithinTheConcurrencyLimit() throws Exception {
+    Map<String, Double> results = new ConcurrentHashMap<>();
+    Map<String, String> errors = new ConcurrentHashMap<>();
+    Stream<FleetBatchExecutor.Target> targets = Stream.concat(
+        IntStream.range(0, 40).mapToObj((i) -> FleetBatchExecutor.Target.of("vehicle-" + i, "token")),
+        Stream.of(FleetBatchExecutor.Target.of("broken", "token")));
+
+    FleetBatchExecutor.Summary summary;
+    try (FleetBatchExecutor executor = executor().maxConcurrency(4).build()) {
+      summary = executor.execute(
+          targets, new String[] {"/odometer"}, new FleetBatchExecutor.ResultHandler() {
+            @Override
+            public void onSuccess(String vehicleId, BatchResponse response) {
+              try {
+                results.put(vehicleId, response.odometer().getDistance());
+              } catch (SmartcarException ex) {
+                errors.put(vehicleId, ex.getType());
+              }
+            }
+
+            @Override
+            public void onFailure(String vehicleId, SmartcarException error) {
+              errors.put(vehicleId, error.getCode());
+            }
+          });
+    }
+
+    Assert.assertEquals(summary.getSucceeded(), 40);
+    Assert.assertEquals(summary.getFailed(), 1);
+    Assert.assertFalse(summary.isDeadlineExceeded());
+    Assert.assertEquals(results.size(), 40);
+    Assert.assertEquals(results.get("vehicle-7"), Double.valueOf(104.32));
+    Assert.assertEquals(errors.get("broken"), "ASLEEP");
+    Assert.assertTrue(this.maxActive.get() <= 4, "max concurrency was " + this.maxActive.get());
+  }
+
+  @Test
+  public void testDeadlineCancelsInFlightRequests() throws Exception {
+    this.delayMillis = 2000;
+    AtomicInteger failures = new AtomicInteger();
+
+    long start = System.nanoTime();
+    FleetBatchExecutor.Summary summary;
+    try (FleetBatchExecutor executor =
+        executor().maxConcurrency(2).deadline(200, TimeUnit.MILLISECONDS).build()) {
+      summary = executor.execute(
+          IntStream.range(0, 10).mapToObj((i) -> FleetBatchExecutor.Target.of("vehicle-" + i, "token")),
+          new String[] {"/odometer"},
+          new FleetBatchExecutor.ResultHandler() {
+            @Override
+            public void onSuccess(String vehicleId, BatchResponse response) {}
+
+            @Override
+            public void onFailure(String vehicleId, SmartcarException error) {
+              failures.incrementAndGet();
+            }
+          });
+    }
+
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+    Assert.assertTrue(summary.isDeadlineExceeded());
+    Assert.assertEquals(summary.getSucceeded(), 0);
+    Assert.assertEquals(summary.getFailed(), 2);
+    Assert.assertEquals(failures.get(), 2);
+  }
+
+  @Test
+  public void testClosingLeavesAGivenClientRunning() throws Exception {
+    SmartcarClient client = new SmartcarClient.Builder().build();
+    AtomicInteger successes = new AtomicInteger();
+
+    try (FleetBatchExecutor executor = executor().client(client).build()) {
+      executor.execute(
+          Stream.of(FleetBatchExecutor.Target.of(MockApi.VEHICLE_ID, "token")),
+          new String[] {"/odometer"},
+          new FleetBatchExecutor.ResultHandler() {
+            @Override
+            public void onSuccess(String vehicleId, BatchResponse response) {
+              successes.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(String vehicleId, SmartcarException error) {}
+          });
+    }
+
+    Assert.assertEquals(successes.get(), 1);
+    Assert.assertFalse(client.getHttpClient().dispatcher().executorService().isShutdown());
+  }
+}
@@ -0,0 +1,175 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Auth;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: TokenStore, MappedTokenStore */
+public class MappedTokenStoreTest {
+  private Path directory;
+  private Path file;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    this.directory = Files.createTempDirectory("token-store");
+    this.file = this.directory.resolve("tokens.db");
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    Files.walk(this.directory)
+        .sorted((a, b) -> b.compareTo(a))
+        .forEach((path) -> path.toFile().delete());
+  }
+
+  private static Auth auth(int i) {
+    return new Auth("access-" + i, "refresh-" + i, new Date(1_600_000_000_000L + i), null);
+  }
+
+  private MappedTokenStore.Builder store() {
+    return new MappedTokenStore.Builder().path(this.file);
+  }
+
+  @Test
+  public void testRecordsSurviveReopen() throws Exception {
+    try (MappedTokenStore store = store().build()) {
+      for (int i = 0; i < 1000; i++) {
+        store.put("user-" + i, auth(i));
+      }
+      store.put("user-5", auth(5000));
+      store.remove("user-6");
+    }
+
+    try (MappedTokenStore store = store().build()) {
+      Assert.assertEquals(store.size(), 999);
+      Assert.assertEquals(store.get("user-7").getAccessToken(), "access-7");
+      Assert.assertEquals(store.get("user-7").getExpiration(), new Date(1_600_000_000_007L));
+      Assert.assertNull(store.get("user-7").getRefreshExpiration());
+      Assert.assertEquals(store.get("user-5").getRefreshToken(), "refresh-5000");
+      Assert.assertNull(store.get("user-6"));
+
+      Map<String, Auth> all = new HashMap<>();
+      store.forEach(all::put);
+      Assert.assertEquals(all.size(), 999);
+    }
+  }
+
+  @Test
+  public void testTornRecordIsDropped() throws Exception {
+    long end;
+    try (MappedTokenStore store = store().build()) {
+      store.put("user-1", auth(1));
+      end = store.logSize();
+      store.put("user-2", auth(2));
+    }
+    // Corrupt the payload of the last record, as if the process died while writing it.
+    try (RandomAccessFile raw = new RandomAccessFile(this.file.toFile(), "rw")) {
+      raw.seek(end + 12);
+      raw.write(0x7F);
+    }
+
+    try (MappedTokenStore store = store().build()) {
+      Assert.assertEquals(store.size(), 1);
+      Assert.assertEquals(store.logSize(), end);
+      store.put("user-3", auth(3));
+    }
+    try (MappedTokenStore store = store().build()) {
+      Assert.assertEquals(store.get("user-3").getAccessToken(), "access-3");
+      Assert.assertNull(store.get("user-2"));
+    }
+  }
+
+  @Test
+  public void testCompactionKeepsOnlyLiveRecords() throws Exception {
+    try (MappedTokenStore store = store().autoCompact(1, 0).build()) {
+      for (int round = 0; round < 10; round++) {
+        for (int i = 0; i < 100; i++) {
+          store.put("user-" + i, auth(round * 100 + i));
+        }
+      }
+      long before = store.logSize();
+      store.compact();
+
+      Assert.assertTrue(store.logSize() * 5 < before, store.logSize() + " vs " + before);
+      Assert.assertEquals(store.get("user-42").getAccessToken(), "access-942");
+      store.put("user-100", auth(100));
+    }
+    try (MappedTokenStore store = store().build()) {
+      Assert.assertEquals(store.size(), 101);
+      Assert.assertEquals(store.get("user-42").getAccessToken(), "access-942");
+    }
+    Assert.assertFalse(Files.exists(this.directory.resolve("tokens.db.compact")));
+  }
+
+  @Test
+  public void testEncryptedStore() throws Exception {
+    SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+    try (MappedTokenStore store = store().encryptionKey(key).build()) {
+      store.put("user-1", auth(1));
+    }
+    Assert.assertFalse(new String(Files.readAllBytes(this.file), "ISO-8859-1").contains("access-1"));
+
+    try (MappedTokenStore store = store().encryptionKey(key).build()) {
+      Assert.assertEquals(store.get("user-1").getAccessToken(), "access-1");
+    }
+    try (MappedTokenStore store = store()
+        .encryptionKey(new SecretKeySpec(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, "AES"))
+        .build()) {
+      store.get("user-1");
+      Assert.fail("expected the wrong key to be rejected");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    }
+    try {
+      store().build();
+      Assert.fail("expected an encrypted store to need a key");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    }
+  }
+
+  @Test
+  public void testTokenManagerWritesRefreshesToTheStore() throws Exception {
+    CountDownLatch refreshed = new CountDownLatch(1);
+    try (MappedTokenStore store = store().build()) {
+      TokenManager manager = new TokenManager.Builder()
+          .refresher((refreshToken) -> new Auth(
+              "access-2", "refresh-2", new Date(System.currentTimeMillis() + 3_600_000), null))
+          .tokenStore(store)
+          .listener((previous, current) -> refreshed.countDown())
+          .build();
+      try {
+        manager.track("user-1",
+            new Auth("access-1", "refresh-1", new Date(System.currentTimeMillis() - 1000), null));
+        Assert.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(store.get("user-1").getRefreshToken(), "refresh-2");
+      } finally {
+        manager.close();
+      }
+
+      TokenManager restarted = new TokenManager.Builder()
+          .refresher((refreshToken) -> null)
+          .tokenStore(store)
+          .build();
+      try {
+        Map<String, TokenManager.ManagedToken> tokens = restarted.trackStored();
+        Assert.assertEquals(tokens.get("user-1").getAccessToken(), "access-2");
+      } finally {
+        restarted.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.smartcar.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared setup for tests that talk to {@link TestExecutionListener#mockWebServer} through a
+ * configured {@link SmartcarClient}: vehicles pointed at the server, and responses built from the
+ * JSON fixtures in src/test/resources.
+ */
+final class MockApi {
+  static final String VEHICLE_ID = "vehicle-id";
+
+  private static int requestCountAtReset;
+
+  private MockApi() {}
+
+  /**
+   * Drops the responses and recorded requests left on the shared server by earlier tests, puts
+   * back the queue dispatcher that tests using a dispatcher of their own replaced, and restarts
+   * {@link #requestCount()} from zero.
+   *
+   * @throws InterruptedException if the calling thread is interrupted
+   */
+  static void reset() throws InterruptedException {
+    MockWebServer server = TestExecutionListener.mockWebServer;
+    server.setDispatcher(new QueueDispatcher());
+    while (server.takeRequest(0, TimeUnit.MILLISECONDS) != null) {
+      // Discard.
+    }
+    MockApi.requestCountAtReset = server.getRequestCount();
+  }
+
+  /** @return the number of requests the shared server received since the last reset */
+  static int requestCount() {
+    return TestExecutionListener.mockWebServer.getRequestCount() - MockApi.requestCountAtReset;
+  }
+
+  static Vehicle vehicle(SmartcarClient client) {
+    return MockApi.vehicle(VEHICLE_ID, "token", client);
+  }
+
+  static Vehicle vehicle(String vehicleId, SmartcarClient client) {
+    return MockApi.vehicle(vehicleId, "token", client);
+  }
+
+  /** @return the origin of the shared server, for builders that take one */
+  static String origin() {
+    return "http://localhost:" + TestExecutionListener.mockWebServer.getPort();
+  }
+
+  static Vehicle vehicle(String vehicleId, String accessToken, SmartcarClient client) {
+    SmartcarVehicleOptions options = new SmartcarVehicleOptions.Builder()
+        .origin(MockApi.origin())
+        .client(client)
+        .build();
+    return new Vehicle(vehicleId, accessToken, options);
+  }
+
+  /**
+   * Reads a fixture from src/test/resources.
+   *
+   * @param name the fixture name without the .json extension
+   * @return the fixture contents
+   */
+  static String read(String name) {
+    try {
+      byte[] bytes = Files.readAllBytes(Paths.get(String.format("src/test/resources/%s.json", name)));
+      return new String(bytes, StandardCharsets.UTF_8);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Builds a successful response with a fixture as its body.
+   *
+   * @param name the fixture name without the .json extension
+   * @return the response
+   */
+  static MockResponse response(String name) {
+    return new MockResponse()
+        .addHeader("content-type", "application/json")
+        .setBody(MockApi.read(name));
+  }
+
+  /**
+   * Builds an error response with a fixture as its body.
+   *
+   * @param statusCode the HTTP status code
+   * @param name the fixture name without the .json extension
+   * @return the response
+   */
+  static MockResponse error(int statusCode, String name) {
+    return MockApi.response(name).setResponseCode(statusCode);
+  }
+}
@@ -0,0 +1,105 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.VehicleOdometer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: RequestCoalescer */
+public class RequestCoalescerTest {
+  private SmartcarClient client;
+
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+    this.client = new SmartcarClient.Builder().coalesceReads(true).build();
+  }
+
+  private Vehicle vehicle(String accessToken) {
+    return MockApi.vehicle(MockApi.VEHICLE_ID, accessToken, this.client);
+  }
+
+  private void enqueueOdometer() {
+    TestExecutionListener.mockWebServer.enqueue(
+        MockApi.response("GetOdometer").setBodyDelay(300, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testConcurrentReadsShareOneExchange() throws Exception {
+    enqueueOdometer();
+    Vehicle vehicle = vehicle("token");
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<VehicleOdometer>> results = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(vehicle::odometer));
+      }
+      VehicleOdometer first = results.get(0).get(5, TimeUnit.SECONDS);
+      for (Future<VehicleOdometer> result : results) {
+        Assert.assertSame(result.get(5, TimeUnit.SECONDS), first);
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(MockApi.requestCount(), 1);
+    Assert.assertEquals(this.client.getRequestCoalescer().size(), 0);
+  }
+
+  @Test
+  public void testAsyncReadsShareOneExchange() throws Exception {
+    enqueueOdometer();
+    Vehicle vehicle = vehicle("token");
+
+    CompletableFuture<VehicleOdometer> first = vehicle.odometerAsync();
+    CompletableFuture<VehicleOdometer> second = vehicle.odometerAsync();
+    second.cancel(true);
+
+    Assert.assertEquals(first.get(5, TimeUnit.SECONDS).getDistance(), 104.32);
+    Assert.assertEquals(MockApi.requestCount(), 1);
+  }
+
+  @Test
+  public void testErrorsAreShared() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(
+        MockApi.error(500, "ErrorServerV2").setBodyDelay(300, TimeUnit.MILLISECONDS));
+    Vehicle vehicle = vehicle("token");
+
+    CompletableFuture<VehicleOdometer> first = vehicle.odometerAsync();
+    CompletableFuture<VehicleOdometer> second = vehicle.odometerAsync();
+
+    for (CompletableFuture<VehicleOdometer> future : Arrays.asList(first, second)) {
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        Assert.fail("expected a SmartcarException");
+      } catch (ExecutionException ex) {
+        Assert.assertEquals(((SmartcarException) ex.getCause()).getType(), "SERVER");
+      }
+    }
+    Assert.assertEquals(MockApi.requestCount(), 1);
+  }
+
+  @Test
+  public void testDifferentTokensAreNotShared() throws Exception {
+    enqueueOdometer();
+    enqueueOdometer();
+
+    CompletableFuture<VehicleOdometer> first = vehicle("token-a").odometerAsync();
+    CompletableFuture<VehicleOdometer> second = vehicle("token-b").odometerAsync();
+
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(MockApi.requestCount(), 2);
+  }
+}
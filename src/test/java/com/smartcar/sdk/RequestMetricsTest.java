@@ -0,0 +1,125 @@
+package com.smartcar.sdk;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: RequestListener, RequestMetrics, LatencyHistogram */
+public class RequestMetricsTest {
+  private RequestMetrics metrics;
+  private List<RequestEvent> events;
+  private Vehicle vehicle;
+
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+    this.metrics = new RequestMetrics();
+    this.events = new ArrayList<>();
+    SmartcarClient client = new SmartcarClient.Builder()
+        .requestListener((event) -> {
+          synchronized (this.events) {
+            this.events.add(event);
+          }
+          this.metrics.onRequestComplete(event);
+        })
+        .build();
+    this.vehicle = MockApi.vehicle(client);
+  }
+
+  @Test
+  public void testSuccessfulRequestIsRecorded() throws Exception {
+    String body = MockApi.read("GetOdometer");
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+
+    this.vehicle.odometer();
+
+    RequestEvent event = this.events.get(0);
+    Assert.assertEquals(event.getMethod(), "GET");
+    Assert.assertEquals(event.getEndpoint(), "/v2.0/vehicles/{id}/odometer");
+    Assert.assertEquals(event.getStatusCode(), 200);
+    Assert.assertEquals(event.getResponseBytes(), body.length());
+    Assert.assertEquals(event.getRequestBytes(), 0);
+    Assert.assertFalse(event.isError());
+    Assert.assertTrue(event.getLatencyNanos() > 0);
+
+    RequestMetrics.Endpoint endpoint = this.metrics.getEndpoint("GET", "/v2.0/vehicles/{id}/odometer");
+    Assert.assertEquals(endpoint.getRequestCount(), 1);
+    Assert.assertEquals(endpoint.getErrorCount(), 0);
+    Assert.assertEquals(endpoint.getResponseBytes(), body.length());
+  }
+
+  @Test
+  public void testErrorsAreCountedByType() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(409, "ErrorVehicleStateV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("SecurityAction"));
+
+    try {
+      this.vehicle.lockAsync().get(5, TimeUnit.SECONDS);
+      Assert.fail("expected a SmartcarException");
+    } catch (ExecutionException ex) {
+      // expected
+    }
+    this.vehicle.lock();
+
+    RequestEvent event = this.events.get(0);
+    Assert.assertTrue(event.isError());
+    Assert.assertEquals(event.getStatusCode(), 409);
+    Assert.assertEquals(event.getErrorType(), "VEHICLE_STATE");
+    Assert.assertEquals(event.getErrorCode(), "ASLEEP");
+    Assert.assertTrue(event.getRequestBytes() > 0);
+
+    RequestMetrics.Endpoint endpoint = this.metrics.getEndpoint("POST", "/v2.0/vehicles/{id}/security");
+    Assert.assertEquals(endpoint.getRequestCount(), 2);
+    Assert.assertEquals(endpoint.getErrorCount(), 1);
+    Assert.assertEquals(endpoint.getErrorCountsByType().get("VEHICLE_STATE"), Long.valueOf(1));
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 10000; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+
+    Assert.assertEquals(histogram.getCount(), 10000);
+    Assert.assertEquals(histogram.getMax(), TimeUnit.MICROSECONDS.toNanos(10000));
+    assertWithin(histogram.getValueAtPercentile(50), TimeUnit.MICROSECONDS.toNanos(5000));
+    assertWithin(histogram.getValueAtPercentile(99), TimeUnit.MICROSECONDS.toNanos(9900));
+    assertWithin(histogram.getValueAtPercentile(99.9), TimeUnit.MICROSECONDS.toNanos(9990));
+    Assert.assertEquals(histogram.getValueAtPercentile(100), histogram.getMax());
+  }
+
+  @Test
+  public void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(7);
+
+    Assert.assertEquals(new LatencyHistogram().getValueAtPercentile(50), 0);
+    Assert.assertEquals(histogram.getValueAtPercentile(50), 7);
+  }
+
+  @Test
+  public void testOutOfRangeValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-1);
+    Assert.assertEquals(histogram.getCount(), 1);
+    Assert.assertEquals(histogram.getValueAtPercentile(100), 0);
+
+    long lastExact = (1L << 41) - 1;
+    histogram.record(lastExact);
+    assertWithin(histogram.getValueAtPercentile(100), lastExact);
+    histogram.record(Long.MAX_VALUE);
+    Assert.assertEquals(histogram.getMax(), Long.MAX_VALUE);
+    Assert.assertEquals(histogram.getValueAtPercentile(100), lastExact);
+  }
+
+  private static void assertWithin(long actual, long expected) {
+    Assert.assertTrue(Math.abs(actual - expected) <= expected * 0.04,
+        "expected " + expected + " but found " + actual);
+  }
+}
@@ -0,0 +1,146 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.ActionResponse;
+import com.smartcar.sdk.data.VehicleOdometer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: RateLimiter, RetryPolicy */
+public class RequestSchedulerTest {
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private RetryPolicy fastRetries() {
+    return new RetryPolicy.Builder().baseDelay(1, TimeUnit.MILLISECONDS).build();
+  }
+
+  @Test
+  public void testRetryAfterIsHonored() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(
+        MockApi.error(429, "ErrorRateLimitV2").addHeader("Retry-After", "1"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().retryPolicy(fastRetries()).build());
+
+    long start = System.nanoTime();
+    VehicleOdometer odometer = vehicle.odometer();
+
+    Assert.assertEquals(odometer.getDistance(), 104.32);
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1000));
+    Assert.assertEquals(MockApi.requestCount(), 2);
+  }
+
+  @Test
+  public void testReadsRetryServerErrorsUpToMaxAttempts() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    }
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().retryPolicy(fastRetries()).build());
+
+    try {
+      vehicle.odometer();
+      Assert.fail("expected a SmartcarException");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getStatusCode(), 500);
+    }
+    Assert.assertEquals(MockApi.requestCount(), 3);
+  }
+
+  @Test
+  public void testActionsDoNotRetryServerErrors() {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(500, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("SecurityAction"));
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().retryPolicy(fastRetries()).build());
+
+    try {
+      vehicle.lock();
+      Assert.fail("expected a SmartcarException");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getStatusCode(), 500);
+    }
+    Assert.assertEquals(MockApi.requestCount(), 1);
+  }
+
+  @Test
+  public void testAsyncRetry() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(503, "ErrorServerV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.error(429, "ErrorRateLimitV2"));
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("SecurityAction"));
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().retryPolicy(fastRetries()).build());
+
+    try {
+      vehicle.unlockAsync().get(5, TimeUnit.SECONDS);
+      Assert.fail("expected a SmartcarException");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals(((SmartcarException) ex.getCause()).getStatusCode(), 503);
+    }
+    ActionResponse response = vehicle.unlockAsync().get(5, TimeUnit.SECONDS);
+
+    Assert.assertEquals(response.getStatus(), "success");
+    Assert.assertEquals(MockApi.requestCount(), 3);
+  }
+
+  @Test
+  public void testRateLimiterPacesRequests() throws Exception {
+    for (int i = 0; i < 4; i++) {
+      TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+    }
+    RateLimiter limiter = new RateLimiter.Builder()
+        .vehicleRate(EndpointClass.READ, 10, 1)
+        .build();
+    Vehicle vehicle = MockApi.vehicle(new SmartcarClient.Builder().rateLimiter(limiter).build());
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 4; i++) {
+      vehicle.odometer();
+    }
+
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(290));
+  }
+
+  @Test
+  public void testRateLimiterBuckets() {
+    RateLimiter limiter = new RateLimiter.Builder()
+        .applicationRate(1, 2)
+        .vehicleRate(EndpointClass.ACTION, 1, 1)
+        .build();
+    RequestTag first = new RequestTag("vehicle-1", "/security");
+    RequestTag second = new RequestTag("vehicle-2", "/security");
+
+    Assert.assertEquals(limiter.reserve(first, EndpointClass.ACTION), 0);
+    Assert.assertTrue(limiter.reserve(first, EndpointClass.ACTION) > 0);
+    Assert.assertTrue(limiter.reserve(second, EndpointClass.ACTION) > 0);
+  }
+
+  @Test
+  public void testRateLimiterRejectsRatesThatNeverRefill() {
+    RateLimiter.Builder builder = new RateLimiter.Builder();
+    for (double rate : new double[] {0, -1, Double.NaN}) {
+      try {
+        builder.applicationRate(rate, 1);
+        Assert.fail("expected an IllegalArgumentException for " + rate);
+      } catch (IllegalArgumentException ex) {
+        // expected
+      }
+    }
+    try {
+      builder.vehicleRate(EndpointClass.READ, 1, 0);
+      Assert.fail("expected an IllegalArgumentException");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRetryAfterParsing() {
+    Assert.assertEquals(SmartcarException.parseRetryAfter("3"), 3000);
+    Assert.assertEquals(SmartcarException.parseRetryAfter(null), 0);
+    Assert.assertEquals(SmartcarException.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"), 0);
+    Assert.assertEquals(SmartcarException.parseRetryAfter("soon"), 0);
+  }
+}
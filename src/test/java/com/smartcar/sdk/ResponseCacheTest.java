@@ -0,0 +1,133 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.VehicleOdometer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: ResponseCache */
+public class ResponseCacheTest {
+  private static final double FIRST = 104.32;
+  private static final double UPDATED = 105.07;
+
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private Vehicle vehicle(ResponseCache cache) {
+    return MockApi.vehicle(new SmartcarClient.Builder().responseCache(cache).build());
+  }
+
+  private void enqueueOdometer(String fixture, long dataAgeMillis) {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    String dataAge = format.format(new Date(System.currentTimeMillis() - dataAgeMillis));
+    TestExecutionListener.mockWebServer.enqueue(
+        MockApi.response(fixture).addHeader("sc-data-age", dataAge));
+  }
+
+  @Test
+  public void testFreshResponseIsServedFromCache() throws Exception {
+    enqueueOdometer("GetOdometer", 0);
+    Vehicle vehicle = vehicle(new LruResponseCache.Builder()
+        .timeToLive("/odometer", 1, TimeUnit.MINUTES)
+        .build());
+
+    VehicleOdometer first = vehicle.odometer();
+    VehicleOdometer second = vehicle.odometer();
+    VehicleOdometer third = vehicle.odometerAsync().get(5, TimeUnit.SECONDS);
+
+    Assert.assertSame(second, first);
+    Assert.assertSame(third, first);
+    Assert.assertEquals(MockApi.requestCount(), 1);
+  }
+
+  @Test
+  public void testDataAgeCountsTowardsTimeToLive() throws Exception {
+    enqueueOdometer("GetOdometer", TimeUnit.MINUTES.toMillis(5));
+    enqueueOdometer("GetOdometerUpdated", 0);
+    Vehicle vehicle = vehicle(new LruResponseCache.Builder()
+        .timeToLive("/odometer", 1, TimeUnit.MINUTES)
+        .build());
+
+    Assert.assertEquals(vehicle.odometer().getDistance(), FIRST);
+    Assert.assertEquals(vehicle.odometer().getDistance(), UPDATED);
+    Assert.assertEquals(MockApi.requestCount(), 2);
+  }
+
+  @Test
+  public void testStaleResponseIsRevalidatedOnce() throws Exception {
+    enqueueOdometer("GetOdometer", TimeUnit.MINUTES.toMillis(2));
+    enqueueOdometer("GetOdometerUpdated", 0);
+    Vehicle vehicle = vehicle(new LruResponseCache.Builder()
+        .timeToLive("/odometer", 1, TimeUnit.MINUTES)
+        .staleWhileRevalidate(5, TimeUnit.MINUTES)
+        .build());
+
+    Assert.assertEquals(vehicle.odometer().getDistance(), FIRST);
+    Assert.assertEquals(vehicle.odometer().getDistance(), FIRST);
+
+    TestExecutionListener.mockWebServer.takeRequest(5, TimeUnit.SECONDS);
+    TestExecutionListener.mockWebServer.takeRequest(5, TimeUnit.SECONDS);
+    long deadline = System.currentTimeMillis() + 5000;
+    double distance = vehicle.odometer().getDistance();
+    while (distance != UPDATED && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      distance = vehicle.odometer().getDistance();
+    }
+
+    Assert.assertEquals(distance, UPDATED);
+    Assert.assertEquals(MockApi.requestCount(), 2);
+  }
+
+  @Test
+  public void testEndpointsWithoutTimeToLiveAreNotCached() throws Exception {
+    enqueueOdometer("GetOdometer", 0);
+    enqueueOdometer("GetOdometerUpdated", 0);
+    Vehicle vehicle = vehicle(new LruResponseCache.Builder()
+        .timeToLive("/location", 1, TimeUnit.MINUTES)
+        .build());
+
+    Assert.assertEquals(vehicle.odometer().getDistance(), FIRST);
+    Assert.assertEquals(vehicle.odometer().getDistance(), UPDATED);
+    Assert.assertEquals(MockApi.requestCount(), 2);
+  }
+
+  @Test
+  public void testLruEviction() {
+    LruResponseCache cache = new LruResponseCache.Builder()
+        .maxEntries(2)
+        .concurrency(1)
+        .build();
+    cache.put("a", new CachedResponse(new VehicleOdometer(), "/odometer", 0, 0));
+    cache.put("b", new CachedResponse(new VehicleOdometer(), "/odometer", 0, 0));
+    cache.get("a");
+    cache.put("c", new CachedResponse(new VehicleOdometer(), "/odometer", 0, 0));
+
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertNotNull(cache.get("a"));
+    Assert.assertNull(cache.get("b"));
+    Assert.assertNotNull(cache.get("c"));
+  }
+
+  @Test
+  public void testWeightEviction() {
+    LruResponseCache cache = new LruResponseCache.Builder()
+        .maxWeight(10, (data) -> 4)
+        .concurrency(1)
+        .build();
+    cache.put("a", new CachedResponse(new VehicleOdometer(), "/odometer", 0, 0));
+    cache.put("b", new CachedResponse(new VehicleOdometer(), "/odometer", 0, 0));
+    cache.put("c", new CachedResponse(new VehicleOdometer(), "/odometer", 0, 0));
+
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(cache.weight(), 8);
+    Assert.assertNull(cache.get("a"));
+  }
+}
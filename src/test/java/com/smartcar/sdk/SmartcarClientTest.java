@@ -0,0 +1,87 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.VehicleOdometer;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/** Test Suite: SmartcarClient */
+public class SmartcarClientTest {
+
+  @Test
+  public void testDefaults() {
+    OkHttpClient httpClient = new SmartcarClient.Builder().build().getHttpClient();
+
+    Assert.assertEquals(httpClient.readTimeoutMillis(), 310000);
+  }
+
+  @Test
+  public void testDefaultIsShared() {
+    Assert.assertSame(SmartcarClient.getDefault(), SmartcarClient.getDefault());
+  }
+
+  @Test
+  public void testTransportOptions() {
+    OkHttpClient httpClient = new SmartcarClient.Builder()
+        .connectionPool(20, 1, TimeUnit.MINUTES)
+        .maxRequests(256)
+        .maxRequestsPerHost(128)
+        .connectTimeout(2, TimeUnit.SECONDS)
+        .readTimeout(30, TimeUnit.SECONDS)
+        .writeTimeout(3, TimeUnit.SECONDS)
+        .callTimeout(45, TimeUnit.SECONDS)
+        .build()
+        .getHttpClient();
+
+    Assert.assertEquals(httpClient.dispatcher().getMaxRequests(), 256);
+    Assert.assertEquals(httpClient.dispatcher().getMaxRequestsPerHost(), 128);
+    Assert.assertEquals(httpClient.connectTimeoutMillis(), 2000);
+    Assert.assertEquals(httpClient.readTimeoutMillis(), 30000);
+    Assert.assertEquals(httpClient.writeTimeoutMillis(), 3000);
+    Assert.assertEquals(httpClient.callTimeoutMillis(), 45000);
+  }
+
+  @Test
+  public void testSeparateClientsAreIsolated() {
+    OkHttpClient polling = new SmartcarClient.Builder().maxRequests(512).build().getHttpClient();
+    OkHttpClient commands = new SmartcarClient.Builder().maxRequests(16).build().getHttpClient();
+
+    Assert.assertNotSame(polling.dispatcher(), commands.dispatcher());
+    Assert.assertNotSame(polling.connectionPool(), commands.connectionPool());
+  }
+
+  @Test
+  public void testDerivedFromExistingClient() {
+    OkHttpClient base = new OkHttpClient.Builder().readTimeout(5, TimeUnit.SECONDS).build();
+
+    OkHttpClient shared = new SmartcarClient.Builder().httpClient(base).build().getHttpClient();
+    Assert.assertSame(shared.connectionPool(), base.connectionPool());
+    Assert.assertSame(shared.dispatcher(), base.dispatcher());
+    Assert.assertEquals(shared.readTimeoutMillis(), 5000);
+
+    OkHttpClient tuned = new SmartcarClient.Builder().httpClient(base).maxRequests(8).build().getHttpClient();
+    Assert.assertSame(tuned.connectionPool(), base.connectionPool());
+    Assert.assertNotSame(tuned.dispatcher(), base.dispatcher());
+    Assert.assertEquals(tuned.dispatcher().getMaxRequests(), 8);
+  }
+
+  @Test
+  public void testVehicleUsesClient() throws Exception {
+    SmartcarClient client = new SmartcarClient.Builder().maxRequestsPerHost(1).build();
+    SmartcarVehicleOptions options = new SmartcarVehicleOptions.Builder()
+        .origin("http://localhost:" + TestExecutionListener.mockWebServer.getPort())
+        .client(client)
+        .build();
+    Vehicle vehicle = new Vehicle("vehicle-id", "access-token", options);
+    TestExecutionListener.mockWebServer.enqueue(new MockResponse().setBody("{ \"distance\": 100 }"));
+
+    VehicleOdometer odometer = vehicle.odometer();
+
+    Assert.assertEquals(odometer.getDistance(), 100.0);
+    Assert.assertEquals(client.getHttpClient().connectionPool().connectionCount(), 1);
+    TestExecutionListener.mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,131 @@
+package com.smartcar.sdk;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/** Test Suite: SmartcarException */
+public class SmartcarExceptionTest {
+  private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+  private static final Headers HEADERS = new Headers.Builder()
+      .add("content-type", "application/json")
+      .add("sc-request-id", "request")
+      .add("retry-after", "3")
+      .build();
+
+  private static SmartcarException decode(String body) {
+    return SmartcarException.Factory(409, HEADERS, ResponseBody.create(body, JSON));
+  }
+
+  @Test
+  public void testErrorsAreDecodedWithoutConsoleOutput() {
+    PrintStream stdout = System.out;
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(captured));
+    SmartcarException v2;
+    SmartcarException v1;
+    try {
+      v2 = decode("{ \"type\": \"PERMISSION\", \"code\": null, \"description\": \"No access\", "
+          + "\"docURL\": \"https://smartcar.com\", \"unknown\": { \"nested\": [1, 2] }, "
+          + "\"resolution\": { \"type\": \"REAUTHENTICATE\", \"url\": \"https://example.com\" }, "
+          + "\"detail\": [ { \"field\": \"vin\" } ] }");
+      v1 = decode("{ \"message\": \"Insufficient\", \"error\": \"permission_error\", \"code\": 7 }");
+    } finally {
+      System.setOut(stdout);
+    }
+    Assert.assertEquals(captured.size(), 0);
+
+    Assert.assertEquals(v2.getStatusCode(), 409);
+    Assert.assertEquals(v2.getRequestId(), "request");
+    Assert.assertEquals(v2.getRetryAfter(), 3000);
+    Assert.assertEquals(v2.getType(), "PERMISSION");
+    Assert.assertNull(v2.getCode());
+    Assert.assertEquals(v2.getDescription(), "No access");
+    Assert.assertEquals(v2.getResolutionType(), "REAUTHENTICATE");
+    Assert.assertEquals(v2.getResolutionUrl(), "https://example.com");
+    Assert.assertEquals(v2.getDetail().get(0).getAsJsonObject().get("field").getAsString(), "vin");
+
+    Assert.assertEquals(v1.getType(), "permission_error");
+    Assert.assertEquals(v1.getCode(), "7");
+    Assert.assertEquals(v1.getDescription(), "Insufficient");
+
+    SmartcarException other = decode("[ \"not\", \"an\", \"error\" ]");
+    Assert.assertEquals(other.getType(), "SDK_ERROR");
+    Assert.assertEquals(other.getDescription(), "[ \"not\", \"an\", \"error\" ]");
+  }
+
+  @Test
+  public void testParsedErrorsAreDecodedLikeStreamedOnes() {
+    JsonObject headers = new JsonObject();
+    headers.addProperty("sc-request-id", "request");
+    String[] bodies = {
+        "{ \"type\": \"PERMISSION\", \"code\": null, \"description\": \"No access\", "
+            + "\"docURL\": \"https://smartcar.com\", \"unknown\": { \"nested\": [1, 2] }, "
+            + "\"resolution\": { \"type\": \"REAUTHENTICATE\", \"url\": \"https://example.com\" }, "
+            + "\"detail\": [ { \"field\": \"vin\" } ] }",
+        "{ \"type\": \"VEHICLE_STATE\", \"code\": \"ASLEEP\", \"description\": \"\", "
+            + "\"docURL\": \"\", \"resolution\": \"RETRY_LATER\" }",
+        "{ \"message\": \"Insufficient\", \"error\": \"permission_error\", \"code\": 7 }",
+        "{ \"unknown\": true }"
+    };
+
+    for (String body : bodies) {
+      SmartcarException streamed = decode(body);
+      SmartcarException parsed = SmartcarException.Factory(
+          409, headers, JsonParser.parseString(body).getAsJsonObject());
+
+      Assert.assertEquals(parsed.getType(), streamed.getType(), body);
+      Assert.assertEquals(parsed.getCode(), streamed.getCode(), body);
+      Assert.assertEquals(parsed.getDescription().isEmpty(), streamed.getDescription().isEmpty(), body);
+      Assert.assertEquals(parsed.getDocURL(), streamed.getDocURL(), body);
+      Assert.assertEquals(parsed.getResolutionType(), streamed.getResolutionType(), body);
+      Assert.assertEquals(parsed.getResolutionUrl(), streamed.getResolutionUrl(), body);
+      Assert.assertEquals(parsed.getDetail(), streamed.getDetail(), body);
+      Assert.assertEquals(parsed.getRequestId(), "request");
+    }
+  }
+
+  @Test
+  public void testStackTracesCanBeOmittedForExpectedErrors() {
+    String body = "{ \"type\": \"VEHICLE_STATE\", \"code\": \"ASLEEP\", \"description\": \"\", "
+        + "\"docURL\": \"\", \"resolution\": null }";
+    Assert.assertTrue(decode(body).getStackTrace().length > 0);
+
+    SmartcarClient client =
+        new SmartcarClient.Builder().omitStackTraces("VEHICLE_STATE", "RATE_LIMIT").build();
+    Assert.assertEquals(client.getStackTraceFreeTypes(),
+        new HashSet<>(Arrays.asList("VEHICLE_STATE", "RATE_LIMIT")));
+    SmartcarException error = SmartcarException.Factory(
+        409, HEADERS, ResponseBody.create(body, JSON), client.getStackTraceFreeTypes());
+    Assert.assertEquals(error.getStackTrace().length, 0);
+    Assert.assertEquals(error.getCode(), "ASLEEP");
+    Assert.assertTrue(SmartcarException.Factory(409, HEADERS,
+        ResponseBody.create("{ \"type\": \"PERMISSION\", \"code\": null, \"description\": \"\", "
+            + "\"docURL\": \"\", \"resolution\": null }", JSON),
+        client.getStackTraceFreeTypes()).getStackTrace().length > 0);
+    Assert.assertTrue(decode(body).getStackTrace().length > 0);
+    Assert.assertTrue(new SmartcarException.Builder().type("VEHICLE_STATE").build().getStackTrace().length > 0);
+  }
+
+  @Test
+  public void testNonJsonErrorPagesAreSdkErrors() {
+    Headers html = new Headers.Builder().add("content-type", "text/html").build();
+    String page = "<html><body><h1>502 Bad Gateway</h1></body></html>";
+    SmartcarException error = SmartcarException.Factory(
+        502, html, ResponseBody.create(page, MediaType.get("text/html")));
+
+    Assert.assertEquals(error.getStatusCode(), 502);
+    Assert.assertEquals(error.getType(), "SDK_ERROR");
+    Assert.assertEquals(error.getDescription(), page);
+    Assert.assertEquals(error.getMessage(), "SDK_ERROR:null - " + page);
+  }
+}
@@ -13,6 +13,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import javax.json.JsonObject;
+import java.util.concurrent.TimeUnit;
 
 @PowerMockIgnore({"javax.net.ssl.*", "javax.crypto.*"})
 @PrepareForTest({
@@ -42,6 +43,24 @@ public class SmartcarTest extends PowerMockTestCase {
         TestExecutionListener.mockWebServer.takeRequest();
     }
 
+    @Test
+    public void testGetUserAsync() throws Exception {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.getenv("SMARTCAR_API_ORIGIN")).thenReturn(
+                "http://localhost:" + TestExecutionListener.mockWebServer.getPort()
+        );
+        String expectedUserId = "9c58a58f-579e-4fce-b2fc-53a518271b8c";
+        MockResponse response = new MockResponse()
+                .setBody("{ \"id\": \"" + expectedUserId + "\" }")
+                .addHeader("sc-request-id", this.sampleRequestId);
+        TestExecutionListener.mockWebServer.enqueue(response);
+
+        User user = Smartcar.getUserAsync(this.fakeAccessToken).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(user.getId(), expectedUserId);
+        Assert.assertEquals(user.getMeta().getRequestId(), this.sampleRequestId);
+        TestExecutionListener.mockWebServer.takeRequest();
+    }
+
     @Test
     public void testVehicles() throws Exception {
         PowerMockito.mockStatic(System.class);
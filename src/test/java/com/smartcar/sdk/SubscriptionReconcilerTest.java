@@ -0,0 +1,149 @@
+package com.smartcar.sdk;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Test Suite: SubscriptionReconciler */
+public class SubscriptionReconcilerTest {
+  private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+  private final Set<String> broken = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+    this.requests.clear();
+    this.broken.clear();
+    this.active.set(0);
+    this.maxActive.set(0);
+    TestExecutionListener.mockWebServer.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        int current = active.incrementAndGet();
+        maxActive.accumulateAndGet(current, Math::max);
+        try {
+          Thread.sleep(5);
+          String vehicleId = request.getPath().split("/")[3];
+          int attempt = requests.computeIfAbsent(request.getMethod() + " " + vehicleId,
+              (k) -> new AtomicInteger()).incrementAndGet();
+          if (vehicleId.equals("flaky") && attempt == 1) {
+            return MockApi.error(503, "ErrorServerV2").addHeader("retry-after", "0");
+          }
+          if (broken.contains(vehicleId)) {
+            return MockApi.error(400, "ErrorValidationV2");
+          }
+          if (request.getMethod().equals("DELETE")) {
+            return MockApi.response("UnsubscribeVehicle");
+          }
+          return MockApi.response("SubscribeVehicle");
+        } finally {
+          active.decrementAndGet();
+        }
+      }
+    });
+  }
+
+  @AfterMethod
+  public void afterMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private SubscriptionReconciler.Builder reconciler() {
+    return new SubscriptionReconciler.Builder()
+        .origin(MockApi.origin())
+        .applicationManagementToken("amt")
+        .rate(1000);
+  }
+
+  private static List<SubscriptionReconciler.Subscription> subscriptions(String... vehicleIds) {
+    List<SubscriptionReconciler.Subscription> subscriptions = new ArrayList<>();
+    for (String vehicleId : vehicleIds) {
+      subscriptions.add(SubscriptionReconciler.Subscription.of(vehicleId, "webhook", "token"));
+    }
+    return subscriptions;
+  }
+
+  @Test
+  public void testOnlyTheDifferenceIsApplied() throws Exception {
+    List<SubscriptionReconciler.Subscription> desired = subscriptions("flaky");
+    for (int i = 0; i < 30; i++) {
+      desired.add(SubscriptionReconciler.Subscription.of("vehicle-" + i, "webhook", "token"));
+    }
+    List<SubscriptionReconciler.Subscription> current = subscriptions("vehicle-0", "vehicle-1", "old");
+    List<Long> reports = Collections.synchronizedList(new ArrayList<>());
+
+    SubscriptionReconciler.Progress progress;
+    try (SubscriptionReconciler reconciler = reconciler()
+        .maxConcurrency(3)
+        .progressInterval(10)
+        .listener((p) -> reports.add(p.getCompleted()))
+        .build()) {
+      progress = reconciler.reconcile(desired, current);
+    }
+
+    Assert.assertEquals(progress.getTotal(), 30);
+    Assert.assertEquals(progress.getSubscribed(), 29);
+    Assert.assertEquals(progress.getUnsubscribed(), 1);
+    Assert.assertEquals(progress.getFailed(), 0);
+    Assert.assertNull(this.requests.get("POST vehicle-0"));
+    Assert.assertEquals(this.requests.get("DELETE old").get(), 1);
+    Assert.assertEquals(this.requests.get("POST flaky").get(), 2);
+    Assert.assertTrue(this.maxActive.get() <= 3, "max concurrency was " + this.maxActive.get());
+    Assert.assertEquals(reports, Arrays.asList(10L, 20L, 30L, 30L));
+  }
+
+  @Test
+  public void testAnInterruptedRunResumesFromItsCheckpoint() throws Exception {
+    Path checkpoint = Files.createTempFile("subscriptions", ".checkpoint");
+    Files.delete(checkpoint);
+    this.broken.add("vehicle-3");
+    List<String> failures = Collections.synchronizedList(new ArrayList<>());
+    SubscriptionReconciler reconciler = reconciler()
+        .checkpoint(checkpoint)
+        .listener(new SubscriptionReconciler.Listener() {
+          @Override
+          public void onProgress(SubscriptionReconciler.Progress progress) {}
+
+          @Override
+          public void onFailure(
+              SubscriptionReconciler.Subscription subscription, boolean subscribe, SmartcarException error) {
+            failures.add(subscription.getVehicleId() + " " + error.getType());
+          }
+        })
+        .build();
+    List<SubscriptionReconciler.Subscription> desired =
+        subscriptions("vehicle-0", "vehicle-1", "vehicle-2", "vehicle-3");
+
+    SubscriptionReconciler.Progress first = reconciler.reconcile(desired, Collections.emptyList());
+    Assert.assertEquals(first.getSubscribed(), 3);
+    Assert.assertEquals(first.getFailed(), 1);
+    Assert.assertEquals(failures, Collections.singletonList("vehicle-3 VALIDATION"));
+    Assert.assertEquals(Files.readAllLines(checkpoint).size(), 3);
+
+    this.broken.clear();
+    SubscriptionReconciler.Progress second = reconciler.reconcile(desired, Collections.emptyList());
+    reconciler.close();
+    Assert.assertEquals(second.getSkipped(), 3);
+    Assert.assertEquals(second.getSubscribed(), 1);
+    Assert.assertEquals(this.requests.get("POST vehicle-0").get(), 1);
+    Assert.assertEquals(this.requests.get("POST vehicle-3").get(), 2);
+    Assert.assertFalse(Files.exists(checkpoint));
+  }
+}
@@ -0,0 +1,144 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Auth;
+import com.smartcar.sdk.data.VehicleOdometer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Test Suite: TokenManager, TimingWheel */
+public class TokenManagerTest {
+  @BeforeMethod
+  public void beforeMethod() throws InterruptedException {
+    MockApi.reset();
+  }
+
+  private static Auth auth(String accessToken, String refreshToken, long expiresInMillis) {
+    Date expiration = new Date(System.currentTimeMillis() + expiresInMillis);
+    return new Auth(accessToken, refreshToken, expiration, new Date(expiration.getTime() + 60_000));
+  }
+
+  @Test
+  public void testTimingWheelExpiresEntriesInOrder() {
+    long start = 1_000_000L;
+    TimingWheel wheel = new TimingWheel(10, start);
+    List<Integer> fired = new ArrayList<>();
+    long[] delays = {5, 15, 640, 650, 50_000, 3_000_000, 200_000_000_000L};
+    for (int i = 0; i < delays.length; i++) {
+      int index = i;
+      Assert.assertTrue(wheel.schedule(new TimingWheel.Entry(() -> fired.add(index)), start + delays[i]));
+    }
+    TimingWheel.Entry cancelled = new TimingWheel.Entry(() -> fired.add(-1));
+    wheel.schedule(cancelled, start + 100);
+    wheel.cancel(cancelled);
+    Assert.assertFalse(wheel.schedule(new TimingWheel.Entry(() -> {}), start - 1));
+    Assert.assertEquals(wheel.size(), delays.length);
+
+    for (int i = 0; i < delays.length; i++) {
+      for (TimingWheel.Entry entry : wheel.advance(start + delays[i] - 10)) {
+        entry.run();
+      }
+      Assert.assertEquals(fired.size(), i, "fired early at " + delays[i]);
+      for (TimingWheel.Entry entry : wheel.advance(start + delays[i] + 9)) {
+        entry.run();
+      }
+      Assert.assertEquals(fired.size(), i + 1, "not fired at " + delays[i]);
+      Assert.assertEquals(fired.get(i), Integer.valueOf(i));
+    }
+    Assert.assertEquals(wheel.size(), 0);
+  }
+
+  @Test
+  public void testTokensAreRefreshedBeforeTheyExpire() throws Exception {
+    CountDownLatch refreshed = new CountDownLatch(1);
+    List<Auth> persisted = new ArrayList<>();
+    TokenManager manager = new TokenManager.Builder()
+        .refresher((refreshToken) -> auth("access-2", refreshToken + "-next", 3_600_000))
+        .refreshBefore(1, TimeUnit.HOURS)
+        .jitter(0, TimeUnit.MILLISECONDS)
+        .listener((previous, current) -> {
+          persisted.add(current);
+          refreshed.countDown();
+        })
+        .build();
+    try {
+      // Due for refresh 300ms from now.
+      TokenManager.ManagedToken token = manager.track(auth("access-1", "refresh", 3_600_300));
+
+      Assert.assertEquals(token.getAccessToken(), "access-1");
+      Assert.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+      Assert.assertEquals(token.getAccessToken(), "access-2");
+      Assert.assertEquals(persisted.get(0).getRefreshToken(), "refresh-next");
+      Assert.assertSame(manager.track(persisted.get(0)), token);
+      Assert.assertEquals(manager.size(), 1);
+    } finally {
+      manager.close();
+    }
+  }
+
+  @Test
+  public void testConcurrentCallersShareOneRefresh() throws Exception {
+    AtomicInteger refreshes = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    TokenManager manager = new TokenManager.Builder()
+        .refresher((refreshToken) -> {
+          refreshes.incrementAndGet();
+          try {
+            release.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          return auth("access-2", "refresh-2", 3_600_000);
+        })
+        .refreshBefore(0, TimeUnit.MILLISECONDS)
+        .jitter(0, TimeUnit.MILLISECONDS)
+        .build();
+    try {
+      TokenManager.ManagedToken token = manager.track(auth("access-1", "refresh", -1000));
+
+      List<CompletableFuture<String>> callers = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        callers.add(token.getAccessTokenAsync());
+      }
+      release.countDown();
+
+      for (CompletableFuture<String> caller : callers) {
+        Assert.assertEquals(caller.get(5, TimeUnit.SECONDS), "access-2");
+      }
+      Assert.assertEquals(refreshes.get(), 1);
+    } finally {
+      manager.close();
+    }
+  }
+
+  @Test
+  public void testVehicleUsesTheManagedAccessToken() throws Exception {
+    TestExecutionListener.mockWebServer.enqueue(MockApi.response("GetOdometer"));
+    TokenManager manager = new TokenManager.Builder()
+        .refresher((refreshToken) -> auth("fresh-token", "refresh-2", 3_600_000))
+        .build();
+    try {
+      SmartcarVehicleOptions options = new SmartcarVehicleOptions.Builder()
+          .origin(MockApi.origin())
+          .client(new SmartcarClient.Builder().build())
+          .build();
+      Vehicle vehicle = new Vehicle(MockApi.VEHICLE_ID, manager.track(auth("expired", "refresh", -1000)), options);
+
+      VehicleOdometer odometer = vehicle.odometerAsync().get(5, TimeUnit.SECONDS);
+
+      Assert.assertEquals(odometer.getDistance(), 104.32);
+      Assert.assertEquals(
+          TestExecutionListener.mockWebServer.takeRequest().getHeader("Authorization"), "Bearer fresh-token");
+    } finally {
+      manager.close();
+    }
+  }
+}
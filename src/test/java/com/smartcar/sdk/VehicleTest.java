@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /** Test Suite: Vehicle */
@@ -145,6 +146,36 @@ public class VehicleTest {
     Assert.assertEquals(odometer.getDistance(), 104.32);
   }
 
+  @Test
+  public void testOdometerAsync() throws Exception {
+    loadAndEnqueueResponse("GetOdometer");
+
+    VehicleOdometer odometer = this.subject.odometerAsync().get(5, TimeUnit.SECONDS);
+
+    Assert.assertEquals(odometer.getDistance(), 104.32);
+    Assert.assertEquals(odometer.getMeta().getRequestId(), this.expectedRequestId);
+  }
+
+  @Test
+  public void testAsyncError() throws Exception {
+    loadAndEnqueueErrorResponse("ErrorVehicleStateV2", 409);
+    boolean thrown = false;
+
+    try {
+      this.subject.locationAsync().get(5, TimeUnit.SECONDS);
+    } catch (ExecutionException ex) {
+      thrown = true;
+      Assert.assertTrue(ex.getCause() instanceof SmartcarException);
+      SmartcarException cause = (SmartcarException) ex.getCause();
+      Assert.assertEquals(cause.getStatusCode(), 409);
+      Assert.assertEquals(cause.getType(), "VEHICLE_STATE");
+      Assert.assertEquals(cause.getCode(), "ASLEEP");
+      Assert.assertEquals(cause.getRequestId(), this.expectedRequestId);
+    }
+
+    Assert.assertTrue(thrown);
+  }
+
   @Test
   public void testFuel() throws Exception {
     loadAndEnqueueResponse("GetFuel");
@@ -423,6 +454,28 @@ public class VehicleTest {
     Assert.assertTrue(thrown);
   }
 
+  @Test
+  public void testInvalidJson200Response() {
+    MockResponse mockResponse = new MockResponse()
+            .setResponseCode(200)
+            .setBody("{ \"distance\": [")
+            .addHeader("sc-request-id", this.expectedRequestId);
+    TestExecutionListener.mockWebServer.enqueue(mockResponse);
+    boolean thrown = false;
+
+    try {
+      this.subject.odometer();
+    } catch (SmartcarException ex) {
+      thrown = true;
+      Assert.assertEquals(ex.getDescription(), "{ \"distance\": [");
+      Assert.assertEquals(ex.getStatusCode(), 200);
+      Assert.assertEquals(ex.getRequestId(), this.expectedRequestId);
+      Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    }
+
+    Assert.assertTrue(thrown);
+  }
+
   @Test
   public void testNullErrorResponse() {
     MockResponse mockResponse = new MockResponse()
@@ -532,6 +585,43 @@ public class VehicleTest {
     Assert.assertEquals(odo.getMeta().getRequestId(), "67127d3a-a08a-41f0-8211-f96da36b2d6e");
   }
 
+  @Test
+  public void testBatchDecodesEachPathOnce() throws Exception {
+    loadAndEnqueueResponse("BatchResponseMixed");
+
+    BatchResponse batch = this.subject.batch(new String[] {"/odometer", "/fuel"});
+    VehicleOdometer odo = batch.odometer();
+    Assert.assertSame(batch.odometer(), odo);
+    Assert.assertEquals(odo.getMeta().getRequestId(), this.expectedRequestId);
+
+    SmartcarException first = null;
+    SmartcarException second = null;
+    try {
+      batch.fuel();
+    } catch (SmartcarException e) {
+      first = e;
+    }
+    try {
+      batch.fuel();
+    } catch (SmartcarException e) {
+      second = e;
+    }
+    Assert.assertNotNull(first);
+    Assert.assertSame(second, first);
+    Assert.assertEquals(first.getRequestId(), this.expectedRequestId);
+  }
+
+  @Test
+  public void testBatchAsync() throws Exception {
+    loadAndEnqueueResponse("BatchResponseSuccess");
+
+    BatchResponse batch = this.subject.batchAsync(new String[] {"/odometer"}).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(batch.getRequestId(), this.expectedRequestId);
+
+    VehicleOdometer odo = batch.odometer();
+    Assert.assertEquals(odo.getDistance(), 32768.0);
+  }
+
   @Test
   public void testBatchHTTPError() throws Exception {
     loadAndEnqueueResponse("BatchResponseError");
@@ -0,0 +1,95 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.Compatibility;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/** Test Suite: VinPrescreener */
+public class VinPrescreenerTest {
+  private static final String INDEX = "# supported makes\n"
+      + "5YJ 2012\n"
+      + "!5YJR\n"
+      + "1HG 2001 2030\n"
+      + "WBA, 2014, 2030\n"
+      + "WDD 2015\n";
+
+  private static VinPrescreener prescreener() throws SmartcarException {
+    return new VinPrescreener.Builder().index(new StringReader(INDEX)).build();
+  }
+
+  @Test
+  public void testDefiniteNegativesAreAnsweredLocally() throws SmartcarException {
+    VinPrescreener prescreener = prescreener();
+    Assert.assertEquals(prescreener.size(), 5);
+
+    Assert.assertEquals(prescreener.screen("5YJ3E1EA8KF000001"), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(prescreener.screen(" 1hgcm82633a004352 "), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(prescreener.screen("WBA8E9G50GNU12345"), VinPrescreener.Outcome.PASS);
+
+    Assert.assertEquals(prescreener.screen("1HGCM82634A004352"), VinPrescreener.Outcome.INVALID_VIN);
+    Assert.assertEquals(prescreener.screen("1HGCM82633A00435"), VinPrescreener.Outcome.INVALID_VIN);
+    Assert.assertEquals(prescreener.screen("1HGCM8263OA004352"), VinPrescreener.Outcome.INVALID_VIN);
+    Assert.assertEquals(prescreener.screen("1FTEW1EP1MK000001"), VinPrescreener.Outcome.UNSUPPORTED_MAKE);
+    Assert.assertEquals(prescreener.screen("5YJRE11BX81000001"), VinPrescreener.Outcome.UNSUPPORTED_MAKE);
+    Assert.assertEquals(prescreener.screen("1HGCM8264YA004352"), VinPrescreener.Outcome.UNSUPPORTED_MODEL_YEAR);
+
+    Compatibility answer = VinPrescreener.answer(VinPrescreener.Outcome.UNSUPPORTED_MAKE);
+    Assert.assertFalse(answer.getCompatible());
+    Assert.assertEquals(answer.getReason(), "MAKE_NOT_COMPATIBLE");
+    Assert.assertNull(VinPrescreener.answer(VinPrescreener.Outcome.PASS));
+  }
+
+  @Test
+  public void testModelYearsOutsideNorthAmericaAreNotChecked() throws SmartcarException {
+    VinPrescreener prescreener = prescreener();
+
+    Assert.assertEquals(prescreener.screen("WBA8E9G50CNU12345"), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(prescreener.screen("WDD2050461A123456"), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(prescreener.screen("WDD205046ZA123456"), VinPrescreener.Outcome.PASS);
+  }
+
+  @Test
+  public void testUndecodableYearCodesPass() throws SmartcarException {
+    Assert.assertEquals(prescreener().screen("1HGCM8262ZA004352"), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(VinPrescreener.modelYears("1HGCM8262ZA004352", 2026), new int[0]);
+  }
+
+  @Test
+  public void testModelYearsAreDecoded() {
+    Assert.assertEquals(VinPrescreener.modelYears("1HGCM82633A004352", 2026), new int[] {2003});
+    Assert.assertEquals(VinPrescreener.modelYears("5YJ3E1EA8KF000001", 2026), new int[] {2019});
+    Assert.assertEquals(VinPrescreener.modelYears("WBA8E9G50GNU12345", 2026), new int[] {1986, 2016});
+    Assert.assertEquals(VinPrescreener.modelYears("WBA8E9G509NU12345", 2026), new int[] {2009});
+  }
+
+  @Test
+  public void testReloadSwapsTheIndex() throws Exception {
+    Path path = Files.createTempFile("wmi", ".txt");
+    Files.write(path, INDEX.getBytes(StandardCharsets.UTF_8));
+    VinPrescreener prescreener = new VinPrescreener.Builder().index(path).build();
+    Assert.assertEquals(prescreener.screen("1FTEW1EP1MK000001"), VinPrescreener.Outcome.UNSUPPORTED_MAKE);
+
+    Files.write(path, Arrays.asList("1FTEW 2015", "5YJ"), StandardCharsets.UTF_8);
+    prescreener.reload();
+    Assert.assertEquals(prescreener.size(), 2);
+    Assert.assertEquals(prescreener.screen("1FTEW1EP1MK000001"), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(prescreener.screen("5YJRE11BX81000001"), VinPrescreener.Outcome.PASS);
+    Assert.assertEquals(prescreener.screen("1HGCM82633A004352"), VinPrescreener.Outcome.UNSUPPORTED_MAKE);
+
+    Files.write(path, Arrays.asList("1F"), StandardCharsets.UTF_8);
+    try {
+      prescreener.reload();
+      Assert.fail("expected an invalid index");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    }
+    Assert.assertEquals(prescreener.size(), 2);
+    Files.delete(path);
+  }
+}
@@ -0,0 +1,180 @@
+package com.smartcar.sdk;
+
+import com.smartcar.sdk.data.VehicleBattery;
+import com.smartcar.sdk.data.WebhookEvent;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Test Suite: WebhookDispatcher */
+public class WebhookDispatcherTest {
+  private static String schedule(String vehicleId, int sequence) {
+    return "{ \"version\": \"2.0\", \"webhookId\": \"webhook\", \"eventName\": \"schedule\", "
+        + "\"mode\": \"test\", \"payload\": [ { \"vehicleId\": \"" + vehicleId + "\", "
+        + "\"requestId\": \"request-" + sequence + "\", \"data\": [ "
+        + "{ \"path\": \"/battery\", \"code\": 200, \"headers\": { \"sc-unit-system\": \"metric\" }, "
+        + "\"body\": { \"percentRemaining\": 0.5, \"range\": " + sequence + " } }, "
+        + "{ \"path\": \"/odometer\", \"code\": 409, \"headers\": {}, \"body\": { "
+        + "\"type\": \"VEHICLE_STATE\", \"code\": \"ASLEEP\", \"description\": \"\", "
+        + "\"docURL\": \"\", \"resolution\": null } } ] } ] }";
+  }
+
+  @Test
+  public void testEventsAreTyped() throws SmartcarException {
+    List<WebhookEvent> events = WebhookEvent.parse(schedule("vehicle", 42));
+    Assert.assertEquals(events.size(), 1);
+    WebhookEvent event = events.get(0);
+    Assert.assertEquals(event.getEventName(), "schedule");
+    Assert.assertEquals(event.getVehicleId(), "vehicle");
+    Assert.assertEquals(event.getRequestId(), "request-42");
+
+    VehicleBattery battery = event.get(Endpoint.BATTERY);
+    Assert.assertEquals(battery.getRange(), 42.0);
+    Assert.assertEquals(battery.getMeta().getUnitSystem(), "metric");
+    Assert.assertTrue(event.has(Endpoint.ODOMETER));
+    try {
+      event.get(Endpoint.ODOMETER);
+      Assert.fail("expected the delivered error");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "VEHICLE_STATE");
+    }
+
+    WebhookEvent verify = WebhookEvent.parse(
+        "{ \"eventName\": \"verify\", \"payload\": { \"challenge\": \"abc\" } }").get(0);
+    Assert.assertEquals(verify.getEventName(), WebhookEvent.VERIFY);
+    Assert.assertEquals(verify.getChallenge(), "abc");
+  }
+
+  @Test
+  public void testStackTracesCanBeOmittedForDeliveredErrors() throws Exception {
+    List<Integer> depths = Collections.synchronizedList(new ArrayList<>());
+    WebhookDispatcher dispatcher = new WebhookDispatcher.Builder()
+        .omitStackTraces("VEHICLE_STATE")
+        .handler("schedule", (event) -> {
+          try {
+            event.get(Endpoint.ODOMETER);
+          } catch (SmartcarException ex) {
+            depths.add(ex.getStackTrace().length);
+          }
+        })
+        .build();
+
+    dispatcher.dispatch(schedule("vehicle", 1));
+    Assert.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+    dispatcher.close();
+
+    Assert.assertEquals(depths, Collections.singletonList(0));
+    try {
+      WebhookEvent.parse(schedule("vehicle", 2)).get(0).get(Endpoint.ODOMETER);
+      Assert.fail("expected the delivered error");
+    } catch (SmartcarException ex) {
+      Assert.assertTrue(ex.getStackTrace().length > 0);
+    }
+  }
+
+  @Test
+  public void testEventsOfAVehicleAreHandledInOrder() throws Exception {
+    Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+    Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    AtomicInteger overlaps = new AtomicInteger();
+    AtomicInteger errors = new AtomicInteger();
+
+    WebhookDispatcher dispatcher = new WebhookDispatcher.Builder()
+        .threads(4)
+        .handler("schedule", (event) -> {
+          AtomicInteger lane = running.computeIfAbsent(event.getVehicleId(), (k) -> new AtomicInteger());
+          if (lane.incrementAndGet() > 1) {
+            overlaps.incrementAndGet();
+          }
+          seen.computeIfAbsent(event.getVehicleId(), (k) -> Collections.synchronizedList(new ArrayList<>()))
+              .add((int) event.get(Endpoint.BATTERY).getRange());
+          lane.decrementAndGet();
+        })
+        .handler("schedule", (event) -> {
+          throw new IllegalStateException("boom");
+        })
+        .errorHandler((event, error) -> errors.incrementAndGet())
+        .build();
+
+    for (int i = 0; i < 200; i++) {
+      dispatcher.dispatch(schedule("vehicle-" + (i % 8), i));
+    }
+    Assert.assertTrue(dispatcher.awaitIdle(10, TimeUnit.SECONDS));
+    dispatcher.close();
+
+    Assert.assertEquals(overlaps.get(), 0);
+    Assert.assertEquals(errors.get(), 200);
+    Assert.assertEquals(seen.size(), 8);
+    for (Map.Entry<String, List<Integer>> entry : seen.entrySet()) {
+      List<Integer> sequence = entry.getValue();
+      Assert.assertEquals(sequence.size(), 25);
+      for (int i = 1; i < sequence.size(); i++) {
+        Assert.assertTrue(sequence.get(i - 1) < sequence.get(i), entry.getKey() + " " + sequence);
+      }
+    }
+  }
+
+  @Test
+  public void testAnErrorInAHandlerDoesNotStrandTheLane() throws Exception {
+    List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    WebhookDispatcher dispatcher = new WebhookDispatcher.Builder()
+        .threads(1)
+        .handler("schedule", (event) -> {
+          int sequence = (int) event.get(Endpoint.BATTERY).getRange();
+          seen.add(sequence);
+          if (sequence == 1) {
+            throw new AssertionError("boom");
+          }
+        })
+        .errorHandler((event, error) -> errors.add(error))
+        .build();
+
+    dispatcher.dispatch(schedule("vehicle", 1));
+    Assert.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+    dispatcher.dispatch(schedule("vehicle", 2));
+    Assert.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+    dispatcher.close();
+
+    Assert.assertEquals(seen, Arrays.asList(1, 2));
+    Assert.assertEquals(errors.size(), 1);
+    Assert.assertTrue(errors.get(0) instanceof AssertionError);
+  }
+
+  @Test
+  public void testAFullDispatcherRejectsDeliveries() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    WebhookDispatcher dispatcher = new WebhookDispatcher.Builder()
+        .threads(1)
+        .queueCapacity(2)
+        .defaultHandler((event) -> release.await())
+        .build();
+
+    Assert.assertTrue(dispatcher.tryDispatch(schedule("a", 1), 0, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(dispatcher.tryDispatch(schedule("b", 2), 0, TimeUnit.MILLISECONDS));
+    Assert.assertFalse(dispatcher.tryDispatch(schedule("c", 3), 50, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(dispatcher.pending(), 2);
+
+    release.countDown();
+    Assert.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+    Assert.assertTrue(dispatcher.tryDispatch(schedule("c", 3), 0, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(dispatcher.awaitIdle(5, TimeUnit.SECONDS));
+
+    dispatcher.close();
+    try {
+      dispatcher.dispatch(schedule("d", 4));
+      Assert.fail("expected the closed dispatcher to refuse events");
+    } catch (SmartcarException ex) {
+      Assert.assertEquals(ex.getType(), "SDK_ERROR");
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.smartcar.sdk;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Test Suite: WebhookVerifier */
+public class WebhookVerifierTest {
+  private static final String SIGNATURE =
+      "9baf5a7464bd86740ad5a06e439dcf535a075022ed2c92d74efacf646d79328e";
+  private final WebhookVerifier verifier = new WebhookVerifier("amt");
+  private final byte[] payload = "challenge".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void testEveryInputMatchesTheSignature() throws SmartcarException {
+    Assert.assertEquals(this.verifier.hashChallenge("challenge"), SIGNATURE);
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, this.payload));
+    Assert.assertTrue(this.verifier.verify(SIGNATURE.toUpperCase(), this.payload));
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, ByteBuffer.wrap(this.payload)));
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, (ByteBuffer) ByteBuffer.allocateDirect(9).put(this.payload).flip()));
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, new ByteArrayInputStream(this.payload)));
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, "challenge"));
+
+    byte[] padded = "xxchallengexx".getBytes(StandardCharsets.UTF_8);
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, padded, 2, 9));
+  }
+
+  @Test
+  public void testInvalidSignaturesAreRejected() {
+    Assert.assertFalse(this.verifier.verify(SIGNATURE, "challenge!".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertFalse(this.verifier.verify(SIGNATURE.substring(1), this.payload));
+    Assert.assertFalse(this.verifier.verify(SIGNATURE.replace('e', 'g'), this.payload));
+    Assert.assertFalse(this.verifier.verify(null, this.payload));
+    // A rejected call must not leave state behind for the next one on the thread.
+    Assert.assertTrue(this.verifier.verify(SIGNATURE, this.payload));
+  }
+
+  @Test
+  public void testVerifiersWithDifferentKeysShareAThread() {
+    WebhookVerifier other = new WebhookVerifier("other");
+    String otherSignature = other.hashChallenge("challenge");
+    Assert.assertNotEquals(otherSignature, SIGNATURE);
+
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(this.verifier.verify(SIGNATURE, this.payload));
+      Assert.assertTrue(other.verify(otherSignature, this.payload));
+      Assert.assertFalse(other.verify(SIGNATURE, this.payload));
+    }
+    Assert.assertSame(WebhookVerifier.forKey("amt"), WebhookVerifier.forKey("amt"));
+    Assert.assertTrue(WebhookVerifier.forKey("amt").verify(SIGNATURE, this.payload));
+  }
+}